@@ -0,0 +1,146 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.scheduler.events.EventDispatcher;
+import org.apache.aurora.scheduler.events.EventSink;
+import org.apache.aurora.scheduler.events.PubsubEvent;
+import org.apache.aurora.scheduler.events.PubsubEvent.DriverRegistered;
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.SchedulerActive;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.events.PubsubEvent.Vetoed;
+import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for pubsub event dispatch.
+ */
+public class EventBusBenchmarks {
+
+  private EventBusBenchmarks() {
+    // Benchmark container.
+  }
+
+  /**
+   * Measures fan-out of task state change and vetoed events to a set of subscribers, through a
+   * guava {@link EventBus} and through an {@link EventDispatcher}.
+   */
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+  @Measurement(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Fork(1)
+  @State(Scope.Benchmark)
+  public static class DispatchBenchmark {
+    private static final int SUBSCRIBERS = 10;
+
+    @Param({"false", "true"})
+    public boolean typedDispatch;
+
+    private EventSink eventSink;
+    private PubsubEvent taskStateChange;
+    private PubsubEvent vetoed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      if (typedDispatch) {
+        EventDispatcher dispatcher = new EventDispatcher();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+          dispatcher.register(new Subscriber());
+        }
+        eventSink = dispatcher;
+      } else {
+        final EventBus eventBus = new EventBus();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+          eventBus.register(new Subscriber());
+        }
+        eventSink = new EventSink() {
+          @Override
+          public void post(PubsubEvent event) {
+            eventBus.post(event);
+          }
+        };
+      }
+
+      IScheduledTask task = IScheduledTask.build(new ScheduledTask()
+          .setStatus(ScheduleStatus.RUNNING)
+          .setAssignedTask(new AssignedTask().setTaskId("task-id")));
+      taskStateChange = TaskStateChange.transition(task, ScheduleStatus.STARTING);
+      vetoed = new Vetoed("task-id", ImmutableSet.of(new Veto("veto", 1)));
+    }
+
+    @Benchmark
+    public void taskStateChange() {
+      eventSink.post(taskStateChange);
+    }
+
+    @Benchmark
+    public void vetoed() {
+      eventSink.post(vetoed);
+    }
+  }
+
+  // Subscribes to a mix of event types, as scheduler subscribers typically do.
+  private static class Subscriber implements EventSubscriber {
+    private long received;
+
+    @Subscribe
+    public void taskChangedState(TaskStateChange event) {
+      received++;
+    }
+
+    @Subscribe
+    public void vetoed(Vetoed event) {
+      received++;
+    }
+
+    @Subscribe
+    public void tasksDeleted(TasksDeleted event) {
+      received++;
+    }
+
+    @Subscribe
+    public void driverRegistered(DriverRegistered event) {
+      received++;
+    }
+
+    @Subscribe
+    public void schedulerActive(SchedulerActive event) {
+      received++;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.ExecutorConfig;
+import org.apache.aurora.gen.Identity;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.base.Query;
+import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.Storage.MutableStoreProvider;
+import org.apache.aurora.scheduler.storage.Storage.MutateWork;
+import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
+import org.apache.aurora.scheduler.storage.Storage.Work;
+import org.apache.aurora.scheduler.storage.TaskStore.Mutable.TaskMutation;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.mem.MemStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the in-memory task store.
+ */
+public class MemTaskStoreBenchmarks {
+
+  private MemTaskStoreBenchmarks() {
+    // Benchmark container.
+  }
+
+  static IScheduledTask makeTask(String role, String job, int instance, ScheduleStatus status) {
+    return IScheduledTask.build(new ScheduledTask()
+        .setStatus(status)
+        .setAssignedTask(new AssignedTask()
+            .setInstanceId(instance)
+            .setTaskId(role + "-" + job + "-" + instance)
+            .setSlaveHost("slave-" + (instance % 1000))
+            .setTask(new TaskConfig()
+                .setJobName(job)
+                .setEnvironment("prod")
+                .setOwner(new Identity(role, role))
+                .setExecutorConfig(new ExecutorConfig("aurora", "config")))));
+  }
+
+  static Storage populatedStorage(int roles, int jobsPerRole, int instancesPerJob) {
+    Storage storage = MemStorage.newEmptyStorage();
+    final ImmutableSet.Builder<IScheduledTask> tasks = ImmutableSet.builder();
+    for (int r = 0; r < roles; r++) {
+      for (int j = 0; j < jobsPerRole; j++) {
+        for (int i = 0; i < instancesPerJob; i++) {
+          tasks.add(makeTask("role" + r, "job" + j, i, ScheduleStatus.RUNNING));
+        }
+      }
+    }
+    storage.write(new MutateWork.NoResult.Quiet() {
+      @Override
+      protected void execute(MutableStoreProvider storeProvider) {
+        storeProvider.getUnsafeTaskStore().saveTasks(tasks.build());
+      }
+    });
+    return storage;
+  }
+
+  /**
+   * Measures weakly-consistent reads of the secondary indices while a single writer continuously
+   * moves tasks between statuses, which re-keys the status index on every mutation.
+   */
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+  @Measurement(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Fork(1)
+  @State(Scope.Group)
+  public static class ConcurrentIndexReadsBenchmark {
+    private static final int ROLES = 100;
+    private static final int JOBS_PER_ROLE = 10;
+
+    @Param({"20", "200"})
+    public int instancesPerJob;
+
+    private Storage storage;
+    private final AtomicInteger nextJob = new AtomicInteger();
+    private final AtomicInteger nextMutation = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      storage = populatedStorage(ROLES, JOBS_PER_ROLE, instancesPerJob);
+    }
+
+    private Set<IScheduledTask> read(final Query.Builder query) {
+      return storage.weaklyConsistentRead(new Work.Quiet<Set<IScheduledTask>>() {
+        @Override
+        public Set<IScheduledTask> apply(StoreProvider storeProvider) {
+          return storeProvider.getTaskStore().fetchTasks(query);
+        }
+      });
+    }
+
+    @Benchmark
+    @Group("readsDuringMutations")
+    @GroupThreads(3)
+    public Set<IScheduledTask> readJob() {
+      int job = nextJob.incrementAndGet();
+      return read(Query.jobScoped(
+          JobKeys.from("role" + job % ROLES, "prod", "job" + job % JOBS_PER_ROLE)).active());
+    }
+
+    @Benchmark
+    @Group("readsDuringMutations")
+    @GroupThreads(1)
+    public Set<IScheduledTask> readRoleByStatus() {
+      return read(Query.roleScoped("role" + nextJob.incrementAndGet() % ROLES)
+          .byStatus(ScheduleStatus.RUNNING));
+    }
+
+    @Benchmark
+    @Group("readsDuringMutations")
+    @GroupThreads(1)
+    public Set<IScheduledTask> mutateTasks() {
+      final int mutation = nextMutation.incrementAndGet();
+      final ScheduleStatus status =
+          mutation % 2 == 0 ? ScheduleStatus.RUNNING : ScheduleStatus.KILLING;
+      return storage.write(new MutateWork.Quiet<Set<IScheduledTask>>() {
+        @Override
+        public Set<IScheduledTask> apply(MutableStoreProvider storeProvider) {
+          return storeProvider.getUnsafeTaskStore().mutateTasks(
+              Query.jobScoped(JobKeys.from(
+                  "role" + mutation % ROLES,
+                  "prod",
+                  "job" + (mutation / ROLES) % JOBS_PER_ROLE)),
+              new TaskMutation() {
+                @Override
+                public IScheduledTask apply(IScheduledTask task) {
+                  return IScheduledTask.build(task.newBuilder().setStatus(status));
+                }
+              });
+        }
+      });
+    }
+  }
+}
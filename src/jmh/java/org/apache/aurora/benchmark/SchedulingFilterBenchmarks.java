@@ -0,0 +1,178 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.twitter.common.collections.Pair;
+import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
+
+import org.apache.aurora.gen.Attribute;
+import org.apache.aurora.gen.Constraint;
+import org.apache.aurora.gen.HostAttributes;
+import org.apache.aurora.gen.HostStatus;
+import org.apache.aurora.gen.Identity;
+import org.apache.aurora.gen.LimitConstraint;
+import org.apache.aurora.gen.MaintenanceMode;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.gen.TaskConstraint;
+import org.apache.aurora.gen.ValueConstraint;
+import org.apache.aurora.scheduler.ResourceSlot;
+import org.apache.aurora.scheduler.filter.AttributeAggregate;
+import org.apache.aurora.scheduler.filter.SchedulingFilter;
+import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+import org.apache.aurora.scheduler.filter.SchedulingFilterImpl;
+import org.apache.aurora.scheduler.state.MaintenanceController;
+import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.Storage.MutableStoreProvider;
+import org.apache.aurora.scheduler.storage.Storage.MutateWork;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
+import org.apache.aurora.scheduler.storage.mem.MemStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the scheduling filter.
+ */
+public class SchedulingFilterBenchmarks {
+
+  private SchedulingFilterBenchmarks() {
+    // Benchmark container.
+  }
+
+  /**
+   * Measures filtering of a constrained task against a stream of offers from distinct hosts,
+   * with and without compiled filter plans.
+   */
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+  @Measurement(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Fork(1)
+  @State(Scope.Benchmark)
+  public static class FilterBenchmark {
+    private static final int HOSTS = 1000;
+    private static final ResourceSlot OFFER = ResourceSlot.from(
+        16,
+        Amount.of(64L, Data.GB),
+        Amount.of(1024L, Data.GB),
+        100);
+
+    @Param({"false", "true"})
+    public boolean enablePlans;
+
+    private SchedulingFilter filter;
+    private ITaskConfig task;
+    private AttributeAggregate jobState;
+    private final AtomicInteger nextHost = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      final Storage storage = MemStorage.newEmptyStorage();
+      storage.write(new MutateWork.NoResult.Quiet() {
+        @Override
+        protected void execute(MutableStoreProvider storeProvider) {
+          for (int i = 0; i < HOSTS; i++) {
+            storeProvider.getAttributeStore().saveHostAttributes(IHostAttributes.build(
+                new HostAttributes()
+                    .setHost(host(i))
+                    .setAttributes(ImmutableSet.of(
+                        attribute("host", host(i)),
+                        attribute("rack", "rack-" + i % 50),
+                        attribute("zone", "zone-" + i % 3)))));
+          }
+        }
+      });
+      filter = new SchedulingFilterImpl(storage, new NoMaintenance(), enablePlans);
+      task = ITaskConfig.build(new TaskConfig()
+          .setOwner(new Identity("role", "role"))
+          .setEnvironment("prod")
+          .setJobName("job")
+          .setNumCpus(1)
+          .setRamMb(1024)
+          .setDiskMb(1024)
+          .setRequestedPorts(ImmutableSet.of("http"))
+          .setConstraints(ImmutableSet.of(
+              new Constraint("host", TaskConstraint.limit(new LimitConstraint(1))),
+              new Constraint("rack", TaskConstraint.limit(new LimitConstraint(10))),
+              new Constraint("zone", TaskConstraint.value(
+                  new ValueConstraint(false, ImmutableSet.of("zone-0", "zone-1")))))));
+      jobState = AttributeAggregate.fromCounts(ImmutableMap.of(
+          Pair.of("host", host(0)), 1L,
+          Pair.of("rack", "rack-0"), 1L,
+          Pair.of("zone", "zone-0"), 1L));
+    }
+
+    private static String host(int i) {
+      return "slave-" + i;
+    }
+
+    private static Attribute attribute(String name, String value) {
+      return new Attribute(name, ImmutableSet.of(value));
+    }
+
+    @Benchmark
+    public Set<Veto> filter() {
+      return filter.filter(
+          OFFER,
+          host(nextHost.incrementAndGet() % HOSTS),
+          task,
+          "task-id",
+          jobState);
+    }
+  }
+
+  private static class NoMaintenance implements MaintenanceController {
+    @Override
+    public MaintenanceMode getMode(String host) {
+      return MaintenanceMode.NONE;
+    }
+
+    @Override
+    public Set<HostStatus> startMaintenance(Set<String> hosts) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<HostStatus> drain(Set<String> hosts) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<HostStatus> getStatus(Set<String> hosts) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<HostStatus> endMaintenance(Set<String> hosts) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
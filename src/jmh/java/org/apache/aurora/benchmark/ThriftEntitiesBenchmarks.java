@@ -0,0 +1,138 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.Constraint;
+import org.apache.aurora.gen.ExecutorConfig;
+import org.apache.aurora.gen.Identity;
+import org.apache.aurora.gen.LimitConstraint;
+import org.apache.aurora.gen.Metadata;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.gen.TaskConstraint;
+import org.apache.aurora.gen.TaskEvent;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.entities.ITaskEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the immutable thrift entity wrappers.
+ */
+public class ThriftEntitiesBenchmarks {
+
+  private ThriftEntitiesBenchmarks() {
+    // Benchmark container.
+  }
+
+  /**
+   * Measures the task mutation made when a task changes state, which sets the task status and
+   * appends a task event, by copying the task through a builder and through structurally shared
+   * {@code with} methods.
+   * <p>
+   * Run with {@code -PbenchmarkProfiler=gc} to compare allocation rates.
+   */
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+  @Measurement(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Fork(1)
+  @State(Scope.Benchmark)
+  public static class ChangeStateBenchmark {
+    private static final int TASK_EVENTS = 10;
+
+    @Param({"false", "true"})
+    public boolean structuralSharing;
+
+    private IScheduledTask task;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      List<TaskEvent> events = Lists.newArrayList();
+      for (int i = 0; i < TASK_EVENTS; i++) {
+        events.add(event(i));
+      }
+      task = IScheduledTask.build(new ScheduledTask()
+          .setStatus(ScheduleStatus.RUNNING)
+          .setTaskEvents(events)
+          .setAssignedTask(new AssignedTask()
+              .setTaskId("role-prod-job-0-task-id")
+              .setSlaveId("slave-id")
+              .setSlaveHost("slave-host")
+              .setInstanceId(0)
+              .setAssignedPorts(ImmutableMap.of("http", 31000, "admin", 31001))
+              .setTask(new TaskConfig()
+                  .setOwner(new Identity("role", "user"))
+                  .setEnvironment("prod")
+                  .setJobName("job")
+                  .setNumCpus(1)
+                  .setRamMb(1024)
+                  .setDiskMb(1024)
+                  .setProduction(true)
+                  .setRequestedPorts(ImmutableSet.of("http", "admin"))
+                  .setTaskLinks(ImmutableMap.of("http", "http://%host%:%port:http%"))
+                  .setConstraints(ImmutableSet.of(
+                      new Constraint("host", TaskConstraint.limit(new LimitConstraint(1)))))
+                  .setMetadata(ImmutableSet.of(new Metadata("key", "value")))
+                  .setExecutorConfig(new ExecutorConfig("executor", Strings.repeat("x", 4096))))));
+    }
+
+    private static TaskEvent event(long timestamp) {
+      return new TaskEvent()
+          .setTimestamp(timestamp)
+          .setStatus(ScheduleStatus.KILLING)
+          .setMessage("Killed by user")
+          .setScheduler("scheduler-host");
+    }
+
+    @Benchmark
+    public IScheduledTask changeState() {
+      TaskEvent event = event(TASK_EVENTS);
+      if (structuralSharing) {
+        return task
+            .withStatus(ScheduleStatus.KILLING)
+            .withTaskEvents(ImmutableList.<ITaskEvent>builder()
+                .addAll(task.getTaskEvents())
+                .add(ITaskEvent.build(event))
+                .build());
+      } else {
+        ScheduledTask builder = task.newBuilder();
+        builder.setStatus(ScheduleStatus.KILLING);
+        builder.addToTaskEvents(event);
+        return IScheduledTask.build(builder);
+      }
+    }
+  }
+}
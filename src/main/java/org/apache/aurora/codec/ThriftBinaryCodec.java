@@ -13,6 +13,7 @@
  */
 package org.apache.aurora.codec;
 
+import java.io.OutputStream;
 import java.util.Objects;
 
 import javax.annotation.Nullable;
@@ -23,6 +24,7 @@ import org.apache.thrift.TException;
 import org.apache.thrift.TSerializer;
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TIOStreamTransport;
 
 /**
  * Codec that works for thrift objects.
@@ -117,6 +119,26 @@ public final class ThriftBinaryCodec {
     }
   }
 
+  /**
+   * Encodes a thrift object to an output stream, without buffering the encoded object in memory.
+   *
+   * @param tBase Object to encode.
+   * @param output Stream to write the encoded object to.  The stream is not flushed or closed.
+   * @throws CodingException If the object could not be encoded or written.
+   */
+  public static void encodeNonNull(TBase<?, ?> tBase, OutputStream output)
+      throws CodingException {
+
+    Objects.requireNonNull(tBase);
+    Objects.requireNonNull(output);
+
+    try {
+      tBase.write(PROTOCOL_FACTORY.getProtocol(new TIOStreamTransport(output)));
+    } catch (TException e) {
+      throw new CodingException("Failed to serialize " + tBase.getClass().getSimpleName(), e);
+    }
+  }
+
   /**
    * Thrown when serialization or deserialization failed.
    */
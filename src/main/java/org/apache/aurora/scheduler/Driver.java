@@ -13,6 +13,7 @@
  */
 package org.apache.aurora.scheduler;
 
+import java.util.Collection;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -51,6 +52,14 @@ public interface Driver {
    */
   void launchTask(OfferID offerId, TaskInfo task);
 
+  /**
+   * Launches multiple tasks using a single resource offer.
+   *
+   * @param offerId ID of the resource offer to accept with the tasks.
+   * @param tasks Tasks to launch.
+   */
+  void launchTasks(OfferID offerId, Collection<TaskInfo> tasks);
+
   /**
    * Declines a resource offer.
    *
@@ -120,6 +129,11 @@ public interface Driver {
       get(State.RUNNING).launchTasks(ImmutableList.of(offerId), ImmutableList.of(task));
     }
 
+    @Override
+    public void launchTasks(OfferID offerId, Collection<TaskInfo> tasks) {
+      get(State.RUNNING).launchTasks(ImmutableList.of(offerId), tasks);
+    }
+
     @Override
     public void declineOffer(OfferID offerId) {
       get(State.RUNNING).declineOffer(offerId);
@@ -22,6 +22,7 @@ import javax.inject.Inject;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.twitter.common.application.Lifecycle;
 import com.twitter.common.inject.TimedInterceptor.Timed;
 import com.twitter.common.stats.Stats;
@@ -36,10 +37,13 @@ import org.apache.aurora.scheduler.base.SchedulerException;
 import org.apache.aurora.scheduler.events.EventSink;
 import org.apache.aurora.scheduler.events.PubsubEvent.DriverDisconnected;
 import org.apache.aurora.scheduler.events.PubsubEvent.DriverRegistered;
+import org.apache.aurora.scheduler.events.PubsubEvent.HostAttributesChanged;
 import org.apache.aurora.scheduler.state.StateManager;
+import org.apache.aurora.scheduler.storage.AttributeStore;
 import org.apache.aurora.scheduler.storage.Storage;
 import org.apache.aurora.scheduler.storage.Storage.MutableStoreProvider;
 import org.apache.aurora.scheduler.storage.Storage.MutateWork;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.mesos.Protos.ExecutorID;
 import org.apache.mesos.Protos.FrameworkID;
 import org.apache.mesos.Protos.MasterInfo;
@@ -148,14 +152,29 @@ class MesosSchedulerImpl implements Scheduler {
     // TODO(wfarner): Reconsider the requirements here, we might be able to save host offers
     //                asynchronously and augment the task scheduler to skip over offers when the
     //                host attributes cannot be found. (AURORA-116)
-    storage.write(new MutateWork.NoResult.Quiet() {
-      @Override
-      protected void execute(MutableStoreProvider storeProvider) {
-        for (final Offer offer : offers) {
-          storeProvider.getAttributeStore().saveHostAttributes(Conversions.getAttributes(offer));
-        }
-      }
-    });
+    List<IHostAttributes> changed = storage.write(
+        new MutateWork.Quiet<List<IHostAttributes>>() {
+          @Override
+          public List<IHostAttributes> apply(MutableStoreProvider storeProvider) {
+            ImmutableList.Builder<IHostAttributes> builder = ImmutableList.builder();
+            AttributeStore.Mutable attributeStore = storeProvider.getAttributeStore();
+            for (final Offer offer : offers) {
+              IHostAttributes attributes = Conversions.getAttributes(offer);
+              Optional<IHostAttributes> stored =
+                  attributeStore.getHostAttributes(attributes.getHost());
+              attributeStore.saveHostAttributes(attributes);
+              if (!stored.isPresent()
+                  || !stored.get().getAttributes().equals(attributes.getAttributes())) {
+
+                builder.add(attributes);
+              }
+            }
+            return builder.build();
+          }
+        });
+    for (IHostAttributes attributes : changed) {
+      eventSink.post(new HostAttributesChanged(attributes));
+    }
 
     for (Offer offer : offers) {
       if (LOG.isLoggable(Level.FINE)) {
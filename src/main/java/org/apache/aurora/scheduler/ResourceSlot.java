@@ -79,6 +79,16 @@ public final class ResourceSlot {
     return resources.getNumPorts();
   }
 
+  /**
+   * Tests whether this slot has at least the resources of another slot along every dimension.
+   *
+   * @param other Slot being compared to.
+   * @return {@code true} if this slot can accommodate {@code other}.
+   */
+  public boolean greaterThanOrEqual(ResourceSlot other) {
+    return resources.greaterThanOrEqual(other.resources);
+  }
+
   @VisibleForTesting
   public static ResourceSlot from(double cpu,
                                   Amount<Long, Data> ram,
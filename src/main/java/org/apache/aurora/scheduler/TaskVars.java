@@ -134,7 +134,7 @@ class TaskVars implements EventSubscriber {
     if (Strings.isNullOrEmpty(task.getAssignedTask().getSlaveHost())) {
       rack = Optional.absent();
     } else {
-      rack = storage.consistentRead(new Work.Quiet<Optional<String>>() {
+      rack = storage.weaklyConsistentRead(new Work.Quiet<Optional<String>>() {
         @Override
         public Optional<String> apply(StoreProvider storeProvider) {
           Optional<IAttribute> rack = FluentIterable
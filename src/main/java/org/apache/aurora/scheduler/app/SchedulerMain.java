@@ -53,6 +53,7 @@ import org.apache.aurora.scheduler.DriverFactory.DriverFactoryImpl;
 import org.apache.aurora.scheduler.MesosTaskFactory.ExecutorConfig;
 import org.apache.aurora.scheduler.SchedulerLifecycle;
 import org.apache.aurora.scheduler.cron.quartz.CronModule;
+import org.apache.aurora.scheduler.log.file.FileLogStreamModule;
 import org.apache.aurora.scheduler.log.mesos.MesosLogStreamModule;
 import org.apache.aurora.scheduler.storage.backup.BackupModule;
 import org.apache.aurora.scheduler.storage.db.DbModule;
@@ -105,6 +106,26 @@ public class SchedulerMain extends AbstractApplication {
   @CmdLine(name = "viz_job_url_prefix", help = "URL prefix for job container stats.")
   private static final Arg<String> STATS_URL_PREFIX = Arg.create("");
 
+  /**
+   * Implementations of the log that scheduler storage is persisted to.
+   */
+  public enum LogBackend {
+    /**
+     * The mesos native replicated log.
+     */
+    MESOS,
+
+    /**
+     * Segment files in a local directory, which is not replicated.
+     */
+    FILE
+  }
+
+  @CmdLine(name = "log_backend",
+      help = "The log to persist scheduler storage to: the MESOS replicated log, or a local FILE "
+          + "log suitable only for a single scheduler.")
+  private static final Arg<LogBackend> LOG_BACKEND = Arg.create(LogBackend.MESOS);
+
   @Inject private SingletonService schedulerService;
   @Inject private LocalServiceRegistry serviceRegistry;
   @Inject private SchedulerLifecycle schedulerLifecycle;
@@ -163,7 +184,11 @@ public class SchedulerMain extends AbstractApplication {
       protected void configure() {
         bind(DriverFactory.class).to(DriverFactoryImpl.class);
         bind(DriverFactoryImpl.class).in(Singleton.class);
-        install(new MesosLogStreamModule(zkClientConfig));
+        if (LOG_BACKEND.get() == LogBackend.FILE) {
+          install(new FileLogStreamModule());
+        } else {
+          install(new MesosLogStreamModule(zkClientConfig));
+        }
       }
     };
   }
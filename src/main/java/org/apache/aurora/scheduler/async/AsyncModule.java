@@ -48,12 +48,14 @@ import org.apache.aurora.scheduler.async.GcExecutorLauncher.RandomGcExecutorSett
 import org.apache.aurora.scheduler.async.HistoryPruner.HistoryPrunnerSettings;
 import org.apache.aurora.scheduler.async.OfferQueue.OfferQueueImpl;
 import org.apache.aurora.scheduler.async.OfferQueue.OfferReturnDelay;
+import org.apache.aurora.scheduler.async.OfferQueue.SkipInsufficientOffers;
 import org.apache.aurora.scheduler.async.RescheduleCalculator.RescheduleCalculatorImpl;
 import org.apache.aurora.scheduler.async.TaskGroups.TaskGroupsSettings;
 import org.apache.aurora.scheduler.async.TaskScheduler.TaskSchedulerImpl;
 import org.apache.aurora.scheduler.base.AsyncUtil;
 import org.apache.aurora.scheduler.events.PubsubEventModule;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
+import org.apache.aurora.scheduler.filter.AttributeAggregateCache;
 
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
@@ -103,6 +105,12 @@ public class AsyncModule extends AbstractModule {
   private static final Arg<Amount<Integer, Time>> OFFER_HOLD_JITTER_WINDOW =
       Arg.create(Amount.of(1, Time.MINUTES));
 
+  @CmdLine(name = "skip_insufficient_offers",
+      help = "Skip offers that cannot have the resources a task requires without evaluating them "
+          + "against the scheduling filter.  Skipped offers do not contribute to the reason "
+          + "reported for a pending task.")
+  private static final Arg<Boolean> SKIP_INSUFFICIENT_OFFERS = Arg.create(false);
+
   @CmdLine(name = "history_prune_threshold",
       help = "Time after which the scheduler will prune terminated task history.")
   private static final Arg<Amount<Long, Time>> HISTORY_PRUNE_THRESHOLD =
@@ -121,6 +129,12 @@ public class AsyncModule extends AbstractModule {
       help = "Maximum number of scheduling attempts to make per second.")
   private static final Arg<Double> MAX_SCHEDULE_ATTEMPTS_PER_SEC = Arg.create(20D);
 
+  @Positive
+  @CmdLine(name = "max_tasks_per_schedule_attempt",
+      help = "Maximum number of equivalent tasks to place in a single scheduling attempt.  Values "
+          + "greater than 1 allow multiple tasks to be packed onto a single offer.")
+  private static final Arg<Integer> MAX_TASKS_PER_SCHEDULE_ATTEMPT = Arg.create(1);
+
   @CmdLine(name = "flapping_task_threshold",
       help = "A task that repeatedly runs for less than this time is considered to be flapping.")
   private static final Arg<Amount<Long, Time>> FLAPPING_THRESHOLD =
@@ -150,6 +164,17 @@ public class AsyncModule extends AbstractModule {
       help = "Enable the preemptor and preemption")
   private static final Arg<Boolean> ENABLE_PREEMPTOR = Arg.create(true);
 
+  @Positive
+  @CmdLine(name = "preemption_search_threads",
+      help = "Number of threads used to evaluate slaves when searching for tasks to preempt.  A "
+          + "value of 1 evaluates slaves on the scheduling thread.")
+  private static final Arg<Integer> PREEMPTION_SEARCH_THREADS = Arg.create(1);
+
+  @CmdLine(name = "preemption_search_budget",
+      help = "Maximum time to spend evaluating slaves in a single preemption attempt.")
+  private static final Arg<Amount<Long, Time>> PREEMPTION_SEARCH_BUDGET =
+      Arg.create(Amount.of(2L, Time.SECONDS));
+
   private static final Preemptor NULL_PREEMPTOR = new Preemptor() {
     @Override
     public Optional<String> findPreemptionSlotFor(
@@ -215,7 +240,8 @@ public class AsyncModule extends AbstractModule {
       protected void configure() {
         bind(TaskGroupsSettings.class).toInstance(new TaskGroupsSettings(
             new TruncatedBinaryBackoff(INITIAL_SCHEDULE_DELAY.get(), MAX_SCHEDULE_DELAY.get()),
-            RateLimiter.create(MAX_SCHEDULE_ATTEMPTS_PER_SEC.get())));
+            RateLimiter.create(MAX_SCHEDULE_ATTEMPTS_PER_SEC.get()),
+            MAX_TASKS_PER_SCHEDULE_ATTEMPT.get()));
 
         bind(RescheduleCalculatorImpl.RescheduleCalculatorSettings.class)
             .toInstance(new RescheduleCalculatorImpl.RescheduleCalculatorSettings(
@@ -228,6 +254,11 @@ public class AsyncModule extends AbstractModule {
         if (ENABLE_PREEMPTOR.get()) {
           bind(PREEMPTOR_KEY).to(PreemptorImpl.class);
           bind(PreemptorImpl.class).in(Singleton.class);
+          bind(PreemptorImpl.SearchSettings.class).toInstance(new PreemptorImpl.SearchSettings(
+              PREEMPTION_SEARCH_THREADS.get(),
+              PREEMPTION_SEARCH_BUDGET.get()));
+          bind(PreemptionCandidates.class).in(Singleton.class);
+          expose(PreemptionCandidates.class);
           LOG.info("Preemptor Enabled.");
         } else {
           bind(PREEMPTOR_KEY).toInstance(NULL_PREEMPTOR);
@@ -240,6 +271,11 @@ public class AsyncModule extends AbstractModule {
         expose(TaskGroups.class);
       }
     });
+    if (ENABLE_PREEMPTOR.get()) {
+      // The candidate index is only read by the preemptor, so it need not track task changes
+      // when preemption is disabled.
+      PubsubEventModule.bindSubscriber(binder(), PreemptionCandidates.class);
+    }
     bindTaskScheduler(binder(), PREEMPTOR_KEY, RESERVATION_DURATION.get());
     PubsubEventModule.bindSubscriber(binder(), TaskGroups.class);
 
@@ -252,6 +288,8 @@ public class AsyncModule extends AbstractModule {
                 OFFER_HOLD_JITTER_WINDOW.get().as(Time.MILLISECONDS),
                 new Random.SystemRandom(new java.util.Random())));
         bind(ScheduledExecutorService.class).toInstance(executor);
+        bind(Boolean.class).annotatedWith(SkipInsufficientOffers.class)
+            .toInstance(SKIP_INSUFFICIENT_OFFERS.get());
         bind(OfferQueue.class).to(OfferQueueImpl.class);
         bind(OfferQueueImpl.class).in(Singleton.class);
         expose(OfferQueue.class);
@@ -318,11 +356,14 @@ public class AsyncModule extends AbstractModule {
             bind(Preemptor.class).to(preemptorKey);
             bind(new TypeLiteral<Amount<Long, Time>>() { }).annotatedWith(ReservationDuration.class)
                 .toInstance(reservationDuration);
+            bind(AttributeAggregateCache.class).in(Singleton.class);
+            expose(AttributeAggregateCache.class);
             bind(TaskScheduler.class).to(TaskSchedulerImpl.class);
             bind(TaskSchedulerImpl.class).in(Singleton.class);
             expose(TaskScheduler.class);
           }
         });
+        PubsubEventModule.bindSubscriber(binder, AttributeAggregateCache.class);
         PubsubEventModule.bindSubscriber(binder, TaskScheduler.class);
   }
 }
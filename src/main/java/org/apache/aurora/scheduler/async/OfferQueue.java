@@ -13,10 +13,14 @@
  */
 package org.apache.aurora.scheduler.async;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -27,18 +31,26 @@ import javax.inject.Inject;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.Subscribe;
+import com.google.inject.BindingAnnotation;
 import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
 import com.twitter.common.quantity.Time;
 import com.twitter.common.stats.Stats;
 
 import org.apache.aurora.gen.MaintenanceMode;
 import org.apache.aurora.scheduler.Driver;
+import org.apache.aurora.scheduler.ResourceSlot;
+import org.apache.aurora.scheduler.configuration.Resources;
 import org.apache.aurora.scheduler.events.PubsubEvent.DriverDisconnected;
 import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
 import org.apache.aurora.scheduler.events.PubsubEvent.HostMaintenanceStateChange;
@@ -48,6 +60,11 @@ import org.apache.mesos.Protos.OfferID;
 import org.apache.mesos.Protos.SlaveID;
 import org.apache.mesos.Protos.TaskInfo;
 
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
 import static org.apache.aurora.gen.MaintenanceMode.DRAINED;
 import static org.apache.aurora.gen.MaintenanceMode.DRAINING;
 import static org.apache.aurora.gen.MaintenanceMode.NONE;
@@ -75,14 +92,39 @@ public interface OfferQueue extends EventSubscriber {
 
   /**
    * Launches the first task that satisfies the {@code acceptor} by returning a {@link TaskInfo}.
+   * When offer skipping is enabled, offers that do not have the {@code required} resources are
+   * not presented to the acceptor.
    *
+   * @param required Minimum resources an offer must have to be considered.
    * @param acceptor Function that determines if an offer is accepted.
    * @return {@code true} if the task was launched, {@code false} if no offers satisfied the
    *         {@code acceptor}.
    * @throws LaunchException If the acceptor accepted an offer, but there was an error launching the
    *                         task.
    */
-  boolean launchFirst(Function<Offer, Optional<TaskInfo>> acceptor) throws LaunchException;
+  boolean launchFirst(ResourceSlot required, Function<Offer, Optional<TaskInfo>> acceptor)
+      throws LaunchException;
+
+  /**
+   * Launches up to {@code maxTasks} tasks that satisfy the {@code acceptor}, packing multiple
+   * tasks onto an offer while its resources allow.  Each offer is presented to the acceptor
+   * repeatedly, less the resources of the tasks already accepted from it, until the acceptor
+   * declines the remainder.  When offer skipping is enabled, offers that do not have the
+   * {@code required} resources are not presented to the acceptor.
+   *
+   * @param required Minimum resources an offer must have to be considered.
+   * @param acceptor Function that determines if an offer is accepted.
+   * @param maxTasks Maximum number of tasks to launch.
+   * @return The number of tasks launched.
+   * @throws LaunchException If the acceptor accepted an offer, but there was an error launching
+   *                         tasks on it.  Tasks accepted from earlier offers will have been
+   *                         launched; only the tasks accepted from the failed offer are reported by
+   *                         {@link LaunchException#getFailedTaskIds()}.
+   */
+  int launchAll(
+      ResourceSlot required,
+      Function<Offer, Optional<TaskInfo>> acceptor,
+      int maxTasks) throws LaunchException;
 
   /**
    * Notifies the offer queue that a host has changed state.
@@ -106,40 +148,77 @@ public interface OfferQueue extends EventSubscriber {
   interface OfferReturnDelay extends Supplier<Amount<Integer, Time>> {
   }
 
+  /**
+   * Binding annotation for whether offers that cannot have the resources required by a task are
+   * skipped without being presented to the acceptor.  Skipped offers are not vetoed, so a task
+   * that fits no offer will not have a pending reason recorded for it.
+   */
+  @BindingAnnotation
+  @Target({ FIELD, PARAMETER, METHOD }) @Retention(RUNTIME)
+  @interface SkipInsufficientOffers { }
+
   /**
    * Thrown when there was an unexpected failure trying to launch a task.
    */
   class LaunchException extends Exception {
+    private final ImmutableSet<String> failedTaskIds;
+
     LaunchException(String msg) {
-      super(msg);
+      this(msg, ImmutableSet.<String>of());
     }
 
     LaunchException(String msg, Throwable cause) {
+      this(msg, cause, ImmutableSet.<String>of());
+    }
+
+    LaunchException(String msg, Set<String> failedTaskIds) {
+      super(msg);
+      this.failedTaskIds = ImmutableSet.copyOf(failedTaskIds);
+    }
+
+    LaunchException(String msg, Throwable cause, Set<String> failedTaskIds) {
       super(msg, cause);
+      this.failedTaskIds = ImmutableSet.copyOf(failedTaskIds);
+    }
+
+    /**
+     * Gets the IDs of the accepted tasks that failed to launch.
+     *
+     * @return IDs of tasks that were accepted but not launched.
+     */
+    public ImmutableSet<String> getFailedTaskIds() {
+      return failedTaskIds;
     }
   }
 
   class OfferQueueImpl implements OfferQueue {
     private static final Logger LOG = Logger.getLogger(OfferQueueImpl.class.getName());
 
-    private final HostOffers hostOffers = new HostOffers();
+    private final HostOffers hostOffers;
     private final AtomicLong offerRaces = Stats.exportLong("offer_accept_races");
+    private final AtomicLong launchAttempts = Stats.exportLong("offer_launch_attempts");
+    private final AtomicLong offersExamined = Stats.exportLong("offer_launch_offers_examined");
+    private final AtomicLong offersSkipped = Stats.exportLong("offer_launch_offers_skipped");
 
     private final Driver driver;
     private final OfferReturnDelay returnDelay;
     private final ScheduledExecutorService executor;
     private final MaintenanceController maintenance;
+    private final boolean skipInsufficientOffers;
 
     @Inject
     OfferQueueImpl(Driver driver,
         OfferReturnDelay returnDelay,
         ScheduledExecutorService executor,
-        MaintenanceController maintenance) {
+        MaintenanceController maintenance,
+        @SkipInsufficientOffers boolean skipInsufficientOffers) {
 
       this.driver = driver;
       this.returnDelay = returnDelay;
       this.executor = executor;
       this.maintenance = maintenance;
+      this.skipInsufficientOffers = skipInsufficientOffers;
+      this.hostOffers = new HostOffers(skipInsufficientOffers);
     }
 
     @Override
@@ -235,10 +314,14 @@ public interface OfferQueue extends EventSubscriber {
     private static class HostOffer {
       private final Offer offer;
       private final MaintenanceMode mode;
+      private final ResourceSlot resources;
+      private final ResourceBucket bucket;
 
       HostOffer(Offer offer, MaintenanceMode mode) {
         this.offer = offer;
         this.mode = mode;
+        this.resources = ResourceSlot.from(offer);
+        this.bucket = ResourceBucket.from(resources);
       }
 
       @Override
@@ -256,14 +339,73 @@ public interface OfferQueue extends EventSubscriber {
       }
     }
 
+    /**
+     * A coarse, logarithmic bucketing of the resources in an offer.  Bucketing is monotonic, so an
+     * offer whose bucket is smaller than that of a task along any resource dimension cannot
+     * satisfy the task.
+     */
+    private static final class ResourceBucket {
+      private final int cpus;
+      private final int ramMb;
+      private final int diskMb;
+      private final int ports;
+
+      private ResourceBucket(int cpus, int ramMb, int diskMb, int ports) {
+        this.cpus = cpus;
+        this.ramMb = ramMb;
+        this.diskMb = diskMb;
+        this.ports = ports;
+      }
+
+      static ResourceBucket from(ResourceSlot resources) {
+        return new ResourceBucket(
+            bucket(resources.getNumCpus()),
+            bucket(resources.getRam().as(Data.MB)),
+            bucket(resources.getDisk().as(Data.MB)),
+            bucket(resources.getNumPorts()));
+      }
+
+      private static int bucket(double value) {
+        // Values in [2^(n-1), 2^n) fall into bucket n, and values less than 1 into bucket 0.
+        return value < 1 ? 0 : Long.SIZE - Long.numberOfLeadingZeros((long) value);
+      }
+
+      boolean mayFit(ResourceBucket required) {
+        return cpus >= required.cpus
+            && ramMb >= required.ramMb
+            && diskMb >= required.diskMb
+            && ports >= required.ports;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+        if (!(o instanceof ResourceBucket)) {
+          return false;
+        }
+        ResourceBucket other = (ResourceBucket) o;
+        return cpus == other.cpus
+            && ramMb == other.ramMb
+            && diskMb == other.diskMb
+            && ports == other.ports;
+      }
+
+      @Override
+      public int hashCode() {
+        return Objects.hash(cpus, ramMb, diskMb, ports);
+      }
+    }
+
     /**
      * A container for the data structures used by this class, to make it easier to reason about
      * the different indices used and their consistency.
      */
     private static class HostOffers {
+      // Currently, the only preference is based on host maintenance status.
+      private static final List<MaintenanceMode> PREFERENCE_ORDER =
+          ImmutableList.of(NONE, SCHEDULED, DRAINING, DRAINED);
+
       private static final Comparator<HostOffer> PREFERENCE_COMPARATOR =
-          // Currently, the only preference is based on host maintenance status.
-          Ordering.explicit(NONE, SCHEDULED, DRAINING, DRAINED)
+          Ordering.explicit(PREFERENCE_ORDER)
               .onResultOf(new Function<HostOffer, MaintenanceMode>() {
                 @Override
                 public MaintenanceMode apply(HostOffer offer) {
@@ -276,8 +418,19 @@ public interface OfferQueue extends EventSubscriber {
       private final Map<OfferID, HostOffer> offersById = Maps.newHashMap();
       private final Map<SlaveID, HostOffer> offersBySlave = Maps.newHashMap();
       private final Map<String, HostOffer> offersByHost = Maps.newHashMap();
+      // Offers grouped by maintenance mode, then by resource bucket.  The buckets and their
+      // contents may be iterated without holding the lock.  Only maintained when offers are
+      // skipped by resources.
+      private final Map<MaintenanceMode, ConcurrentMap<ResourceBucket, Set<HostOffer>>>
+          offersByBucket = Maps.newEnumMap(MaintenanceMode.class);
+      private final boolean indexBuckets;
+
+      HostOffers(boolean indexBuckets) {
+        this.indexBuckets = indexBuckets;
+        for (MaintenanceMode mode : PREFERENCE_ORDER) {
+          offersByBucket.put(mode, Maps.<ResourceBucket, Set<HostOffer>>newConcurrentMap());
+        }
 
-      HostOffers() {
         // Potential gotcha - since this is a ConcurrentSkipListSet, size() is more expensive.
         // Could track this separately if it turns out to pose problems.
         Stats.exportSize("outstanding_offers", hostOffers);
@@ -292,6 +445,15 @@ public interface OfferQueue extends EventSubscriber {
         offersById.put(offer.offer.getId(), offer);
         offersBySlave.put(offer.offer.getSlaveId(), offer);
         offersByHost.put(offer.offer.getHostname(), offer);
+        if (indexBuckets) {
+          ConcurrentMap<ResourceBucket, Set<HostOffer>> buckets = offersByBucket.get(offer.mode);
+          Set<HostOffer> bucket = buckets.get(offer.bucket);
+          if (bucket == null) {
+            bucket = Sets.newConcurrentHashSet();
+            buckets.put(offer.bucket, bucket);
+          }
+          bucket.add(offer);
+        }
       }
 
       synchronized boolean remove(OfferID id) {
@@ -300,6 +462,16 @@ public interface OfferQueue extends EventSubscriber {
           hostOffers.remove(removed);
           offersBySlave.remove(removed.offer.getSlaveId());
           offersByHost.remove(removed.offer.getHostname());
+          if (indexBuckets) {
+            ConcurrentMap<ResourceBucket, Set<HostOffer>> buckets =
+                offersByBucket.get(removed.mode);
+            Set<HostOffer> bucket = buckets.get(removed.bucket);
+            bucket.remove(removed);
+            if (bucket.isEmpty()) {
+              // A candidate search may still be iterating the pruned bucket, which is harmless.
+              buckets.remove(removed.bucket);
+            }
+          }
         }
         return removed != null;
       }
@@ -317,29 +489,78 @@ public interface OfferQueue extends EventSubscriber {
         return Iterables.unmodifiableIterable(hostOffers);
       }
 
+      /**
+       * Gets the offers that have the required resources, in order of preference.  Offers that
+       * are excluded are counted in {@code skipped}.  Requires that buckets are indexed.
+       */
+      synchronized Iterable<HostOffer> getWeaklyConsistentCandidates(
+          final ResourceSlot required,
+          final AtomicLong skipped) {
+
+        ResourceBucket requiredBucket = ResourceBucket.from(required);
+        ImmutableList.Builder<Iterable<HostOffer>> candidates = ImmutableList.builder();
+        for (MaintenanceMode mode : PREFERENCE_ORDER) {
+          for (Map.Entry<ResourceBucket, Set<HostOffer>> entry
+              : offersByBucket.get(mode).entrySet()) {
+
+            if (entry.getKey().mayFit(requiredBucket)) {
+              candidates.add(Iterables.unmodifiableIterable(entry.getValue()));
+            } else {
+              skipped.addAndGet(entry.getValue().size());
+            }
+          }
+        }
+
+        return FluentIterable.from(Iterables.concat(candidates.build()))
+            .filter(new Predicate<HostOffer>() {
+              @Override
+              public boolean apply(HostOffer offer) {
+                if (offer.resources.greaterThanOrEqual(required)) {
+                  return true;
+                }
+                skipped.incrementAndGet();
+                return false;
+              }
+            });
+      }
+
       synchronized void clear() {
         hostOffers.clear();
         offersById.clear();
         offersBySlave.clear();
         offersByHost.clear();
+        for (Map<ResourceBucket, Set<HostOffer>> buckets : offersByBucket.values()) {
+          buckets.clear();
+        }
       }
     }
 
+    private Iterable<HostOffer> getCandidates(ResourceSlot required) {
+      // Without skipping, every offer is presented so that the scheduling filter records vetoes
+      // for those that are too small, which in turn surface as the task's pending reason.
+      return skipInsufficientOffers
+          ? hostOffers.getWeaklyConsistentCandidates(required, offersSkipped)
+          : hostOffers.getWeaklyConsistentOffers();
+    }
+
     @Override
-    public boolean launchFirst(Function<Offer, Optional<TaskInfo>> acceptor)
-        throws LaunchException {
+    public boolean launchFirst(
+        ResourceSlot required,
+        Function<Offer, Optional<TaskInfo>> acceptor) throws LaunchException {
 
       // It's important that this method is not called concurrently - doing so would open up the
       // possibility of a race between the same offers being accepted by different threads.
 
-      for (HostOffer hostOffer : hostOffers.getWeaklyConsistentOffers()) {
+      launchAttempts.incrementAndGet();
+      for (HostOffer hostOffer : getCandidates(required)) {
+        offersExamined.incrementAndGet();
         Optional<TaskInfo> assignment = acceptor.apply(hostOffer.offer);
         if (assignment.isPresent()) {
           // Guard against an offer being removed after we grabbed it from the iterator.
           // If that happens, the offer will not exist in hostOffers, and we can immediately
           // send it back to LOST for quick reschedule.
           // Removing while iterating counts on the use of a weakly-consistent iterator being used,
-          // which is a feature of ConcurrentSkipListSet.
+          // which is a feature of the concurrent collections backing the offer index.
           if (hostOffers.remove(hostOffer.offer.getId())) {
             try {
               driver.launchTask(hostOffer.offer.getId(), assignment.get());
@@ -360,5 +581,56 @@ public interface OfferQueue extends EventSubscriber {
 
       return false;
     }
+
+    @Override
+    public int launchAll(
+        ResourceSlot required,
+        Function<Offer, Optional<TaskInfo>> acceptor,
+        int maxTasks) throws LaunchException {
+
+      // As with launchFirst, this method must not be called concurrently.
+
+      launchAttempts.incrementAndGet();
+      int launched = 0;
+      for (HostOffer hostOffer : getCandidates(required)) {
+        if (launched >= maxTasks) {
+          break;
+        }
+
+        offersExamined.incrementAndGet();
+        ImmutableList.Builder<TaskInfo> accepted = ImmutableList.builder();
+        ImmutableSet.Builder<String> acceptedIds = ImmutableSet.builder();
+        int acceptedCount = 0;
+        Offer remaining = hostOffer.offer;
+        while (launched + acceptedCount < maxTasks) {
+          Optional<TaskInfo> assignment = acceptor.apply(remaining);
+          if (!assignment.isPresent()) {
+            break;
+          }
+          accepted.add(assignment.get());
+          acceptedIds.add(assignment.get().getTaskId().getValue());
+          acceptedCount++;
+          remaining = Resources.subtract(remaining, assignment.get());
+        }
+
+        if (acceptedCount > 0) {
+          if (hostOffers.remove(hostOffer.offer.getId())) {
+            try {
+              driver.launchTasks(hostOffer.offer.getId(), accepted.build());
+              launched += acceptedCount;
+            } catch (IllegalStateException e) {
+              throw new LaunchException("Failed to launch tasks.", e, acceptedIds.build());
+            }
+          } else {
+            offerRaces.incrementAndGet();
+            throw new LaunchException(
+                "Accepted offer no longer exists in offer queue, likely data race.",
+                acceptedIds.build());
+          }
+        }
+      }
+
+      return launched;
+    }
   }
 }
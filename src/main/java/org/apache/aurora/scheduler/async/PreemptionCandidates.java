@@ -0,0 +1,111 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.async;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.Subscribe;
+
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+
+import static org.apache.aurora.gen.ScheduleStatus.PREEMPTING;
+
+/**
+ * Index of the tasks that may be preempted, grouped by the slave they reside on.  The index is
+ * maintained from task events, which spares the preemptor from fetching and sorting every active
+ * task in the cluster on each attempt.
+ */
+public class PreemptionCandidates implements EventSubscriber {
+
+  /**
+   * States of tasks that occupy resources on a slave and may be preempted.
+   */
+  static final Set<ScheduleStatus> CANDIDATE_STATES =
+      EnumSet.copyOf(Sets.difference(Tasks.SLAVE_ASSIGNED_STATES, EnumSet.of(PREEMPTING)));
+
+  // Candidates on each slave are walked in reverse scheduling order, placing non-production tasks
+  // ahead of production tasks.
+  private static final Ordering<IAssignedTask> CANDIDATE_ORDER = Tasks.SCHEDULING_ORDER.reverse();
+
+  private final Map<String, Set<IAssignedTask>> candidatesBySlave = Maps.newHashMap();
+  private final Map<String, IAssignedTask> candidatesById = Maps.newHashMap();
+
+  /**
+   * Gets the current preemption candidates.
+   *
+   * @return Candidate tasks keyed by slave ID, in the order they should be considered.
+   */
+  public synchronized ListMultimap<String, IAssignedTask> getCandidatesBySlave() {
+    ImmutableListMultimap.Builder<String, IAssignedTask> builder = ImmutableListMultimap.builder();
+    for (Map.Entry<String, Set<IAssignedTask>> entry : candidatesBySlave.entrySet()) {
+      builder.putAll(entry.getKey(), entry.getValue());
+    }
+    return builder.build();
+  }
+
+  @Subscribe
+  public synchronized void taskChangedState(TaskStateChange change) {
+    remove(change.getTaskId());
+
+    IScheduledTask task = change.getTask();
+    if (CANDIDATE_STATES.contains(task.getStatus())
+        && task.getAssignedTask().getSlaveId() != null) {
+
+      add(task.getAssignedTask());
+    }
+  }
+
+  @Subscribe
+  public synchronized void tasksDeleted(TasksDeleted deleted) {
+    for (IScheduledTask task : deleted.getTasks()) {
+      remove(Tasks.id(task));
+    }
+  }
+
+  private void add(IAssignedTask task) {
+    Set<IAssignedTask> slaveCandidates = candidatesBySlave.get(task.getSlaveId());
+    if (slaveCandidates == null) {
+      slaveCandidates = Sets.newTreeSet(CANDIDATE_ORDER);
+      candidatesBySlave.put(task.getSlaveId(), slaveCandidates);
+    }
+    slaveCandidates.add(task);
+    candidatesById.put(task.getTaskId(), task);
+  }
+
+  private void remove(String taskId) {
+    IAssignedTask task = candidatesById.remove(taskId);
+    if (task == null) {
+      return;
+    }
+
+    Set<IAssignedTask> slaveCandidates = candidatesBySlave.get(task.getSlaveId());
+    slaveCandidates.remove(task);
+    if (slaveCandidates.isEmpty()) {
+      candidatesBySlave.remove(task.getSlaveId());
+    }
+  }
+}
@@ -16,32 +16,42 @@ package org.apache.aurora.scheduler.async;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 import java.util.Collections;
-import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Ordering;
-import com.google.common.collect.Sets;
 import com.google.inject.BindingAnnotation;
+import com.twitter.common.application.ShutdownRegistry;
+import com.twitter.common.base.Command;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Time;
+import com.twitter.common.stats.SlidingStats;
 import com.twitter.common.stats.Stats;
 import com.twitter.common.util.Clock;
+import com.twitter.common.util.concurrent.ExecutorServiceShutdown;
 
+import org.apache.aurora.gen.Attribute;
+import org.apache.aurora.gen.HostAttributes;
 import org.apache.aurora.gen.ScheduleStatus;
 import org.apache.aurora.scheduler.ResourceSlot;
 import org.apache.aurora.scheduler.base.Query;
@@ -50,7 +60,10 @@ import org.apache.aurora.scheduler.filter.AttributeAggregate;
 import org.apache.aurora.scheduler.filter.SchedulingFilter;
 import org.apache.aurora.scheduler.state.StateManager;
 import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
+import org.apache.aurora.scheduler.storage.Storage.Work.Quiet;
 import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.mesos.Protos.Offer;
 
@@ -60,6 +73,8 @@ import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 import static java.util.Objects.requireNonNull;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import static org.apache.aurora.gen.ScheduleStatus.PENDING;
 import static org.apache.aurora.gen.ScheduleStatus.PREEMPTING;
 import static org.apache.aurora.scheduler.base.Tasks.SCHEDULED_TO_ASSIGNED;
@@ -96,9 +111,31 @@ public interface Preemptor {
     @Target({ FIELD, PARAMETER, METHOD }) @Retention(RUNTIME)
     @interface PreemptionDelay { }
 
-    @VisibleForTesting
-    static final Query.Builder CANDIDATE_QUERY = Query.statusScoped(
-        EnumSet.copyOf(Sets.difference(Tasks.SLAVE_ASSIGNED_STATES, EnumSet.of(PREEMPTING))));
+    /**
+     * Settings for the search for a slave where preemption can satisfy a pending task.
+     */
+    public static class SearchSettings {
+      private final int parallelism;
+      private final Amount<Long, Time> budget;
+
+      /**
+       * Creates search settings.
+       *
+       * @param parallelism Number of threads to evaluate slaves with.  A value of 1 evaluates
+       *                    slaves on the thread requesting preemption.
+       * @param budget Maximum time to spend evaluating slaves in a single preemption attempt.
+       */
+      public SearchSettings(int parallelism, Amount<Long, Time> budget) {
+        checkArgument(parallelism > 0, "Parallelism must be positive.");
+        this.parallelism = parallelism;
+        this.budget = requireNonNull(budget);
+      }
+    }
+
+    /**
+     * Maximum number of slaves evaluated serially by a single fork-join subtask.
+     */
+    private static final int SLAVES_PER_SUBTASK = 16;
 
     private static final Function<IAssignedTask, Integer> GET_PRIORITY =
         new Function<IAssignedTask, Integer>() {
@@ -113,6 +150,12 @@ public interface Preemptor {
     private final AtomicLong attemptedPreemptions = Stats.exportLong("preemptor_attempts");
     // Incremented every time we fail to find tasks to preempt for a pending task.
     private final AtomicLong noSlotsFound = Stats.exportLong("preemptor_no_slots_found");
+    // Incremented for every slave evaluated as a potential preemption slot.
+    private final AtomicLong slotsEvaluated = Stats.exportLong("preemptor_slots_evaluated");
+    // Incremented every time a search ends before all slaves are evaluated.
+    private final AtomicLong budgetExhausted =
+        Stats.exportLong("preemptor_search_budget_exhausted");
+    private final SlidingStats searchStats = new SlidingStats("preemptor_slot_search", "nanos");
 
     private final Predicate<IScheduledTask> isIdleTask = new Predicate<IScheduledTask>() {
       @Override
@@ -128,6 +171,13 @@ public interface Preemptor {
     private final SchedulingFilter schedulingFilter;
     private final Amount<Long, Time> preemptionCandidacyDelay;
     private final Clock clock;
+    private final PreemptionCandidates candidates;
+    private final Amount<Long, Time> searchBudget;
+    private final Optional<ForkJoinPool> searchPool;
+
+    // Position in the slave list to resume from when a search exhausts its budget, so that slaves
+    // late in the list are not perpetually left unevaluated.
+    private final AtomicInteger searchOffset = new AtomicInteger();
 
     /**
      * Creates a new preemptor.
@@ -139,6 +189,8 @@ public interface Preemptor {
      * @param preemptionCandidacyDelay Time a task must be PENDING before it may preempt other
      *                                 tasks.
      * @param clock Clock to check current time.
+     * @param candidates Index of tasks that may be preempted.
+     * @param searchSettings Settings for the search for a preemption slot.
      */
     @Inject
     PreemptorImpl(
@@ -147,7 +199,10 @@ public interface Preemptor {
         OfferQueue offerQueue,
         SchedulingFilter schedulingFilter,
         @PreemptionDelay Amount<Long, Time> preemptionCandidacyDelay,
-        Clock clock) {
+        Clock clock,
+        PreemptionCandidates candidates,
+        SearchSettings searchSettings,
+        ShutdownRegistry shutdownRegistry) {
 
       this.storage = requireNonNull(storage);
       this.stateManager = requireNonNull(stateManager);
@@ -155,6 +210,25 @@ public interface Preemptor {
       this.schedulingFilter = requireNonNull(schedulingFilter);
       this.preemptionCandidacyDelay = requireNonNull(preemptionCandidacyDelay);
       this.clock = requireNonNull(clock);
+      this.candidates = requireNonNull(candidates);
+      this.searchBudget = searchSettings.budget;
+      this.searchPool = searchSettings.parallelism > 1
+          ? Optional.of(createSearchPool(searchSettings.parallelism, shutdownRegistry))
+          : Optional.<ForkJoinPool>absent();
+    }
+
+    private static ForkJoinPool createSearchPool(
+        int parallelism,
+        ShutdownRegistry shutdownRegistry) {
+
+      final ForkJoinPool pool = new ForkJoinPool(parallelism);
+      shutdownRegistry.addAction(new Command() {
+        @Override
+        public void execute() {
+          new ExecutorServiceShutdown(pool, Amount.of(1L, Time.SECONDS)).execute();
+        }
+      });
+      return pool;
     }
 
     private List<IAssignedTask> fetch(Query.Builder query, Predicate<IScheduledTask> filter) {
@@ -163,18 +237,6 @@ public interface Preemptor {
           SCHEDULED_TO_ASSIGNED));
     }
 
-    private List<IAssignedTask> fetch(Query.Builder query) {
-      return fetch(query, Predicates.<IScheduledTask>alwaysTrue());
-    }
-
-    private static final Function<IAssignedTask, String> TASK_TO_SLAVE_ID =
-        new Function<IAssignedTask, String>() {
-          @Override
-          public String apply(IAssignedTask input) {
-            return input.getSlaveId();
-          }
-        };
-
     private static Predicate<IAssignedTask> canPreempt(final IAssignedTask pending) {
       return new Predicate<IAssignedTask>() {
         @Override
@@ -222,7 +284,8 @@ public interface Preemptor {
         Iterable<IAssignedTask> possibleVictims,
         Iterable<Offer> offers,
         IAssignedTask pendingTask,
-        AttributeAggregate attributeAggregate) {
+        AttributeAggregate attributeAggregate,
+        Optional<Map<String, IHostAttributes>> hostAttributes) {
 
       // This enforces the precondition that all of the resources are from the same host. We need to
       // get the host for the schedulingFilter.
@@ -236,12 +299,12 @@ public interface Preemptor {
           ResourceSlot.sum(Iterables.transform(offers, OFFER_TO_RESOURCE_SLOT));
 
       if (!Iterables.isEmpty(offers)) {
-        Set<SchedulingFilter.Veto> vetos = schedulingFilter.filter(
+        Set<SchedulingFilter.Veto> vetos = filter(
             slackResources,
             host,
-            pendingTask.getTask(),
-            pendingTask.getTaskId(),
-            attributeAggregate);
+            pendingTask,
+            attributeAggregate,
+            hostAttributes);
 
         if (vetos.isEmpty()) {
           return Optional.<Set<IAssignedTask>>of(ImmutableSet.<IAssignedTask>of());
@@ -266,12 +329,12 @@ public interface Preemptor {
             ResourceSlot.sum(Iterables.transform(toPreemptTasks, TASK_TO_RESOURCES)),
             slackResources);
 
-        Set<SchedulingFilter.Veto> vetos = schedulingFilter.filter(
+        Set<SchedulingFilter.Veto> vetos = filter(
             totalResource,
             host,
-            pendingTask.getTask(),
-            pendingTask.getTaskId(),
-            attributeAggregate);
+            pendingTask,
+            attributeAggregate,
+            hostAttributes);
 
         if (vetos.isEmpty()) {
           return Optional.<Set<IAssignedTask>>of(ImmutableSet.copyOf(toPreemptTasks));
@@ -280,6 +343,58 @@ public interface Preemptor {
       return Optional.absent();
     }
 
+    private Set<SchedulingFilter.Veto> filter(
+        ResourceSlot resources,
+        String host,
+        IAssignedTask pendingTask,
+        AttributeAggregate attributeAggregate,
+        Optional<Map<String, IHostAttributes>> hostAttributes) {
+
+      return hostAttributes.isPresent()
+          ? schedulingFilter.filter(
+              resources,
+              hostAttributes.get().get(host),
+              pendingTask.getTask(),
+              pendingTask.getTaskId(),
+              attributeAggregate)
+          : schedulingFilter.filter(
+              resources,
+              host,
+              pendingTask.getTask(),
+              pendingTask.getTaskId(),
+              attributeAggregate);
+    }
+
+    /**
+     * Reads the attributes of every host with candidate tasks or offers in a single storage
+     * operation.  Hosts without stored attributes are given empty attributes and no maintenance
+     * mode, matching what the scheduling filter would read for them.
+     */
+    private Map<String, IHostAttributes> fetchHostAttributes(
+        Multimap<String, IAssignedTask> slavesToActiveTasks,
+        Multimap<String, Offer> slavesToOffers) {
+
+      final Set<String> hosts = ImmutableSet.<String>builder()
+          .addAll(Iterables.transform(slavesToActiveTasks.values(), Tasks.ASSIGNED_TO_SLAVE_HOST))
+          .addAll(Iterables.transform(slavesToOffers.values(), OFFER_TO_HOST))
+          .build();
+      return storage.weaklyConsistentRead(new Quiet<Map<String, IHostAttributes>>() {
+        @Override
+        public Map<String, IHostAttributes> apply(StoreProvider storeProvider) {
+          ImmutableMap.Builder<String, IHostAttributes> attributes = ImmutableMap.builder();
+          for (String host : hosts) {
+            attributes.put(
+                host,
+                storeProvider.getAttributeStore().getHostAttributes(host).or(
+                    IHostAttributes.build(new HostAttributes()
+                        .setHost(host)
+                        .setAttributes(ImmutableSet.<Attribute>of()))));
+          }
+          return attributes.build();
+        }
+      });
+    }
+
     private static final Function<Offer, String> OFFER_TO_SLAVE_ID =
         new Function<Offer, String>() {
           @Override
@@ -288,17 +403,6 @@ public interface Preemptor {
           }
         };
 
-    private Multimap<String, IAssignedTask> getSlavesToActiveTasks() {
-      // Only non-pending active tasks may be preempted.
-      List<IAssignedTask> activeTasks = fetch(CANDIDATE_QUERY);
-
-      // Walk through the preemption candidates in reverse scheduling order.
-      Collections.sort(activeTasks, Tasks.SCHEDULING_ORDER.reverse());
-
-      // Group the tasks by slave id so they can be paired with offers from the same slave.
-      return Multimaps.index(activeTasks, TASK_TO_SLAVE_ID);
-    }
-
     @Override
     public synchronized Optional<String> findPreemptionSlotFor(
         String taskId,
@@ -314,7 +418,8 @@ public interface Preemptor {
 
       IAssignedTask pendingTask = Iterables.getOnlyElement(pendingTasks);
 
-      Multimap<String, IAssignedTask> slavesToActiveTasks = getSlavesToActiveTasks();
+      // Only non-pending active tasks may be preempted.
+      ListMultimap<String, IAssignedTask> slavesToActiveTasks = candidates.getCandidatesBySlave();
 
       if (slavesToActiveTasks.isEmpty()) {
         return Optional.absent();
@@ -326,35 +431,150 @@ public interface Preemptor {
       Multimap<String, Offer> slavesToOffers =
           Multimaps.index(offerQueue.getOffers(), OFFER_TO_SLAVE_ID);
 
-      Set<String> allSlaves = ImmutableSet.<String>builder()
+      List<String> allSlaves = Lists.newArrayList(ImmutableSet.<String>builder()
           .addAll(slavesToOffers.keySet())
           .addAll(slavesToActiveTasks.keySet())
-          .build();
+          .build());
+      Collections.rotate(allSlaves, -(searchOffset.get() % allSlaves.size()));
+
+      long searchStartNanos = System.nanoTime();
+      // Rather than have every fork-join worker read from storage for each slave it evaluates,
+      // the attributes of all candidate hosts are read once before the search is forked.
+      Optional<Map<String, IHostAttributes>> hostAttributes = searchPool.isPresent()
+          ? Optional.of(fetchHostAttributes(slavesToActiveTasks, slavesToOffers))
+          : Optional.<Map<String, IHostAttributes>>absent();
+      SlotSearch search = new SlotSearch(
+          pendingTask,
+          attributeAggregate,
+          slavesToActiveTasks,
+          slavesToOffers,
+          hostAttributes);
+      Optional<Slot> slot = searchPool.isPresent()
+          ? searchPool.get().invoke(search.new Subtask(allSlaves))
+          : search.evaluate(allSlaves);
+      searchStats.accumulate(System.nanoTime() - searchStartNanos);
+
+      if (search.expired.get()) {
+        budgetExhausted.incrementAndGet();
+        searchOffset.addAndGet(search.evaluated.get());
+      }
 
-      for (String slaveID : allSlaves) {
-        Optional<Set<IAssignedTask>> toPreemptTasks = getTasksToPreempt(
-            slavesToActiveTasks.get(slaveID),
-            slavesToOffers.get(slaveID),
-            pendingTask,
-            attributeAggregate);
-
-        if (toPreemptTasks.isPresent()) {
-          for (IAssignedTask toPreempt : toPreemptTasks.get()) {
-            stateManager.changeState(
-                toPreempt.getTaskId(),
-                Optional.<ScheduleStatus>absent(),
-                PREEMPTING,
-                Optional.of("Preempting in favor of " + pendingTask.getTaskId()));
-            tasksPreempted.incrementAndGet();
-          }
-          return Optional.of(slaveID);
+      if (slot.isPresent()) {
+        for (IAssignedTask toPreempt : slot.get().victims) {
+          stateManager.changeState(
+              toPreempt.getTaskId(),
+              Optional.<ScheduleStatus>absent(),
+              PREEMPTING,
+              Optional.of("Preempting in favor of " + pendingTask.getTaskId()));
+          tasksPreempted.incrementAndGet();
         }
+        return Optional.of(slot.get().slaveId);
       }
 
       noSlotsFound.incrementAndGet();
       return Optional.absent();
     }
 
+    /**
+     * A slave along with the tasks to preempt on it.
+     */
+    private static final class Slot {
+      private final String slaveId;
+      private final Set<IAssignedTask> victims;
+
+      Slot(String slaveId, Set<IAssignedTask> victims) {
+        this.slaveId = slaveId;
+        this.victims = victims;
+      }
+    }
+
+    /**
+     * State of a single search for a preemption slot, which may be shared by concurrently
+     * evaluated subtasks.
+     */
+    private final class SlotSearch {
+      private final IAssignedTask pendingTask;
+      private final AttributeAggregate attributeAggregate;
+      private final Multimap<String, IAssignedTask> slavesToActiveTasks;
+      private final Multimap<String, Offer> slavesToOffers;
+      private final Optional<Map<String, IHostAttributes>> hostAttributes;
+      private final long deadlineMs;
+      private final AtomicBoolean found = new AtomicBoolean();
+      private final AtomicBoolean expired = new AtomicBoolean();
+      private final AtomicInteger evaluated = new AtomicInteger();
+
+      SlotSearch(
+          IAssignedTask pendingTask,
+          AttributeAggregate attributeAggregate,
+          Multimap<String, IAssignedTask> slavesToActiveTasks,
+          Multimap<String, Offer> slavesToOffers,
+          Optional<Map<String, IHostAttributes>> hostAttributes) {
+
+        this.pendingTask = pendingTask;
+        this.attributeAggregate = attributeAggregate;
+        this.slavesToActiveTasks = slavesToActiveTasks;
+        this.slavesToOffers = slavesToOffers;
+        this.hostAttributes = hostAttributes;
+        this.deadlineMs = clock.nowMillis() + searchBudget.as(Time.MILLISECONDS);
+      }
+
+      /**
+       * Evaluates slaves in order, stopping at the first slot found by this or any other subtask,
+       * or when the search budget is exhausted.
+       */
+      Optional<Slot> evaluate(List<String> slaveIds) {
+        for (String slaveId : slaveIds) {
+          if (found.get()) {
+            break;
+          }
+          if (clock.nowMillis() >= deadlineMs) {
+            expired.set(true);
+            break;
+          }
+
+          evaluated.incrementAndGet();
+          slotsEvaluated.incrementAndGet();
+          Optional<Set<IAssignedTask>> toPreemptTasks = getTasksToPreempt(
+              slavesToActiveTasks.get(slaveId),
+              slavesToOffers.get(slaveId),
+              pendingTask,
+              attributeAggregate,
+              hostAttributes);
+          if (toPreemptTasks.isPresent()) {
+            found.set(true);
+            return Optional.of(new Slot(slaveId, toPreemptTasks.get()));
+          }
+        }
+        return Optional.absent();
+      }
+
+      /**
+       * Fork-join task that splits the slaves to evaluate, preferring slots found earlier in the
+       * slave list.
+       */
+      final class Subtask extends RecursiveTask<Optional<Slot>> {
+        private final List<String> slaveIds;
+
+        Subtask(List<String> slaveIds) {
+          this.slaveIds = slaveIds;
+        }
+
+        @Override
+        protected Optional<Slot> compute() {
+          if (slaveIds.size() <= SLAVES_PER_SUBTASK) {
+            return evaluate(slaveIds);
+          }
+
+          int split = slaveIds.size() / 2;
+          Subtask head = new Subtask(slaveIds.subList(0, split));
+          head.fork();
+          Optional<Slot> tailSlot = new Subtask(slaveIds.subList(split, slaveIds.size())).compute();
+          Optional<Slot> headSlot = head.join();
+          return headSlot.isPresent() ? headSlot : tailSlot;
+        }
+      }
+    }
+
     private static final Predicate<IAssignedTask> IS_PRODUCTION =
         Predicates.compose(Tasks.IS_PRODUCTION, Tasks.ASSIGNED_TO_INFO);
 
@@ -16,8 +16,8 @@ package org.apache.aurora.scheduler.async;
 import java.util.Queue;
 import java.util.Set;
 
-import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
 import org.apache.aurora.scheduler.async.TaskGroups.GroupKey;
@@ -41,8 +41,8 @@ class TaskGroup {
     return key;
   }
 
-  synchronized Optional<String> peek() {
-    return Optional.fromNullable(tasks.peek());
+  synchronized Set<String> peek(int maxTasks) {
+    return ImmutableSet.copyOf(Iterables.limit(tasks, maxTasks));
   }
 
   synchronized boolean hasMore() {
@@ -53,6 +53,10 @@ class TaskGroup {
     tasks.remove(taskId);
   }
 
+  synchronized void removeAll(Set<String> taskIds) {
+    tasks.removeAll(taskIds);
+  }
+
   synchronized void offer(String taskId) {
     tasks.offer(taskId);
   }
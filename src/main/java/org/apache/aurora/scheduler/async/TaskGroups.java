@@ -14,6 +14,7 @@
 package org.apache.aurora.scheduler.async;
 
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -22,7 +23,6 @@ import java.util.logging.Logger;
 import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
@@ -46,6 +46,8 @@ import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
@@ -69,14 +71,33 @@ public class TaskGroups implements EventSubscriber {
   private final TaskScheduler taskScheduler;
   private final BackoffStrategy backoff;
   private final RescheduleCalculator rescheduleCalculator;
+  private final int batchSize;
 
   public static class TaskGroupsSettings {
     private final BackoffStrategy taskGroupBackoff;
     private final RateLimiter rateLimiter;
+    private final int batchSize;
 
     public TaskGroupsSettings(BackoffStrategy taskGroupBackoff, RateLimiter rateLimiter) {
+      this(taskGroupBackoff, rateLimiter, 1);
+    }
+
+    /**
+     * Creates task group settings.
+     *
+     * @param taskGroupBackoff Backoff strategy for groups that fail to schedule.
+     * @param rateLimiter Limits the rate of scheduling attempts.
+     * @param batchSize Maximum number of tasks from a group to schedule in a single attempt.
+     */
+    public TaskGroupsSettings(
+        BackoffStrategy taskGroupBackoff,
+        RateLimiter rateLimiter,
+        int batchSize) {
+
       this.taskGroupBackoff = requireNonNull(taskGroupBackoff);
       this.rateLimiter = requireNonNull(rateLimiter);
+      checkArgument(batchSize > 0, "Batch size must be positive.");
+      this.batchSize = batchSize;
     }
   }
 
@@ -92,7 +113,19 @@ public class TaskGroups implements EventSubscriber {
         settings.taskGroupBackoff,
         settings.rateLimiter,
         taskScheduler,
-        rescheduleCalculator);
+        rescheduleCalculator,
+        settings.batchSize);
+  }
+
+  @VisibleForTesting
+  TaskGroups(
+      ScheduledExecutorService executor,
+      BackoffStrategy backoff,
+      RateLimiter rateLimiter,
+      TaskScheduler taskScheduler,
+      RescheduleCalculator rescheduleCalculator) {
+
+    this(executor, backoff, rateLimiter, taskScheduler, rescheduleCalculator, 1);
   }
 
   @VisibleForTesting
@@ -101,13 +134,16 @@ public class TaskGroups implements EventSubscriber {
       final BackoffStrategy backoff,
       final RateLimiter rateLimiter,
       final TaskScheduler taskScheduler,
-      final RescheduleCalculator rescheduleCalculator) {
+      final RescheduleCalculator rescheduleCalculator,
+      int batchSize) {
 
     this.executor = requireNonNull(executor);
     requireNonNull(rateLimiter);
     requireNonNull(taskScheduler);
     this.backoff = requireNonNull(backoff);
     this.rescheduleCalculator = requireNonNull(rescheduleCalculator);
+    checkArgument(batchSize > 0, "Batch size must be positive.");
+    this.batchSize = batchSize;
 
     this.taskScheduler = new TaskScheduler() {
       @Override
@@ -115,6 +151,12 @@ public class TaskGroups implements EventSubscriber {
         rateLimiter.acquire();
         return taskScheduler.schedule(taskId);
       }
+
+      @Override
+      public Set<String> schedule(Set<String> taskIds) {
+        rateLimiter.acquire();
+        return taskScheduler.schedule(taskIds);
+      }
     };
   }
 
@@ -132,16 +174,17 @@ public class TaskGroups implements EventSubscriber {
     Runnable monitor = new Runnable() {
       @Override
       public void run() {
-        Optional<String> taskId = group.peek();
+        Set<String> taskIds = group.peek(batchSize);
         long penaltyMs = 0;
-        if (taskId.isPresent()) {
-          if (taskScheduler.schedule(taskId.get())) {
-            group.remove(taskId.get());
+        if (!taskIds.isEmpty()) {
+          Set<String> scheduled = schedule(taskIds);
+          if (scheduled.isEmpty()) {
+            penaltyMs = backoff.calculateBackoffMs(group.getPenaltyMs());
+          } else {
+            group.removeAll(scheduled);
             if (group.hasMore()) {
               penaltyMs = backoff.calculateBackoffMs(0);
             }
-          } else {
-            penaltyMs = backoff.calculateBackoffMs(group.getPenaltyMs());
           }
         }
 
@@ -152,6 +195,15 @@ public class TaskGroups implements EventSubscriber {
     evaluateGroupLater(monitor, group);
   }
 
+  private Set<String> schedule(Set<String> taskIds) {
+    if (taskIds.size() == 1) {
+      String taskId = Iterables.getOnlyElement(taskIds);
+      return taskScheduler.schedule(taskId) ? taskIds : ImmutableSet.<String>of();
+    } else {
+      return taskScheduler.schedule(taskIds);
+    }
+  }
+
   private static ScheduledExecutorService createThreadPool(ShutdownRegistry shutdownRegistry) {
     final ScheduledThreadPoolExecutor executor =
         AsyncUtil.singleThreadLoggingScheduledExecutor("TaskScheduler-%d", LOG);
@@ -15,6 +15,8 @@ package org.apache.aurora.scheduler.async;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
@@ -32,6 +34,8 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.BindingAnnotation;
 import com.twitter.common.inject.TimedInterceptor.Timed;
@@ -41,11 +45,14 @@ import com.twitter.common.stats.StatImpl;
 import com.twitter.common.stats.Stats;
 import com.twitter.common.util.Clock;
 
+import org.apache.aurora.scheduler.ResourceSlot;
 import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.Tasks;
 import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
 import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.VetoAggregator;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
+import org.apache.aurora.scheduler.filter.AttributeAggregateCache;
 import org.apache.aurora.scheduler.state.StateManager;
 import org.apache.aurora.scheduler.state.TaskAssigner;
 import org.apache.aurora.scheduler.storage.Storage;
@@ -81,6 +88,18 @@ public interface TaskScheduler extends EventSubscriber {
    */
   boolean schedule(String taskId);
 
+  /**
+   * Attempts to schedule a batch of tasks within a single storage transaction, possibly
+   * performing irreversible actions.  Tasks are placed across the currently-held offers, and
+   * several tasks may be placed on a single offer when its resources allow.
+   *
+   * @param taskIds The tasks to attempt to schedule.  All tasks are expected to be in the same
+   *                {@link TaskGroups.GroupKey task group}.
+   * @return The tasks that were scheduled or no longer need to be.  The caller should call
+   *         schedule again for any tasks not included.
+   */
+  Set<String> schedule(Set<String> taskIds);
+
   /**
    * An asynchronous task scheduler.  Scheduling of tasks is performed on a delay, where each task
    * backs off after a failed scheduling attempt.
@@ -102,10 +121,16 @@ public interface TaskScheduler extends EventSubscriber {
     private final TaskAssigner assigner;
     private final OfferQueue offerQueue;
     private final Preemptor preemptor;
+    private final AttributeAggregateCache aggregateCache;
+    private final VetoAggregator vetoAggregator;
     private final Reservations reservations;
 
     private final AtomicLong scheduleAttemptsFired = Stats.exportLong("schedule_attempts_fired");
     private final AtomicLong scheduleAttemptsFailed = Stats.exportLong("schedule_attempts_failed");
+    private final AtomicLong scheduleBatchesFired = Stats.exportLong("schedule_batches_fired");
+    private final AtomicLong scheduleBatchTasks = Stats.exportLong("schedule_batch_tasks");
+    private final AtomicLong scheduleBatchTasksLaunched =
+        Stats.exportLong("schedule_batch_tasks_launched");
 
     @Inject
     TaskSchedulerImpl(
@@ -114,6 +139,8 @@ public interface TaskScheduler extends EventSubscriber {
         TaskAssigner assigner,
         OfferQueue offerQueue,
         Preemptor preemptor,
+        AttributeAggregateCache aggregateCache,
+        VetoAggregator vetoAggregator,
         @ReservationDuration Amount<Long, Time> reservationDuration,
         final Clock clock) {
 
@@ -122,6 +149,8 @@ public interface TaskScheduler extends EventSubscriber {
       this.assigner = requireNonNull(assigner);
       this.offerQueue = requireNonNull(offerQueue);
       this.preemptor = requireNonNull(preemptor);
+      this.aggregateCache = requireNonNull(aggregateCache);
+      this.vetoAggregator = requireNonNull(vetoAggregator);
       this.reservations = new Reservations(reservationDuration, clock);
     }
 
@@ -170,13 +199,16 @@ public interface TaskScheduler extends EventSubscriber {
               return storeProvider.getTaskStore().fetchTasks(activeJobStateQuery(jobKey));
             }
           });
-      return new AttributeAggregate(taskSupplier, storeProvider.getAttributeStore());
+      return aggregateCache.getAggregate(
+          jobKey,
+          new AttributeAggregate(taskSupplier, storeProvider.getAttributeStore()));
     }
 
     @Timed("task_schedule_attempt")
     @Override
     public boolean schedule(final String taskId) {
       scheduleAttemptsFired.incrementAndGet();
+      VetoAggregator.Pass pass = vetoAggregator.beginPass(ImmutableSet.of(taskId));
       try {
         return storage.write(new MutateWork.Quiet<Boolean>() {
           @Override
@@ -191,7 +223,9 @@ public interface TaskScheduler extends EventSubscriber {
               AttributeAggregate aggregate =
                   getJobState(store, Tasks.SCHEDULED_TO_JOB_KEY.apply(task));
               try {
-                if (!offerQueue.launchFirst(getAssignerFunction(aggregate, taskId, task))) {
+                if (!offerQueue.launchFirst(
+                    ResourceSlot.from(task.getAssignedTask().getTask()),
+                    getAssignerFunction(aggregate, taskId, task))) {
                   // Task could not be scheduled.
                   maybePreemptFor(taskId, aggregate);
                   return false;
@@ -218,6 +252,119 @@ public interface TaskScheduler extends EventSubscriber {
         LOG.log(Level.WARNING, "Task scheduling unexpectedly failed, will be retried", e);
         scheduleAttemptsFailed.incrementAndGet();
         return false;
+      } finally {
+        pass.end();
+      }
+    }
+
+    @Timed("task_schedule_batch_attempt")
+    @Override
+    public Set<String> schedule(final Set<String> taskIds) {
+      scheduleBatchesFired.incrementAndGet();
+      scheduleBatchTasks.addAndGet(taskIds.size());
+      VetoAggregator.Pass pass = vetoAggregator.beginPass(taskIds);
+      try {
+        return storage.write(new MutateWork.Quiet<Set<String>>() {
+          @Override
+          public Set<String> apply(MutableStoreProvider store) {
+            LOG.fine("Attempting to schedule tasks " + taskIds);
+            Map<String, IScheduledTask> pending = Tasks.mapById(
+                store.getTaskStore().fetchTasks(Query.taskScoped(taskIds).byStatus(PENDING)));
+
+            Set<String> scheduled = Sets.newHashSet(Sets.difference(taskIds, pending.keySet()));
+            if (!scheduled.isEmpty()) {
+              LOG.warning("Failed to look up tasks " + scheduled + ", they may have been deleted.");
+            }
+            if (pending.isEmpty()) {
+              return scheduled;
+            }
+
+            BatchAssigner batch = new BatchAssigner(store, pending);
+            try {
+              int launched = offerQueue.launchAll(batch.required, batch, pending.size());
+              scheduleBatchTasksLaunched.addAndGet(launched);
+              Optional<String> unassigned = batch.getFirstUnassigned();
+              if (unassigned.isPresent()) {
+                // Preemption is only attempted for a single task per batch, as would have been
+                // the case had the tasks been scheduled individually.
+                maybePreemptFor(unassigned.get(), batch.aggregate);
+              }
+            } catch (OfferQueue.LaunchException e) {
+              LOG.log(Level.WARNING, "Failed to launch tasks.", e);
+              scheduleAttemptsFailed.incrementAndGet();
+
+              // Tasks accepted from earlier offers were launched, so only the assignments made from
+              // the offer that failed are backpedaled.
+              scheduleBatchTasksLaunched.addAndGet(
+                  batch.assigned.size() - e.getFailedTaskIds().size());
+              for (String taskId : e.getFailedTaskIds()) {
+                stateManager.changeState(taskId, Optional.of(PENDING), LOST, LAUNCH_FAILED_MSG);
+              }
+            }
+
+            scheduled.addAll(batch.assigned);
+            return scheduled;
+          }
+        });
+      } catch (RuntimeException e) {
+        // We catch the generic unchecked exception here to ensure tasks are not abandoned
+        // if there is a transient issue resulting in an unchecked exception.
+        LOG.log(Level.WARNING, "Task batch scheduling unexpectedly failed, will be retried", e);
+        scheduleAttemptsFailed.incrementAndGet();
+        return ImmutableSet.of();
+      } finally {
+        pass.end();
+      }
+    }
+
+    /**
+     * Assigns the tasks of a batch to offers, one task per invocation, honoring slave
+     * reservations.
+     */
+    private class BatchAssigner implements Function<Offer, Optional<TaskInfo>> {
+      private final StoreProvider storeProvider;
+      private final IJobKey jobKey;
+      private final ResourceSlot required;
+      private final Map<String, IScheduledTask> unassigned;
+      private final Set<String> assigned = Sets.newLinkedHashSet();
+      private AttributeAggregate aggregate;
+
+      BatchAssigner(StoreProvider storeProvider, Map<String, IScheduledTask> tasks) {
+        this.storeProvider = storeProvider;
+        this.unassigned = Maps.newLinkedHashMap(tasks);
+        // All tasks in a batch share a task configuration.
+        IScheduledTask representative = Iterables.getFirst(tasks.values(), null);
+        this.jobKey = Tasks.SCHEDULED_TO_JOB_KEY.apply(representative);
+        this.required = ResourceSlot.from(representative.getAssignedTask().getTask());
+        this.aggregate = getJobState(storeProvider, jobKey);
+      }
+
+      Optional<String> getFirstUnassigned() {
+        return Optional.fromNullable(Iterables.getFirst(unassigned.keySet(), null));
+      }
+
+      @Override
+      public Optional<TaskInfo> apply(Offer offer) {
+        Optional<String> reservedTaskId = reservations.getSlaveReservation(offer.getSlaveId());
+        Optional<String> taskId = reservedTaskId.isPresent()
+            ? reservedTaskId
+            : getFirstUnassigned();
+        if (!taskId.isPresent() || !unassigned.containsKey(taskId.get())) {
+          // Either the batch is exhausted or the slave is reserved for a task outside of it.
+          return Optional.absent();
+        }
+
+        Optional<TaskInfo> assignment =
+            assigner.maybeAssign(offer, unassigned.get(taskId.get()), aggregate);
+        if (assignment.isPresent()) {
+          unassigned.remove(taskId.get());
+          assigned.add(taskId.get());
+          // The aggregate must reflect the assignment for the remaining tasks in the batch to
+          // honor limit constraints.  It is evaluated lazily, so this is cheap for jobs without
+          // them.
+          aggregate = getJobState(storeProvider, jobKey);
+        }
+        return assignment;
       }
     }
 
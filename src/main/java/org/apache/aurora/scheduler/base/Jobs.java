@@ -13,10 +13,18 @@
  */
 package org.apache.aurora.scheduler.base;
 
+import com.google.common.collect.EnumMultiset;
+import com.google.common.collect.Multiset;
+
+import org.apache.aurora.gen.JobConfiguration;
 import org.apache.aurora.gen.JobStats;
 import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
 import org.apache.aurora.scheduler.storage.entities.IJobStats;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import org.apache.aurora.scheduler.storage.entities.ITaskEvent;
 
 /**
@@ -39,26 +47,73 @@ public final class Jobs {
    * @return an JobStats object containing the statistics about the tasks.
    */
   public static IJobStats getJobStats(Iterable<IScheduledTask> tasks) {
-    JobStats stats = new JobStats();
+    Multiset<ScheduleStatus> statuses = EnumMultiset.create(ScheduleStatus.class);
     for (IScheduledTask task : tasks) {
-      ScheduleStatus status = task.getStatus();
-      if (status == ScheduleStatus.SANDBOX_DELETED) {
-        // SANDBOX_DELETED must be preceded by the real terminal state.
-        updateStats(stats, getSecondToLatestEvent(task).getStatus());
-      } else {
-        updateStats(stats, status);
-      }
+      statuses.add(getStatsStatus(task));
+    }
+    return getJobStats(statuses);
+  }
+
+  /**
+   * Computes job statistics from the number of tasks counted under each status.
+   *
+   * @param statuses Number of tasks counted under each status, as given by
+   *                 {@link #getStatsStatus(IScheduledTask)}.
+   * @return an JobStats object containing the statistics about the tasks.
+   */
+  public static IJobStats getJobStats(Multiset<ScheduleStatus> statuses) {
+    JobStats stats = new JobStats();
+    for (Multiset.Entry<ScheduleStatus> entry : statuses.entrySet()) {
+      updateStats(stats, entry.getElement(), entry.getCount());
     }
     return IJobStats.build(stats);
   }
 
-  private static void updateStats(JobStats stats, ScheduleStatus status) {
+  /**
+   * Gets the status that a task is counted under in job statistics.
+   *
+   * @param task Task to get the status of.
+   * @return The status of the task, or the terminal status preceding it if the task's sandbox
+   *         has been deleted.
+   */
+  public static ScheduleStatus getStatsStatus(IScheduledTask task) {
+    // SANDBOX_DELETED must be preceded by the real terminal state.
+    return task.getStatus() == ScheduleStatus.SANDBOX_DELETED
+        ? getSecondToLatestEvent(task).getStatus()
+        : task.getStatus();
+  }
+
+  /**
+   * Synthesizes the configuration of a job that is not stored by the scheduler, such as a job
+   * created without a cron schedule, from its tasks.
+   *
+   * @param jobKey Key of the job.
+   * @param latestConfig Configuration of the latest active task of the job, which is expected to
+   *                     be the most recent configuration of the job if it is in the middle of an
+   *                     update.
+   * @param instanceCount Number of tasks in the job.
+   * @return A configuration for the job.
+   */
+  public static IJobConfiguration synthesizeJob(
+      IJobKey jobKey,
+      ITaskConfig latestConfig,
+      int instanceCount) {
+
+    TaskConfig taskConfig = latestConfig.newBuilder();
+    return IJobConfiguration.build(new JobConfiguration()
+        .setKey(jobKey.newBuilder())
+        .setOwner(taskConfig.getOwner())
+        .setTaskConfig(taskConfig)
+        .setInstanceCount(instanceCount));
+  }
+
+  private static void updateStats(JobStats stats, ScheduleStatus status, int count) {
     // The SANDBOX_DELETED state is processed separately as it hides the real termination reason.
     switch (status) {
       case INIT:
       case PENDING:
       case THROTTLED:
-        stats.setPendingTaskCount(stats.getPendingTaskCount() + 1);
+        stats.setPendingTaskCount(stats.getPendingTaskCount() + count);
         break;
 
       case ASSIGNED:
@@ -68,17 +123,17 @@ public final class Jobs {
       case KILLING:
       case DRAINING:
       case PREEMPTING:
-        stats.setActiveTaskCount(stats.getActiveTaskCount() + 1);
+        stats.setActiveTaskCount(stats.getActiveTaskCount() + count);
         break;
 
       case KILLED:
       case FINISHED:
-        stats.setFinishedTaskCount(stats.getFinishedTaskCount() + 1);
+        stats.setFinishedTaskCount(stats.getFinishedTaskCount() + count);
         break;
 
       case LOST:
       case FAILED:
-        stats.setFailedTaskCount(stats.getFailedTaskCount() + 1);
+        stats.setFailedTaskCount(stats.getFailedTaskCount() + count);
         break;
 
       default:
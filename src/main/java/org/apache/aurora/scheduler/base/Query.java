@@ -18,6 +18,7 @@ import java.util.Objects;
 import java.util.Set;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -72,6 +73,18 @@ public final class Query {
         && Query.jobScoped(Iterables.getOnlyElement(jobKey.get())).equals(query);
   }
 
+  /**
+   * Checks whether a query is paged, in which case matching tasks are ordered by task ID and only
+   * the requested page of them is returned.
+   *
+   * @param query Query to test.
+   * @return {@code true} if the query specifies a cursor, offset or limit.
+   */
+  public static boolean isPaged(Builder query) {
+    TaskQuery q = query.get();
+    return q.isSetCursor() || q.isSetOffset() || q.isSetLimit();
+  }
+
   public static Builder arbitrary(TaskQuery query) {
     return new Builder(query.deepCopy());
   }
@@ -397,5 +410,30 @@ public final class Query {
     public Builder terminal() {
       return byStatus(Tasks.TERMINAL_STATES);
     }
+
+    /**
+     * Returns a new builder that only matches tasks following a cursor, in task ID order.  The
+     * cursor of the next page of a query is the ID of the last task in the current page.
+     *
+     * @param cursor The cursor to resume the query after.
+     * @return A new Builder paged after the cursor.
+     */
+    public Builder after(String cursor) {
+      requireNonNull(cursor);
+
+      return new Builder(query.deepCopy().setCursor(cursor));
+    }
+
+    /**
+     * Returns a new builder that matches at most {@code limit} tasks, in task ID order.
+     *
+     * @param limit Maximum number of tasks to match.
+     * @return A new Builder limited to a page of tasks.
+     */
+    public Builder limit(int limit) {
+      Preconditions.checkArgument(limit >= 0, "Limit must be non-negative.");
+
+      return new Builder(query.deepCopy().setLimit(limit));
+    }
   }
 }
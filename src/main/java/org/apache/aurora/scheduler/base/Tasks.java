@@ -220,10 +220,7 @@ public final class Tasks {
   public static IScheduledTask getLatestActiveTask(Iterable<IScheduledTask> tasks) {
     Preconditions.checkArgument(Iterables.size(tasks) != 0);
 
-    return Ordering.explicit(ORDERED_TASK_STATUSES)
-        .onResultOf(GET_STATUS)
-        .compound(LATEST_ACTIVITY)
-        .max(tasks);
+    return LATEST_ACTIVE.max(tasks);
   }
 
   public static ITaskEvent getLatestEvent(IScheduledTask task) {
@@ -237,4 +234,17 @@ public final class Tasks {
           return getLatestEvent(task).getTimestamp();
         }
       });
+
+  /**
+   * Orders tasks such that the latest active task is the greatest, or the latest inactive task if
+   * no active task exists.
+   */
+  public static final Ordering<IScheduledTask> LATEST_ACTIVE = Ordering.natural()
+      .onResultOf(new Function<IScheduledTask, Integer>() {
+        @Override
+        public Integer apply(IScheduledTask task) {
+          return ORDERED_TASK_STATUSES.indexOf(task.getStatus());
+        }
+      })
+      .compound(LATEST_ACTIVITY);
 }
@@ -38,6 +38,7 @@ import org.apache.aurora.scheduler.base.Numbers;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import org.apache.mesos.Protos.Offer;
 import org.apache.mesos.Protos.Resource;
+import org.apache.mesos.Protos.TaskInfo;
 import org.apache.mesos.Protos.Value.Range;
 import org.apache.mesos.Protos.Value.Ranges;
 import org.apache.mesos.Protos.Value.Scalar;
@@ -211,6 +212,58 @@ public class Resources {
         a.getNumPorts() - b.getNumPorts());
   }
 
+  /**
+   * Deducts the resources consumed by a task from an offer.
+   *
+   * @param offer Offer to deduct resources from.
+   * @param task Task whose resources, including those of its executor, are consumed.
+   * @return A copy of {@code offer} describing only the resources that remain available.
+   */
+  public static Offer subtract(Offer offer, TaskInfo task) {
+    requireNonNull(offer);
+    requireNonNull(task);
+
+    List<Resource> consumed = ImmutableList.<Resource>builder()
+        .addAll(task.getResourcesList())
+        .addAll(task.getExecutor().getResourcesList())
+        .build();
+    Offer.Builder remaining = offer.toBuilder().clearResources();
+    for (Resource resource : offer.getResourcesList()) {
+      Iterable<Resource> used = Iterables.filter(consumed, withName(resource.getName()));
+      switch (resource.getType()) {
+        case SCALAR:
+          double value = resource.getScalar().getValue();
+          for (Resource usedResource : used) {
+            value -= usedResource.getScalar().getValue();
+          }
+          remaining.addResources(
+              resource.toBuilder().setScalar(Scalar.newBuilder().setValue(value)));
+          break;
+
+        case RANGES:
+          Set<Integer> available = getMembers(ImmutableList.of(resource));
+          remaining.addResources(makeMesosRangeResource(
+              resource.getName(),
+              Sets.difference(available, getMembers(used))));
+          break;
+
+        default:
+          remaining.addResources(resource);
+      }
+    }
+    return remaining.build();
+  }
+
+  private static Set<Integer> getMembers(Iterable<Resource> rangeResources) {
+    ImmutableSet.Builder<Integer> members = ImmutableSet.builder();
+    for (Resource resource : rangeResources) {
+      for (Range range : resource.getRanges().getRangeList()) {
+        members.addAll(RANGE_TO_MEMBERS.apply(range));
+      }
+    }
+    return members.build();
+  }
+
   /**
    * sum(a, b).
    */
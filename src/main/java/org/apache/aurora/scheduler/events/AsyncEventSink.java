@@ -0,0 +1,192 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.events;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.BindingAnnotation;
+import com.twitter.common.stats.SlidingStats;
+import com.twitter.common.stats.StatImpl;
+import com.twitter.common.stats.Stats;
+
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.SynchronousSubscriber;
+import org.apache.aurora.scheduler.storage.PostCommitExecutor;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An event sink that delivers events to each subscriber on a thread of its own, once the storage
+ * write the event was posted from has committed.
+ * <p>
+ * Each subscriber receives events in the order they were handed to it.  A subscriber only has
+ * events queued for it that it subscribes to, and posting blocks while a subscriber already has
+ * the maximum number of events queued.  Events posted while delivering an event are queued
+ * regardless, as blocking a delivery thread could leave a subscriber waiting on itself.
+ * <p>
+ * {@link SynchronousSubscriber}s are the exception, and receive events on the posting thread as
+ * they are posted.
+ */
+class AsyncEventSink implements EventSink {
+
+  private static final Logger LOG = Logger.getLogger(AsyncEventSink.class.getName());
+
+  /**
+   * Binding annotation for the maximum number of events queued for delivery to a subscriber.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ ElementType.PARAMETER, ElementType.METHOD })
+  @BindingAnnotation
+  @interface DeliveryQueueSize { }
+
+  // Whether the calling thread is delivering an event.
+  private static final ThreadLocal<Boolean> DELIVERING = new ThreadLocal<Boolean>() {
+    @Override
+    protected Boolean initialValue() {
+      return false;
+    }
+  };
+
+  private final SlidingStats deliveryLag = new SlidingStats("pubsub_event_delivery_lag", "nanos");
+  private final AtomicLong deadEvents = Stats.exportLong("pubsub_dead_events");
+
+  private final PostCommitExecutor postCommitExecutor;
+  private final int queueSize;
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+  private final EventDispatcher synchronousDispatcher = new EventDispatcher();
+
+  @Inject
+  AsyncEventSink(PostCommitExecutor postCommitExecutor, @DeliveryQueueSize int queueSize) {
+    this.postCommitExecutor = requireNonNull(postCommitExecutor);
+    this.queueSize = queueSize;
+
+    Stats.export(new StatImpl<Long>("pubsub_events_queued") {
+      @Override
+      public Long read() {
+        long total = 0;
+        for (Subscription subscription : subscriptions) {
+          total += subscription.queued.get();
+        }
+        return total;
+      }
+    });
+  }
+
+  /**
+   * Registers a subscriber to receive the events it subscribes to.
+   *
+   * @param subscriber Subscriber to register.
+   */
+  void register(EventSubscriber subscriber) {
+    if (subscriber instanceof SynchronousSubscriber) {
+      synchronousDispatcher.register(subscriber);
+    } else {
+      subscriptions.add(new Subscription(subscriber));
+    }
+  }
+
+  @Override
+  public void post(final PubsubEvent event) {
+    requireNonNull(event);
+
+    if (synchronousDispatcher.isSubscribed(event.getClass())) {
+      synchronousDispatcher.post(event);
+    }
+    postCommitExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        dispatch(event);
+      }
+    });
+  }
+
+  private void dispatch(PubsubEvent event) {
+    long postedNanos = System.nanoTime();
+    boolean delivered = false;
+    for (Subscription subscription : subscriptions) {
+      if (subscription.accepts(event)) {
+        subscription.enqueue(event, postedNanos);
+        delivered = true;
+      }
+    }
+    if (!delivered && !synchronousDispatcher.isSubscribed(event.getClass())) {
+      deadEvents.incrementAndGet();
+      LOG.warning("Captured dead event " + event);
+    }
+  }
+
+  private class Subscription {
+    private final EventDispatcher dispatcher = new EventDispatcher();
+    private final ExecutorService executor;
+    private final Semaphore capacity = new Semaphore(queueSize);
+    private final AtomicLong queued;
+
+    Subscription(EventSubscriber subscriber) {
+      // Drop the suffix of classes generated by guice for method interception.
+      String name = subscriber.getClass().getSimpleName().split("\\$\\$")[0];
+      dispatcher.register(subscriber);
+      executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("EventDelivery-" + name + "-%d")
+          .build());
+      queued = Stats.exportLong("pubsub_events_queued_" + name);
+    }
+
+    boolean accepts(PubsubEvent event) {
+      return dispatcher.isSubscribed(event.getClass());
+    }
+
+    void enqueue(final PubsubEvent event, final long postedNanos) {
+      final boolean acquired;
+      if (DELIVERING.get()) {
+        acquired = capacity.tryAcquire();
+      } else {
+        capacity.acquireUninterruptibly();
+        acquired = true;
+      }
+
+      queued.incrementAndGet();
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          queued.decrementAndGet();
+          if (acquired) {
+            capacity.release();
+          }
+          deliveryLag.accumulate(System.nanoTime() - postedNanos);
+
+          DELIVERING.set(true);
+          try {
+            dispatcher.post(event);
+          } finally {
+            DELIVERING.set(false);
+          }
+        }
+      });
+    }
+  }
+}
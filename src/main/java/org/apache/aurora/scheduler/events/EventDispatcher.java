@@ -0,0 +1,195 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.events;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
+
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An event sink that dispatches events to the {@link Subscribe}-annotated methods of registered
+ * subscribers, as an {@link com.google.common.eventbus.EventBus} would.
+ * <p>
+ * Handler methods are found once when a subscriber is registered, and bound to it as method
+ * handles.  The handlers of each concrete event type are resolved once, on the first post of an
+ * event of that type, so posting an event does not walk its type hierarchy or reflect on
+ * subscribers.
+ * <p>
+ * As with an {@link com.google.common.eventbus.EventBus}, events posted while dispatching an event
+ * are dispatched once the handlers of the current event return, and a handler is not invoked
+ * concurrently unless annotated with {@link AllowConcurrentEvents}.
+ */
+public class EventDispatcher implements EventSink {
+
+  private static final Logger LOG = Logger.getLogger(EventDispatcher.class.getName());
+
+  private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Object.class);
+
+  private static final class Handler {
+    private final Class<?> eventType;
+    private final Object subscriber;
+    private final Method method;
+    private final MethodHandle handle;
+    private final boolean synchronize;
+
+    Handler(Object subscriber, Method method) throws IllegalAccessException {
+      method.setAccessible(true);
+      this.eventType = method.getParameterTypes()[0];
+      this.subscriber = subscriber;
+      this.method = method;
+      this.handle =
+          MethodHandles.lookup().unreflect(method).bindTo(subscriber).asType(HANDLER_TYPE);
+      this.synchronize = !method.isAnnotationPresent(AllowConcurrentEvents.class);
+    }
+
+    void handle(Object event) {
+      try {
+        if (synchronize) {
+          synchronized (this) {
+            handle.invokeExact(event);
+          }
+        } else {
+          handle.invokeExact(event);
+        }
+      } catch (Throwable e) {
+        Throwables.propagateIfInstanceOf(e, Error.class);
+        LOG.log(Level.SEVERE, "Could not dispatch event: " + event + " to handler " + this, e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return subscriber.getClass().getName() + "." + method.getName();
+    }
+  }
+
+  private static final class DispatchState {
+    private boolean dispatching = false;
+    private final Deque<PubsubEvent> queued = new ArrayDeque<>();
+  }
+
+  private final List<Handler> handlers = new CopyOnWriteArrayList<>();
+  private final ConcurrentMap<Class<?>, List<Handler>> handlersByType = Maps.newConcurrentMap();
+  private final ThreadLocal<DispatchState> dispatchState = new ThreadLocal<DispatchState>() {
+    @Override
+    protected DispatchState initialValue() {
+      return new DispatchState();
+    }
+  };
+
+  /**
+   * Registers the {@link Subscribe}-annotated methods of a subscriber to receive events.
+   *
+   * @param subscriber Subscriber to register.
+   * @throws IllegalArgumentException If a handler method does not take a single parameter.
+   */
+  public void register(EventSubscriber subscriber) {
+    requireNonNull(subscriber);
+
+    for (Class<?> type : TypeToken.of(subscriber.getClass()).getTypes().rawTypes()) {
+      for (Method method : type.getDeclaredMethods()) {
+        if (method.isAnnotationPresent(Subscribe.class)) {
+          if (method.getParameterTypes().length != 1) {
+            throw new IllegalArgumentException(
+                "Event handler " + method + " must take a single parameter.");
+          }
+          try {
+            handlers.add(new Handler(subscriber, method));
+          } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Event handler " + method + " is inaccessible.", e);
+          }
+        }
+      }
+    }
+    handlersByType.clear();
+  }
+
+  /**
+   * Checks whether any registered subscriber handles events of a type.
+   *
+   * @param eventType Concrete event type.
+   * @return {@code true} if events of the type are dispatched to any handler.
+   */
+  public boolean isSubscribed(Class<? extends PubsubEvent> eventType) {
+    return !handlersFor(eventType).isEmpty();
+  }
+
+  private List<Handler> handlersFor(Class<?> eventType) {
+    List<Handler> resolved = handlersByType.get(eventType);
+    if (resolved == null) {
+      ImmutableList.Builder<Handler> builder = ImmutableList.builder();
+      for (Handler handler : handlers) {
+        if (handler.eventType.isAssignableFrom(eventType)) {
+          builder.add(handler);
+        }
+      }
+      resolved = builder.build();
+      handlersByType.putIfAbsent(eventType, resolved);
+    }
+    return resolved;
+  }
+
+  @Override
+  public void post(PubsubEvent event) {
+    requireNonNull(event);
+
+    DispatchState state = dispatchState.get();
+    if (state.dispatching) {
+      state.queued.add(event);
+      return;
+    }
+
+    state.dispatching = true;
+    try {
+      dispatch(event);
+      PubsubEvent queued;
+      while ((queued = state.queued.poll()) != null) {
+        dispatch(queued);
+      }
+    } finally {
+      state.dispatching = false;
+      state.queued.clear();
+    }
+  }
+
+  private void dispatch(PubsubEvent event) {
+    List<Handler> eventHandlers = handlersFor(event.getClass());
+    if (eventHandlers.isEmpty()) {
+      LOG.warning("Captured dead event " + event);
+      return;
+    }
+    for (Handler handler : eventHandlers) {
+      handler.handle(event);
+    }
+  }
+}
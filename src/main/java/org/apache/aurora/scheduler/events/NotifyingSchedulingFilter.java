@@ -22,9 +22,9 @@ import javax.inject.Inject;
 import com.google.inject.BindingAnnotation;
 
 import org.apache.aurora.scheduler.ResourceSlot;
-import org.apache.aurora.scheduler.events.PubsubEvent.Vetoed;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
 import org.apache.aurora.scheduler.filter.SchedulingFilter;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 
 import static java.lang.annotation.ElementType.FIELD;
@@ -35,6 +35,8 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * A decorating scheduling filter that sends an event when a scheduling assignment is vetoed.
+ *
+ * @see VetoAggregator
  */
 class NotifyingSchedulingFilter implements SchedulingFilter {
 
@@ -46,15 +48,15 @@ class NotifyingSchedulingFilter implements SchedulingFilter {
   public @interface NotifyDelegate { }
 
   private final SchedulingFilter delegate;
-  private final EventSink eventSink;
+  private final VetoAggregator vetoAggregator;
 
   @Inject
   NotifyingSchedulingFilter(
       @NotifyDelegate SchedulingFilter delegate,
-      EventSink eventSink) {
+      VetoAggregator vetoAggregator) {
 
     this.delegate = requireNonNull(delegate);
-    this.eventSink = requireNonNull(eventSink);
+    this.vetoAggregator = requireNonNull(vetoAggregator);
   }
 
   @Override
@@ -67,7 +69,23 @@ class NotifyingSchedulingFilter implements SchedulingFilter {
 
     Set<Veto> vetoes = delegate.filter(offer, slaveHost, task, taskId, jobState);
     if (!vetoes.isEmpty()) {
-      eventSink.post(new Vetoed(taskId, vetoes));
+      vetoAggregator.vetoed(taskId, vetoes);
+    }
+
+    return vetoes;
+  }
+
+  @Override
+  public Set<Veto> filter(
+      ResourceSlot offer,
+      IHostAttributes hostAttributes,
+      ITaskConfig task,
+      String taskId,
+      AttributeAggregate jobState) {
+
+    Set<Veto> vetoes = delegate.filter(offer, hostAttributes, task, taskId, jobState);
+    if (!vetoes.isEmpty()) {
+      vetoAggregator.vetoed(taskId, vetoes);
     }
 
     return vetoes;
@@ -22,6 +22,7 @@ import org.apache.aurora.gen.HostStatus;
 import org.apache.aurora.gen.ScheduleStatus;
 import org.apache.aurora.scheduler.base.Tasks;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 
 import static java.util.Objects.requireNonNull;
@@ -37,6 +38,15 @@ public interface PubsubEvent {
   interface EventSubscriber {
   }
 
+  /**
+   * A subscriber whose state must reflect an event as soon as it is posted, because the state is
+   * consulted again within the storage transaction the event was posted from.  These subscribers
+   * receive events on the posting thread, even when events are otherwise delivered
+   * asynchronously.
+   */
+  interface SynchronousSubscriber extends EventSubscriber {
+  }
+
   /**
    * Event sent when tasks were deleted.
    */
@@ -155,6 +165,43 @@ public interface PubsubEvent {
     }
   }
 
+  /**
+   * Event sent when the attributes advertised by a host differ from those previously stored.
+   */
+  class HostAttributesChanged implements PubsubEvent {
+    private final IHostAttributes attributes;
+
+    public HostAttributesChanged(IHostAttributes attributes) {
+      this.attributes = requireNonNull(attributes);
+    }
+
+    public IHostAttributes getAttributes() {
+      return attributes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof HostAttributesChanged)) {
+        return false;
+      }
+
+      HostAttributesChanged other = (HostAttributesChanged) o;
+      return Objects.equals(attributes, other.attributes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(attributes);
+    }
+
+    @Override
+    public String toString() {
+      return com.google.common.base.Objects.toStringHelper(this)
+          .add("host", attributes.getHost())
+          .toString();
+    }
+  }
+
   /**
    * Event sent when a host changed maintenance state.
    */
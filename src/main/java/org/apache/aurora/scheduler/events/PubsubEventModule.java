@@ -27,10 +27,15 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Binder;
 import com.google.inject.multibindings.Multibinder;
 import com.twitter.common.application.modules.LifecycleModule;
+import com.twitter.common.args.Arg;
+import com.twitter.common.args.CmdLine;
+import com.twitter.common.args.constraints.Positive;
 import com.twitter.common.base.Command;
 
+import org.apache.aurora.scheduler.events.AsyncEventSink.DeliveryQueueSize;
 import org.apache.aurora.scheduler.events.NotifyingSchedulingFilter.NotifyDelegate;
 import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.VetoAggregator.CoalesceVetoes;
 import org.apache.aurora.scheduler.filter.SchedulingFilter;
 
 import static java.util.Objects.requireNonNull;
@@ -42,17 +47,62 @@ public final class PubsubEventModule extends AbstractModule {
 
   private static final Logger LOG = Logger.getLogger(PubsubEventModule.class.getName());
 
-  private PubsubEventModule() {
+  @CmdLine(name = "async_event_delivery",
+      help = "Whether to deliver events to each subscriber on a thread of its own, once the "
+          + "storage transaction the event was posted from commits.  Subscribers whose state is "
+          + "consulted within that transaction, such as attribute aggregate counts, still "
+          + "receive events as they are posted.")
+  private static final Arg<Boolean> ASYNC_EVENT_DELIVERY = Arg.create(false);
+
+  @CmdLine(name = "event_delivery_queue_size",
+      help = "Maximum number of events queued for delivery to a subscriber when delivering "
+          + "events asynchronously, beyond which posting an event blocks.")
+  @Positive
+  private static final Arg<Integer> EVENT_DELIVERY_QUEUE_SIZE = Arg.create(10000);
+
+  @CmdLine(name = "typed_event_dispatch",
+      help = "Whether to dispatch events through handlers resolved per event type when "
+          + "subscribers are registered, rather than through a guava EventBus.")
+  private static final Arg<Boolean> TYPED_EVENT_DISPATCH = Arg.create(false);
+
+  @CmdLine(name = "coalesce_vetoed_events",
+      help = "Whether to post a single event with the closest fit for each task vetoed during a "
+          + "scheduling attempt, rather than an event for every vetoed offer.")
+  private static final Arg<Boolean> COALESCE_VETOED_EVENTS = Arg.create(false);
+
+  private final boolean asyncDelivery;
+  private final boolean typedDispatch;
+  private final boolean coalesceVetoes;
+
+  private PubsubEventModule(boolean asyncDelivery, boolean typedDispatch, boolean coalesceVetoes) {
     // Must be constructed through factory.
+    this.asyncDelivery = asyncDelivery;
+    this.typedDispatch = typedDispatch;
+    this.coalesceVetoes = coalesceVetoes;
   }
 
   @VisibleForTesting
   public static void installForTest(Binder binder) {
-    binder.install(new PubsubEventModule());
+    binder.install(new PubsubEventModule(false, false, false));
   }
 
   @Override
   protected void configure() {
+    // Ensure at least an empty binding is present.
+    getSubscriberBinder(binder());
+
+    bind(Boolean.class).annotatedWith(CoalesceVetoes.class).toInstance(coalesceVetoes);
+    bind(VetoAggregator.class).in(Singleton.class);
+
+    if (asyncDelivery) {
+      bind(Integer.class).annotatedWith(DeliveryQueueSize.class)
+          .toInstance(EVENT_DELIVERY_QUEUE_SIZE.get());
+      bind(AsyncEventSink.class).in(Singleton.class);
+      bind(EventSink.class).to(AsyncEventSink.class);
+      LifecycleModule.bindStartupAction(binder(), RegisterAsyncSubscribers.class);
+      return;
+    }
+
     final EventBus eventBus = new EventBus("TaskEvents");
     eventBus.register(new Object() {
       @Subscribe public void logDeadEvent(DeadEvent event) {
@@ -62,6 +112,13 @@ public final class PubsubEventModule extends AbstractModule {
 
     bind(EventBus.class).toInstance(eventBus);
 
+    if (typedDispatch) {
+      bind(EventDispatcher.class).in(Singleton.class);
+      bind(EventSink.class).to(EventDispatcher.class);
+      LifecycleModule.bindStartupAction(binder(), RegisterDispatcherSubscribers.class);
+      return;
+    }
+
     EventSink eventSink = new EventSink() {
       @Override
       public void post(PubsubEvent event) {
@@ -69,9 +126,6 @@ public final class PubsubEventModule extends AbstractModule {
       }
     };
     bind(EventSink.class).toInstance(eventSink);
-
-    // Ensure at least an empty binding is present.
-    getSubscriberBinder(binder());
     LifecycleModule.bindStartupAction(binder(), RegisterSubscribers.class);
   }
 
@@ -93,6 +147,42 @@ public final class PubsubEventModule extends AbstractModule {
     }
   }
 
+  static class RegisterDispatcherSubscribers implements Command {
+    private final EventDispatcher dispatcher;
+    private final Set<EventSubscriber> subscribers;
+
+    @Inject
+    RegisterDispatcherSubscribers(EventDispatcher dispatcher, Set<EventSubscriber> subscribers) {
+      this.dispatcher = requireNonNull(dispatcher);
+      this.subscribers = requireNonNull(subscribers);
+    }
+
+    @Override
+    public void execute() {
+      for (EventSubscriber subscriber : subscribers) {
+        dispatcher.register(subscriber);
+      }
+    }
+  }
+
+  static class RegisterAsyncSubscribers implements Command {
+    private final AsyncEventSink eventSink;
+    private final Set<EventSubscriber> subscribers;
+
+    @Inject
+    RegisterAsyncSubscribers(AsyncEventSink eventSink, Set<EventSubscriber> subscribers) {
+      this.eventSink = requireNonNull(eventSink);
+      this.subscribers = requireNonNull(subscribers);
+    }
+
+    @Override
+    public void execute() {
+      for (EventSubscriber subscriber : subscribers) {
+        eventSink.register(subscriber);
+      }
+    }
+  }
+
   /**
    * Binds a task event module.
    *
@@ -103,7 +193,10 @@ public final class PubsubEventModule extends AbstractModule {
     binder.bind(SchedulingFilter.class).annotatedWith(NotifyDelegate.class).to(filterClass);
     binder.bind(SchedulingFilter.class).to(NotifyingSchedulingFilter.class);
     binder.bind(NotifyingSchedulingFilter.class).in(Singleton.class);
-    binder.install(new PubsubEventModule());
+    binder.install(new PubsubEventModule(
+        ASYNC_EVENT_DELIVERY.get(),
+        TYPED_EVENT_DISPATCH.get(),
+        COALESCE_VETOED_EVENTS.get()));
   }
 
   private static Multibinder<EventSubscriber> getSubscriberBinder(Binder binder) {
@@ -0,0 +1,154 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.events;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.inject.BindingAnnotation;
+import com.twitter.common.stats.Stats;
+
+import org.apache.aurora.scheduler.events.PubsubEvent.Vetoed;
+import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+import org.apache.aurora.scheduler.filter.Vetoes;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Posts {@link Vetoed} events for the vetoes recorded against scheduling assignments.
+ * <p>
+ * When enabled, the vetoes recorded for the tasks of a scheduling pass are coalesced, and a single
+ * event with the closest fit is posted for each vetoed task once the pass ends.  A pass is
+ * identified by the tasks it schedules rather than by the thread running it, so vetoes recorded
+ * on other threads, such as those of a parallel preemption search, are coalesced into it as well.
+ * Vetoes recorded against tasks outside of a pass are posted immediately.
+ */
+public class VetoAggregator {
+
+  /**
+   * Binding annotation for whether vetoes are coalesced within scheduling passes.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ ElementType.PARAMETER, ElementType.METHOD })
+  @BindingAnnotation
+  @interface CoalesceVetoes { }
+
+  private final AtomicLong vetoesCoalesced = Stats.exportLong("vetoed_events_coalesced");
+
+  private final EventSink eventSink;
+  private final boolean coalesce;
+  private final ConcurrentMap<String, Pass> passesByTask = Maps.newConcurrentMap();
+
+  @Inject
+  public VetoAggregator(EventSink eventSink, @CoalesceVetoes boolean coalesce) {
+    this.eventSink = requireNonNull(eventSink);
+    this.coalesce = coalesce;
+  }
+
+  /**
+   * Starts a scheduling pass.  The pass must be {@link Pass#end() ended} once scheduling is done.
+   *
+   * @param taskIds Tasks to coalesce vetoes for until the pass ends.
+   * @return The started pass.
+   */
+  public Pass beginPass(Set<String> taskIds) {
+    Pass pass = new Pass(ImmutableSet.copyOf(taskIds));
+    if (coalesce) {
+      for (String taskId : pass.taskIds) {
+        passesByTask.put(taskId, pass);
+      }
+    }
+    return pass;
+  }
+
+  /**
+   * Records vetoes against a scheduling assignment for a task.
+   *
+   * @param taskId Vetoed task.
+   * @param vetoes Vetoes against the assignment.
+   */
+  void vetoed(String taskId, Set<Veto> vetoes) {
+    Pass pass = passesByTask.get(taskId);
+    if (pass == null || !pass.record(taskId, vetoes)) {
+      eventSink.post(new Vetoed(taskId, vetoes));
+    }
+  }
+
+  /**
+   * A scheduling pass, which may record vetoes from any thread.
+   */
+  public final class Pass {
+    private final Set<String> taskIds;
+
+    // Guarded by this.
+    private final Map<String, Set<Veto>> closestFits = Maps.newLinkedHashMap();
+    private boolean ended = false;
+
+    private Pass(Set<String> taskIds) {
+      this.taskIds = taskIds;
+    }
+
+    /**
+     * Records vetoes against a task of this pass.
+     *
+     * @return {@code false} if the pass has already ended, in which case the vetoes must be
+     *     posted by the caller.
+     */
+    private synchronized boolean record(String taskId, Set<Veto> vetoes) {
+      if (ended) {
+        return false;
+      }
+
+      Set<Veto> closest = closestFits.get(taskId);
+      if (closest == null || Vetoes.isCloserFit(vetoes, closest)) {
+        closestFits.put(taskId, vetoes);
+      }
+      if (closest != null) {
+        vetoesCoalesced.incrementAndGet();
+      }
+      return true;
+    }
+
+    /**
+     * Ends this pass, posting the coalesced vetoes recorded during it.
+     */
+    public void end() {
+      Map<String, Set<Veto>> toPost;
+      synchronized (this) {
+        Preconditions.checkState(!ended, "Scheduling pass already ended.");
+        ended = true;
+        toPost = ImmutableMap.copyOf(closestFits);
+      }
+      for (String taskId : taskIds) {
+        // The task may have been claimed by a later pass.
+        passesByTask.remove(taskId, this);
+      }
+      for (Map.Entry<String, Set<Veto>> entry : toPost.entrySet()) {
+        eventSink.post(new Vetoed(entry.getKey(), entry.getValue()));
+      }
+    }
+  }
+}
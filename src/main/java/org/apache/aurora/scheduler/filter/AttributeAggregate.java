@@ -50,6 +50,10 @@ public class AttributeAggregate {
    */
   private final Supplier<Map<Pair<String, String>, Long>> aggregate;
 
+  private AttributeAggregate(Supplier<Map<Pair<String, String>, Long>> aggregate) {
+    this.aggregate = requireNonNull(aggregate);
+  }
+
   /**
    * Creates a new attribute aggregate, which will be computed from the provided external state.
    *
@@ -60,6 +64,26 @@ public class AttributeAggregate {
       final Supplier<ImmutableSet<IScheduledTask>> activeTaskSupplier,
       final AttributeStore attributeStore) {
 
+    this(compute(activeTaskSupplier, attributeStore));
+  }
+
+  /**
+   * Creates an attribute aggregate backed by externally-maintained counts.  Unlike aggregates
+   * computed from tasks, the counts are not captured, so changes to a live map will be reflected
+   * by the returned aggregate.
+   *
+   * @param counts Mapping from attribute name and value to the number of tasks with that
+   *               name/value combination.
+   * @return An aggregate backed by {@code counts}.
+   */
+  public static AttributeAggregate fromCounts(Map<Pair<String, String>, Long> counts) {
+    return new AttributeAggregate(Suppliers.ofInstance(counts));
+  }
+
+  private static Supplier<Map<Pair<String, String>, Long>> compute(
+      final Supplier<ImmutableSet<IScheduledTask>> activeTaskSupplier,
+      final AttributeStore attributeStore) {
+
     requireNonNull(activeTaskSupplier);
     requireNonNull(attributeStore);
 
@@ -74,7 +98,7 @@ public class AttributeAggregate {
           }
         };
 
-    aggregate = Suppliers.memoize(new Supplier<Map<Pair<String, String>, Long>>() {
+    return Suppliers.memoize(new Supplier<Map<Pair<String, String>, Long>>() {
       @Override
       public Map<Pair<String, String>, Long> get() {
         AtomicLongMap<Pair<String, String>> counts = AtomicLongMap.create();
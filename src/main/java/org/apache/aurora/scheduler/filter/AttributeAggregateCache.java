@@ -0,0 +1,280 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.filter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.SetMultimap;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.AtomicLongMap;
+import com.twitter.common.args.Arg;
+import com.twitter.common.args.CmdLine;
+import com.twitter.common.collections.Pair;
+import com.twitter.common.stats.Stats;
+
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.PubsubEvent.HostAttributesChanged;
+import org.apache.aurora.scheduler.events.PubsubEvent.SynchronousSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.storage.AttributeStore;
+import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
+import org.apache.aurora.scheduler.storage.entities.IAttribute;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Per-job counts of the host attributes of tasks that are assigned to hosts, maintained
+ * incrementally from task and host events.  This allows {@link AttributeAggregate}s to be served
+ * without fetching a job's tasks and the attributes of every host they reside on.
+ * <p>
+ * Counts are consulted again within the storage transaction that assigned a task, so events are
+ * always delivered to this cache synchronously.
+ */
+public class AttributeAggregateCache implements SynchronousSubscriber {
+
+  private static final Logger LOG = Logger.getLogger(AttributeAggregateCache.class.getName());
+
+  /**
+   * Strategy for producing attribute aggregates.
+   */
+  public enum Mode {
+    /**
+     * Aggregates are computed from storage for every request, and no counts are maintained.
+     */
+    RECOMPUTE,
+
+    /**
+     * Aggregates are served from the incrementally-maintained counts.
+     */
+    INCREMENTAL,
+
+    /**
+     * Counts are maintained incrementally, but checked against a recomputed aggregate on every
+     * request.  The recomputed aggregate is served when the two differ.
+     */
+    VERIFY
+  }
+
+  @CmdLine(name = "attribute_aggregate_mode",
+      help = "How job attribute aggregates for constraint matching are produced: RECOMPUTE from "
+          + "storage on each scheduling attempt, serve INCREMENTAL counts maintained from task "
+          + "events, or VERIFY incremental counts against recomputed values.")
+  private static final Arg<Mode> MODE = Arg.create(Mode.RECOMPUTE);
+
+  private final Storage storage;
+  private final Mode mode;
+
+  // Counts are read concurrently by schedulers, but only mutated within synchronized methods.
+  private final Map<IJobKey, AtomicLongMap<Pair<String, String>>> counts =
+      Maps.newConcurrentMap();
+  private final Map<String, Placement> placements = Maps.newHashMap();
+  // A job's counts may be empty while it has placements, on hosts without attributes.  Counts are
+  // only dropped once the job has no placements left.
+  private final Multiset<IJobKey> placementsByJob = HashMultiset.create();
+  private final SetMultimap<String, String> tasksByHost = HashMultimap.create();
+  private final Map<String, Set<IAttribute>> countedHostAttributes = Maps.newHashMap();
+
+  private final AtomicLong mismatches = Stats.exportLong("attribute_aggregate_mismatches");
+
+  @Inject
+  AttributeAggregateCache(Storage storage) {
+    this(storage, MODE.get());
+  }
+
+  @VisibleForTesting
+  public AttributeAggregateCache(Storage storage, Mode mode) {
+    this.storage = requireNonNull(storage);
+    this.mode = requireNonNull(mode);
+  }
+
+  private boolean isMaintained() {
+    return mode != Mode.RECOMPUTE;
+  }
+
+  /**
+   * Gets the attribute aggregate for a job.
+   *
+   * @param jobKey Job to get the aggregate for.
+   * @param recomputed Aggregate computed from storage, which is used when counts are not
+   *                   maintained or are found to be inconsistent.  This should be lazily
+   *                   evaluated, as it is not used in {@link Mode#INCREMENTAL} mode.
+   * @return The aggregate for the job.
+   */
+  public AttributeAggregate getAggregate(IJobKey jobKey, AttributeAggregate recomputed) {
+    requireNonNull(jobKey);
+    requireNonNull(recomputed);
+
+    switch (mode) {
+      case INCREMENTAL:
+        return AttributeAggregate.fromCounts(getCounts(jobKey));
+
+      case VERIFY:
+        Map<Pair<String, String>, Long> snapshot = ImmutableMap.copyOf(getCounts(jobKey));
+        AttributeAggregate cached = AttributeAggregate.fromCounts(snapshot);
+        if (!cached.equals(recomputed)) {
+          mismatches.incrementAndGet();
+          LOG.warning("Incremental attribute aggregate for " + jobKey
+              + " differs from recomputed value: " + snapshot);
+          return recomputed;
+        }
+        return cached;
+
+      default:
+        return recomputed;
+    }
+  }
+
+  private Map<Pair<String, String>, Long> getCounts(IJobKey jobKey) {
+    AtomicLongMap<Pair<String, String>> jobCounts = counts.get(jobKey);
+    return jobCounts == null
+        ? ImmutableMap.<Pair<String, String>, Long>of()
+        : jobCounts.asMap();
+  }
+
+  @Subscribe
+  public synchronized void taskChangedState(TaskStateChange change) {
+    if (!isMaintained()) {
+      return;
+    }
+
+    IScheduledTask task = change.getTask();
+    String host = task.getAssignedTask().getSlaveHost();
+    if (Tasks.SLAVE_ASSIGNED_STATES.contains(task.getStatus()) && host != null) {
+      if (!placements.containsKey(change.getTaskId())) {
+        add(change.getTaskId(), Tasks.SCHEDULED_TO_JOB_KEY.apply(task), host);
+      }
+    } else {
+      remove(change.getTaskId());
+    }
+  }
+
+  @Subscribe
+  public synchronized void tasksDeleted(TasksDeleted deleted) {
+    if (!isMaintained()) {
+      return;
+    }
+
+    for (IScheduledTask task : deleted.getTasks()) {
+      remove(Tasks.id(task));
+    }
+  }
+
+  @Subscribe
+  public synchronized void hostAttributesChanged(HostAttributesChanged change) {
+    if (!isMaintained()) {
+      return;
+    }
+
+    String host = change.getAttributes().getHost();
+    Set<IAttribute> previous = countedHostAttributes.get(host);
+    Set<IAttribute> current = change.getAttributes().getAttributes();
+    if (previous == null || previous.equals(current)) {
+      // Either no tasks are counted against this host, or the counted attributes are current.
+      return;
+    }
+
+    for (String taskId : tasksByHost.get(host)) {
+      AtomicLongMap<Pair<String, String>> jobCounts = counts.get(placements.get(taskId).jobKey);
+      adjust(jobCounts, previous, -1);
+      adjust(jobCounts, current, 1);
+    }
+    countedHostAttributes.put(host, ImmutableSet.copyOf(current));
+  }
+
+  private void add(String taskId, IJobKey jobKey, String host) {
+    Set<IAttribute> attributes = countedHostAttributes.get(host);
+    if (attributes == null) {
+      attributes = fetchAttributes(host);
+      countedHostAttributes.put(host, attributes);
+    }
+
+    placements.put(taskId, new Placement(jobKey, host));
+    placementsByJob.add(jobKey);
+    tasksByHost.put(host, taskId);
+    AtomicLongMap<Pair<String, String>> jobCounts = counts.get(jobKey);
+    if (jobCounts == null) {
+      jobCounts = AtomicLongMap.create();
+      counts.put(jobKey, jobCounts);
+    }
+    adjust(jobCounts, attributes, 1);
+  }
+
+  private void remove(String taskId) {
+    Placement placement = placements.remove(taskId);
+    if (placement == null) {
+      return;
+    }
+
+    tasksByHost.remove(placement.host, taskId);
+    AtomicLongMap<Pair<String, String>> jobCounts = counts.get(placement.jobKey);
+    adjust(jobCounts, countedHostAttributes.get(placement.host), -1);
+    if (placementsByJob.remove(placement.jobKey, 1) == 1) {
+      counts.remove(placement.jobKey);
+    }
+    if (!tasksByHost.containsKey(placement.host)) {
+      countedHostAttributes.remove(placement.host);
+    }
+  }
+
+  private Set<IAttribute> fetchAttributes(final String host) {
+    return storage.weaklyConsistentRead(new Storage.Work.Quiet<Set<IAttribute>>() {
+      @Override
+      public Set<IAttribute> apply(StoreProvider storeProvider) {
+        return ImmutableSet.copyOf(AttributeStore.Util.attributesOrNone(storeProvider, host));
+      }
+    });
+  }
+
+  private static void adjust(
+      AtomicLongMap<Pair<String, String>> jobCounts,
+      Iterable<IAttribute> attributes,
+      long delta) {
+
+    for (IAttribute attribute : attributes) {
+      for (String value : attribute.getValues()) {
+        Pair<String, String> key = Pair.of(attribute.getName(), value);
+        if (jobCounts.addAndGet(key, delta) == 0) {
+          // Zero counts are removed so that aggregates are comparable to recomputed values.
+          jobCounts.remove(key);
+        }
+      }
+    }
+  }
+
+  private static final class Placement {
+    private final IJobKey jobKey;
+    private final String host;
+
+    Placement(IJobKey jobKey, String host) {
+      this.jobKey = jobKey;
+      this.host = host;
+    }
+  }
+}
@@ -19,6 +19,7 @@ import java.util.Set;
 import com.google.common.annotations.VisibleForTesting;
 
 import org.apache.aurora.scheduler.ResourceSlot;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 
 /**
@@ -117,4 +118,26 @@ public interface SchedulingFilter {
       ITaskConfig task,
       String taskId,
       AttributeAggregate attributeAggregate);
+
+  /**
+   * Applies a task against the filter with the given resources, on a host whose attributes and
+   * maintenance mode have already been read.  Unlike {@link #filter(ResourceSlot, String,
+   * ITaskConfig, String, AttributeAggregate)}, this does not read from storage, so it may be used
+   * off the thread that holds a storage transaction.
+   *
+   * @param offer Resources offered.
+   * @param hostAttributes Attributes of the host that the resources are associated with.  A host
+   *                       with no mode set is treated as not in maintenance.
+   * @param task Task.
+   * @param taskId Canonical ID of the task.
+   * @param attributeAggregate Attribute information for tasks in the job containing {@code task}.
+   * @return A set of vetoes indicating reasons the task cannot be scheduled.  If the task may be
+   *    scheduled, the set will be empty.
+   */
+  Set<Veto> filter(
+      ResourceSlot offer,
+      IHostAttributes hostAttributes,
+      ITaskConfig task,
+      String taskId,
+      AttributeAggregate attributeAggregate);
 }
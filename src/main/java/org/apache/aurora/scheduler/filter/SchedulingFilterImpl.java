@@ -15,6 +15,7 @@ package org.apache.aurora.scheduler.filter;
 
 import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -22,10 +23,16 @@ import javax.inject.Inject;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.twitter.common.args.Arg;
+import com.twitter.common.args.CmdLine;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Data;
 
@@ -40,6 +47,7 @@ import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
 import org.apache.aurora.scheduler.storage.Storage.Work.Quiet;
 import org.apache.aurora.scheduler.storage.entities.IAttribute;
 import org.apache.aurora.scheduler.storage.entities.IConstraint;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 
 import static java.util.Objects.requireNonNull;
@@ -66,8 +74,19 @@ public class SchedulingFilterImpl implements SchedulingFilter {
 
   private static final Set<MaintenanceMode> VETO_MODES = EnumSet.of(DRAINING, DRAINED);
 
+  @CmdLine(name = "enable_filter_plans",
+      help = "Evaluate offers against filter plans compiled and cached per task configuration, "
+          + "rather than building filter rules for every offer.")
+  private static final Arg<Boolean> ENABLE_FILTER_PLANS = Arg.create(false);
+
+  /**
+   * Maximum number of distinct task configurations to hold compiled filter plans for.
+   */
+  private static final int MAX_CACHED_PLANS = 10000;
+
   private final Storage storage;
   private final MaintenanceController maintenance;
+  private final Optional<LoadingCache<ITaskConfig, FilterPlan>> plans;
 
   /**
    * Creates a new scheduling filter.
@@ -77,8 +96,34 @@ public class SchedulingFilterImpl implements SchedulingFilter {
    */
   @Inject
   public SchedulingFilterImpl(Storage storage, MaintenanceController maintenance) {
+    this(storage, maintenance, ENABLE_FILTER_PLANS.get());
+  }
+
+  /**
+   * Creates a new scheduling filter.
+   *
+   * @param storage Interface to accessing the task store.
+   * @param maintenance Interface to accessing the maintenance controller
+   * @param enablePlans Whether to evaluate offers using cached filter plans.
+   */
+  @VisibleForTesting
+  public SchedulingFilterImpl(
+      Storage storage,
+      MaintenanceController maintenance,
+      boolean enablePlans) {
+
     this.storage = requireNonNull(storage);
     this.maintenance = requireNonNull(maintenance);
+    this.plans = enablePlans
+        ? Optional.of(CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_PLANS)
+            .build(new CacheLoader<ITaskConfig, FilterPlan>() {
+              @Override
+              public FilterPlan load(ITaskConfig task) {
+                return new FilterPlan(task);
+              }
+            }))
+        : Optional.<LoadingCache<ITaskConfig, FilterPlan>>absent();
   }
 
   /**
@@ -207,31 +252,47 @@ public class SchedulingFilterImpl implements SchedulingFilter {
         return storage.weaklyConsistentRead(new Quiet<Iterable<Veto>>() {
           @Override
           public Iterable<Veto> apply(final StoreProvider storeProvider) {
-            ConstraintFilter constraintFilter = new ConstraintFilter(
+            return getConstraintVetoes(
+                task,
                 jobState,
                 AttributeStore.Util.attributesOrNone(storeProvider, slaveHost));
-            ImmutableList.Builder<Veto> vetoes = ImmutableList.builder();
-            for (IConstraint constraint : VALUES_FIRST.sortedCopy(task.getConstraints())) {
-              Optional<Veto> veto = constraintFilter.getVeto(constraint);
-              if (veto.isPresent()) {
-                vetoes.add(veto.get());
-                if (isValueConstraint(constraint)) {
-                  // Break when a value constraint mismatch is found to avoid other
-                  // potentially-expensive operations to satisfy other constraints.
-                  break;
-                }
-              }
-            }
-
-            return vetoes.build();
           }
         });
       }
     };
   }
 
+  private static Iterable<Veto> getConstraintVetoes(
+      ITaskConfig task,
+      AttributeAggregate jobState,
+      Iterable<IAttribute> hostAttributes) {
+
+    if (!task.isSetConstraints()) {
+      return ImmutableList.of();
+    }
+
+    ConstraintFilter constraintFilter = new ConstraintFilter(jobState, hostAttributes);
+    ImmutableList.Builder<Veto> vetoes = ImmutableList.builder();
+    for (IConstraint constraint : VALUES_FIRST.sortedCopy(task.getConstraints())) {
+      Optional<Veto> veto = constraintFilter.getVeto(constraint);
+      if (veto.isPresent()) {
+        vetoes.add(veto.get());
+        if (isValueConstraint(constraint)) {
+          // Break when a value constraint mismatch is found to avoid other
+          // potentially-expensive operations to satisfy other constraints.
+          break;
+        }
+      }
+    }
+
+    return vetoes.build();
+  }
+
   private Optional<Veto> getMaintenanceVeto(String slaveHost) {
-    MaintenanceMode mode = maintenance.getMode(slaveHost);
+    return getMaintenanceVeto(maintenance.getMode(slaveHost));
+  }
+
+  private static Optional<Veto> getMaintenanceVeto(MaintenanceMode mode) {
     return VETO_MODES.contains(mode)
         ? Optional.of(ConstraintFilter.maintenanceVeto(mode.toString().toLowerCase()))
         : NO_VETO;
@@ -245,18 +306,113 @@ public class SchedulingFilterImpl implements SchedulingFilter {
     return builder.build();
   }
 
-  private boolean isDedicated(final String slaveHost) {
-    Iterable<IAttribute> slaveAttributes =
-        storage.weaklyConsistentRead(new Quiet<Iterable<IAttribute>>() {
-          @Override
-          public Iterable<IAttribute> apply(final StoreProvider storeProvider) {
-            return AttributeStore.Util.attributesOrNone(storeProvider, slaveHost);
+  private Iterable<IAttribute> getHostAttributes(final String slaveHost) {
+    return storage.weaklyConsistentRead(new Quiet<Iterable<IAttribute>>() {
+      @Override
+      public Iterable<IAttribute> apply(final StoreProvider storeProvider) {
+        return AttributeStore.Util.attributesOrNone(storeProvider, slaveHost);
+      }
+    });
+  }
+
+  private static boolean isDedicated(Iterable<IAttribute> slaveAttributes) {
+    return Iterables.any(slaveAttributes, IS_DEDICATED);
+  }
+
+  private static final ConstraintFilter.NameFilter IS_DEDICATED =
+      new ConstraintFilter.NameFilter(DEDICATED_ATTRIBUTE);
+
+  /**
+   * Task requirements that are relevant to filtering, computed once per task configuration.
+   */
+  private final class FilterPlan {
+    private final boolean dedicated;
+    private final double cpus;
+    private final double ramMb;
+    private final double diskMb;
+    private final int ports;
+    private final List<IConstraint> constraints;
+
+    FilterPlan(ITaskConfig task) {
+      ResourceSlot required = ResourceSlot.from(task);
+      this.dedicated = ConfigurationManager.isDedicated(task);
+      this.cpus = required.getNumCpus();
+      this.ramMb = required.getRam().as(Data.MB);
+      this.diskMb = required.getDisk().as(Data.MB);
+      this.ports = required.getNumPorts();
+      this.constraints = task.isSetConstraints()
+          ? VALUES_FIRST.immutableSortedCopy(task.getConstraints())
+          : ImmutableList.<IConstraint>of();
+    }
+
+    /**
+     * Evaluates an offer, producing vetoes in the same order as the rule-based filter.
+     */
+    Set<Veto> evaluate(ResourceSlot offer, String slaveHost, AttributeAggregate jobState) {
+      // A single attribute read serves both the dedicated and constraint checks.
+      Iterable<IAttribute> hostAttributes = getHostAttributes(slaveHost);
+      if (!dedicated && isDedicated(hostAttributes)) {
+        return DEDICATED_HOST_SET;
+      }
+
+      return add(evaluate(offer, hostAttributes, jobState), getMaintenanceVeto(slaveHost));
+    }
+
+    /**
+     * Evaluates an offer on a host whose attributes have already been read.
+     */
+    Set<Veto> evaluate(ResourceSlot offer, IHostAttributes host, AttributeAggregate jobState) {
+      if (!dedicated && isDedicated(host.getAttributes())) {
+        return DEDICATED_HOST_SET;
+      }
+
+      return add(evaluate(offer, host.getAttributes(), jobState), getMaintenanceVeto(modeOf(host)));
+    }
+
+    /**
+     * Evaluates the constraint and resource vetoes against an offer, leaving out the dedicated
+     * host and maintenance checks.
+     */
+    private Set<Veto> evaluate(
+        ResourceSlot offer,
+        Iterable<IAttribute> hostAttributes,
+        AttributeAggregate jobState) {
+
+      Set<Veto> vetoes = NO_VETOES;
+      if (!constraints.isEmpty()) {
+        ConstraintFilter constraintFilter = new ConstraintFilter(jobState, hostAttributes);
+        for (IConstraint constraint : constraints) {
+          Optional<Veto> veto = constraintFilter.getVeto(constraint);
+          if (veto.isPresent()) {
+            vetoes = add(vetoes, veto);
+            if (isValueConstraint(constraint)) {
+              break;
+            }
           }
-        });
+        }
+      }
+
+      vetoes = add(vetoes, CPU.maybeVeto(offer.getNumCpus(), cpus));
+      vetoes = add(vetoes, RAM.maybeVeto(offer.getRam().as(Data.MB), ramMb));
+      vetoes = add(vetoes, DISK.maybeVeto(offer.getDisk().as(Data.MB), diskMb));
+      return add(vetoes, PORTS.maybeVeto(offer.getNumPorts(), ports));
+    }
+
+    private Set<Veto> add(Set<Veto> vetoes, Optional<Veto> veto) {
+      if (!veto.isPresent()) {
+        return vetoes;
+      }
 
-    return Iterables.any(slaveAttributes, new ConstraintFilter.NameFilter(DEDICATED_ATTRIBUTE));
+      // Vetoes are uncommon relative to evaluations, so a set is only allocated when needed.
+      Set<Veto> result = vetoes == NO_VETOES ? Sets.<Veto>newLinkedHashSet() : vetoes;
+      result.add(veto.get());
+      return result;
+    }
   }
 
+  private static final Set<Veto> NO_VETOES = ImmutableSet.of();
+  private static final Set<Veto> DEDICATED_HOST_SET = ImmutableSet.of(DEDICATED_HOST_VETO);
+
   @Override
   public Set<Veto> filter(
       ResourceSlot offer,
@@ -265,7 +421,11 @@ public class SchedulingFilterImpl implements SchedulingFilter {
       String taskId,
       AttributeAggregate attributeAggregate) {
 
-    if (!ConfigurationManager.isDedicated(task) && isDedicated(slaveHost)) {
+    if (plans.isPresent()) {
+      return plans.get().getUnchecked(task).evaluate(offer, slaveHost, attributeAggregate);
+    }
+
+    if (!ConfigurationManager.isDedicated(task) && isDedicated(getHostAttributes(slaveHost))) {
       return ImmutableSet.of(DEDICATED_HOST_VETO);
     }
     return ImmutableSet.<Veto>builder()
@@ -274,4 +434,30 @@ public class SchedulingFilterImpl implements SchedulingFilter {
         .addAll(getMaintenanceVeto(slaveHost).asSet())
         .build();
   }
+
+  @Override
+  public Set<Veto> filter(
+      ResourceSlot offer,
+      IHostAttributes hostAttributes,
+      ITaskConfig task,
+      String taskId,
+      AttributeAggregate attributeAggregate) {
+
+    if (plans.isPresent()) {
+      return plans.get().getUnchecked(task).evaluate(offer, hostAttributes, attributeAggregate);
+    }
+
+    if (!ConfigurationManager.isDedicated(task) && isDedicated(hostAttributes.getAttributes())) {
+      return ImmutableSet.of(DEDICATED_HOST_VETO);
+    }
+    return ImmutableSet.<Veto>builder()
+        .addAll(getConstraintVetoes(task, attributeAggregate, hostAttributes.getAttributes()))
+        .addAll(getResourceVetoes(offer, task))
+        .addAll(getMaintenanceVeto(modeOf(hostAttributes)).asSet())
+        .build();
+  }
+
+  private static MaintenanceMode modeOf(IHostAttributes hostAttributes) {
+    return hostAttributes.isSetMode() ? hostAttributes.getMode() : MaintenanceMode.NONE;
+  }
 }
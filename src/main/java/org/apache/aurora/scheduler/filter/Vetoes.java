@@ -0,0 +1,82 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.filter;
+
+import java.util.Set;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+
+import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+
+/**
+ * Utility class for comparing the vetoes against scheduling assignments.
+ */
+public final class Vetoes {
+
+  private Vetoes() {
+    // Utility class.
+  }
+
+  private static final Predicate<Veto> IS_CONSTRAINT_MISMATCH = new Predicate<Veto>() {
+    @Override
+    public boolean apply(Veto veto) {
+      return veto.isConstraintMismatch();
+    }
+  };
+
+  /**
+   * Computes the aggregate score of a set of vetoes.
+   *
+   * @param vetoes Vetoes to score.
+   * @return The sum of the veto scores.
+   */
+  public static int score(Iterable<Veto> vetoes) {
+    int total = 0;
+    for (Veto veto : vetoes) {
+      total += veto.getScore();
+    }
+    return total;
+  }
+
+  /**
+   * Tests whether a set of vetoes represents a closer fit than another.
+   * <p>
+   * There are two classes of vetoes: those with and without constraint mismatches. A set of
+   * vetoes without a constraint mismatch is always a better fit than a set with constraint
+   * mismatches.
+   * <p>
+   * If two sets are equivalent in that they do or do not have constraint mismatches, they are
+   * compared by the following criteria:
+   * <ul>
+   *   <li> the one with fewer vetoes is a better fit, irrespective of scores
+   *   <li> if the veto count is equal, the one with the smaller aggregate score is a better fit
+   * </ul>
+   *
+   * @param vetoes Candidate vetoes.
+   * @param current Vetoes of the current closest fit.
+   * @return {@code true} if {@code vetoes} is a strictly closer fit than {@code current}.
+   */
+  public static boolean isCloserFit(Set<Veto> vetoes, Set<Veto> current) {
+    boolean valueMismatchCurrent = Iterables.any(current, IS_CONSTRAINT_MISMATCH);
+    boolean valueMismatchNew = Iterables.any(vetoes, IS_CONSTRAINT_MISMATCH);
+    if (valueMismatchCurrent == valueMismatchNew) {
+      if (vetoes.size() != current.size()) {
+        return vetoes.size() < current.size();
+      }
+      return score(vetoes) < score(current);
+    }
+    return valueMismatchCurrent;
+  }
+}
@@ -16,6 +16,8 @@ package org.apache.aurora.scheduler.log;
 import java.io.IOException;
 import java.util.Iterator;
 
+import javax.annotation.Nullable;
+
 /**
  * Represents an append only log that can be read after and truncated before a known
  * {@link Position}.
@@ -42,6 +44,13 @@ public interface Log {
      * @return the data stored in this log entry
      */
     byte[] contents();
+
+    /**
+     * Gets the position of the log entry.
+     *
+     * @return the position of this entry in the log stream
+     */
+    Position position();
   }
 
   /**
@@ -89,7 +98,9 @@ public interface Log {
      * returned entry iterator.  If the implementation does use some form of streaming or batching,
      * it may throw a
      * {@code StreamAccessException} on any call to {@link Iterator#hasNext()} or
-     * {@link Iterator#next()}.
+     * {@link Iterator#next()}.  Streaming iterators may also implement {@link java.io.Closeable},
+     * in which case callers that stop reading before the iterator is exhausted should close it to
+     * release the resources backing it.
      *
      * @return an iterator that ranges from the entry from the given {@code position} to the last
      *     entry in the log.
@@ -98,6 +109,22 @@ public interface Log {
      */
     Iterator<Entry> readAll() throws InvalidPositionException, StreamAccessException;
 
+    /**
+     * Allows reading the entries following a position, as far as they are known to this replica of
+     * the log.  Unlike {@link #readAll()}, this does not contend for writing to the log, so it may
+     * be used to follow a log written by another process.  Entries that were truncated are
+     * skipped.  As with {@link #readAll()}, the returned iterator should be closed if it implements
+     * {@link java.io.Closeable} and is not read to the end.
+     *
+     * @param position the position of the last entry already read, or {@code null} to read from
+     *     the beginning of the log
+     * @return an iterator over the entries following {@code position}
+     * @throws InvalidPositionException if the specified position is not from this log
+     * @throws StreamAccessException if the stream could not be read from
+     */
+    Iterator<Entry> readAfter(@Nullable Position position)
+        throws InvalidPositionException, StreamAccessException;
+
     /**
      * Removes all log entries preceding the log entry at the given {@code position}.
      *
@@ -0,0 +1,543 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.log.file;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
+import com.twitter.common.quantity.Time;
+import com.twitter.common.stats.SlidingStats;
+import com.twitter.common.stats.Stats;
+
+import org.apache.aurora.scheduler.log.Log;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Log} stored in append-only segment files in a local directory.
+ * <p>
+ * Entries are appended to memory-mapped segment files, each record framed by the length of its
+ * contents and a CRC32 checksum of them.  Segments are preallocated to a fixed size, with a zero
+ * length marking the end of the records written to a segment, and are named after the position of
+ * their first entry.  When the log is opened, a record that fails validation is taken to be the
+ * torn tail of an interrupted append, and is ignored along with anything following it.
+ * <p>
+ * Truncation deletes the segments holding only truncated entries, and persists the truncation
+ * position so that the truncated entries of the remaining segments are skipped when reading.
+ * <p>
+ * The log is not replicated, and is only suitable for a single scheduler.
+ */
+public class FileLog implements Log {
+
+  private static final Logger LOG = Logger.getLogger(FileLog.class.getName());
+
+  // Each record is preceded by the length of its contents and their checksum.
+  private static final int HEADER_BYTES = 8;
+  private static final String SEGMENT_SUFFIX = ".segment";
+  private static final String TRUNCATION_FILE = "truncated";
+
+  private static final FilenameFilter SEGMENT_FILTER = new FilenameFilter() {
+    @Override
+    public boolean accept(File dir, String name) {
+      return name.endsWith(SEGMENT_SUFFIX);
+    }
+  };
+
+  /**
+   * Policy for forcing appended entries to disk.
+   */
+  public enum SyncPolicy {
+    /**
+     * Every append is forced to disk before it returns.
+     */
+    EVERY_APPEND,
+
+    /**
+     * An append is forced to disk, along with any entries preceding it, when the sync interval has
+     * elapsed since the last sync.  Entries appended in between are written back by the operating
+     * system.
+     */
+    INTERVAL,
+
+    /**
+     * Appends are never forced to disk, and are written back by the operating system.
+     */
+    NONE
+  }
+
+  /**
+   * Configuration for a file-backed log.
+   */
+  public static class Settings {
+    private final File directory;
+    private final int segmentBytes;
+    private final SyncPolicy syncPolicy;
+    private final Amount<Long, Time> syncInterval;
+
+    /**
+     * Creates file log settings.
+     *
+     * @param directory Directory to store segment files in, created if it does not exist.
+     * @param segmentSize Size to preallocate each segment to.  Entries too large for a segment of
+     *     this size are written to a segment sized to fit them.
+     * @param syncPolicy Policy for forcing appended entries to disk.
+     * @param syncInterval Minimum time between syncs under the {@link SyncPolicy#INTERVAL} policy.
+     */
+    public Settings(
+        File directory,
+        Amount<Integer, Data> segmentSize,
+        SyncPolicy syncPolicy,
+        Amount<Long, Time> syncInterval) {
+
+      this.directory = requireNonNull(directory);
+      this.segmentBytes = segmentSize.as(Data.BYTES);
+      Preconditions.checkArgument(segmentBytes > HEADER_BYTES);
+      this.syncPolicy = requireNonNull(syncPolicy);
+      this.syncInterval = requireNonNull(syncInterval);
+    }
+  }
+
+  private final Settings settings;
+
+  // Guarded by this.
+  private FileStream stream;
+
+  @Inject
+  public FileLog(Settings settings) {
+    this.settings = requireNonNull(settings);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The segment files may only have a single writer, so the stream is shared by all callers.
+   */
+  @Override
+  public synchronized Stream open() throws IOException {
+    if (stream == null) {
+      stream = new FileStream(settings);
+    }
+    return stream;
+  }
+
+  private static final class FilePosition implements Position {
+    private final long value;
+
+    FilePosition(long value) {
+      this.value = value;
+    }
+
+    @Override
+    public int compareTo(Position other) {
+      return Long.compare(value, ((FilePosition) other).value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof FilePosition && value == ((FilePosition) o).value;
+    }
+
+    @Override
+    public int hashCode() {
+      return Longs.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+      return Long.toString(value);
+    }
+  }
+
+  private static final class FileEntry implements Entry {
+    private final byte[] contents;
+    private final FilePosition position;
+
+    FileEntry(byte[] contents, long position) {
+      this.contents = contents;
+      this.position = new FilePosition(position);
+    }
+
+    @Override
+    public byte[] contents() {
+      return contents;
+    }
+
+    @Override
+    public Position position() {
+      return position;
+    }
+  }
+
+  private static final class Segment {
+    private final File file;
+    private final long firstPosition;
+
+    // The number of complete records, and the bytes they occupy.
+    private int entries;
+    private int size;
+
+    Segment(File file, long firstPosition) {
+      this.file = file;
+      this.firstPosition = firstPosition;
+    }
+
+    Segment copy() {
+      Segment copy = new Segment(file, firstPosition);
+      copy.entries = entries;
+      copy.size = size;
+      return copy;
+    }
+  }
+
+  private static final class FileStream implements Stream {
+    private final AtomicLong segmentsCreated =
+        Stats.exportLong("scheduler_log_file_segments_created");
+    private final AtomicLong segmentsDeleted =
+        Stats.exportLong("scheduler_log_file_segments_deleted");
+    private final SlidingStats syncs = new SlidingStats("scheduler_log_file_sync", "nanos");
+
+    private final File directory;
+    private final int segmentBytes;
+    private final SyncPolicy syncPolicy;
+    private final long syncIntervalNanos;
+    private final CRC32 checksum = new CRC32();
+
+    // Segments in position order, the last of which is appended to.  Guarded by this.
+    private final List<Segment> segments = Lists.newArrayList();
+    private MappedByteBuffer appendBuffer;
+    private long nextPosition;
+    private long truncatedBefore;
+    private long lastSyncNanos = System.nanoTime();
+
+    FileStream(Settings settings) throws IOException {
+      this.directory = settings.directory;
+      this.segmentBytes = settings.segmentBytes;
+      this.syncPolicy = settings.syncPolicy;
+      this.syncIntervalNanos = settings.syncInterval.as(Time.NANOSECONDS);
+
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Failed to create log directory " + directory);
+      }
+      truncatedBefore = readTruncation();
+
+      File[] files = directory.listFiles(SEGMENT_FILTER);
+      if (files == null) {
+        throw new IOException("Failed to list log directory " + directory);
+      }
+      // Segment names are zero-padded, so they sort in position order.
+      Arrays.sort(files);
+      for (File file : files) {
+        segments.add(scan(file));
+      }
+
+      if (segments.isEmpty()) {
+        startSegment(truncatedBefore, segmentBytes);
+      } else {
+        Segment last = Iterables.getLast(segments);
+        appendBuffer = map(last.file, MapMode.READ_WRITE, last.file.length());
+        appendBuffer.position(last.size);
+        markEnd();
+        nextPosition = last.firstPosition + last.entries;
+      }
+    }
+
+    private Segment scan(File file) throws IOException {
+      String name = file.getName();
+      long firstPosition;
+      try {
+        firstPosition = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+      } catch (NumberFormatException e) {
+        throw new IOException("Unrecognized log segment " + file, e);
+      }
+
+      Segment segment = new Segment(file, firstPosition);
+      ByteBuffer buffer = map(file, MapMode.READ_ONLY, file.length());
+      while (readRecord(buffer, checksum) != null) {
+        segment.entries++;
+      }
+      segment.size = buffer.position();
+      if (buffer.remaining() >= HEADER_BYTES && buffer.getInt(segment.size) != 0) {
+        LOG.warning("Ignoring invalid record at offset " + segment.size + " of " + file);
+      }
+      return segment;
+    }
+
+    @Override
+    public synchronized Position append(byte[] contents) throws StreamAccessException {
+      // A zero length marks the end of a segment.
+      Preconditions.checkArgument(contents.length > 0, "Log entries may not be empty.");
+
+      int recordBytes = HEADER_BYTES + contents.length;
+      if (appendBuffer.remaining() < recordBytes) {
+        try {
+          startSegment(nextPosition, Math.max(segmentBytes, recordBytes));
+        } catch (IOException e) {
+          throw new StreamAccessException("Failed to start a new log segment", e);
+        }
+      }
+
+      checksum.reset();
+      checksum.update(contents);
+      appendBuffer.putInt(contents.length).putInt((int) checksum.getValue()).put(contents);
+      markEnd();
+
+      Segment segment = Iterables.getLast(segments);
+      segment.entries++;
+      segment.size = appendBuffer.position();
+
+      if (syncPolicy == SyncPolicy.EVERY_APPEND
+          || (syncPolicy == SyncPolicy.INTERVAL
+              && System.nanoTime() - lastSyncNanos >= syncIntervalNanos)) {
+
+        sync();
+      }
+      return new FilePosition(nextPosition++);
+    }
+
+    /**
+     * Overwrites any stale record following the append position, such as a torn record left by an
+     * interrupted append.
+     */
+    private void markEnd() {
+      if (appendBuffer.remaining() >= HEADER_BYTES) {
+        appendBuffer.putInt(appendBuffer.position(), 0);
+      }
+    }
+
+    private void sync() {
+      long start = System.nanoTime();
+      appendBuffer.force();
+      lastSyncNanos = System.nanoTime();
+      syncs.accumulate(lastSyncNanos - start);
+    }
+
+    private void startSegment(long firstPosition, int capacity) throws IOException {
+      if (appendBuffer != null && syncPolicy != SyncPolicy.NONE) {
+        sync();
+      }
+
+      // An empty segment is replaced rather than left behind with the same name.
+      if (!segments.isEmpty() && Iterables.getLast(segments).entries == 0) {
+        segments.remove(segments.size() - 1);
+      }
+
+      File file = new File(directory, String.format("%020d%s", firstPosition, SEGMENT_SUFFIX));
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(capacity);
+        appendBuffer = raf.getChannel().map(MapMode.READ_WRITE, 0, capacity);
+      }
+      segments.add(new Segment(file, firstPosition));
+      nextPosition = firstPosition;
+      segmentsCreated.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the entries appended before this call.  Segments are mapped as they are reached, so
+     * truncation during the read may cause it to fail.
+     */
+    @Override
+    public synchronized Iterator<Entry> readAll() throws StreamAccessException {
+      return read(truncatedBefore);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads the entries appended through this stream, or present when it was opened.
+     */
+    @Override
+    public synchronized Iterator<Entry> readAfter(@Nullable Position position)
+        throws InvalidPositionException, StreamAccessException {
+
+      if (position == null) {
+        return read(truncatedBefore);
+      }
+      if (!(position instanceof FilePosition)) {
+        throw new InvalidPositionException("Not a file log position: " + position);
+      }
+      return read(Math.max(truncatedBefore, ((FilePosition) position).value + 1));
+    }
+
+    private Iterator<Entry> read(final long from) {
+      final List<Segment> toRead = Lists.newArrayList();
+      for (Segment segment : segments) {
+        if (segment.entries > 0 && segment.firstPosition + segment.entries > from) {
+          toRead.add(segment.copy());
+        }
+      }
+
+      return new AbstractIterator<Entry>() {
+        private final Iterator<Segment> remaining = toRead.iterator();
+        private final CRC32 readChecksum = new CRC32();
+        private Segment segment;
+        private ByteBuffer buffer = ByteBuffer.allocate(0);
+        private long position;
+
+        @Override
+        protected Entry computeNext() {
+          while (true) {
+            while (!buffer.hasRemaining()) {
+              if (!remaining.hasNext()) {
+                return endOfData();
+              }
+              segment = remaining.next();
+              position = segment.firstPosition;
+              try {
+                buffer = map(segment.file, MapMode.READ_ONLY, segment.size);
+              } catch (IOException e) {
+                throw new StreamAccessException("Failed to read log segment " + segment.file, e);
+              }
+            }
+
+            byte[] contents = readRecord(buffer, readChecksum);
+            if (contents == null) {
+              throw new StreamAccessException("Failed to read log segment " + segment.file,
+                  new IOException("Invalid record at offset " + buffer.position()));
+            }
+            long entryPosition = position++;
+            if (entryPosition >= from) {
+              return new FileEntry(contents, entryPosition);
+            }
+          }
+        }
+      };
+    }
+
+    @Override
+    public synchronized void truncateBefore(Position position)
+        throws InvalidPositionException, StreamAccessException {
+
+      if (!(position instanceof FilePosition)) {
+        throw new InvalidPositionException("Not a file log position: " + position);
+      }
+      long target = ((FilePosition) position).value;
+      if (target > nextPosition) {
+        throw new InvalidPositionException("Position " + target + " is past the end of the log");
+      }
+      if (target <= truncatedBefore) {
+        return;
+      }
+
+      try {
+        writeTruncation(target);
+      } catch (IOException e) {
+        throw new StreamAccessException("Failed to record log truncation", e);
+      }
+      truncatedBefore = target;
+
+      // Delete whole segments of truncated entries, keeping the segment being appended to.
+      while (segments.size() > 1 && segments.get(1).firstPosition <= target) {
+        File file = segments.remove(0).file;
+        if (file.delete()) {
+          segmentsDeleted.incrementAndGet();
+        } else {
+          LOG.warning("Failed to delete truncated log segment " + file);
+        }
+      }
+    }
+
+    private long readTruncation() throws IOException {
+      Path path = directory.toPath().resolve(TRUNCATION_FILE);
+      if (!Files.exists(path)) {
+        return 0;
+      }
+      byte[] contents = Files.readAllBytes(path);
+      if (contents.length != Longs.BYTES) {
+        throw new IOException("Invalid log truncation file " + path);
+      }
+      return Longs.fromByteArray(contents);
+    }
+
+    private void writeTruncation(long target) throws IOException {
+      Path temp = directory.toPath().resolve(TRUNCATION_FILE + ".tmp");
+      try (FileChannel channel = FileChannel.open(
+          temp,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+
+        channel.write(ByteBuffer.wrap(Longs.toByteArray(target)));
+        channel.force(true);
+      }
+      Files.move(temp, directory.toPath().resolve(TRUNCATION_FILE),
+          StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  private static MappedByteBuffer map(File file, MapMode mode, long size) throws IOException {
+    String access = mode == MapMode.READ_ONLY ? "r" : "rw";
+    try (RandomAccessFile raf = new RandomAccessFile(file, access)) {
+      return raf.getChannel().map(mode, 0, size);
+    }
+  }
+
+  /**
+   * Reads the record at the position of a buffer, advancing past it.
+   *
+   * @param buffer Buffer to read from.
+   * @param checksum Checksum to validate the record with.
+   * @return The contents of the record, or {@code null} if the buffer holds no further valid
+   *     records, in which case the buffer position is left unchanged.
+   */
+  @Nullable
+  private static byte[] readRecord(ByteBuffer buffer, CRC32 checksum) {
+    int offset = buffer.position();
+    if (buffer.remaining() < HEADER_BYTES) {
+      return null;
+    }
+    int length = buffer.getInt(offset);
+    if (length <= 0 || length > buffer.remaining() - HEADER_BYTES) {
+      return null;
+    }
+
+    byte[] contents = new byte[length];
+    buffer.position(offset + HEADER_BYTES);
+    buffer.get(contents);
+    checksum.reset();
+    checksum.update(contents);
+    if ((int) checksum.getValue() != buffer.getInt(offset + 4)) {
+      buffer.position(offset);
+      return null;
+    }
+    return contents;
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.log.file;
+
+import java.io.File;
+
+import javax.inject.Singleton;
+
+import com.google.inject.PrivateModule;
+import com.twitter.common.args.Arg;
+import com.twitter.common.args.CmdLine;
+import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
+import com.twitter.common.quantity.Time;
+
+import org.apache.aurora.scheduler.log.Log;
+import org.apache.aurora.scheduler.log.file.FileLog.SyncPolicy;
+
+/**
+ * Binds a log stored in local files.
+ *
+ * <p>Exports the following bindings:
+ * <ul>
+ *   <li>{@link Log} - a log backed by memory-mapped segment files</li>
+ * </ul>
+ */
+public class FileLogStreamModule extends PrivateModule {
+  @CmdLine(name = "file_log_dir",
+           help = "Directory to store the file log in.  It will be created if it does not exist.")
+  private static final Arg<File> LOG_DIR = Arg.create(null);
+
+  @CmdLine(name = "file_log_segment_size",
+           help = "The size to preallocate each file log segment to.")
+  private static final Arg<Amount<Integer, Data>> SEGMENT_SIZE =
+      Arg.create(Amount.of(64, Data.MB));
+
+  @CmdLine(name = "file_log_sync_policy",
+           help = "When appends to the file log are forced to disk: on EVERY_APPEND, on the first "
+               + "append after each file_log_sync_interval (INTERVAL), or never (NONE).")
+  private static final Arg<SyncPolicy> SYNC_POLICY = Arg.create(SyncPolicy.EVERY_APPEND);
+
+  @CmdLine(name = "file_log_sync_interval",
+           help = "The minimum time between file log syncs under the INTERVAL sync policy.")
+  private static final Arg<Amount<Long, Time>> SYNC_INTERVAL =
+      Arg.create(Amount.of(1L, Time.SECONDS));
+
+  @Override
+  protected void configure() {
+    if (LOG_DIR.get() == null) {
+      addError("-file_log_dir must be set to use the file log.");
+      return;
+    }
+
+    bind(FileLog.Settings.class).toInstance(new FileLog.Settings(
+        LOG_DIR.get(),
+        SEGMENT_SIZE.get(),
+        SYNC_POLICY.get(),
+        SYNC_INTERVAL.get()));
+    bind(Log.class).to(FileLog.class);
+    bind(FileLog.class).in(Singleton.class);
+    expose(Log.class);
+  }
+}
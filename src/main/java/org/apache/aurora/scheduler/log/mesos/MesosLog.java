@@ -13,11 +13,14 @@
  */
 package org.apache.aurora.scheduler.log.mesos;
 
+import java.io.Closeable;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -31,9 +34,12 @@ import javax.inject.Provider;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.UnmodifiableIterator;
 import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.BindingAnnotation;
 import com.twitter.common.application.Lifecycle;
 import com.twitter.common.base.Function;
@@ -84,10 +90,28 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
   @Target({ PARAMETER, METHOD })
   public @interface WriteTimeout { }
 
+  /**
+   * Binding annotation for the number of log positions fetched per read when reading the log.
+   */
+  @BindingAnnotation
+  @Retention(RUNTIME)
+  @Target({ PARAMETER, METHOD })
+  public @interface ReadBatchSize { }
+
+  /**
+   * Binding annotation for the number of read batches buffered ahead of the log reader.
+   */
+  @BindingAnnotation
+  @Retention(RUNTIME)
+  @Target({ PARAMETER, METHOD })
+  public @interface ReadPrefetchBatches { }
+
   private final Provider<LogInterface> logFactory;
 
   private final Provider<ReaderInterface> readerFactory;
   private final Amount<Long, Time> readTimeout;
+  private final int readBatchSize;
+  private final int readPrefetchBatches;
 
   private final Provider<WriterInterface> writerFactory;
   private final Amount<Long, Time> writeTimeout;
@@ -102,6 +126,8 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
    * @param logFactory Factory to provide access to log.
    * @param readerFactory Factory to provide access to log readers.
    * @param readTimeout Log read timeout.
+   * @param readBatchSize Number of positions to fetch per read, or 1 to read positions singly.
+   * @param readPrefetchBatches Number of batches to read ahead of the log reader.
    * @param writerFactory Factory to provide access to log writers.
    * @param writeTimeout Log write timeout.
    * @param noopEntry A no-op log entry blob.
@@ -112,6 +138,8 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
       Provider<LogInterface> logFactory,
       Provider<ReaderInterface> readerFactory,
       @ReadTimeout Amount<Long, Time> readTimeout,
+      @ReadBatchSize int readBatchSize,
+      @ReadPrefetchBatches int readPrefetchBatches,
       Provider<WriterInterface> writerFactory,
       @WriteTimeout Amount<Long, Time> writeTimeout,
       @NoopEntry byte[] noopEntry,
@@ -121,6 +149,10 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
 
     this.readerFactory = requireNonNull(readerFactory);
     this.readTimeout = requireNonNull(readTimeout);
+    Preconditions.checkArgument(readBatchSize > 0);
+    this.readBatchSize = readBatchSize;
+    Preconditions.checkArgument(readPrefetchBatches > 0);
+    this.readPrefetchBatches = readPrefetchBatches;
 
     this.writerFactory = requireNonNull(writerFactory);
     this.writeTimeout = requireNonNull(writeTimeout);
@@ -136,6 +168,8 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
         logFactory.get(),
         readerFactory.get(),
         readTimeout,
+        readBatchSize,
+        readPrefetchBatches,
         writerFactory,
         writeTimeout,
         noopEntry,
@@ -172,6 +206,9 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
         };
 
     private final OpStats readStats = new OpStats("read");
+    private final OpStats readBatchStats = new OpStats("read_batch");
+    private final AtomicLong batchEntriesRead =
+        Stats.exportLong("scheduler_log_native_read_batch_entries");
     private final OpStats appendStats = new OpStats("append");
     private final OpStats truncateStats = new OpStats("truncate");
     private final AtomicLong entriesSkipped =
@@ -182,6 +219,8 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
     private final ReaderInterface reader;
     private final long readTimeout;
     private final TimeUnit readTimeUnit;
+    private final int readBatchSize;
+    private final int readPrefetchBatches;
 
     private final Provider<WriterInterface> writerFactory;
     private final long writeTimeout;
@@ -208,6 +247,8 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
         LogInterface log,
         ReaderInterface reader,
         Amount<Long, Time> readTimeout,
+        int readBatchSize,
+        int readPrefetchBatches,
         Provider<WriterInterface> writerFactory,
         Amount<Long, Time> writeTimeout,
         byte[] noopEntry,
@@ -218,6 +259,8 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
       this.reader = reader;
       this.readTimeout = readTimeout.getValue();
       this.readTimeUnit = readTimeout.getUnit().getTimeUnit();
+      this.readBatchSize = readBatchSize;
+      this.readPrefetchBatches = readPrefetchBatches;
 
       this.writerFactory = writerFactory;
       this.writeTimeout = writeTimeout.getValue();
@@ -240,16 +283,43 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
         throw new StreamAccessException("Error writing noop prior to a read", e);
       }
 
-      final Log.Position from = reader.beginning();
-      final Log.Position to = end().unwrap();
+      return read(
+          Longs.fromByteArray(reader.beginning().identity()),
+          Longs.fromByteArray(end().unwrap().identity()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reads up to the last position learned by the local replica, without claiming the writer.
+     */
+    @Override
+    public Iterator<Entry> readAfter(
+        @Nullable org.apache.aurora.scheduler.log.Log.Position position)
+        throws InvalidPositionException, StreamAccessException {
+
+      long from = Longs.fromByteArray(reader.beginning().identity());
+      if (position != null) {
+        if (!(position instanceof LogPosition)) {
+          throw new InvalidPositionException("Not a mesos log position: " + position);
+        }
+        long after = Longs.fromByteArray(((LogPosition) position).unwrap().identity());
+        from = Math.max(from, after + 1);
+      }
+      return read(from, Longs.fromByteArray(end().unwrap().identity()));
+    }
+
+    private Iterator<Entry> read(final long startPosition, final long endPosition) {
+      if (readBatchSize > 1) {
+        return new BatchReader(startPosition, endPosition);
+      }
 
       // Reading all the entries at once may cause large garbage collections. Instead, we
       // lazily read the entries one by one as they are requested.
       // TODO(Benjamin Hindman): Eventually replace this functionality with functionality
       // from the Mesos Log.
       return new UnmodifiableIterator<Entry>() {
-        private long position = Longs.fromByteArray(from.identity());
-        private final long endPosition = Longs.fromByteArray(to.identity());
+        private long position = startPosition;
         private Entry entry = null;
 
         @Override
@@ -308,6 +378,149 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
       };
     }
 
+    /**
+     * Reads the log in batches of positions.  A prefetch thread reads batches ahead of the
+     * consumer, holding at most {@code readPrefetchBatches} batches in memory.  A consumer that
+     * stops iterating before the end of the log must {@link #close()} the reader to stop the
+     * prefetch thread.
+     */
+    @VisibleForTesting
+    class BatchReader extends UnmodifiableIterator<Entry> implements Closeable {
+      private final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(readPrefetchBatches);
+      private final Thread prefetcher;
+      private Iterator<Log.Entry> current = Iterators.emptyIterator();
+      private boolean exhausted = false;
+
+      BatchReader(final long startPosition, final long endPosition) {
+        prefetcher = new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("MesosLogPrefetch-%d")
+            .build()
+            .newThread(new Runnable() {
+              @Override
+              public void run() {
+                prefetch(startPosition, endPosition);
+              }
+            });
+        prefetcher.start();
+      }
+
+      private void prefetch(long startPosition, long endPosition) {
+        try {
+          StreamAccessException failure = null;
+          try {
+            for (long position = startPosition;
+                 position <= endPosition && !Thread.currentThread().isInterrupted();
+                 position += readBatchSize) {
+
+              List<Log.Entry> entries =
+                  readBatch(position, Math.min(position + readBatchSize - 1, endPosition));
+              if (!entries.isEmpty()) {
+                batches.put(new Batch(entries, null));
+              }
+            }
+          } catch (StreamAccessException e) {
+            failure = e;
+          } catch (RuntimeException e) {
+            failure = new StreamAccessException("Problem reading from log", e);
+          }
+          batches.put(new Batch(ImmutableList.<Log.Entry>of(), failure));
+        } catch (InterruptedException e) {
+          // The reader was closed, there is nobody left to hand batches to.
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      @VisibleForTesting
+      boolean isPrefetching() {
+        return prefetcher.isAlive();
+      }
+
+      /**
+       * Stops the prefetch thread and discards the batches read ahead.  Subsequent calls to
+       * {@link #hasNext()} return {@code false}.
+       */
+      @Override
+      public void close() {
+        exhausted = true;
+        current = Iterators.emptyIterator();
+        prefetcher.interrupt();
+        batches.clear();
+      }
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && !exhausted) {
+          Batch batch;
+          try {
+            batch = batches.take();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StreamAccessException("Interrupted while reading from the log", e);
+          }
+          if (batch.failure != null) {
+            exhausted = true;
+            throw batch.failure;
+          }
+          if (batch.entries.isEmpty()) {
+            exhausted = true;
+          }
+          current = batch.entries.iterator();
+        }
+        return current.hasNext();
+      }
+
+      @Override
+      public Entry next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return MESOS_ENTRY_TO_ENTRY.apply(current.next());
+      }
+    }
+
+    /**
+     * A batch of entries read from the log, or the failure that ended reading.  An empty batch
+     * marks the end of the log.
+     */
+    private static final class Batch {
+      private final List<Log.Entry> entries;
+      @Nullable private final StreamAccessException failure;
+
+      Batch(List<Log.Entry> entries, @Nullable StreamAccessException failure) {
+        this.entries = entries;
+        this.failure = failure;
+      }
+    }
+
+    private List<Log.Entry> readBatch(long fromPosition, long toPosition) {
+      long start = System.nanoTime();
+      try {
+        if (LOG.isLoggable(Level.FINE)) {
+          LOG.fine("Reading positions " + fromPosition + " to " + toPosition + " from the log");
+        }
+        List<Log.Entry> entries = reader.read(
+            log.position(Longs.toByteArray(fromPosition)),
+            log.position(Longs.toByteArray(toPosition)),
+            readTimeout,
+            readTimeUnit);
+
+        // As with single reads, positions that do not hold appended entries are omitted from the
+        // result.
+        entriesSkipped.addAndGet(toPosition - fromPosition + 1 - entries.size());
+        batchEntriesRead.addAndGet(entries.size());
+        return entries;
+      } catch (TimeoutException e) {
+        readBatchStats.timeouts.getAndIncrement();
+        throw new StreamAccessException("Timeout reading from log.", e);
+      } catch (Log.OperationFailedException e) {
+        readBatchStats.failures.getAndIncrement();
+        throw new StreamAccessException("Problem reading from log", e);
+      } finally {
+        readBatchStats.timing.accumulate(System.nanoTime() - start);
+      }
+    }
+
     @Override
     public LogPosition append(final byte[] contents) throws StreamAccessException {
       requireNonNull(contents);
@@ -410,6 +623,11 @@ public class MesosLog implements org.apache.aurora.scheduler.log.Log {
       public byte[] contents() {
         return underlying.data;
       }
+
+      @Override
+      public org.apache.aurora.scheduler.log.Log.Position position() {
+        return LogPosition.wrap(underlying.position);
+      }
     }
   }
 }
@@ -28,6 +28,7 @@ import com.google.inject.Provides;
 import com.google.inject.TypeLiteral;
 import com.twitter.common.args.Arg;
 import com.twitter.common.args.CmdLine;
+import com.twitter.common.args.constraints.Positive;
 import com.twitter.common.net.InetSocketAddressHelper;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Time;
@@ -88,6 +89,17 @@ public class MesosLogStreamModule extends PrivateModule {
   private static final Arg<Amount<Long, Time>> READ_TIMEOUT =
       Arg.create(Amount.of(5L, Time.SECONDS));
 
+  @CmdLine(name = "native_log_read_batch_size",
+           help = "The number of log positions to fetch per read when reading the whole log.  "
+               + "When greater than 1, batches are read ahead of the reader by a prefetch thread.")
+  @Positive
+  private static final Arg<Integer> READ_BATCH_SIZE = Arg.create(1);
+
+  @CmdLine(name = "native_log_read_prefetch_batches",
+           help = "The maximum number of read batches to hold in memory ahead of the log reader.")
+  @Positive
+  private static final Arg<Integer> READ_PREFETCH_BATCHES = Arg.create(4);
+
   @CmdLine(name = "native_log_write_timeout",
            help = "The timeout for doing log appends and truncations.")
   private static final Arg<Amount<Long, Time>> WRITE_TIMEOUT =
@@ -103,6 +115,10 @@ public class MesosLogStreamModule extends PrivateModule {
   protected void configure() {
     bind(new TypeLiteral<Amount<Long, Time>>() { }).annotatedWith(MesosLog.ReadTimeout.class)
         .toInstance(READ_TIMEOUT.get());
+    bind(Integer.class).annotatedWith(MesosLog.ReadBatchSize.class)
+        .toInstance(READ_BATCH_SIZE.get());
+    bind(Integer.class).annotatedWith(MesosLog.ReadPrefetchBatches.class)
+        .toInstance(READ_PREFETCH_BATCHES.get());
     bind(new TypeLiteral<Amount<Long, Time>>() { }).annotatedWith(MesosLog.WriteTimeout.class)
         .toInstance(WRITE_TIMEOUT.get());
 
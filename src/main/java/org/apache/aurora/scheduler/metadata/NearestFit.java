@@ -14,18 +14,15 @@
 package org.apache.aurora.scheduler.metadata;
 
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Predicate;
 import com.google.common.base.Ticker;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
+import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Time;
@@ -37,10 +34,14 @@ import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
 import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
 import org.apache.aurora.scheduler.events.PubsubEvent.Vetoed;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+import org.apache.aurora.scheduler.filter.Vetoes;
 
 /**
  * Tracks vetoes against scheduling decisions and maintains the closest fit among all the vetoes
  * for a task.
+ * <p>
+ * Fits are held in a concurrent map and replaced atomically, so recording vetoes from the
+ * scheduler never waits on readers.
  */
 public class NearestFit implements EventSubscriber {
   @VisibleForTesting
@@ -49,19 +50,15 @@ public class NearestFit implements EventSubscriber {
   @VisibleForTesting
   static final ImmutableSet<Veto> NO_VETO = ImmutableSet.of();
 
-  private final LoadingCache<String, Fit> fitByTask;
+  private final ConcurrentMap<String, ImmutableSet<Veto>> fitByTask;
 
   @VisibleForTesting
   NearestFit(Ticker ticker) {
     fitByTask = CacheBuilder.newBuilder()
         .expireAfterWrite(EXPIRATION.getValue(), EXPIRATION.getUnit().getTimeUnit())
         .ticker(ticker)
-        .build(new CacheLoader<String, Fit>() {
-          @Override
-          public Fit load(String taskId) {
-            return new Fit();
-          }
-        });
+        .<String, ImmutableSet<Veto>>build()
+        .asMap();
   }
 
   @Inject
@@ -76,9 +73,9 @@ public class NearestFit implements EventSubscriber {
    * @return The nearest fit vetoes for the given task.  This will return an empty set if
    *         no vetoes have been recorded for the task.
    */
-  public synchronized ImmutableSet<Veto> getNearestFit(String taskId) {
-    Fit fit = fitByTask.getIfPresent(taskId);
-    return (fit == null) ? NO_VETO : fit.vetoes;
+  public ImmutableSet<Veto> getNearestFit(String taskId) {
+    ImmutableSet<Veto> fit = fitByTask.get(taskId);
+    return (fit == null) ? NO_VETO : fit;
   }
 
   /**
@@ -87,8 +84,9 @@ public class NearestFit implements EventSubscriber {
    * @param deletedEvent Task deleted event.
    */
   @Subscribe
-  public synchronized void remove(TasksDeleted deletedEvent) {
-    fitByTask.invalidateAll(Tasks.ids(deletedEvent.getTasks()));
+  @AllowConcurrentEvents
+  public void remove(TasksDeleted deletedEvent) {
+    fitByTask.keySet().removeAll(Tasks.ids(deletedEvent.getTasks()));
   }
 
   /**
@@ -98,81 +96,37 @@ public class NearestFit implements EventSubscriber {
    * @param event Task state change.
    */
   @Subscribe
-  public synchronized void stateChanged(TaskStateChange event) {
+  @AllowConcurrentEvents
+  public void stateChanged(TaskStateChange event) {
     if (event.isTransition() && event.getOldState().get() == ScheduleStatus.PENDING) {
-      fitByTask.invalidate(event.getTaskId());
+      fitByTask.remove(event.getTaskId());
     }
   }
 
-  private static final Predicate<Veto> IS_CONSTRAINT_MISMATCH = new Predicate<Veto>() {
-    @Override
-    public boolean apply(Veto veto) {
-      return veto.isConstraintMismatch();
-    }
-  };
-
   /**
-   * Records a task veto event.
-   * This will ignore any veto events where any veto returns {@code true} from
-   * {@link Veto#isConstraintMismatch()}.
+   * Records a task veto event, keeping the vetoes if they are a closer fit than those already
+   * recorded for the task.
    *
    * @param vetoEvent Veto event.
+   * @see Vetoes#isCloserFit
    */
   @Subscribe
-  public synchronized void vetoed(Vetoed vetoEvent) {
+  @AllowConcurrentEvents
+  public void vetoed(Vetoed vetoEvent) {
     Objects.requireNonNull(vetoEvent);
-    fitByTask.getUnchecked(vetoEvent.getTaskId()).maybeUpdate(vetoEvent.getVetoes());
-  }
-
-  private static class Fit {
-    private ImmutableSet<Veto> vetoes;
-
-    private static int score(Iterable<Veto> vetoes) {
-      int total = 0;
-      for (Veto veto : vetoes) {
-        total += veto.getScore();
-      }
-      return total;
-    }
-
-    private void update(Iterable<Veto> newVetoes) {
-      vetoes = ImmutableSet.copyOf(newVetoes);
-    }
+    String taskId = vetoEvent.getTaskId();
+    ImmutableSet<Veto> vetoes = ImmutableSet.copyOf(vetoEvent.getVetoes());
+    while (true) {
+      ImmutableSet<Veto> current = fitByTask.get(taskId);
+      if (current == null) {
+        if (fitByTask.putIfAbsent(taskId, vetoes) == null) {
+          return;
+        }
+      } else if (!Vetoes.isCloserFit(vetoes, current)
+          || fitByTask.replace(taskId, current, vetoes)) {
 
-    /**
-     * Updates the nearest fit if the provided vetoes represents a closer fit than the current
-     * best fit.
-     * <p>
-     * There are two classes of vetoes: those with and without constraint mismatches. A set of
-     * vetoes without a constraint mismatch is always a better fit than a set with constraint
-     * mismatches.
-     * <p>
-     * If two sets are equivalent in that they do or do not have constraint mismatches, they are
-     * compared by the following criteria:
-     * <ul>
-     *   <li> the one with fewer vetoes is a better fit, irrespective of scores
-     *   <li> if the veto count is equal, the one with the smaller aggregate score is a better fit
-     * </ul>
-     *
-     * @param newVetoes The vetoes for the scheduling assignment with {@code newHost}.
-     */
-    void maybeUpdate(Set<Veto> newVetoes) {
-      if (vetoes == null) {
-        update(newVetoes);
         return;
       }
-
-      boolean valueMismatchOld = Iterables.any(vetoes, IS_CONSTRAINT_MISMATCH);
-      boolean valueMismatchNew = Iterables.any(newVetoes, IS_CONSTRAINT_MISMATCH);
-      if (valueMismatchOld == valueMismatchNew) {
-        if (newVetoes.size() < vetoes.size()) {
-          update(newVetoes);
-        } else if (newVetoes.size() == vetoes.size() && score(newVetoes) < score(vetoes)) {
-          update(newVetoes);
-        }
-      } else if (valueMismatchOld) {
-        update(newVetoes);
-      }
     }
   }
 }
@@ -63,6 +63,7 @@ import org.apache.aurora.scheduler.storage.TaskStore.Mutable.TaskMutation;
 import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
+import org.apache.aurora.scheduler.storage.entities.ITaskEvent;
 import org.apache.mesos.Protos.SlaveID;
 
 import static java.util.Objects.requireNonNull;
@@ -194,13 +195,12 @@ public class StateManagerImpl implements StateManager {
             new Function<IScheduledTask, IScheduledTask>() {
               @Override
               public IScheduledTask apply(IScheduledTask task) {
-                ScheduledTask builder = task.newBuilder();
-                AssignedTask assigned = builder.getAssignedTask();
-                assigned.setAssignedPorts(
-                    getNameMappedPorts(assigned.getTask().getRequestedPorts(), assignedPorts));
-                assigned.setSlaveHost(slaveHost)
-                    .setSlaveId(slaveId.getValue());
-                return IScheduledTask.build(builder);
+                IAssignedTask assigned = task.getAssignedTask();
+                return task.withAssignedTask(assigned
+                    .withAssignedPorts(
+                        getNameMappedPorts(assigned.getTask().getRequestedPorts(), assignedPorts))
+                    .withSlaveHost(slaveHost)
+                    .withSlaveId(slaveId.getValue()));
               }
             });
 
@@ -344,8 +344,7 @@ public class StateManagerImpl implements StateManager {
               storeProvider.getUnsafeTaskStore().mutateTasks(query, new TaskMutation() {
                 @Override
                 public IScheduledTask apply(IScheduledTask task) {
-                  return IScheduledTask.build(
-                      task.newBuilder().setFailureCount(task.getFailureCount() + 1));
+                  return task.withFailureCount(task.getFailureCount() + 1);
                 }
               });
               break;
@@ -358,14 +357,17 @@ public class StateManagerImpl implements StateManager {
               storeProvider.getUnsafeTaskStore().mutateTasks(query, new TaskMutation() {
                 @Override
                 public IScheduledTask apply(IScheduledTask task) {
-                  ScheduledTask mutableTask = task.newBuilder();
-                  mutableTask.setStatus(targetState.get());
-                  mutableTask.addToTaskEvents(new TaskEvent()
+                  ITaskEvent event = ITaskEvent.build(new TaskEvent()
                       .setTimestamp(clock.nowMillis())
                       .setStatus(targetState.get())
                       .setMessage(transitionMessage.orNull())
                       .setScheduler(LOCAL_HOST_SUPPLIER.get()));
-                  return IScheduledTask.build(mutableTask);
+                  return task
+                      .withStatus(targetState.get())
+                      .withTaskEvents(ImmutableList.<ITaskEvent>builder()
+                          .addAll(task.getTaskEvents())
+                          .add(event)
+                          .build());
                 }
               });
               events.add(
@@ -437,9 +439,8 @@ public class StateManagerImpl implements StateManager {
 
     // Note (AURORA-138): Delaying events until after the write operation is somewhat futile, since
     // the state may actually not be written to durable store
-    // (e.g. if this is a nested transaction). Ideally, Storage would add a facility to attach
-    // side-effects that are performed after the outer-most transaction completes (meaning state
-    // has been durably persisted).
+    // (e.g. if this is a nested transaction). With asynchronous event delivery, the event sink
+    // defers events until the outer-most transaction completes, using PostCommitExecutor.
     for (PubsubEvent event : events) {
       eventSink.post(event);
     }
@@ -38,6 +38,9 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * A non-volatile storage wrapper that enforces method call ordering.
+ * <p>
+ * Writes are also reported to a {@link PostCommitExecutor}, so that actions may be deferred until
+ * the outermost write commits.
  */
 public class CallOrderEnforcingStorage implements NonVolatileStorage {
 
@@ -51,6 +54,7 @@ public class CallOrderEnforcingStorage implements NonVolatileStorage {
 
   private final NonVolatileStorage wrapped;
   private final EventSink eventSink;
+  private final PostCommitExecutor postCommitExecutor;
 
   private enum State {
     CONSTRUCTED,
@@ -68,9 +72,14 @@ public class CallOrderEnforcingStorage implements NonVolatileStorage {
       .build();
 
   @Inject
-  CallOrderEnforcingStorage(@EnforceOrderOn NonVolatileStorage wrapped, EventSink eventSink) {
+  CallOrderEnforcingStorage(
+      @EnforceOrderOn NonVolatileStorage wrapped,
+      EventSink eventSink,
+      PostCommitExecutor postCommitExecutor) {
+
     this.wrapped = requireNonNull(wrapped);
     this.eventSink = requireNonNull(eventSink);
+    this.postCommitExecutor = requireNonNull(postCommitExecutor);
   }
 
   private void checkInState(State state) throws StorageException {
@@ -127,7 +136,15 @@ public class CallOrderEnforcingStorage implements NonVolatileStorage {
   public <T, E extends Exception> T write(MutateWork<T, E> work)
       throws StorageException, E {
     checkInState(State.READY);
-    return wrapped.write(work);
+    postCommitExecutor.begin();
+    boolean committed = false;
+    try {
+      T result = wrapped.write(work);
+      committed = true;
+      return result;
+    } finally {
+      postCommitExecutor.end(committed);
+    }
   }
 
   @Override
@@ -112,6 +112,11 @@ public class ForwardingStore implements
     return taskStore.fetchTasks(querySupplier);
   }
 
+  @Override
+  public TaskStore.Changes fetchTaskChanges(Query.Builder query, long sequence) {
+    return taskStore.fetchTaskChanges(query, sequence);
+  }
+
   @Override
   public Set<ILock> fetchLocks() {
     return lockStore.fetchLocks();
@@ -0,0 +1,101 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An executor that defers actions submitted from within a storage write until the outermost write
+ * on the submitting thread has committed.  Actions submitted outside of a write run immediately,
+ * and actions deferred by a write that fails are discarded.
+ * <p>
+ * Storage writes are only tracked when made through the storage bound for use by the scheduler,
+ * which calls {@link #begin()} and {@link #end(boolean)} around each write.
+ */
+@Singleton
+public class PostCommitExecutor implements Executor {
+
+  private static final Logger LOG = Logger.getLogger(PostCommitExecutor.class.getName());
+
+  private static class WriteState {
+    private int depth = 0;
+    private final List<Runnable> deferred = Lists.newArrayList();
+  }
+
+  private final ThreadLocal<WriteState> writeState = new ThreadLocal<WriteState>() {
+    @Override
+    protected WriteState initialValue() {
+      return new WriteState();
+    }
+  };
+
+  @Override
+  public void execute(Runnable action) {
+    requireNonNull(action);
+
+    WriteState state = writeState.get();
+    if (state.depth > 0) {
+      state.deferred.add(action);
+    } else {
+      action.run();
+    }
+  }
+
+  /**
+   * Marks the start of a storage write on the calling thread.
+   */
+  void begin() {
+    writeState.get().depth++;
+  }
+
+  /**
+   * Marks the end of a storage write on the calling thread.  Ending the outermost write runs the
+   * actions deferred during it if the write committed, and discards them otherwise.
+   *
+   * @param committed Whether the write committed.
+   */
+  void end(boolean committed) {
+    WriteState state = writeState.get();
+    Preconditions.checkState(state.depth > 0, "No storage write in progress.");
+    state.depth--;
+    if (state.depth > 0 || state.deferred.isEmpty()) {
+      return;
+    }
+
+    List<Runnable> actions = ImmutableList.copyOf(state.deferred);
+    state.deferred.clear();
+    if (!committed) {
+      LOG.warning("Discarding " + actions.size() + " actions deferred by a failed storage write.");
+      return;
+    }
+    for (Runnable action : actions) {
+      try {
+        action.run();
+      } catch (RuntimeException e) {
+        LOG.log(Level.SEVERE, "Failed to run an action after a storage write committed.", e);
+      }
+    }
+  }
+}
@@ -13,6 +13,8 @@
  */
 package org.apache.aurora.scheduler.storage;
 
+import com.google.common.base.Supplier;
+
 /**
  * Storage mechanism that is able to create complete snapshots of the local storage system state
  * and apply these to restore local storage from a snapshotted baseline.
@@ -26,6 +28,16 @@ public interface SnapshotStore<T> {
    */
    T createSnapshot();
 
+  /**
+   * Captures the state of the local storage system, deferring the work of building a snapshot
+   * from it.  When called within a storage transaction, the state is consistent with that
+   * transaction.
+   *
+   * @return A supplier of a snapshot of the captured state, which may be called once storage locks
+   *     are released.
+   */
+  Supplier<T> captureSnapshot();
+
   /**
    * Applies a snapshot blob to the local storage system, wiping out all existing data and
    * resetting with the contents of the snapshot.
@@ -13,6 +13,7 @@
  */
 package org.apache.aurora.scheduler.storage;
 
+import java.util.Objects;
 import java.util.Set;
 
 import com.google.common.base.Function;
@@ -30,12 +31,109 @@ public interface TaskStore {
   /**
    * Fetches a read-only view of tasks matching a query and filters. Intended for use with a
    * {@link org.apache.aurora.scheduler.base.Query.Builder}.
+   * <p>
+   * If the query is {@link org.apache.aurora.scheduler.base.Query#isPaged paged}, matching tasks
+   * are ordered by task ID, and only the page selected by the query's cursor, offset and limit is
+   * returned.
    *
    * @param query Builder of the query to identify tasks with.
    * @return A read-only view of matching tasks.
    */
   ImmutableSet<IScheduledTask> fetchTasks(Query.Builder query);
 
+  /**
+   * Fetches the tasks matching a query that were saved or deleted after a point in the store's
+   * sequence of changes.  Every save and deletion of a task is assigned a sequence number that is
+   * greater than that of any preceding change.
+   * <p>
+   * Only a bounded number of deletions is retained.  If deletions since the sequence number may
+   * no longer be retained, or the sequence number was not issued by this store, a snapshot of all
+   * matching tasks is returned instead.  Changes are only guaranteed to be complete when fetched
+   * within a {@link Storage#consistentRead consistent read}.  Tasks that were saved such that they
+   * no longer match the query are not reported.
+   *
+   * @param query Builder of the query to identify tasks with.  Paging fields of the query are
+   *              ignored.
+   * @param sequence Sequence number of the latest change already observed.
+   * @return Changes to matching tasks since the sequence number.
+   */
+  Changes fetchTaskChanges(Query.Builder query, long sequence);
+
+  /**
+   * Changes to the tasks matching a query.
+   */
+  final class Changes {
+    private final long sequence;
+    private final boolean snapshot;
+    private final ImmutableSet<IScheduledTask> tasks;
+    private final ImmutableSet<String> deletedTaskIds;
+
+    /**
+     * Creates a set of changes.
+     *
+     * @param sequence Sequence number of the latest change included.
+     * @param snapshot Whether {@code tasks} is a snapshot of all matching tasks, rather than only
+     *                 those that changed.
+     * @param tasks Matching tasks that were saved.
+     * @param deletedTaskIds IDs of matching tasks that were deleted.
+     */
+    public Changes(
+        long sequence,
+        boolean snapshot,
+        Iterable<IScheduledTask> tasks,
+        Iterable<String> deletedTaskIds) {
+
+      this.sequence = sequence;
+      this.snapshot = snapshot;
+      this.tasks = ImmutableSet.copyOf(tasks);
+      this.deletedTaskIds = ImmutableSet.copyOf(deletedTaskIds);
+    }
+
+    public long getSequence() {
+      return sequence;
+    }
+
+    public boolean isSnapshot() {
+      return snapshot;
+    }
+
+    public ImmutableSet<IScheduledTask> getTasks() {
+      return tasks;
+    }
+
+    public ImmutableSet<String> getDeletedTaskIds() {
+      return deletedTaskIds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Changes)) {
+        return false;
+      }
+
+      Changes other = (Changes) o;
+      return sequence == other.sequence
+          && snapshot == other.snapshot
+          && tasks.equals(other.tasks)
+          && deletedTaskIds.equals(other.deletedTaskIds);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sequence, snapshot, tasks, deletedTaskIds);
+    }
+
+    @Override
+    public String toString() {
+      return com.google.common.base.Objects.toStringHelper(this)
+          .add("sequence", sequence)
+          .add("snapshot", snapshot)
+          .add("tasks", tasks)
+          .add("deletedTaskIds", deletedTaskIds)
+          .toString();
+    }
+  }
+
   interface Mutable extends TaskStore {
 
     /**
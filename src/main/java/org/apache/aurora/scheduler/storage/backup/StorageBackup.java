@@ -31,6 +31,7 @@ import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Ordering;
 import com.google.common.io.Files;
@@ -130,10 +131,27 @@ public interface StorageBackup {
     @Override
     public Snapshot createSnapshot() {
       Snapshot snapshot = delegate.createSnapshot();
+      backupIfDue(snapshot);
+      return snapshot;
+    }
+
+    @Override
+    public Supplier<Snapshot> captureSnapshot() {
+      final Supplier<Snapshot> captured = delegate.captureSnapshot();
+      return new Supplier<Snapshot>() {
+        @Override
+        public Snapshot get() {
+          Snapshot snapshot = captured.get();
+          backupIfDue(snapshot);
+          return snapshot;
+        }
+      };
+    }
+
+    private void backupIfDue(Snapshot snapshot) {
       if (clock.nowMillis() >= (lastBackupMs + backupIntervalMs)) {
         save(snapshot);
       }
-      return snapshot;
     }
 
     @Override
@@ -0,0 +1,109 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.db;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+import com.twitter.common.stats.Stats;
+
+import org.apache.aurora.gen.MaintenanceMode;
+import org.apache.aurora.scheduler.storage.AttributeStore;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A read-through cache of per-host attributes in front of another attribute store.
+ * <p>
+ * Lookups of a single host are served from memory once the host has been read or written, which
+ * keeps attribute reads on the scheduling path from reaching the delegate store.  Mutations are
+ * written through to the delegate, and the cached value for the host is replaced with the value
+ * the delegate stored.  Hosts that are unknown to the delegate are cached as absent.
+ * <p>
+ * The cache is only coherent if every reader and writer of the delegate goes through it, so it is
+ * bound as the sole attribute store in {@link DbModule}.
+ */
+class CachedAttributeStore implements AttributeStore.Mutable {
+
+  private final AttributeStore.Mutable delegate;
+  private final ConcurrentMap<String, Optional<IHostAttributes>> cache = Maps.newConcurrentMap();
+
+  private final AtomicLong hits = Stats.exportLong("attribute_store_cache_hits");
+  private final AtomicLong misses = Stats.exportLong("attribute_store_cache_misses");
+
+  @Inject
+  CachedAttributeStore(DbAttributeStore delegate) {
+    this((AttributeStore.Mutable) delegate);
+  }
+
+  @VisibleForTesting
+  CachedAttributeStore(AttributeStore.Mutable delegate) {
+    this.delegate = requireNonNull(delegate);
+  }
+
+  @Override
+  public Optional<IHostAttributes> getHostAttributes(String host) {
+    requireNonNull(host);
+
+    Optional<IHostAttributes> cached = cache.get(host);
+    if (cached != null) {
+      hits.incrementAndGet();
+      return cached;
+    }
+
+    misses.incrementAndGet();
+    Optional<IHostAttributes> loaded = delegate.getHostAttributes(host);
+    // A writer may have replaced the entry while the delegate was being read, in which case the
+    // written value takes precedence over the one loaded here.
+    Optional<IHostAttributes> existing = cache.putIfAbsent(host, loaded);
+    return existing == null ? loaded : existing;
+  }
+
+  @Override
+  public Set<IHostAttributes> getHostAttributes() {
+    return delegate.getHostAttributes();
+  }
+
+  @Override
+  public void deleteHostAttributes() {
+    delegate.deleteHostAttributes();
+    cache.clear();
+  }
+
+  @Override
+  public void saveHostAttributes(IHostAttributes hostAttributes) {
+    delegate.saveHostAttributes(hostAttributes);
+    refresh(hostAttributes.getHost());
+  }
+
+  @Override
+  public boolean setMaintenanceMode(String host, MaintenanceMode mode) {
+    boolean known = delegate.setMaintenanceMode(host, mode);
+    refresh(host);
+    return known;
+  }
+
+  private void refresh(String host) {
+    // The delegate may normalize what is saved (e.g. retaining the maintenance mode), so the
+    // stored value is read back rather than caching the argument.
+    cache.put(host, delegate.getHostAttributes(host));
+  }
+}
@@ -131,7 +131,10 @@ public class DbModule extends PrivateModule {
         // TODO(davmclau): ensure that mybatis logging is configured correctly.
       }
     });
-    bindStore(AttributeStore.Mutable.class, DbAttributeStore.class);
+    // Host attributes are read on the scheduling path, so the database store is only reached
+    // through a cache that every reader and writer shares.
+    bind(DbAttributeStore.class).in(Singleton.class);
+    bindStore(AttributeStore.Mutable.class, CachedAttributeStore.class);
     bindStore(LockStore.Mutable.class, DbLockStore.class);
     bindStore(QuotaStore.Mutable.class, DbQuotaStore.class);
     bindStore(SchedulerStore.Mutable.class, DbSchedulerStore.class);
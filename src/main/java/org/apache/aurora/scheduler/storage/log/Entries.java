@@ -13,6 +13,7 @@
  */
 package org.apache.aurora.scheduler.storage.log;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -24,6 +25,7 @@ import java.util.zip.InflaterInputStream;
 
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import com.twitter.common.stats.Stats;
 
 import org.apache.aurora.codec.ThriftBinaryCodec;
@@ -41,6 +43,11 @@ final class Entries {
   private static final AtomicLong COMPRESSION_BYTES_SAVED =
       Stats.exportLong("log_compressed_entry_bytes_saved");
 
+  /**
+   * Size of the buffer between the thrift encoder and streams that operate on encoded data.
+   */
+  static final int ENCODE_BUFFER_SIZE = 64 * 1024;
+
   private Entries() {
     // Utility class.
   }
@@ -49,7 +56,8 @@ final class Entries {
    * Deflates a log entry and wraps it in a deflated entry.
    * <p>
    * This will encode the entry using the thrift binary codec, and will apply deflate compression to
-   * the resulting encoded data.
+   * the resulting encoded data.  The entry is encoded directly into the compressor, so only the
+   * deflated data is held in memory.
    * <p>
    * This operation is symmetric with {@link #inflate(LogEntry)}.
    *
@@ -59,21 +67,20 @@ final class Entries {
    * @throws CodingException If the value could not be encoded or deflated.
    */
   static LogEntry deflate(LogEntry entry) throws CodingException {
-    byte[] data = thriftBinaryEncode(entry);
-    int initialLength = data.length;
-    LOG.info("Deflating log entry of size " + initialLength);
     ByteArrayOutputStream deflated = new ByteArrayOutputStream();
-    DeflaterOutputStream deflater = new DeflaterOutputStream(deflated);
+    CountingOutputStream data = new CountingOutputStream(
+        new BufferedOutputStream(new DeflaterOutputStream(deflated), ENCODE_BUFFER_SIZE));
     try {
-      deflater.write(data);
-      deflater.flush();
-      deflater.close();
+      ThriftBinaryCodec.encodeNonNull(entry, data);
+      data.close();
+      long initialLength = data.getCount();
       byte[] deflatedData = deflated.toByteArray();
-      int bytesSaved = initialLength - deflatedData.length;
+      long bytesSaved = initialLength - deflatedData.length;
       if (bytesSaved < 0) {
         LOG.warning("Deflated entry is larger than original by " + (bytesSaved * -1) + " bytes");
       } else {
-        LOG.info("Deflated log entry size: " + deflatedData.length + " (saved " + bytesSaved + ")");
+        LOG.info("Deflated log entry of size " + initialLength + " to " + deflatedData.length
+            + " (saved " + bytesSaved + ")");
       }
 
       COMPRESSION_BYTES_SAVED.addAndGet(bytesSaved);
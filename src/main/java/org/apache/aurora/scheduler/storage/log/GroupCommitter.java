@@ -0,0 +1,312 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Time;
+import com.twitter.common.stats.SlidingStats;
+import com.twitter.common.stats.Stats;
+
+import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
+import org.apache.aurora.scheduler.log.Log.Position;
+import org.apache.aurora.scheduler.log.Log.Stream.StreamAccessException;
+import org.apache.aurora.scheduler.storage.Storage.StorageException;
+import org.apache.aurora.scheduler.storage.log.LogManager.StreamManager;
+import org.apache.aurora.scheduler.storage.log.LogManager.StreamManager.StreamTransaction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Combines the transactions of concurrent writers into shared log appends.
+ * <p>
+ * Writers enqueue their transactions in the order they were applied to local storage, and then
+ * wait for the batch holding their transaction to be appended.  The first writer to wait on a batch
+ * leads it: the batch is held open for up to the configured window, or until enough ops have
+ * accumulated, and is then appended to the log as a single transaction.  Transactions enqueued
+ * while an append is in flight are gathered into the next batch.
+ * <p>
+ * A failed append is fatal to the committer.  Writers release the storage lock before their batch
+ * is appended, so transactions enqueued after a failed batch may depend on ops that never reached
+ * the log.  Once an append fails, every batch still open fails with the same error and all further
+ * transactions are rejected.
+ */
+class GroupCommitter {
+  private static final Logger LOG = Logger.getLogger(GroupCommitter.class.getName());
+
+  /**
+   * Bounds on the transactions gathered into a single append.
+   */
+  static class Settings {
+    private final Amount<Long, Time> window;
+    private final int maxOps;
+
+    /**
+     * Creates group commit settings.
+     *
+     * @param window Maximum time to hold a batch open for further transactions.
+     * @param maxOps Number of ops that closes a batch before its window elapses.
+     */
+    Settings(Amount<Long, Time> window, int maxOps) {
+      Preconditions.checkArgument(window.getValue() >= 0);
+      Preconditions.checkArgument(maxOps > 0);
+      this.window = window;
+      this.maxOps = maxOps;
+    }
+  }
+
+  private final AtomicLong batchesCommitted =
+      Stats.exportLong("scheduler_log_group_commit_batches");
+  private final AtomicLong transactionsCommitted =
+      Stats.exportLong("scheduler_log_group_commit_transactions");
+  private final AtomicLong opsCommitted = Stats.exportLong("scheduler_log_group_commit_ops");
+  private final SlidingStats waitTime =
+      new SlidingStats("scheduler_log_group_commit_wait", "nanos");
+
+  private final StreamManager streamManager;
+  private final long windowNanos;
+  private final int maxOps;
+
+  // Guarded by this.
+  private Batch open;
+  private boolean appending = false;
+  private boolean flushRequested = false;
+  @Nullable private Exception failure;
+
+  GroupCommitter(StreamManager streamManager, Settings settings) {
+    this.streamManager = requireNonNull(streamManager);
+    this.windowNanos = settings.window.as(Time.NANOSECONDS);
+    this.maxOps = settings.maxOps;
+    this.open = new Batch();
+  }
+
+  /**
+   * Adds a transaction to the open batch.  Transactions must be enqueued in the order they are
+   * applied to local storage.
+   *
+   * @param transaction The transaction to commit, which may not be used further.
+   * @return The batch the transaction was added to, or absent if the transaction had no ops to
+   *     commit.
+   * @throws StorageException If an earlier append failed.
+   */
+  synchronized Optional<Batch> enqueue(StreamTransaction transaction) {
+    if (failure != null) {
+      throw new StorageException("Log writes are disabled after a failed group commit.", failure);
+    }
+
+    int ops = transaction.commitTo(open.transaction);
+    if (ops == 0) {
+      return Optional.absent();
+    }
+
+    open.transactions++;
+    open.ops += ops;
+    if (open.ops >= maxOps) {
+      // Wake the leader waiting out the window.
+      notifyAll();
+    }
+    return Optional.of(open);
+  }
+
+  private void awaitAppended(Batch batch) {
+    boolean interrupted = false;
+    Batch toAppend;
+    try {
+      synchronized (this) {
+        while (!batch.appended && appending) {
+          interrupted |= waitNanos(0);
+        }
+        if (batch.appended) {
+          return;
+        }
+
+        // With no append in flight, the batch has not been taken yet and is still open.
+        if (failure != null) {
+          failOpenBatch();
+          return;
+        }
+        appending = true;
+        long deadline = System.nanoTime() + windowNanos;
+        long remaining = windowNanos;
+        while (open.ops < maxOps && remaining > 0 && !flushRequested) {
+          interrupted |= waitNanos(remaining);
+          remaining = deadline - System.nanoTime();
+        }
+        toAppend = open;
+        open = new Batch();
+      }
+      append(toAppend);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Appends every enqueued transaction to the log, closing the open batch without waiting out its
+   * window.  The caller must prevent further transactions from being enqueued, for example by
+   * holding the storage write lock, so that the log holds all committed ops once this returns.
+   *
+   * @throws CodingException If the open batch could not be encoded.
+   * @throws StreamAccessException If the open batch could not be appended to the log.
+   */
+  void flush() throws CodingException, StreamAccessException {
+    boolean interrupted = false;
+    Batch toAppend;
+    try {
+      synchronized (this) {
+        // Close a batch held open by its leader, and wait for any append in flight.
+        flushRequested = true;
+        notifyAll();
+        while (appending) {
+          interrupted |= waitNanos(0);
+        }
+        flushRequested = false;
+        if (failure != null) {
+          failOpenBatch();
+          propagate(failure);
+        }
+        if (open.ops == 0) {
+          return;
+        }
+
+        appending = true;
+        toAppend = open;
+        open = new Batch();
+      }
+      append(toAppend);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    toAppend.getPosition();
+  }
+
+  /**
+   * Fails the open batch with the error of an earlier append, without appending it.  The caller
+   * must hold this committer's monitor.
+   */
+  private void failOpenBatch() {
+    open.failure = failure;
+    open.appended = true;
+    open = new Batch();
+    notifyAll();
+  }
+
+  /**
+   * Waits on this committer's monitor, which must be held.
+   *
+   * @param nanos Maximum time to wait, or zero to wait until notified.
+   * @return {@code true} if the wait was interrupted.
+   */
+  private boolean waitNanos(long nanos) {
+    try {
+      if (nanos > 0) {
+        TimeUnit.NANOSECONDS.timedWait(this, nanos);
+      } else {
+        wait();
+      }
+      return false;
+    } catch (InterruptedException e) {
+      return true;
+    }
+  }
+
+  private void append(Batch batch) {
+    Position position = null;
+    Exception error = null;
+    try {
+      position = batch.transaction.commit();
+    } catch (CodingException | RuntimeException e) {
+      LOG.log(Level.SEVERE, "Group commit failed, rejecting all further log writes.", e);
+      error = e;
+    }
+    batchesCommitted.incrementAndGet();
+    transactionsCommitted.addAndGet(batch.transactions);
+    opsCommitted.addAndGet(batch.ops);
+
+    synchronized (this) {
+      batch.position = position;
+      batch.failure = error;
+      batch.appended = true;
+      if (error != null) {
+        failure = error;
+      }
+      appending = false;
+      notifyAll();
+    }
+  }
+
+  private static void propagate(Exception error) throws CodingException {
+    if (error instanceof CodingException) {
+      throw (CodingException) error;
+    } else if (error != null) {
+      throw (RuntimeException) error;
+    }
+  }
+
+  /**
+   * A group of transactions appended to the log together.
+   */
+  final class Batch {
+    private final StreamTransaction transaction = streamManager.startTransaction();
+    private int transactions;
+    private int ops;
+
+    // Guarded by the enclosing committer.
+    private boolean appended = false;
+    @Nullable private Position position;
+    @Nullable private Exception failure;
+
+    private Batch() {
+      // Created by the enclosing committer.
+    }
+
+    /**
+     * Waits until this batch has been appended to the log.  This must be called without holding
+     * any storage locks, so that other writers may add to the batch in the meantime.
+     *
+     * @return The position of the log entry the batch was appended in.
+     * @throws CodingException If the batch could not be encoded.
+     * @throws StreamAccessException If the batch could not be appended to the log.
+     */
+    Position await() throws CodingException, StreamAccessException {
+      long start = System.nanoTime();
+      awaitAppended(this);
+      waitTime.accumulate(System.nanoTime() - start);
+      return getPosition();
+    }
+
+    private Position getPosition() throws CodingException, StreamAccessException {
+      Exception error;
+      Position appendedAt;
+      synchronized (GroupCommitter.this) {
+        error = failure;
+        appendedAt = position;
+      }
+      propagate(error);
+      return appendedAt;
+    }
+  }
+}
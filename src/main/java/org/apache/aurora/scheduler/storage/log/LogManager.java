@@ -13,20 +13,36 @@
  */
 package org.apache.aurora.scheduler.storage.log;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.annotation.Nullable;
@@ -34,10 +50,17 @@ import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import com.google.common.primitives.Bytes;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.BindingAnnotation;
 import com.twitter.common.base.Closure;
 import com.twitter.common.inject.TimedInterceptor.Timed;
@@ -45,6 +68,7 @@ import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Data;
 import com.twitter.common.stats.Stats;
 
+import org.apache.aurora.codec.ThriftBinaryCodec;
 import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
 import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.gen.storage.Frame;
@@ -89,21 +113,33 @@ public final class LogManager {
   @BindingAnnotation
   public @interface SnapshotSetting { }
 
+  /**
+   * Identifies the number of threads used to decode log entries when recovering from the log.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ ElementType.PARAMETER, ElementType.METHOD })
+  @BindingAnnotation
+  public @interface RecoveryThreads { }
+
   private static final Logger LOG = Logger.getLogger(LogManager.class.getName());
 
   private final Log log;
   private final Amount<Integer, Data> maxEntrySize;
   private final boolean deflateSnapshots;
+  private final int recoveryThreads;
 
   @Inject
   LogManager(
       Log log,
       @MaxEntrySize Amount<Integer, Data> maxEntrySize,
-      @SnapshotSetting boolean deflateSnapshots) {
+      @SnapshotSetting boolean deflateSnapshots,
+      @RecoveryThreads int recoveryThreads) {
 
     this.log = requireNonNull(log);
     this.maxEntrySize = requireNonNull(maxEntrySize);
     this.deflateSnapshots = deflateSnapshots;
+    Preconditions.checkArgument(recoveryThreads >= 0);
+    this.recoveryThreads = recoveryThreads;
   }
 
   /**
@@ -113,7 +149,7 @@ public final class LogManager {
    * @throws IOException If there is a problem opening the log.
    */
   public StreamManager open() throws IOException {
-    return new StreamManager(log.open(), deflateSnapshots, maxEntrySize);
+    return new StreamManager(log.open(), deflateSnapshots, maxEntrySize, recoveryThreads);
   }
 
   /**
@@ -133,9 +169,22 @@ public final class LogManager {
       }
     }
 
+    /**
+     * Bounds the decoded entries buffered ahead of the apply stage, relative to the number of
+     * decoding threads.
+     */
+    private static final int PIPELINE_DEPTH_PER_THREAD = 16;
+
+    /**
+     * Marks the end of the stream in the queue of decoded entries.
+     */
+    private static final Future<LogEntry> END_OF_STREAM = Futures.<LogEntry>immediateFuture(null);
+
     private static class Vars {
       private final AtomicInteger unSnapshottedTransactions =
           Stats.exportInt("scheduler_log_un_snapshotted_transactions");
+      private final AtomicLong unSnapshottedBytes =
+          Stats.exportLong("scheduler_log_un_snapshotted_bytes");
       private final AtomicLong bytesWritten = Stats.exportLong("scheduler_log_bytes_written");
       private final AtomicLong entriesWritten = Stats.exportLong("scheduler_log_entries_written");
       private final AtomicLong badFramesRead = Stats.exportLong("scheduler_log_bad_frames_read");
@@ -143,6 +192,14 @@ public final class LogManager {
       private final AtomicLong entriesRead = Stats.exportLong("scheduler_log_entries_read");
       private final AtomicLong deflatedEntriesRead =
           Stats.exportLong("scheduler_log_deflated_entries_read");
+      private final AtomicLong recoveryReadNanos =
+          Stats.exportLong("scheduler_log_recovery_read_nanos");
+      private final AtomicLong recoveryDecodeNanos =
+          Stats.exportLong("scheduler_log_recovery_decode_nanos");
+      private final AtomicLong recoveryDecodeWaitNanos =
+          Stats.exportLong("scheduler_log_recovery_decode_wait_nanos");
+      private final AtomicLong recoveryApplyNanos =
+          Stats.exportLong("scheduler_log_recovery_apply_nanos");
       private final AtomicLong snapshots = Stats.exportLong("scheduler_log_snapshots");
     }
     private final Vars vars = new Vars();
@@ -150,19 +207,29 @@ public final class LogManager {
     private final Object writeMutex = new Object();
     private final Stream stream;
     private final boolean deflateSnapshots;
-    private final MessageDigest digest;
     private final EntrySerializer entrySerializer;
+    private final int recoveryThreads;
+
+    StreamManager(
+        Stream stream,
+        boolean deflateSnapshots,
+        Amount<Integer, Data> maxEntrySize,
+        int recoveryThreads) {
 
-    StreamManager(Stream stream, boolean deflateSnapshots, Amount<Integer, Data> maxEntrySize) {
       this.stream = requireNonNull(stream);
       this.deflateSnapshots = deflateSnapshots;
-      digest = createDigest();
-      entrySerializer = new EntrySerializer(digest, maxEntrySize);
+      entrySerializer = new EntrySerializer(maxEntrySize);
+      this.recoveryThreads = recoveryThreads;
     }
 
     /**
      * Reads all entries in the log stream after the given position.  If the position
      * supplied is {@code null} then all log entries in the stream will be read.
+     * <p>
+     * When recovery threads are configured, reading is pipelined: one thread reads raw entries
+     * from the stream, the recovery threads decode and inflate them, and the calling thread
+     * reassembles frames and hands entries to the reader in log order.  Otherwise all stages run
+     * on the calling thread.
      *
      * @param reader A reader that will be handed log entries decoded from the stream.
      * @throws CodingException if there was a problem decoding a log entry from the stream.
@@ -172,27 +239,314 @@ public final class LogManager {
     public void readFromBeginning(Closure<LogEntry> reader)
         throws CodingException, InvalidPositionException, StreamAccessException {
 
-      Iterator<Entry> entries = stream.readAll();
+      if (recoveryThreads == 0) {
+        Iterator<Entry> entries = stream.readAll();
+        try {
+          read(new InlineDecoder(entries), reader);
+        } finally {
+          close(entries);
+        }
+        return;
+      }
+
+      final ExecutorService decoders =
+          Executors.newFixedThreadPool(recoveryThreads, threadFactory("LogDecoder-%d"));
+      ExecutorService readerStage =
+          Executors.newSingleThreadExecutor(threadFactory("LogReader-%d"));
+      final BlockingQueue<Future<LogEntry>> decoded =
+          new ArrayBlockingQueue<>(recoveryThreads * PIPELINE_DEPTH_PER_THREAD);
+      readerStage.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            decoded.put(readAll(decoded, decoders));
+          } catch (InterruptedException e) {
+            // Recovery has stopped consuming entries, there is nobody left to hand them to.
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      try {
+        read(new PipelinedDecoder(decoded), reader);
+      } finally {
+        readerStage.shutdownNow();
+        decoders.shutdownNow();
+      }
+    }
+
+    private static ThreadFactory threadFactory(String nameFormat) {
+      return new ThreadFactoryBuilder().setDaemon(true).setNameFormat(nameFormat).build();
+    }
+
+    /**
+     * Reads raw entries and submits them for decoding, queueing the pending results in log order.
+     *
+     * @return The final element for the queue, which signals either the end of the stream or a
+     *     failure to read from it.
+     * @throws InterruptedException If interrupted while waiting for room in the queue.
+     */
+    private Future<LogEntry> readAll(
+        BlockingQueue<Future<LogEntry>> decoded,
+        ExecutorService decoders) throws InterruptedException {
 
+      try {
+        Iterator<Entry> entries = stream.readAll();
+        try {
+          while (hasNext(entries)) {
+            final byte[] contents = readContents(entries);
+            decoded.put(decoders.submit(new Callable<LogEntry>() {
+              @Override
+              public LogEntry call() throws CodingException {
+                return decode(contents);
+              }
+            }));
+          }
+          return END_OF_STREAM;
+        } finally {
+          close(entries);
+        }
+      } catch (RuntimeException e) {
+        return Futures.<LogEntry>immediateFailedFuture(e);
+      }
+    }
+
+    private void read(DecodedEntries entries, Closure<LogEntry> reader) throws CodingException {
       while (entries.hasNext()) {
-        LogEntry logEntry = decodeLogEntry(entries.next());
+        LogEntry logEntry = entries.next();
         while (logEntry != null && isFrame(logEntry)) {
           logEntry = tryDecodeFrame(logEntry.getFrame(), entries);
         }
         if (logEntry != null) {
-          if (logEntry.isSet(_Fields.DEFLATED_ENTRY)) {
-            logEntry = Entries.inflate(logEntry);
-            vars.deflatedEntriesRead.incrementAndGet();
+          apply(logEntry, reader);
+        }
+      }
+    }
+
+    private void apply(LogEntry logEntry, Closure<LogEntry> reader) {
+      long start = System.nanoTime();
+      reader.execute(logEntry);
+      vars.recoveryApplyNanos.addAndGet(System.nanoTime() - start);
+      vars.entriesRead.incrementAndGet();
+    }
+
+    /**
+     * Reads the entries in the log stream following the given position, as far as they are known
+     * to the local replica of the log.  Unlike {@link #readFromBeginning(Closure)}, this does not
+     * claim the stream for writing, so it may be used to follow a stream written by another
+     * scheduler.
+     * <p>
+     * Reading stops short of a framed entry that has not been read in full, so that the entry is
+     * read from its header on a later call.  Reading also stops after a frame found to be aborted,
+     * so that the entry following it is read on a later call.
+     *
+     * @param position The position of the last entry already read, or {@code null} to read from
+     *     the beginning of the stream.
+     * @param reader A reader that will be handed log entries decoded from the stream.
+     * @return The position of the last entry read, to continue reading after.
+     * @throws CodingException if there was a problem decoding a log entry from the stream.
+     * @throws InvalidPositionException if the given position is not from this log.
+     * @throws StreamAccessException if there is a problem reading from the log.
+     */
+    @Nullable
+    Position readAfter(@Nullable Position position, Closure<LogEntry> reader)
+        throws CodingException, InvalidPositionException, StreamAccessException {
+
+      Iterator<Entry> entries = stream.readAfter(position);
+      try {
+        return readAfter(position, entries, reader);
+      } finally {
+        // Reading stops short of the end of the entries after an aborted frame or a failure.
+        close(entries);
+      }
+    }
+
+    @Nullable
+    private Position readAfter(
+        @Nullable Position position,
+        Iterator<Entry> entries,
+        Closure<LogEntry> reader) throws CodingException {
+
+      MessageDigest frameDigest = createDigest();
+      Position consumed = position;
+      while (hasNext(entries)) {
+        Entry entry = nextEntry(entries);
+        Position last = entry.position();
+        LogEntry logEntry = decode(readContents(entry));
+        if (isFrame(logEntry)) {
+          Frame frame = logEntry.getFrame();
+          if (!isHeader(frame)) {
+            LOG.warning("Found a frame with no preceding header, skipping.");
+            consumed = last;
+            continue;
           }
 
-          reader.execute(logEntry);
-          vars.entriesRead.incrementAndGet();
+          FrameHeader header = frame.getHeader();
+          byte[][] chunks = new byte[header.getChunkCount()][];
+          frameDigest.reset();
+          for (int i = 0; i < header.getChunkCount(); i++) {
+            if (!hasNext(entries)) {
+              // The remaining chunks have yet to be appended or learned.
+              return consumed;
+            }
+            Entry chunkEntry = nextEntry(entries);
+            LogEntry chunkLogEntry = decode(readContents(chunkEntry));
+            if (!isFrame(chunkLogEntry) || !isChunk(chunkLogEntry.getFrame())) {
+              logBadFrame(header, i);
+              return last;
+            }
+            byte[] chunkData = chunkLogEntry.getFrame().getChunk().getData();
+            frameDigest.update(chunkData);
+            chunks[i] = chunkData;
+            last = chunkEntry.position();
+          }
+          if (!Arrays.equals(header.getChecksum(), frameDigest.digest())) {
+            throw new CodingException("Read back a framed log entry that failed its checksum");
+          }
+          logEntry = decode(Bytes.concat(chunks));
+        }
+        apply(logEntry, reader);
+        consumed = last;
+      }
+      return consumed;
+    }
+
+    /**
+     * Log entries decoded from the stream, in log order.
+     */
+    private interface DecodedEntries {
+      boolean hasNext() throws CodingException;
+
+      LogEntry next() throws CodingException;
+    }
+
+    /**
+     * Reads and decodes entries on the calling thread.
+     */
+    private class InlineDecoder implements DecodedEntries {
+      private final Iterator<Entry> entries;
+
+      InlineDecoder(Iterator<Entry> entries) {
+        this.entries = entries;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return StreamManager.this.hasNext(entries);
+      }
+
+      @Override
+      public LogEntry next() throws CodingException {
+        return decode(readContents(entries));
+      }
+    }
+
+    /**
+     * Hands out entries decoded by the recovery threads, waiting on entries that are still being
+     * decoded.
+     */
+    private class PipelinedDecoder implements DecodedEntries {
+      private final BlockingQueue<Future<LogEntry>> decoded;
+      private Future<LogEntry> head;
+
+      PipelinedDecoder(BlockingQueue<Future<LogEntry>> decoded) {
+        this.decoded = decoded;
+      }
+
+      @Override
+      public boolean hasNext() {
+        if (head == null) {
+          try {
+            head = decoded.take();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StreamAccessException("Interrupted while reading the log", e);
+          }
+        }
+        return head != END_OF_STREAM;
+      }
+
+      @Override
+      public LogEntry next() throws CodingException {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Future<LogEntry> next = head;
+        head = null;
+
+        long start = System.nanoTime();
+        try {
+          return Uninterruptibles.getUninterruptibly(next);
+        } catch (ExecutionException e) {
+          Throwables.propagateIfInstanceOf(e.getCause(), CodingException.class);
+          throw Throwables.propagate(e.getCause());
+        } finally {
+          vars.recoveryDecodeWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+      }
+    }
+
+    /**
+     * Closes an iterator over the stream if it holds resources that must be released when reading
+     * stops before the iterator is exhausted.
+     */
+    private void close(Iterator<Entry> entries) {
+      if (entries instanceof Closeable) {
+        try {
+          ((Closeable) entries).close();
+        } catch (IOException e) {
+          LOG.log(Level.WARNING, "Failed to close log stream reader.", e);
+        }
+      }
+    }
+
+    private boolean hasNext(Iterator<Entry> entries) {
+      long start = System.nanoTime();
+      try {
+        return entries.hasNext();
+      } finally {
+        vars.recoveryReadNanos.addAndGet(System.nanoTime() - start);
+      }
+    }
+
+    private byte[] readContents(Iterator<Entry> entries) {
+      return readContents(nextEntry(entries));
+    }
+
+    private Entry nextEntry(Iterator<Entry> entries) {
+      long start = System.nanoTime();
+      try {
+        return entries.next();
+      } finally {
+        vars.recoveryReadNanos.addAndGet(System.nanoTime() - start);
+      }
+    }
+
+    private byte[] readContents(Entry entry) {
+      byte[] contents = entry.contents();
+      vars.bytesRead.addAndGet(contents.length);
+      return contents;
+    }
+
+    /**
+     * Decodes an entry, inflating it if it is deflated.  Framed entries are returned as-is, the
+     * entry they carry is decoded once all of its chunks are reassembled.
+     */
+    private LogEntry decode(byte[] contents) throws CodingException {
+      long start = System.nanoTime();
+      try {
+        LogEntry logEntry = Entries.thriftBinaryDecode(contents);
+        if (logEntry.isSet(_Fields.DEFLATED_ENTRY)) {
+          logEntry = Entries.inflate(logEntry);
+          vars.deflatedEntriesRead.incrementAndGet();
         }
+        return logEntry;
+      } finally {
+        vars.recoveryDecodeNanos.addAndGet(System.nanoTime() - start);
       }
     }
 
     @Nullable
-    private LogEntry tryDecodeFrame(Frame frame, Iterator<Entry> entries) throws CodingException {
+    private LogEntry tryDecodeFrame(Frame frame, DecodedEntries entries) throws CodingException {
       if (!isHeader(frame)) {
         LOG.warning("Found a frame with no preceding header, skipping.");
         return null;
@@ -200,13 +554,13 @@ public final class LogManager {
       FrameHeader header = frame.getHeader();
       byte[][] chunks = new byte[header.getChunkCount()][];
 
-      digest.reset();
+      MessageDigest digest = createDigest();
       for (int i = 0; i < header.getChunkCount(); i++) {
         if (!entries.hasNext()) {
           logBadFrame(header, i);
           return null;
         }
-        LogEntry logEntry = decodeLogEntry(entries.next());
+        LogEntry logEntry = entries.next();
         if (!isFrame(logEntry)) {
           logBadFrame(header, i);
           return logEntry;
@@ -223,7 +577,7 @@ public final class LogManager {
       if (!Arrays.equals(header.getChecksum(), digest.digest())) {
         throw new CodingException("Read back a framed log entry that failed its checksum");
       }
-      return Entries.thriftBinaryDecode(Bytes.concat(chunks));
+      return decode(Bytes.concat(chunks));
     }
 
     private static boolean isFrame(LogEntry logEntry) {
@@ -244,10 +598,32 @@ public final class LogManager {
       vars.badFramesRead.incrementAndGet();
     }
 
-    private LogEntry decodeLogEntry(Entry entry) throws CodingException {
-      byte[] contents = entry.contents();
-      vars.bytesRead.addAndGet(contents.length);
-      return Entries.thriftBinaryDecode(contents);
+    /**
+     * Returns the number of bytes read from the log stream.
+     *
+     * @return Bytes read.
+     */
+    long getBytesRead() {
+      return vars.bytesRead.get();
+    }
+
+    /**
+     * Returns the number of transactions appended to the log stream since the last snapshot.
+     *
+     * @return Transactions appended since the last snapshot.
+     */
+    int getUnSnapshottedTransactions() {
+      return vars.unSnapshottedTransactions.get();
+    }
+
+    /**
+     * Returns the number of bytes of transactions appended to the log stream since the last
+     * snapshot.
+     *
+     * @return Bytes appended since the last snapshot.
+     */
+    long getUnSnapshottedBytes() {
+      return vars.unSnapshottedBytes.get();
     }
 
     /**
@@ -262,6 +638,17 @@ public final class LogManager {
       stream.truncateBefore(position);
     }
 
+    /**
+     * Appends a no-op entry to the log stream.  For a replicated log, this claims the stream for
+     * writing, and so waits until the local replica has learned the entries appended before.
+     *
+     * @throws CodingException if there was a problem encoding the entry.
+     * @throws StreamAccessException if there was a problem appending the entry to the log.
+     */
+    void appendNoop() throws CodingException, StreamAccessException {
+      appendAndGetPosition(LogEntry.noop(true));
+    }
+
     /**
      * Starts a transaction that can be used to commit a series of {@link Op}s to the log stream
      * atomically.
@@ -276,6 +663,9 @@ public final class LogManager {
     /**
      * Adds a snapshot to the log and if successful, truncates the log entries preceding the
      * snapshot.
+     * <p>
+     * The snapshot is encoded directly into the frames appended to the log, so the serialized
+     * snapshot is never held in memory in its entirety.
      *
      * @param snapshot The snapshot to add.
      * @throws CodingException if the was a problem encoding the snapshot into a log entry.
@@ -286,21 +676,64 @@ public final class LogManager {
     void snapshot(Snapshot snapshot)
         throws CodingException, InvalidPositionException, StreamAccessException {
 
+      stream.truncateBefore(appendSnapshot(snapshot));
+    }
+
+    /**
+     * Adds a snapshot of the state captured at an earlier point in the log and if successful,
+     * truncates the log entries preceding that point.  The entries following it are kept, as they
+     * must be replayed once the snapshot is applied.
+     * <p>
+     * Transactions may be appended while the snapshot is being added, so the snapshot is encoded
+     * before it is appended rather than while holding the log for writing.  Unlike
+     * {@link #snapshot(Snapshot)}, the serialized snapshot is therefore held in memory.
+     *
+     * @param snapshot The snapshot to add.
+     * @param capturePosition The position of the entry holding the marker the snapshot was
+     *     captured at.
+     * @throws CodingException if the was a problem encoding the snapshot into a log entry.
+     * @throws InvalidPositionException if there was a problem truncating before the marker.
+     * @throws StreamAccessException if there was a problem appending the snapshot to the log.
+     */
+    @Timed("log_manager_snapshot")
+    void snapshot(Snapshot snapshot, Position capturePosition)
+        throws CodingException, InvalidPositionException, StreamAccessException {
+
+      requireNonNull(capturePosition);
+      final List<byte[]> entries = Lists.newArrayList();
+      entrySerializer.serialize(snapshotEntry(snapshot), new Closure<byte[]>() {
+        @Override
+        public void execute(byte[] entry) {
+          entries.add(entry);
+        }
+      });
+      recordSnapshot(appendAndGetPosition(entries));
+      stream.truncateBefore(capturePosition);
+    }
+
+    private Position appendSnapshot(Snapshot snapshot) throws CodingException {
+      return recordSnapshot(streamAndGetPosition(snapshotEntry(snapshot)));
+    }
+
+    private LogEntry snapshotEntry(Snapshot snapshot) throws CodingException {
       LogEntry entry = LogEntry.snapshot(snapshot);
-      if (deflateSnapshots) {
-        entry = Entries.deflate(entry);
-      }
+      return deflateSnapshots ? Entries.deflate(entry) : entry;
+    }
 
-      Position position = appendAndGetPosition(entry);
+    private Position recordSnapshot(Position position) {
       vars.snapshots.incrementAndGet();
       vars.unSnapshottedTransactions.set(0);
-      stream.truncateBefore(position);
+      vars.unSnapshottedBytes.set(0);
+      return position;
     }
 
     @Timed("log_manager_append")
     private Position appendAndGetPosition(LogEntry logEntry) throws CodingException {
+      return appendAndGetPosition(Arrays.asList(entrySerializer.serialize(logEntry)));
+    }
+
+    private Position appendAndGetPosition(Iterable<byte[]> entries) {
       Position firstPosition = null;
-      byte[][] entries = entrySerializer.serialize(logEntry);
       synchronized (writeMutex) { // ensure all sub-entries are written as a unit
         for (byte[] entry : entries) {
           Position position = stream.append(entry);
@@ -308,24 +741,39 @@ public final class LogManager {
             firstPosition = position;
           }
           vars.bytesWritten.addAndGet(entry.length);
+          vars.unSnapshottedBytes.addAndGet(entry.length);
         }
       }
       vars.entriesWritten.incrementAndGet();
       return firstPosition;
     }
 
+    @Timed("log_manager_stream")
+    private Position streamAndGetPosition(LogEntry logEntry) throws CodingException {
+      final AtomicReference<Position> firstPosition = new AtomicReference<>();
+      synchronized (writeMutex) { // ensure all sub-entries are written as a unit
+        entrySerializer.serialize(logEntry, new Closure<byte[]>() {
+          @Override
+          public void execute(byte[] entry) {
+            Position position = stream.append(entry);
+            firstPosition.compareAndSet(null, position);
+            vars.bytesWritten.addAndGet(entry.length);
+          }
+        });
+      }
+      vars.entriesWritten.incrementAndGet();
+      return firstPosition.get();
+    }
+
+    /**
+     * Serializes log entries into appendable entries.  Entries may be serialized concurrently.
+     */
     @VisibleForTesting
     public static class EntrySerializer {
-      private final MessageDigest digest;
       private final int maxEntrySizeBytes;
 
-      EntrySerializer(MessageDigest digest, Amount<Integer, Data> maxEntrySize) {
-        this.digest = requireNonNull(digest);
-        maxEntrySizeBytes = maxEntrySize.as(Data.BYTES);
-      }
-
       public EntrySerializer(Amount<Integer, Data> maxEntrySize) {
-        this(createDigest(), maxEntrySize);
+        maxEntrySizeBytes = maxEntrySize.as(Data.BYTES);
       }
 
       /**
@@ -355,14 +803,111 @@ public final class LogManager {
         return frames;
       }
 
-      private byte[] checksum(byte[] data) {
-        digest.reset();
-        return digest.digest(data);
+      /**
+       * Serializes a log entry into the same entries as {@link #serialize(LogEntry)}, handing each
+       * to {@code sink} as it is produced.  Rather than holding the serialized entry in memory, the
+       * entry is encoded twice: once to compute its size and checksum, and again to produce
+       * chunks.  Memory used is therefore bounded by {@code maxEntrySizeBytes}, but the entry must
+       * not be modified while it is being serialized.
+       *
+       * @param logEntry The log entry to serialize.
+       * @param sink Sink for serialized entries, in the order they should be written.
+       * @throws CodingException If the entry could not be serialized.
+       */
+      void serialize(LogEntry logEntry, final Closure<byte[]> sink) throws CodingException {
+        MessageDigest digest = createDigest();
+        CountingOutputStream sized = new CountingOutputStream(
+            new DigestOutputStream(ByteStreams.nullOutputStream(), digest));
+        encode(logEntry, sized);
+        long length = sized.getCount();
+        if (length <= maxEntrySizeBytes) {
+          sink.execute(Entries.thriftBinaryEncode(logEntry));
+          return;
+        }
+
+        int chunks = (int) Math.ceil(length / (double) maxEntrySizeBytes);
+        byte[] checksum = digest.digest();
+        sink.execute(encode(Frame.header(new FrameHeader(chunks, ByteBuffer.wrap(checksum)))));
+        ChunkingOutputStream chunked = new ChunkingOutputStream(maxEntrySizeBytes, sink);
+        encode(logEntry, chunked);
+        chunked.finish();
+      }
+
+      private static void encode(LogEntry logEntry, OutputStream output) throws CodingException {
+        BufferedOutputStream buffered =
+            new BufferedOutputStream(output, Entries.ENCODE_BUFFER_SIZE);
+        ThriftBinaryCodec.encodeNonNull(logEntry, buffered);
+        try {
+          buffered.flush();
+        } catch (IOException e) {
+          throw new CodingException("Failed to serialize log entry.", e);
+        }
+      }
+
+      private static byte[] checksum(byte[] data) {
+        return createDigest().digest(data);
       }
 
       private static byte[] encode(Frame frame) throws CodingException {
         return Entries.thriftBinaryEncode(LogEntry.frame(frame));
       }
+
+      /**
+       * Output stream that collects written data into chunks, handing each full chunk to a sink as
+       * an encoded chunk frame.
+       */
+      private static final class ChunkingOutputStream extends OutputStream {
+        private final byte[] chunk;
+        private final Closure<byte[]> sink;
+        private int size;
+
+        ChunkingOutputStream(int chunkSize, Closure<byte[]> sink) {
+          this.chunk = new byte[chunkSize];
+          this.sink = sink;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+          chunk[size++] = (byte) b;
+          if (size == chunk.length) {
+            emit();
+          }
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+          while (length > 0) {
+            int copied = Math.min(length, chunk.length - size);
+            System.arraycopy(data, offset, chunk, size, copied);
+            size += copied;
+            offset += copied;
+            length -= copied;
+            if (size == chunk.length) {
+              emit();
+            }
+          }
+        }
+
+        void finish() throws CodingException {
+          try {
+            emit();
+          } catch (IOException e) {
+            throw new CodingException("Failed to serialize log entry.", e);
+          }
+        }
+
+        private void emit() throws IOException {
+          if (size == 0) {
+            return;
+          }
+          try {
+            sink.execute(encode(Frame.chunk(new FrameChunk(ByteBuffer.wrap(chunk, 0, size)))));
+          } catch (CodingException e) {
+            throw new IOException(e);
+          }
+          size = 0;
+        }
+      }
     }
 
     /**
@@ -398,6 +943,26 @@ public final class LogManager {
         return position;
       }
 
+      /**
+       * Moves the ops added to this transaction into another transaction, which takes over
+       * committing them.  This transaction may not be committed afterwards.
+       *
+       * @param other The transaction to move ops to.
+       * @return The number of ops moved.
+       */
+      int commitTo(StreamTransaction other) {
+        Preconditions.checkState(!committed.getAndSet(true),
+            "Can only call commit once per transaction.");
+
+        if (!transaction.isSetOps()) {
+          return 0;
+        }
+        for (Op op : transaction.getOps()) {
+          other.add(op);
+        }
+        return transaction.getOpsSize();
+      }
+
       /**
        * Adds a local storage operation to this transaction.
        *
@@ -442,6 +1007,9 @@ public final class LogManager {
           case REMOVE_JOB:
           case SAVE_QUOTA:
           case REMOVE_QUOTA:
+          case SAVE_TASK_DELTA:
+          case SAVE_DEDUPLICATED_TASKS:
+          case SNAPSHOT_MARKER:
             return false;
 
           case SAVE_TASKS:
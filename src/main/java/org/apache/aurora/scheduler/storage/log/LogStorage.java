@@ -19,20 +19,32 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
 import com.google.inject.BindingAnnotation;
 import com.twitter.common.application.ShutdownRegistry;
 import com.twitter.common.base.Closure;
 import com.twitter.common.inject.TimedInterceptor.Timed;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Time;
+import com.twitter.common.stats.StatImpl;
+import com.twitter.common.stats.Stats;
 import com.twitter.common.util.concurrent.ExecutorServiceShutdown;
 
 import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
@@ -42,9 +54,13 @@ import org.apache.aurora.gen.storage.Op;
 import org.apache.aurora.gen.storage.RewriteTask;
 import org.apache.aurora.gen.storage.SaveAcceptedJob;
 import org.apache.aurora.gen.storage.SaveQuota;
+import org.apache.aurora.gen.storage.SaveTaskDelta;
 import org.apache.aurora.gen.storage.Snapshot;
+import org.apache.aurora.gen.storage.SnapshotMarker;
 import org.apache.aurora.scheduler.base.AsyncUtil;
+import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.SchedulerException;
+import org.apache.aurora.scheduler.log.Log.Position;
 import org.apache.aurora.scheduler.log.Log.Stream.InvalidPositionException;
 import org.apache.aurora.scheduler.log.Log.Stream.StreamAccessException;
 import org.apache.aurora.scheduler.storage.AttributeStore;
@@ -171,6 +187,11 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
 
   private static final Logger LOG = Logger.getLogger(LogStorage.class.getName());
 
+  /**
+   * Maximum number of consecutive transactions to replay within a single write during recovery.
+   */
+  private static final int RECOVERY_BATCH_SIZE = 1000;
+
   private final LogManager logManager;
   private final SchedulingService schedulingService;
   private final SnapshotStore<Snapshot> snapshotStore;
@@ -184,7 +205,34 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
   private final AttributeStore.Mutable writeBehindAttributeStore;
   private final JobUpdateStore.Mutable writeBehindJobUpdateStore;
 
+  private final Optional<GroupCommitter.Settings> groupCommitSettings;
+  private final boolean backgroundSnapshots;
+  private final Optional<SnapshotPolicy> snapshotPolicy;
+  private final Optional<Amount<Long, Time>> followerPollInterval;
+
+  private final AtomicLong followerEntriesBehind =
+      Stats.exportLong("scheduler_log_follower_entries_behind");
+  private final AtomicLong followerResets = Stats.exportLong("scheduler_log_follower_resets");
+  private final AtomicLong failoverMillis = Stats.exportLong("scheduler_log_failover_millis");
+  private final AtomicLong failoverEntries = Stats.exportLong("scheduler_log_failover_entries");
+
+  // Whether the log is followed while waiting to be started, the position of the last entry
+  // replayed from it, and whether the replayed state must be discarded before following on.
+  private volatile boolean following = false;
+  @Nullable private Position followerPosition;
+  private boolean followerReset = false;
+
+  // The System.nanoTime() the log was last read to the end of the local replica while following.
+  private volatile long followerReadNanos;
+
+  // The System.nanoTime() of the last snapshot, or of recovery if no snapshot was taken since.
+  private volatile long lastSnapshotNanos;
+
+  // Held while creating a snapshot in the background, to create one at a time.
+  private final Object snapshotLock = new Object();
+
   private StreamManager streamManager;
+  private GroupCommitter groupCommitter;
   private final WriteAheadStorage writeAheadStorage;
 
   // TODO(wfarner): It should be possible to remove this flag now, since all call stacks when
@@ -194,6 +242,11 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
   private boolean recovered = false;
   private StreamTransaction transaction = null;
 
+  // The most recent snapshot marker replayed during recovery, and the ops following it, which are
+  // held back until the snapshot captured at the marker is applied.
+  @Nullable private String snapshotMarkerId;
+  @Nullable private List<Op> opsSinceSnapshotMarker;
+
   /**
    * Identifies the grace period to give in-process snapshots and checkpoints to complete during
    * shutdown.
@@ -220,6 +273,39 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
   @BindingAnnotation
   public @interface WriteBehind { }
 
+  /**
+   * Identifies whether task mutations are logged as deltas rather than as full tasks.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ ElementType.PARAMETER, ElementType.METHOD })
+  @BindingAnnotation
+  public @interface LogTaskDeltas { }
+
+  /**
+   * Identifies whether saved tasks are logged with a dictionary of their configurations.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ ElementType.PARAMETER, ElementType.METHOD })
+  @BindingAnnotation
+  public @interface DeduplicateTaskConfigs { }
+
+  /**
+   * Identifies whether snapshots are built and appended to the log without holding storage locks.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ ElementType.PARAMETER, ElementType.METHOD })
+  @BindingAnnotation
+  public @interface BackgroundSnapshots { }
+
+  /**
+   * Identifies the interval at which the log is followed before this scheduler is started, if it
+   * is followed at all.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ ElementType.PARAMETER, ElementType.METHOD })
+  @BindingAnnotation
+  public @interface FollowerPollInterval { }
+
   @Inject
   LogStorage(LogManager logManager,
              ShutdownRegistry shutdownRegistry,
@@ -233,7 +319,13 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
              @WriteBehind LockStore.Mutable lockStore,
              @WriteBehind QuotaStore.Mutable quotaStore,
              @WriteBehind AttributeStore.Mutable attributeStore,
-             @WriteBehind JobUpdateStore.Mutable jobUpdateStore) {
+             @WriteBehind JobUpdateStore.Mutable jobUpdateStore,
+             Optional<GroupCommitter.Settings> groupCommitSettings,
+             @LogTaskDeltas boolean logTaskDeltas,
+             @DeduplicateTaskConfigs boolean deduplicateTaskConfigs,
+             @BackgroundSnapshots boolean backgroundSnapshots,
+             Optional<SnapshotPolicy.Settings> snapshotPolicySettings,
+             @FollowerPollInterval Optional<Amount<Long, Time>> followerPollInterval) {
 
     this(logManager,
         new ScheduledExecutorSchedulingService(shutdownRegistry, shutdownGracePeriod),
@@ -246,7 +338,13 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
         lockStore,
         quotaStore,
         attributeStore,
-        jobUpdateStore);
+        jobUpdateStore,
+        groupCommitSettings,
+        logTaskDeltas,
+        deduplicateTaskConfigs,
+        backgroundSnapshots,
+        snapshotPolicySettings,
+        followerPollInterval);
   }
 
   @VisibleForTesting
@@ -261,7 +359,13 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
              LockStore.Mutable lockStore,
              QuotaStore.Mutable quotaStore,
              AttributeStore.Mutable attributeStore,
-             JobUpdateStore.Mutable jobUpdateStore) {
+             JobUpdateStore.Mutable jobUpdateStore,
+             Optional<GroupCommitter.Settings> groupCommitSettings,
+             boolean logTaskDeltas,
+             boolean deduplicateTaskConfigs,
+             boolean backgroundSnapshots,
+             Optional<SnapshotPolicy.Settings> snapshotPolicySettings,
+             Optional<Amount<Long, Time>> followerPollInterval) {
 
     this.logManager = requireNonNull(logManager);
     this.schedulingService = requireNonNull(schedulingService);
@@ -280,6 +384,24 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     this.writeBehindQuotaStore = requireNonNull(quotaStore);
     this.writeBehindAttributeStore = requireNonNull(attributeStore);
     this.writeBehindJobUpdateStore = requireNonNull(jobUpdateStore);
+    this.groupCommitSettings = requireNonNull(groupCommitSettings);
+    this.backgroundSnapshots = backgroundSnapshots;
+    if (snapshotPolicySettings.isPresent()) {
+      snapshotPolicy =
+          Optional.of(new SnapshotPolicy(snapshotPolicySettings.get(), snapshotInterval));
+    } else {
+      snapshotPolicy = Optional.absent();
+    }
+    this.followerPollInterval = requireNonNull(followerPollInterval);
+    Stats.export(new StatImpl<Long>("scheduler_log_follower_lag_millis") {
+      @Override
+      public Long read() {
+        return following
+            ? Amount.of(System.nanoTime() - followerReadNanos, Time.NANOSECONDS)
+                .as(Time.MILLISECONDS)
+            : 0L;
+      }
+    });
     TransactionManager transactionManager = new TransactionManager() {
       @Override
       public boolean hasActiveTransaction() {
@@ -299,7 +421,9 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
         lockStore,
         quotaStore,
         attributeStore,
-        jobUpdateStore);
+        jobUpdateStore,
+        logTaskDeltas,
+        deduplicateTaskConfigs);
   }
 
   @Override
@@ -311,9 +435,22 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     } catch (IOException e) {
       throw new IllegalStateException("Failed to open the log, cannot continue", e);
     }
+    if (groupCommitSettings.isPresent()) {
+      groupCommitter = new GroupCommitter(streamManager, groupCommitSettings.get());
+    }
 
-    // TODO(John Sirois): start incremental recovery here from the log and do a final recovery
-    // catchup in start after shutting down the incremental syncer.
+    // Replay the log while waiting to be started, so that only the entries appended since the
+    // last poll remain to be replayed once started.
+    if (followerPollInterval.isPresent()) {
+      following = true;
+      followerReadNanos = System.nanoTime();
+      schedulingService.doEvery(followerPollInterval.get(), new Runnable() {
+        @Override
+        public void run() {
+          follow();
+        }
+      });
+    }
   }
 
   @Override
@@ -324,7 +461,14 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
         // Must have the underlying storage started so we can query it for the last checkpoint.
         // We replay these entries in the forwarded storage system's transactions but not ours - we
         // do not want to re-record these ops to the log.
-        recover();
+        long start = System.nanoTime();
+        if (following) {
+          catchUp();
+        } else {
+          recover();
+        }
+        failoverMillis.set(
+            Amount.of(System.nanoTime() - start, Time.NANOSECONDS).as(Time.MILLISECONDS));
         recovered = true;
 
         // Now that we're recovered we should let any mutations done in initializationLogic append
@@ -338,21 +482,123 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
 
   @Override
   public void stop() {
-    // No-op.
+    following = false;
   }
 
   @Timed("scheduler_log_recover")
   void recover() throws RecoveryFailedException {
+    long start = System.nanoTime();
     try {
-      streamManager.readFromBeginning(new Closure<LogEntry>() {
-        @Override
-        public void execute(LogEntry logEntry) {
-          replay(logEntry);
-        }
-      });
+      Replayer replayer = new Replayer();
+      streamManager.readFromBeginning(replayer);
+      replayer.flush();
+      replayOpsSinceOrphanedMarker();
+      failoverEntries.set(replayer.entries);
+    } catch (CodingException | InvalidPositionException | StreamAccessException e) {
+      throw new RecoveryFailedException(e);
+    }
+
+    lastSnapshotNanos = System.nanoTime();
+    if (snapshotPolicy.isPresent()) {
+      snapshotPolicy.get().recordRecovery(streamManager.getBytesRead(), lastSnapshotNanos - start);
+    }
+  }
+
+  /**
+   * Replays the entries appended to the log since the last poll, as far as they are known to the
+   * local replica of the log.  Any failure discards the state replayed so far, and the next poll
+   * replays the log again from its beginning.
+   */
+  private synchronized void follow() {
+    if (!following) {
+      return;
+    }
+
+    try {
+      if (followerReset) {
+        resetFollower();
+      }
+      Replayer replayer = new Replayer();
+      followerPosition = streamManager.readAfter(followerPosition, replayer);
+      replayer.flush();
+      followerEntriesBehind.set(replayer.entries);
+      followerReadNanos = System.nanoTime();
+    } catch (CodingException | RuntimeException e) {
+      LOG.log(Level.WARNING, "Failed to follow the log, replaying it from the beginning.", e);
+      followerReset = true;
+      followerResets.incrementAndGet();
+    }
+  }
+
+  /**
+   * Stops following the log and replays the entries appended since the last poll.  Appending to
+   * the log first ensures the local replica has learned all entries appended before this
+   * scheduler was started.
+   */
+  private void catchUp() throws RecoveryFailedException {
+    following = false;
+    try {
+      if (followerReset) {
+        resetFollower();
+      }
+      streamManager.appendNoop();
+
+      // Reading stops early at an aborted frame, so read until there is nothing left to read.
+      Replayer replayer = new Replayer();
+      Position before;
+      do {
+        before = followerPosition;
+        followerPosition = streamManager.readAfter(before, replayer);
+      } while (advanced(before, followerPosition));
+      replayer.flush();
+      replayOpsSinceOrphanedMarker();
+      failoverEntries.set(replayer.entries);
+      LOG.info("Replayed " + replayer.entries + " log entries appended since the last poll.");
     } catch (CodingException | InvalidPositionException | StreamAccessException e) {
       throw new RecoveryFailedException(e);
     }
+    lastSnapshotNanos = System.nanoTime();
+  }
+
+  private static boolean advanced(@Nullable Position before, @Nullable Position after) {
+    return after != null && (before == null || after.compareTo(before) > 0);
+  }
+
+  private void resetFollower() {
+    LOG.info("Discarding the state replayed from the log.");
+    snapshotStore.applySnapshot(new Snapshot());
+    snapshotMarkerId = null;
+    opsSinceSnapshotMarker = null;
+    followerPosition = null;
+    followerReset = false;
+  }
+
+  /**
+   * Replays entries read from the log.  Consecutive transactions are replayed in bulk, rather than
+   * in a write apiece.  Any other entry first flushes the pending transactions so that entries are
+   * applied in log order.
+   */
+  private class Replayer implements Closure<LogEntry> {
+    private final List<LogEntry> transactions = Lists.newArrayList();
+    private long entries = 0;
+
+    @Override
+    public void execute(LogEntry logEntry) {
+      entries++;
+      if (logEntry.isSet(LogEntry._Fields.TRANSACTION)) {
+        transactions.add(logEntry);
+        if (transactions.size() == RECOVERY_BATCH_SIZE) {
+          replayTransactions(transactions);
+        }
+      } else {
+        replayTransactions(transactions);
+        replay(logEntry);
+      }
+    }
+
+    void flush() {
+      replayTransactions(transactions);
+    }
   }
 
   private static final class RecoveryFailedException extends SchedulerException {
@@ -361,12 +607,31 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     }
   }
 
+  private void replayTransactions(final List<LogEntry> transactions) {
+    if (transactions.isEmpty()) {
+      return;
+    }
+
+    write(new MutateWork.NoResult.Quiet() {
+      @Override
+      protected void execute(MutableStoreProvider unused) {
+        for (LogEntry logEntry : transactions) {
+          for (Op op : logEntry.getTransaction().getOps()) {
+            replayOp(op);
+          }
+        }
+      }
+    });
+    transactions.clear();
+  }
+
   void replay(final LogEntry logEntry) {
     switch (logEntry.getSetField()) {
       case SNAPSHOT:
         Snapshot snapshot = logEntry.getSnapshot();
         LOG.info("Applying snapshot taken on " + new Date(snapshot.getTimestamp()));
         snapshotStore.applySnapshot(snapshot);
+        replayOpsSinceMarker(snapshot);
         break;
 
       case TRANSACTION:
@@ -395,7 +660,75 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     }
   }
 
+  /**
+   * Replays the ops following the marker a snapshot was captured at, which the snapshot does not
+   * reflect.  A snapshot without a marker reflects all entries preceding it.
+   *
+   * @param snapshot The snapshot just applied.
+   */
+  private void replayOpsSinceMarker(Snapshot snapshot) {
+    String markerId = snapshotMarkerId;
+    if (!snapshot.isSetMarkerId()) {
+      opsSinceSnapshotMarker = null;
+      snapshotMarkerId = null;
+      return;
+    }
+    if (!snapshot.getMarkerId().equals(markerId)) {
+      throw new IllegalStateException(
+          "Snapshot was captured at marker " + snapshot.getMarkerId() + " missing from the log.");
+    }
+
+    LOG.info("Replaying " + opsSinceSnapshotMarker.size()
+        + " ops logged while the snapshot was created.");
+    write(new MutateWork.NoResult.Quiet() {
+      @Override
+      protected void execute(MutableStoreProvider unused) {
+        replayHeldOps();
+      }
+    });
+  }
+
+  /**
+   * Replays the ops held back since a marker whose snapshot is not in the log, as is the case
+   * when creating the snapshot failed.  Entries preceding the marker are only truncated once its
+   * snapshot is appended, so the ops apply to the state already replayed.
+   */
+  private void replayOpsSinceOrphanedMarker() {
+    if (opsSinceSnapshotMarker == null) {
+      return;
+    }
+
+    LOG.info("Replaying " + opsSinceSnapshotMarker.size()
+        + " ops following a snapshot marker with no snapshot.");
+    write(new MutateWork.NoResult.Quiet() {
+      @Override
+      protected void execute(MutableStoreProvider unused) {
+        replayHeldOps();
+      }
+    });
+  }
+
+  /**
+   * Replays and stops holding back the ops following the most recent snapshot marker.  Must be
+   * called within a write.
+   */
+  private void replayHeldOps() {
+    List<Op> ops = opsSinceSnapshotMarker;
+    opsSinceSnapshotMarker = null;
+    snapshotMarkerId = null;
+    for (Op op : ops) {
+      replayOp(op);
+    }
+  }
+
   private void replayOp(Op op) {
+    // The ops following a marker may build on entries that preceded it and have since been
+    // truncated, so they are held back until the snapshot captured at the marker is applied.
+    if (opsSinceSnapshotMarker != null && op.getSetField() != Op._Fields.SNAPSHOT_MARKER) {
+      opsSinceSnapshotMarker.add(op);
+      return;
+    }
+
     switch (op.getSetField()) {
       case SAVE_FRAMEWORK_ID:
         writeBehindSchedulerStore.saveFrameworkId(op.getSaveFrameworkId().getId());
@@ -417,6 +750,15 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
             IScheduledTask.setFromBuilders(op.getSaveTasks().getTasks()));
         break;
 
+      case SAVE_DEDUPLICATED_TASKS:
+        writeBehindTaskStore.saveTasks(
+            TaskConfigDictionary.resolve(op.getSaveDeduplicatedTasks()));
+        break;
+
+      case SAVE_TASK_DELTA:
+        replayTaskDelta(op.getSaveTaskDelta());
+        break;
+
       case REWRITE_TASK:
         RewriteTask rewriteTask = op.getRewriteTask();
         writeBehindTaskStore.unsafeModifyInPlace(
@@ -477,14 +819,39 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
             op.getSaveJobInstanceUpdateEvent().getUpdateId());
         break;
 
+      case SNAPSHOT_MARKER:
+        // A marker without a snapshot following it belongs to a snapshot that failed, and is
+        // superseded by the next marker.  Its snapshot will never arrive to be applied, so the
+        // ops held back since it are replayed now.
+        if (opsSinceSnapshotMarker != null) {
+          replayHeldOps();
+        }
+        snapshotMarkerId = op.getSnapshotMarker().getId();
+        opsSinceSnapshotMarker = Lists.newArrayList();
+        break;
+
       default:
         throw new IllegalStateException("Unknown transaction op: " + op);
     }
   }
 
+  private void replayTaskDelta(final SaveTaskDelta delta) {
+    Set<IScheduledTask> mutated = writeBehindTaskStore.mutateTasks(
+        Query.taskScoped(delta.getTaskId()),
+        new Function<IScheduledTask, IScheduledTask>() {
+          @Override
+          public IScheduledTask apply(IScheduledTask task) {
+            return TaskDeltas.apply(task, delta);
+          }
+        });
+    if (mutated.isEmpty()) {
+      LOG.warning("Dropping delta for unknown task " + delta.getTaskId());
+    }
+  }
+
   private void scheduleSnapshots() {
     if (snapshotInterval.getValue() > 0) {
-      schedulingService.doEvery(snapshotInterval, new Runnable() {
+      final Runnable snapshotAction = new Runnable() {
         @Override
         public void run() {
           try {
@@ -497,7 +864,25 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
             }
           }
         }
-      });
+      };
+
+      if (snapshotPolicy.isPresent()) {
+        final SnapshotPolicy policy = snapshotPolicy.get();
+        schedulingService.doEvery(policy.getCheckInterval(), new Runnable() {
+          @Override
+          public void run() {
+            boolean due = policy.shouldSnapshot(
+                System.nanoTime() - lastSnapshotNanos,
+                streamManager.getUnSnapshottedTransactions(),
+                streamManager.getUnSnapshottedBytes());
+            if (due) {
+              snapshotAction.run();
+            }
+          }
+        });
+      } else {
+        schedulingService.doEvery(snapshotInterval, snapshotAction);
+      }
     }
   }
 
@@ -510,11 +895,22 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
    */
   @Timed("scheduler_log_snapshot")
   void doSnapshot() throws CodingException, InvalidPositionException, StreamAccessException {
+    if (backgroundSnapshots) {
+      doBackgroundSnapshot();
+      return;
+    }
+
     write(new MutateWork.NoResult<CodingException>() {
       @Override
       protected void execute(MutableStoreProvider unused)
           throws CodingException, InvalidPositionException, StreamAccessException {
 
+        // With group commit, writers release the storage lock before their ops are appended.  Those
+        // ops must precede the snapshot in the log, since the entries before it are truncated.
+        if (groupCommitter != null) {
+          groupCommitter.flush();
+        }
+
         LOG.info("Creating snapshot.");
         Snapshot snapshot = snapshotStore.createSnapshot();
         persist(snapshot);
@@ -528,6 +924,42 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     });
   }
 
+  /**
+   * Captures the storage state and writes a marker to the log within a single write, then builds
+   * and appends the snapshot once the storage locks are released.  Writes committed in the
+   * meantime follow the marker in the log, and are only replayed once the snapshot is applied.
+   */
+  private void doBackgroundSnapshot()
+      throws CodingException, InvalidPositionException, StreamAccessException {
+
+    synchronized (snapshotLock) {
+      final String markerId = UUID.randomUUID().toString();
+      final AtomicReference<Supplier<Snapshot>> captured = new AtomicReference<>();
+      Commit commit = new Commit();
+      write(new MutateWork.NoResult.Quiet() {
+        @Override
+        protected void execute(MutableStoreProvider unused) {
+          captured.set(snapshotStore.captureSnapshot());
+          transaction.add(Op.snapshotMarker(new SnapshotMarker(markerId)));
+        }
+      }, commit);
+      Position markerPosition = commit.await();
+      if (markerPosition == null) {
+        throw new IllegalStateException("Snapshot marker was not committed to the log.");
+      }
+
+      LOG.info("Captured state for snapshot, creating snapshot.");
+      Snapshot snapshot = captured.get().get().setMarkerId(markerId);
+      streamManager.snapshot(snapshot, markerPosition);
+      LOG.info("Snapshot complete."
+               + " host attrs: " + snapshot.getHostAttributesSize()
+               + ", jobs: " + snapshot.getJobsSize()
+               + ", locks: " + snapshot.getLocksSize()
+               + ", quota confs: " + snapshot.getQuotaConfigurationsSize()
+               + ", tasks: " + snapshot.getTasksSize());
+    }
+  }
+
   @Timed("scheduler_log_snapshot_persist")
   @Override
   public void persist(Snapshot snapshot)
@@ -537,8 +969,48 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
   }
 
   @Override
-  public synchronized <T, E extends Exception> T write(final MutateWork<T, E> work)
-      throws StorageException, E {
+  public <T, E extends Exception> T write(MutateWork<T, E> work) throws StorageException, E {
+    Commit commit = new Commit();
+    T result = write(work, commit);
+    commit.await();
+    return result;
+  }
+
+  /**
+   * The log append made by a top-level write.
+   */
+  private static final class Commit {
+    @Nullable private GroupCommitter.Batch batch;
+    @Nullable private Position position;
+
+    /**
+     * Waits for the append to complete.
+     *
+     * @return The position of the log entry appended, or {@code null} if there was none.
+     * @throws StorageException If the append failed.
+     */
+    @Nullable
+    Position await() throws StorageException {
+      // A group commit is awaited only once the storage locks are released, so that other writers
+      // may join the batch in the meantime.
+      if (batch != null) {
+        try {
+          position = batch.await();
+        } catch (CodingException e) {
+          throw new IllegalStateException(
+              "Problem encoding transaction operations to the log stream", e);
+        } catch (StreamAccessException e) {
+          throw new StorageException(
+              "There was a problem committing the transaction to the log.", e);
+        }
+      }
+      return position;
+    }
+  }
+
+  private synchronized <T, E extends Exception> T write(
+      final MutateWork<T, E> work,
+      final Commit commit) throws StorageException, E {
 
     // We don't want to use the log when recovering from it, we just want to update the underlying
     // store - so pass mutations straight through to the underlying storage.
@@ -558,8 +1030,13 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
         @Override
         public T apply(MutableStoreProvider unused) throws E {
           T result = work.apply(writeAheadStorage);
+          if (groupCommitter != null) {
+            commit.batch = groupCommitter.enqueue(transaction).orNull();
+            return result;
+          }
+
           try {
-            transaction.commit();
+            commit.position = transaction.commit();
           } catch (CodingException e) {
             throw new IllegalStateException(
                 "Problem encoding transaction operations to the log stream", e);
@@ -591,6 +1068,7 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
   public void snapshot() throws StorageException {
     try {
       doSnapshot();
+      lastSnapshotNanos = System.nanoTime();
     } catch (CodingException e) {
       throw new StorageException("Failed to encode a snapshot", e);
     } catch (InvalidPositionException e) {
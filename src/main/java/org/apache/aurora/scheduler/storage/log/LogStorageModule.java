@@ -18,12 +18,15 @@ import java.lang.annotation.Annotation;
 import javax.inject.Singleton;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
 import com.google.inject.AbstractModule;
 import com.google.inject.Key;
 import com.google.inject.TypeLiteral;
 import com.twitter.common.application.ShutdownRegistry;
 import com.twitter.common.args.Arg;
 import com.twitter.common.args.CmdLine;
+import com.twitter.common.args.constraints.NotNegative;
+import com.twitter.common.args.constraints.Positive;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Data;
 import com.twitter.common.quantity.Time;
@@ -33,7 +36,12 @@ import org.apache.aurora.scheduler.log.Log;
 import org.apache.aurora.scheduler.storage.CallOrderEnforcingStorage;
 import org.apache.aurora.scheduler.storage.DistributedSnapshotStore;
 import org.apache.aurora.scheduler.storage.log.LogManager.MaxEntrySize;
+import org.apache.aurora.scheduler.storage.log.LogManager.RecoveryThreads;
 import org.apache.aurora.scheduler.storage.log.LogManager.SnapshotSetting;
+import org.apache.aurora.scheduler.storage.log.LogStorage.BackgroundSnapshots;
+import org.apache.aurora.scheduler.storage.log.LogStorage.DeduplicateTaskConfigs;
+import org.apache.aurora.scheduler.storage.log.LogStorage.FollowerPollInterval;
+import org.apache.aurora.scheduler.storage.log.LogStorage.LogTaskDeltas;
 import org.apache.aurora.scheduler.storage.log.LogStorage.ShutdownGracePeriod;
 import org.apache.aurora.scheduler.storage.log.LogStorage.SnapshotInterval;
 
@@ -72,6 +80,93 @@ public class LogStorageModule extends AbstractModule {
   @CmdLine(name = "deflate_snapshots", help = "Whether snapshots should be deflate-compressed.")
   private static final Arg<Boolean> DEFLATE_SNAPSHOTS = Arg.create(true);
 
+  @CmdLine(name = "dlog_recovery_threads",
+           help = "Number of threads used to decode and inflate log entries when recovering from "
+                  + "the log.  When zero, entries are read, decoded and applied on one thread.")
+  @NotNegative
+  private static final Arg<Integer> RECOVERY_THREADS = Arg.create(0);
+
+  @CmdLine(name = "dlog_group_commit",
+           help = "Whether to combine the transactions of concurrent writers into shared log "
+                  + "appends.  Writers are released once the shared append completes, but their "
+                  + "changes are visible to reads before then, so reads may observe state that is "
+                  + "not yet durable.  A failed append rejects all further writes.")
+  private static final Arg<Boolean> GROUP_COMMIT = Arg.create(false);
+
+  @CmdLine(name = "dlog_group_commit_window",
+           help = "Maximum time to hold a group commit open for transactions from other writers.")
+  private static final Arg<Amount<Long, Time>> GROUP_COMMIT_WINDOW =
+      Arg.create(Amount.of(0L, Time.MILLISECONDS));
+
+  @CmdLine(name = "dlog_group_commit_max_ops",
+           help = "Number of ops that closes a group commit before its window elapses.")
+  @Positive
+  private static final Arg<Integer> GROUP_COMMIT_MAX_OPS = Arg.create(1000);
+
+  @CmdLine(name = "dlog_task_deltas",
+           help = "Whether to log task mutations that leave the task configuration unchanged as "
+                  + "deltas, rather than as full tasks.  Logs written with deltas may not be read "
+                  + "by schedulers that predate them.")
+  private static final Arg<Boolean> TASK_DELTAS = Arg.create(false);
+
+  @CmdLine(name = "dlog_deduplicate_task_configs",
+           help = "Whether to log saved tasks with a dictionary of their configurations, storing "
+                  + "a configuration shared by several tasks once.  Logs written with the "
+                  + "dictionary may not be read by schedulers that predate it.")
+  private static final Arg<Boolean> DEDUPLICATE_TASK_CONFIGS = Arg.create(false);
+
+  @CmdLine(name = "dlog_background_snapshots",
+           help = "Whether to only capture the storage state while holding the storage write lock "
+                  + "when snapshotting, building and appending the snapshot once the lock is "
+                  + "released.  Logs written this way may not be read by schedulers that predate "
+                  + "it.")
+  private static final Arg<Boolean> BACKGROUND_SNAPSHOTS = Arg.create(false);
+
+  @CmdLine(name = "dlog_adaptive_snapshots",
+           help = "Whether to snapshot once the log has grown past a threshold, rather than at "
+                  + "every snapshot interval.  The snapshot interval still bounds the time between "
+                  + "snapshots, but no snapshot is taken while nothing is written to the log.")
+  private static final Arg<Boolean> ADAPTIVE_SNAPSHOTS = Arg.create(false);
+
+  @CmdLine(name = "dlog_snapshot_check_interval",
+           help = "Interval at which to check whether the log has grown enough to snapshot.")
+  private static final Arg<Amount<Long, Time>> SNAPSHOT_CHECK_INTERVAL =
+      Arg.create(Amount.of(10L, Time.SECONDS));
+
+  @CmdLine(name = "dlog_snapshot_min_interval",
+           help = "Minimum time between snapshots, regardless of log growth.")
+  private static final Arg<Amount<Long, Time>> SNAPSHOT_MIN_INTERVAL =
+      Arg.create(Amount.of(5L, Time.MINUTES));
+
+  @CmdLine(name = "dlog_snapshot_max_unsnapshotted_size",
+           help = "Size of the log entries written since the last snapshot that triggers one.")
+  private static final Arg<Amount<Long, Data>> SNAPSHOT_MAX_UNSNAPSHOTTED_SIZE =
+      Arg.create(Amount.of(256L, Data.MB));
+
+  @CmdLine(name = "dlog_snapshot_max_unsnapshotted_transactions",
+           help = "Number of transactions written since the last snapshot that triggers one.")
+  @Positive
+  private static final Arg<Integer> SNAPSHOT_MAX_UNSNAPSHOTTED_TRANSACTIONS =
+      Arg.create(100000);
+
+  @CmdLine(name = "dlog_snapshot_max_replay_time",
+           help = "Estimated time to replay the log entries written since the last snapshot that "
+                  + "triggers one.  Estimated from the rate the log was replayed at on startup.")
+  private static final Arg<Amount<Long, Time>> SNAPSHOT_MAX_REPLAY_TIME =
+      Arg.create(Amount.of(1L, Time.MINUTES));
+
+  @CmdLine(name = "dlog_follower_mode",
+           help = "Whether to replay the log while waiting to be elected leader, so that only the "
+                  + "entries written since the last poll of the log remain to be replayed on "
+                  + "failover.")
+  private static final Arg<Boolean> FOLLOWER_MODE = Arg.create(false);
+
+  @CmdLine(name = "dlog_follower_poll_interval",
+           help = "Interval at which to replay new log entries while waiting to be elected "
+                  + "leader.")
+  private static final Arg<Amount<Long, Time>> FOLLOWER_POLL_INTERVAL =
+      Arg.create(Amount.of(1L, Time.SECONDS));
+
   @Override
   protected void configure() {
     requireBinding(Log.class);
@@ -85,6 +180,36 @@ public class LogStorageModule extends AbstractModule {
         .toInstance(MAX_LOG_ENTRY_SIZE.get());
     bind(LogManager.class).in(Singleton.class);
     bind(Boolean.class).annotatedWith(SnapshotSetting.class).toInstance(DEFLATE_SNAPSHOTS.get());
+    bind(Integer.class).annotatedWith(RecoveryThreads.class)
+        .toInstance(RECOVERY_THREADS.get());
+    Optional<GroupCommitter.Settings> groupCommit = Optional.absent();
+    if (GROUP_COMMIT.get()) {
+      groupCommit = Optional.of(
+          new GroupCommitter.Settings(GROUP_COMMIT_WINDOW.get(), GROUP_COMMIT_MAX_OPS.get()));
+    }
+    bind(new TypeLiteral<Optional<GroupCommitter.Settings>>() { }).toInstance(groupCommit);
+    bind(Boolean.class).annotatedWith(LogTaskDeltas.class).toInstance(TASK_DELTAS.get());
+    bind(Boolean.class).annotatedWith(DeduplicateTaskConfigs.class)
+        .toInstance(DEDUPLICATE_TASK_CONFIGS.get());
+    bind(Boolean.class).annotatedWith(BackgroundSnapshots.class)
+        .toInstance(BACKGROUND_SNAPSHOTS.get());
+    Optional<SnapshotPolicy.Settings> snapshotPolicy = Optional.absent();
+    if (ADAPTIVE_SNAPSHOTS.get()) {
+      snapshotPolicy = Optional.of(new SnapshotPolicy.Settings(
+          SNAPSHOT_CHECK_INTERVAL.get(),
+          SNAPSHOT_MIN_INTERVAL.get(),
+          SNAPSHOT_MAX_UNSNAPSHOTTED_SIZE.get(),
+          SNAPSHOT_MAX_UNSNAPSHOTTED_TRANSACTIONS.get(),
+          SNAPSHOT_MAX_REPLAY_TIME.get()));
+    }
+    bind(new TypeLiteral<Optional<SnapshotPolicy.Settings>>() { }).toInstance(snapshotPolicy);
+    Optional<Amount<Long, Time>> followerPollInterval = Optional.absent();
+    if (FOLLOWER_MODE.get()) {
+      followerPollInterval = Optional.of(FOLLOWER_POLL_INTERVAL.get());
+    }
+    bind(new TypeLiteral<Optional<Amount<Long, Time>>>() { })
+        .annotatedWith(FollowerPollInterval.class)
+        .toInstance(followerPollInterval);
     bind(LogStorage.class).in(Singleton.class);
 
     install(CallOrderEnforcingStorage.wrappingModule(LogStorage.class));
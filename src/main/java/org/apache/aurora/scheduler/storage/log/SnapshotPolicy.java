@@ -0,0 +1,146 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
+import com.twitter.common.quantity.Time;
+import com.twitter.common.stats.Stats;
+
+/**
+ * Decides when to snapshot based on how much the log has grown since the last snapshot.
+ * <p>
+ * A snapshot is taken once the entries appended since the last snapshot exceed a size or count,
+ * or would take too long to replay at the rate the log was last recovered.  The snapshot interval
+ * still bounds the time between snapshots, but no snapshot is taken while nothing has been
+ * appended.  Snapshots are spaced by at least a minimum interval, regardless of log growth.
+ */
+class SnapshotPolicy {
+
+  /**
+   * Thresholds on log growth that trigger a snapshot.
+   */
+  static class Settings {
+    private final Amount<Long, Time> checkInterval;
+    private final Amount<Long, Time> minInterval;
+    private final Amount<Long, Data> maxBytes;
+    private final int maxTransactions;
+    private final Amount<Long, Time> maxReplayTime;
+
+    /**
+     * Creates snapshot policy settings.
+     *
+     * @param checkInterval Interval at which to check whether to snapshot.
+     * @param minInterval Minimum time between snapshots.
+     * @param maxBytes Size of the entries appended since the last snapshot that triggers one.
+     * @param maxTransactions Number of transactions appended since the last snapshot that
+     *     triggers one.
+     * @param maxReplayTime Estimated time to replay the entries appended since the last snapshot
+     *     that triggers one.
+     */
+    Settings(
+        Amount<Long, Time> checkInterval,
+        Amount<Long, Time> minInterval,
+        Amount<Long, Data> maxBytes,
+        int maxTransactions,
+        Amount<Long, Time> maxReplayTime) {
+
+      Preconditions.checkArgument(checkInterval.getValue() > 0);
+      Preconditions.checkArgument(minInterval.getValue() >= 0);
+      Preconditions.checkArgument(maxBytes.getValue() > 0);
+      Preconditions.checkArgument(maxTransactions > 0);
+      Preconditions.checkArgument(maxReplayTime.getValue() > 0);
+      this.checkInterval = checkInterval;
+      this.minInterval = minInterval;
+      this.maxBytes = maxBytes;
+      this.maxTransactions = maxTransactions;
+      this.maxReplayTime = maxReplayTime;
+    }
+  }
+
+  private final AtomicLong estimatedReplayMillis =
+      Stats.exportLong("scheduler_log_estimated_replay_millis");
+
+  private final Amount<Long, Time> checkInterval;
+  private final long minIntervalNanos;
+  private final long maxIntervalNanos;
+  private final long maxBytes;
+  private final int maxTransactions;
+  private final long maxReplayNanos;
+
+  // Nanoseconds to replay a byte of the log, as last observed during recovery.
+  private volatile double replayNanosPerByte = 0;
+
+  /**
+   * Creates a snapshot policy.
+   *
+   * @param settings Thresholds on log growth.
+   * @param maxInterval Maximum time between snapshots while entries are being appended.
+   */
+  SnapshotPolicy(Settings settings, Amount<Long, Time> maxInterval) {
+    this.checkInterval = settings.checkInterval;
+    this.minIntervalNanos = settings.minInterval.as(Time.NANOSECONDS);
+    this.maxIntervalNanos = maxInterval.as(Time.NANOSECONDS);
+    this.maxBytes = settings.maxBytes.as(Data.BYTES);
+    this.maxTransactions = settings.maxTransactions;
+    this.maxReplayNanos = settings.maxReplayTime.as(Time.NANOSECONDS);
+  }
+
+  /**
+   * Returns the interval at which to check whether to snapshot.
+   *
+   * @return The check interval.
+   */
+  Amount<Long, Time> getCheckInterval() {
+    return checkInterval;
+  }
+
+  /**
+   * Records the rate at which the log was replayed during recovery, used to estimate the time to
+   * replay the entries appended since.
+   *
+   * @param bytes Number of bytes read from the log.
+   * @param nanos Time taken to read and apply them.
+   */
+  void recordRecovery(long bytes, long nanos) {
+    if (bytes > 0 && nanos > 0) {
+      replayNanosPerByte = (double) nanos / bytes;
+    }
+  }
+
+  /**
+   * Decides whether to snapshot.
+   *
+   * @param nanosSinceSnapshot Time since the last snapshot, or since the log was recovered if no
+   *     snapshot has been taken since.
+   * @param transactions Number of transactions appended since the last snapshot.
+   * @param bytes Number of bytes appended since the last snapshot.
+   * @return {@code true} if a snapshot should be taken.
+   */
+  boolean shouldSnapshot(long nanosSinceSnapshot, int transactions, long bytes) {
+    long replayNanos = (long) (bytes * replayNanosPerByte);
+    estimatedReplayMillis.set(Amount.of(replayNanos, Time.NANOSECONDS).as(Time.MILLISECONDS));
+
+    if (transactions == 0 || nanosSinceSnapshot < minIntervalNanos) {
+      return false;
+    }
+    return nanosSinceSnapshot >= maxIntervalNanos
+        || transactions >= maxTransactions
+        || bytes >= maxBytes
+        || replayNanos >= maxReplayNanos;
+  }
+}
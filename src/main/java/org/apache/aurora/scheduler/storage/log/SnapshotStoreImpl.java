@@ -14,13 +14,24 @@
 package org.apache.aurora.scheduler.storage.log;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import javax.inject.Inject;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import com.twitter.common.args.Arg;
+import com.twitter.common.args.CmdLine;
+import com.twitter.common.base.Closure;
 import com.twitter.common.inject.TimedInterceptor.Timed;
 import com.twitter.common.util.BuildInfo;
 import com.twitter.common.util.Clock;
@@ -70,8 +81,14 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
         // It's important for locks to be replayed first, since there are relations that expect
         // references to be valid on insertion.
         @Override
-        public void saveToSnapshot(StoreProvider store, Snapshot snapshot) {
-          snapshot.setLocks(ILock.toBuildersSet(store.getLockStore().fetchLocks()));
+        public Closure<Snapshot> capture(StoreProvider store) {
+          final Set<ILock> locks = store.getLockStore().fetchLocks();
+          return new Closure<Snapshot>() {
+            @Override
+            public void execute(Snapshot snapshot) {
+              snapshot.setLocks(ILock.toBuildersSet(locks));
+            }
+          };
         }
 
         @Override
@@ -87,9 +104,14 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
       },
       new SnapshotField() {
         @Override
-        public void saveToSnapshot(StoreProvider storeProvider, Snapshot snapshot) {
-          snapshot.setHostAttributes(
-              IHostAttributes.toBuildersSet(storeProvider.getAttributeStore().getHostAttributes()));
+        public Closure<Snapshot> capture(StoreProvider store) {
+          final Set<IHostAttributes> attributes = store.getAttributeStore().getHostAttributes();
+          return new Closure<Snapshot>() {
+            @Override
+            public void execute(Snapshot snapshot) {
+              snapshot.setHostAttributes(IHostAttributes.toBuildersSet(attributes));
+            }
+          };
         }
 
         @Override
@@ -112,9 +134,14 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
       },
       new SnapshotField() {
         @Override
-        public void saveToSnapshot(StoreProvider store, Snapshot snapshot) {
-          snapshot.setTasks(
-              IScheduledTask.toBuildersSet(store.getTaskStore().fetchTasks(Query.unscoped())));
+        public Closure<Snapshot> capture(StoreProvider store) {
+          final Set<IScheduledTask> tasks = store.getTaskStore().fetchTasks(Query.unscoped());
+          return new Closure<Snapshot>() {
+            @Override
+            public void execute(Snapshot snapshot) {
+              snapshot.setTasks(IScheduledTask.toBuildersSet(tasks));
+            }
+          };
         }
 
         @Override
@@ -125,18 +152,31 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
             store.getUnsafeTaskStore().saveTasks(
                 IScheduledTask.setFromBuilders(snapshot.getTasks()));
           }
+          if (snapshot.isSetDeduplicatedTasks()) {
+            store.getUnsafeTaskStore().saveTasks(
+                TaskConfigDictionary.resolve(snapshot.getDeduplicatedTasks()));
+          }
         }
       },
       new SnapshotField() {
         @Override
-        public void saveToSnapshot(StoreProvider store, Snapshot snapshot) {
-          ImmutableSet.Builder<StoredJob> jobs = ImmutableSet.builder();
+        public Closure<Snapshot> capture(StoreProvider store) {
+          ImmutableMultimap.Builder<String, IJobConfiguration> builder =
+              ImmutableMultimap.builder();
           for (String managerId : store.getJobStore().fetchManagerIds()) {
-            for (IJobConfiguration config : store.getJobStore().fetchJobs(managerId)) {
-              jobs.add(new StoredJob(managerId, config.newBuilder()));
-            }
+            builder.putAll(managerId, store.getJobStore().fetchJobs(managerId));
           }
-          snapshot.setJobs(jobs.build());
+          final Multimap<String, IJobConfiguration> jobs = builder.build();
+          return new Closure<Snapshot>() {
+            @Override
+            public void execute(Snapshot snapshot) {
+              ImmutableSet.Builder<StoredJob> storedJobs = ImmutableSet.builder();
+              for (Map.Entry<String, IJobConfiguration> entry : jobs.entries()) {
+                storedJobs.add(new StoredJob(entry.getKey(), entry.getValue().newBuilder()));
+              }
+              snapshot.setJobs(storedJobs.build());
+            }
+          };
         }
 
         @Override
@@ -154,18 +194,24 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
       },
       new SnapshotField() {
         @Override
-        public void saveToSnapshot(StoreProvider store, Snapshot snapshot) {
-          Properties props = new BuildInfo().getProperties();
-
-          snapshot.setSchedulerMetadata(
-                new SchedulerMetadata()
-                  .setFrameworkId(store.getSchedulerStore().fetchFrameworkId().orNull())
-                  .setRevision(props.getProperty(BuildInfo.Key.GIT_REVISION.value))
-                  .setTag(props.getProperty(BuildInfo.Key.GIT_TAG.value))
-                  .setTimestamp(props.getProperty(BuildInfo.Key.TIMESTAMP.value))
-                  .setUser(props.getProperty(BuildInfo.Key.USER.value))
-                  .setMachine(props.getProperty(BuildInfo.Key.MACHINE.value))
-                  .setVersion(CURRENT_API_VERSION));
+        public Closure<Snapshot> capture(StoreProvider store) {
+          final Optional<String> frameworkId = store.getSchedulerStore().fetchFrameworkId();
+          return new Closure<Snapshot>() {
+            @Override
+            public void execute(Snapshot snapshot) {
+              Properties props = new BuildInfo().getProperties();
+
+              snapshot.setSchedulerMetadata(
+                    new SchedulerMetadata()
+                      .setFrameworkId(frameworkId.orNull())
+                      .setRevision(props.getProperty(BuildInfo.Key.GIT_REVISION.value))
+                      .setTag(props.getProperty(BuildInfo.Key.GIT_TAG.value))
+                      .setTimestamp(props.getProperty(BuildInfo.Key.TIMESTAMP.value))
+                      .setUser(props.getProperty(BuildInfo.Key.USER.value))
+                      .setMachine(props.getProperty(BuildInfo.Key.MACHINE.value))
+                      .setVersion(CURRENT_API_VERSION));
+            }
+          };
         }
 
         @Override
@@ -181,15 +227,20 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
       },
       new SnapshotField() {
         @Override
-        public void saveToSnapshot(StoreProvider store, Snapshot snapshot) {
-          ImmutableSet.Builder<QuotaConfiguration> quotas = ImmutableSet.builder();
-          for (Map.Entry<String, IResourceAggregate> entry
-              : store.getQuotaStore().fetchQuotas().entrySet()) {
-
-            quotas.add(new QuotaConfiguration(entry.getKey(), entry.getValue().newBuilder()));
-          }
+        public Closure<Snapshot> capture(StoreProvider store) {
+          final Map<String, IResourceAggregate> quotas = store.getQuotaStore().fetchQuotas();
+          return new Closure<Snapshot>() {
+            @Override
+            public void execute(Snapshot snapshot) {
+              ImmutableSet.Builder<QuotaConfiguration> configurations = ImmutableSet.builder();
+              for (Map.Entry<String, IResourceAggregate> entry : quotas.entrySet()) {
+                configurations.add(
+                    new QuotaConfiguration(entry.getKey(), entry.getValue().newBuilder()));
+              }
 
-          snapshot.setQuotaConfigurations(quotas.build());
+              snapshot.setQuotaConfigurations(configurations.build());
+            }
+          };
         }
 
         @Override
@@ -206,8 +257,16 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
       },
       new SnapshotField() {
         @Override
-        public void saveToSnapshot(StoreProvider store, Snapshot snapshot) {
-          snapshot.setJobUpdateDetails(store.getJobUpdateStore().fetchAllJobUpdateDetails());
+        public Closure<Snapshot> capture(StoreProvider store) {
+          // The details are read into copies of their own, which may be used as they are.
+          final Set<StoredJobUpdateDetails> details =
+              store.getJobUpdateStore().fetchAllJobUpdateDetails();
+          return new Closure<Snapshot>() {
+            @Override
+            public void execute(Snapshot snapshot) {
+              snapshot.setJobUpdateDetails(details);
+            }
+          };
         }
 
         @Override
@@ -238,31 +297,66 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
       }
   );
 
+  @CmdLine(name = "deduplicate_snapshot_task_configs",
+      help = "Whether to store tasks in snapshots with a dictionary of their configurations, "
+          + "storing a configuration shared by several tasks once.  Snapshots written with the "
+          + "dictionary may not be read by schedulers that predate it.")
+  private static final Arg<Boolean> DEDUPLICATE_TASK_CONFIGS = Arg.create(false);
+
   private final Clock clock;
   private final Storage storage;
+  private final boolean deduplicateTaskConfigs;
 
   @Inject
   public SnapshotStoreImpl(Clock clock, @Volatile Storage storage) {
+    this(clock, storage, DEDUPLICATE_TASK_CONFIGS.get());
+  }
+
+  @VisibleForTesting
+  SnapshotStoreImpl(Clock clock, Storage storage, boolean deduplicateTaskConfigs) {
     this.clock = requireNonNull(clock);
     this.storage = requireNonNull(storage);
+    this.deduplicateTaskConfigs = deduplicateTaskConfigs;
   }
 
   @Timed("snapshot_create")
   @Override
   public Snapshot createSnapshot() {
-    return storage.consistentRead(new Work.Quiet<Snapshot>() {
-      @Override
-      public Snapshot apply(StoreProvider storeProvider) {
-        Snapshot snapshot = new Snapshot();
+    return captureSnapshot().get();
+  }
 
+  @Timed("snapshot_capture")
+  @Override
+  public Supplier<Snapshot> captureSnapshot() {
+    return storage.consistentRead(new Work.Quiet<Supplier<Snapshot>>() {
+      @Override
+      public Supplier<Snapshot> apply(StoreProvider storeProvider) {
         // Capture timestamp to signify the beginning of a snapshot operation, apply after in case
         // one of the field closures is mean and tries to apply a timestamp.
-        long timestamp = clock.nowMillis();
+        final long timestamp = clock.nowMillis();
+        ImmutableList.Builder<Closure<Snapshot>> builder = ImmutableList.builder();
         for (SnapshotField field : SNAPSHOT_FIELDS) {
-          field.saveToSnapshot(storeProvider, snapshot);
+          builder.add(field.capture(storeProvider));
         }
-        snapshot.setTimestamp(timestamp);
-        return snapshot;
+        final List<Closure<Snapshot>> captured = builder.build();
+
+        return new Supplier<Snapshot>() {
+          @Override
+          public Snapshot get() {
+            Snapshot snapshot = new Snapshot();
+            for (Closure<Snapshot> field : captured) {
+              field.execute(snapshot);
+            }
+            if (deduplicateTaskConfigs) {
+              // The snapshot holds its own copies of the tasks, which may be modified.
+              snapshot.setDeduplicatedTasks(
+                  TaskConfigDictionary.deduplicate(snapshot.getTasks()));
+              snapshot.unsetTasks();
+            }
+            snapshot.setTimestamp(timestamp);
+            return snapshot;
+          }
+        };
       }
     });
   }
@@ -285,7 +379,12 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
   }
 
   private interface SnapshotField {
-    void saveToSnapshot(StoreProvider storeProvider, Snapshot snapshot);
+    /**
+     * Captures the state of a store, which should be immutable or a copy of its own.  Copying the
+     * state into a snapshot is deferred to the returned closure, which may be executed once
+     * storage locks are released.
+     */
+    Closure<Snapshot> capture(StoreProvider storeProvider);
 
     void restoreFromSnapshot(MutableStoreProvider storeProvider, Snapshot snapshot);
   }
@@ -0,0 +1,107 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+
+import org.apache.aurora.codec.ThriftBinaryCodec;
+import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.gen.storage.DeduplicatedTasks;
+import org.apache.aurora.gen.storage.StoredTask;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+
+/**
+ * Utility class for storing tasks with their configurations factored out into a dictionary.
+ * <p>
+ * The instances of a job typically share an identical configuration.  Storing each distinct
+ * configuration once, keyed by a hash of its contents, keeps it from being repeated for every
+ * instance.  A dictionary only covers the tasks stored with it, so each may be resolved on its own.
+ */
+final class TaskConfigDictionary {
+
+  private TaskConfigDictionary() {
+    // Utility class.
+  }
+
+  /**
+   * Moves the configurations of tasks into a dictionary.
+   *
+   * @param tasks Tasks to store.  The tasks are modified to clear their configurations, so they
+   *     must not be shared with other callers.
+   * @return The tasks, referencing their configurations in a dictionary.
+   */
+  static DeduplicatedTasks deduplicate(Iterable<ScheduledTask> tasks) {
+    Map<TaskConfig, String> configIds = Maps.newHashMap();
+    DeduplicatedTasks deduplicated = new DeduplicatedTasks()
+        .setTaskConfigs(Maps.<String, TaskConfig>newHashMap())
+        .setTasks(Lists.<StoredTask>newArrayList());
+    for (ScheduledTask task : tasks) {
+      TaskConfig config = task.getAssignedTask().getTask();
+      String configId = configIds.get(config);
+      if (configId == null) {
+        configId = configId(config);
+        configIds.put(config, configId);
+        deduplicated.putToTaskConfigs(configId, config);
+      }
+      task.getAssignedTask().setTask(null);
+      deduplicated.addToTasks(new StoredTask(task, configId));
+    }
+    return deduplicated;
+  }
+
+  /**
+   * Resolves tasks against the dictionary stored with them.
+   *
+   * @param deduplicated Tasks and their configurations.
+   * @return The tasks, with their configurations restored.
+   * @throws IllegalStateException If a task references a configuration missing from the
+   *     dictionary.
+   */
+  static ImmutableSet<IScheduledTask> resolve(DeduplicatedTasks deduplicated) {
+    Map<String, TaskConfig> configs = deduplicated.isSetTaskConfigs()
+        ? deduplicated.getTaskConfigs()
+        : ImmutableMap.<String, TaskConfig>of();
+    ImmutableSet.Builder<IScheduledTask> tasks = ImmutableSet.builder();
+    if (deduplicated.isSetTasks()) {
+      for (StoredTask stored : deduplicated.getTasks()) {
+        TaskConfig config = configs.get(stored.getConfigId());
+        if (config == null) {
+          throw new IllegalStateException("Task " + stored.getTask().getAssignedTask().getTaskId()
+              + " references unknown configuration " + stored.getConfigId());
+        }
+
+        ScheduledTask task = stored.getTask().deepCopy();
+        task.getAssignedTask().setTask(config);
+        tasks.add(IScheduledTask.build(task));
+      }
+    }
+    return tasks.build();
+  }
+
+  private static String configId(TaskConfig config) {
+    try {
+      return Hashing.sha256().hashBytes(ThriftBinaryCodec.encodeNonNull(config)).toString();
+    } catch (CodingException e) {
+      throw new IllegalStateException("Failed to encode task configuration: " + e, e);
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import java.util.List;
+import java.util.Objects;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.TaskEvent;
+import org.apache.aurora.gen.storage.SaveTaskDelta;
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.entities.ITaskEvent;
+
+/**
+ * Utility class for logging task mutations as deltas rather than as full tasks.
+ * <p>
+ * Most task mutations change a task's status and append to its event history, or assign it to a
+ * slave, leaving its configuration untouched.  Logging only the changed fields keeps the
+ * configuration and event history of a task out of the log entry for each mutation.
+ */
+final class TaskDeltas {
+
+  private TaskDeltas() {
+    // Utility class.
+  }
+
+  /**
+   * Computes the delta that transforms a stored task into its mutated form.
+   *
+   * @param before The stored task.
+   * @param after The mutated task.
+   * @return The delta between the two tasks, or absent if the mutation may not be expressed as a
+   *     delta, in which case the full mutated task should be saved.
+   */
+  static Optional<SaveTaskDelta> diff(IScheduledTask before, IScheduledTask after) {
+    if (!before.isSetAssignedTask() || !after.isSetAssignedTask()) {
+      return Optional.absent();
+    }
+    IAssignedTask beforeAssigned = before.getAssignedTask();
+    IAssignedTask afterAssigned = after.getAssignedTask();
+    if (beforeAssigned.getInstanceId() != afterAssigned.getInstanceId()
+        || !Objects.equals(beforeAssigned.getTask(), afterAssigned.getTask())) {
+
+      return Optional.absent();
+    }
+
+    // Events may only be appended, and fields may not be cleared.
+    List<ITaskEvent> beforeEvents = before.getTaskEvents();
+    List<ITaskEvent> afterEvents = after.getTaskEvents();
+    if ((before.isSetTaskEvents() && !after.isSetTaskEvents())
+        || afterEvents.size() < beforeEvents.size()
+        || !afterEvents.subList(0, beforeEvents.size()).equals(beforeEvents)
+        || (before.isSetStatus() && !after.isSetStatus())
+        || (before.isSetAncestorId() && !after.isSetAncestorId())
+        || (beforeAssigned.isSetSlaveId() && !afterAssigned.isSetSlaveId())
+        || (beforeAssigned.isSetSlaveHost() && !afterAssigned.isSetSlaveHost())
+        || (beforeAssigned.isSetAssignedPorts() && !afterAssigned.isSetAssignedPorts())) {
+
+      return Optional.absent();
+    }
+
+    SaveTaskDelta delta = new SaveTaskDelta().setTaskId(Tasks.id(after));
+    if (before.isSetStatus() != after.isSetStatus() || before.getStatus() != after.getStatus()) {
+      delta.setStatus(after.getStatus());
+    }
+    if (before.getFailureCount() != after.getFailureCount()) {
+      delta.setFailureCount(after.getFailureCount());
+    }
+    if (before.isSetAncestorId() != after.isSetAncestorId()
+        || !Objects.equals(before.getAncestorId(), after.getAncestorId())) {
+
+      delta.setAncestorId(after.getAncestorId());
+    }
+    if (beforeAssigned.isSetSlaveId() != afterAssigned.isSetSlaveId()
+        || !Objects.equals(beforeAssigned.getSlaveId(), afterAssigned.getSlaveId())) {
+
+      delta.setSlaveId(afterAssigned.getSlaveId());
+    }
+    if (beforeAssigned.isSetSlaveHost() != afterAssigned.isSetSlaveHost()
+        || !Objects.equals(beforeAssigned.getSlaveHost(), afterAssigned.getSlaveHost())) {
+
+      delta.setSlaveHost(afterAssigned.getSlaveHost());
+    }
+    if (beforeAssigned.isSetAssignedPorts() != afterAssigned.isSetAssignedPorts()
+        || !beforeAssigned.getAssignedPorts().equals(afterAssigned.getAssignedPorts())) {
+
+      delta.setAssignedPorts(Maps.newHashMap(afterAssigned.getAssignedPorts()));
+    }
+    if (before.isSetTaskEvents() != after.isSetTaskEvents()
+        || afterEvents.size() > beforeEvents.size()) {
+
+      delta.setTaskEvents(ITaskEvent.toBuildersList(
+          afterEvents.subList(beforeEvents.size(), afterEvents.size())));
+      delta.setPriorEventCount(beforeEvents.size());
+    }
+
+    // Guard against differences the delta does not capture, such as fields added to tasks later.
+    if (!apply(before, delta).equals(after)) {
+      return Optional.absent();
+    }
+    return Optional.of(delta);
+  }
+
+  /**
+   * Applies a delta to a stored task.  Applying a delta to a task it has already been applied to
+   * leaves the task unchanged, as with the other ops replayed from the log.
+   *
+   * @param task The stored task.
+   * @param delta The delta to apply.
+   * @return The task with the delta applied.
+   */
+  static IScheduledTask apply(IScheduledTask task, SaveTaskDelta delta) {
+    ScheduledTask builder = task.newBuilder();
+    AssignedTask assigned = builder.getAssignedTask();
+    if (delta.isSetStatus()) {
+      builder.setStatus(delta.getStatus());
+    }
+    if (delta.isSetFailureCount()) {
+      builder.setFailureCount(delta.getFailureCount());
+    }
+    if (delta.isSetAncestorId()) {
+      builder.setAncestorId(delta.getAncestorId());
+    }
+    if (delta.isSetSlaveId()) {
+      assigned.setSlaveId(delta.getSlaveId());
+    }
+    if (delta.isSetSlaveHost()) {
+      assigned.setSlaveHost(delta.getSlaveHost());
+    }
+    if (delta.isSetAssignedPorts()) {
+      assigned.setAssignedPorts(Maps.newHashMap(delta.getAssignedPorts()));
+    }
+    if (delta.isSetTaskEvents()) {
+      List<TaskEvent> events = builder.isSetTaskEvents()
+          ? Lists.newArrayList(builder.getTaskEvents())
+          : Lists.<TaskEvent>newArrayList();
+      if (delta.isSetPriorEventCount() && events.size() > delta.getPriorEventCount()) {
+        // The delta was already applied, so its events are replaced rather than appended again.
+        events = Lists.newArrayList(events.subList(0, delta.getPriorEventCount()));
+      }
+      events.addAll(delta.getTaskEvents());
+      builder.setTaskEvents(events);
+    }
+    return IScheduledTask.build(builder);
+  }
+}
@@ -42,6 +42,7 @@ import org.apache.aurora.gen.storage.SaveJobUpdate;
 import org.apache.aurora.gen.storage.SaveJobUpdateEvent;
 import org.apache.aurora.gen.storage.SaveLock;
 import org.apache.aurora.gen.storage.SaveQuota;
+import org.apache.aurora.gen.storage.SaveTaskDelta;
 import org.apache.aurora.gen.storage.SaveTasks;
 import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.Tasks;
@@ -95,6 +96,8 @@ class WriteAheadStorage extends ForwardingStore implements
   private final QuotaStore.Mutable quotaStore;
   private final AttributeStore.Mutable attributeStore;
   private final JobUpdateStore.Mutable jobUpdateStore;
+  private final boolean logTaskDeltas;
+  private final boolean deduplicateTaskConfigs;
 
   /**
    * Creates a new write-ahead storage that delegates to the providing default stores.
@@ -107,6 +110,9 @@ class WriteAheadStorage extends ForwardingStore implements
    * @param quotaStore     Delegate.
    * @param attributeStore Delegate.
    * @param jobUpdateStore Delegate.
+   * @param logTaskDeltas Whether to log task mutations as deltas where possible.
+   * @param deduplicateTaskConfigs Whether to log saved tasks with a dictionary of their
+   *     configurations.
    */
   WriteAheadStorage(
       TransactionManager transactionManager,
@@ -116,7 +122,9 @@ class WriteAheadStorage extends ForwardingStore implements
       LockStore.Mutable lockStore,
       QuotaStore.Mutable quotaStore,
       AttributeStore.Mutable attributeStore,
-      JobUpdateStore.Mutable jobUpdateStore) {
+      JobUpdateStore.Mutable jobUpdateStore,
+      boolean logTaskDeltas,
+      boolean deduplicateTaskConfigs) {
 
     super(
         schedulerStore,
@@ -135,6 +143,8 @@ class WriteAheadStorage extends ForwardingStore implements
     this.quotaStore = requireNonNull(quotaStore);
     this.attributeStore = requireNonNull(attributeStore);
     this.jobUpdateStore = requireNonNull(jobUpdateStore);
+    this.logTaskDeltas = logTaskDeltas;
+    this.deduplicateTaskConfigs = deduplicateTaskConfigs;
   }
 
   private void write(Op op) {
@@ -144,6 +154,14 @@ class WriteAheadStorage extends ForwardingStore implements
     transactionManager.log(op);
   }
 
+  private Op saveTasksOp(Set<IScheduledTask> tasks) {
+    if (deduplicateTaskConfigs) {
+      return Op.saveDeduplicatedTasks(
+          TaskConfigDictionary.deduplicate(IScheduledTask.toBuildersList(tasks)));
+    }
+    return Op.saveTasks(new SaveTasks(IScheduledTask.toBuildersSet(tasks)));
+  }
+
   @Timed("scheduler_log_save_framework_id")
   @Override
   public void saveFrameworkId(final String frameworkId) {
@@ -180,7 +198,7 @@ class WriteAheadStorage extends ForwardingStore implements
   public void saveTasks(final Set<IScheduledTask> newTasks) {
     requireNonNull(newTasks);
 
-    write(Op.saveTasks(new SaveTasks(IScheduledTask.toBuildersSet(newTasks))));
+    write(saveTasksOp(newTasks));
     taskStore.saveTasks(newTasks);
   }
 
@@ -193,6 +211,10 @@ class WriteAheadStorage extends ForwardingStore implements
     requireNonNull(query);
     requireNonNull(mutator);
 
+    if (logTaskDeltas) {
+      return mutateTasksWithDeltas(query, mutator);
+    }
+
     ImmutableSet<IScheduledTask> mutated = taskStore.mutateTasks(query, mutator);
 
     Map<String, IScheduledTask> tasksById = Tasks.mapById(mutated);
@@ -202,7 +224,44 @@ class WriteAheadStorage extends ForwardingStore implements
     }
 
     // TODO(William Farner): Avoid writing an op when mutated is empty.
-    write(Op.saveTasks(new SaveTasks(IScheduledTask.toBuildersSet(mutated))));
+    write(saveTasksOp(mutated));
+    return mutated;
+  }
+
+  private ImmutableSet<IScheduledTask> mutateTasksWithDeltas(
+      Query.Builder query,
+      final Function<IScheduledTask, IScheduledTask> mutator) {
+
+    // Capture the stored tasks handed to the mutator, to compute deltas against.
+    final Map<String, IScheduledTask> originals = Maps.newHashMap();
+    ImmutableSet<IScheduledTask> mutated = taskStore.mutateTasks(
+        query,
+        new Function<IScheduledTask, IScheduledTask>() {
+          @Override
+          public IScheduledTask apply(IScheduledTask task) {
+            originals.put(Tasks.id(task), task);
+            return mutator.apply(task);
+          }
+        });
+
+    if (LOG.isLoggable(Level.FINE)) {
+      LOG.fine("Storing updated tasks to log: "
+          + Maps.transformValues(Tasks.mapById(mutated), Tasks.GET_STATUS));
+    }
+
+    ImmutableSet.Builder<IScheduledTask> fullTasks = ImmutableSet.builder();
+    for (IScheduledTask task : mutated) {
+      Optional<SaveTaskDelta> delta = TaskDeltas.diff(originals.get(Tasks.id(task)), task);
+      if (delta.isPresent()) {
+        write(Op.saveTaskDelta(delta.get()));
+      } else {
+        fullTasks.add(task);
+      }
+    }
+    Set<IScheduledTask> toSave = fullTasks.build();
+    if (!toSave.isEmpty()) {
+      write(saveTasksOp(toSave));
+    }
     return mutated;
   }
 
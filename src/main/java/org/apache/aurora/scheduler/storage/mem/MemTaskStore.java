@@ -13,13 +13,22 @@
  */
 package org.apache.aurora.scheduler.storage.mem;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.inject.Inject;
+
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Optional;
@@ -27,21 +36,24 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.FluentIterable;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 import com.twitter.common.args.Arg;
 import com.twitter.common.args.CmdLine;
+import com.twitter.common.args.constraints.Positive;
 import com.twitter.common.base.MorePreconditions;
+import com.twitter.common.collections.Pair;
 import com.twitter.common.inject.TimedInterceptor.Timed;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Time;
 import com.twitter.common.stats.Stats;
 
+import org.apache.aurora.gen.ScheduleStatus;
 import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.gen.TaskConfig;
 import org.apache.aurora.gen.TaskQuery;
@@ -70,6 +82,12 @@ class MemTaskStore implements TaskStore.Mutable {
 
   private final long slowQueryThresholdNanos = SLOW_QUERY_LOG_THRESHOLD.get().as(Time.NANOSECONDS);
 
+  @CmdLine(name = "task_tombstone_window",
+      help = "Number of task deletions retained to serve task change queries.  Clients that fall "
+          + "further behind receive a snapshot of all matching tasks.")
+  @Positive
+  private static final Arg<Integer> TOMBSTONE_WINDOW = Arg.create(10000);
+
   private static final Function<Query.Builder, Optional<Set<IJobKey>>> QUERY_TO_JOB_KEY =
       new Function<Query.Builder, Optional<Set<IJobKey>>>() {
         @Override
@@ -84,6 +102,59 @@ class MemTaskStore implements TaskStore.Mutable {
           return Optional.fromNullable(query.get().getSlaveHosts());
         }
       };
+  private static final Function<Query.Builder, Optional<Set<ScheduleStatus>>> QUERY_TO_STATUS =
+      new Function<Query.Builder, Optional<Set<ScheduleStatus>>>() {
+        @Override
+        public Optional<Set<ScheduleStatus>> apply(Query.Builder query) {
+          TaskQuery taskQuery = query.get();
+          return taskQuery.getStatusesSize() > 0
+              ? Optional.of(taskQuery.getStatuses())
+              : Optional.<Set<ScheduleStatus>>absent();
+        }
+      };
+  private static final Function<Query.Builder, Optional<Set<String>>> QUERY_TO_ROLE =
+      new Function<Query.Builder, Optional<Set<String>>>() {
+        @Override
+        public Optional<Set<String>> apply(Query.Builder query) {
+          TaskQuery taskQuery = query.get();
+          return hasRole(taskQuery)
+              ? Optional.<Set<String>>of(ImmutableSet.of(taskQuery.getOwner().getRole()))
+              : Optional.<Set<String>>absent();
+        }
+      };
+  private static final Function<Query.Builder, Optional<Set<Pair<String, String>>>>
+      QUERY_TO_ROLE_ENV = new Function<Query.Builder, Optional<Set<Pair<String, String>>>>() {
+        @Override
+        public Optional<Set<Pair<String, String>>> apply(Query.Builder query) {
+          TaskQuery taskQuery = query.get();
+          if (hasRole(taskQuery) && taskQuery.getEnvironment() != null) {
+            return Optional.<Set<Pair<String, String>>>of(ImmutableSet.of(
+                Pair.of(taskQuery.getOwner().getRole(), taskQuery.getEnvironment())));
+          } else {
+            return Optional.absent();
+          }
+        }
+      };
+
+  private static boolean hasRole(TaskQuery query) {
+    return query.getOwner() != null && !StringUtils.isBlank(query.getOwner().getRole());
+  }
+
+  private static final Function<IScheduledTask, String> SCHEDULED_TO_ROLE =
+      new Function<IScheduledTask, String>() {
+        @Override
+        public String apply(IScheduledTask task) {
+          return task.getAssignedTask().getTask().getOwner().getRole();
+        }
+      };
+  private static final Function<IScheduledTask, Pair<String, String>> SCHEDULED_TO_ROLE_ENV =
+      new Function<IScheduledTask, Pair<String, String>>() {
+        @Override
+        public Pair<String, String> apply(IScheduledTask task) {
+          ITaskConfig config = task.getAssignedTask().getTask();
+          return Pair.of(config.getOwner().getRole(), config.getEnvironment());
+        }
+      };
 
   // Since this class operates under the API and umbrella of {@link Storage}, it is expected to be
   // thread-safe but not necessarily strongly-consistent unless the externally-controlled storage
@@ -103,7 +174,19 @@ class MemTaskStore implements TaskStore.Mutable {
       new SecondaryIndex<>(
           Tasks.SCHEDULED_TO_SLAVE_HOST,
           QUERY_TO_SLAVE_HOST,
-          Stats.exportLong("task_queries_by_host")));
+          Stats.exportLong("task_queries_by_host")),
+      new SecondaryIndex<>(
+          SCHEDULED_TO_ROLE_ENV,
+          QUERY_TO_ROLE_ENV,
+          Stats.exportLong("task_queries_by_role_env")),
+      new SecondaryIndex<>(
+          SCHEDULED_TO_ROLE,
+          QUERY_TO_ROLE,
+          Stats.exportLong("task_queries_by_role")),
+      new SecondaryIndex<>(
+          Tasks.GET_STATUS,
+          QUERY_TO_STATUS,
+          Stats.exportLong("task_queries_by_status")));
 
   // An interner is used here to collapse equivalent TaskConfig instances into canonical instances.
   // Ideally this would fall out of the object hierarchy (TaskConfig being associated with the job
@@ -112,6 +195,34 @@ class MemTaskStore implements TaskStore.Mutable {
 
   private final AtomicLong taskQueriesById = Stats.exportLong("task_queries_by_id");
   private final AtomicLong taskQueriesAll = Stats.exportLong("task_queries_all");
+  private final AtomicLong taskQueriesIntersected = Stats.exportLong("task_queries_intersected");
+  private final AtomicLong taskChangeSnapshots = Stats.exportLong("task_change_snapshots");
+
+  // Every save and deletion of a task is assigned the next sequence number.  The sequence starts
+  // from the wall clock, in microseconds, so that sequence numbers issued by a previous scheduler
+  // process precede this store's retained changes and are answered with a snapshot.
+  private final AtomicLong sequence =
+      new AtomicLong(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+
+  // Sequence numbers of the latest save of each stored task, and of retained deletions.  Changes
+  // at or before retainedAfter may have been discarded.
+  private final ConcurrentSkipListMap<Long, String> changes = new ConcurrentSkipListMap<>();
+  private final ConcurrentSkipListMap<Long, IScheduledTask> tombstones =
+      new ConcurrentSkipListMap<>();
+  private final AtomicInteger tombstoneCount = new AtomicInteger();
+  private final int tombstoneWindow;
+  private volatile long retainedAfter = sequence.get();
+
+  @Inject
+  MemTaskStore() {
+    this(TOMBSTONE_WINDOW.get());
+  }
+
+  @VisibleForTesting
+  MemTaskStore(int tombstoneWindow) {
+    Preconditions.checkArgument(tombstoneWindow > 0);
+    this.tombstoneWindow = tombstoneWindow;
+  }
 
   @Timed("mem_storage_fetch_tasks")
   @Override
@@ -119,7 +230,11 @@ class MemTaskStore implements TaskStore.Mutable {
     requireNonNull(query);
 
     long start = System.nanoTime();
-    ImmutableSet<IScheduledTask> result = matches(query).transform(TO_SCHEDULED).toSet();
+    FluentIterable<Task> matches = matches(query);
+    if (Query.isPaged(query)) {
+      matches = page(query.get(), matches);
+    }
+    ImmutableSet<IScheduledTask> result = matches.transform(TO_SCHEDULED).toSet();
     long durationNanos = System.nanoTime() - start;
     Level level = durationNanos >= slowQueryThresholdNanos ? Level.INFO : Level.FINE;
     if (LOG.isLoggable(level)) {
@@ -130,13 +245,58 @@ class MemTaskStore implements TaskStore.Mutable {
     return result;
   }
 
-  private final Function<IScheduledTask, Task> toTask =
-      new Function<IScheduledTask, Task>() {
-        @Override
-        public Task apply(IScheduledTask task) {
-          return new Task(task, configInterner);
-        }
-      };
+  @Timed("mem_storage_fetch_task_changes")
+  @Override
+  public Changes fetchTaskChanges(Query.Builder query, long since) {
+    requireNonNull(query);
+
+    // Read the sequence first, so that changes racing with this call are fetched again later.
+    long current = sequence.get();
+    if (since < retainedAfter || since > current) {
+      taskChangeSnapshots.incrementAndGet();
+      return new Changes(
+          current,
+          true,
+          matches(query).transform(TO_SCHEDULED),
+          ImmutableSet.<String>of());
+    }
+
+    final Predicate<IScheduledTask> filter = queryFilter(query.get());
+    Iterable<IScheduledTask> changed = FluentIterable
+        .from(fromIdIndex(changes.tailMap(since, false).values()))
+        .transform(TO_SCHEDULED)
+        .filter(filter);
+    Iterable<String> deleted = FluentIterable.from(tombstones.tailMap(since, false).values())
+        .filter(new Predicate<IScheduledTask>() {
+          @Override
+          public boolean apply(IScheduledTask task) {
+            // A task may have been saved again after it was deleted.
+            return filter.apply(task) && !tasks.containsKey(Tasks.id(task));
+          }
+        })
+        .transform(Tasks.SCHEDULED_TO_ID);
+    return new Changes(current, false, changed, deleted);
+  }
+
+  private Task toTask(IScheduledTask task) {
+    return new Task(task, configInterner, sequence.incrementAndGet());
+  }
+
+  private void recordSave(Task saved, Task replaced) {
+    changes.put(saved.sequence, Tasks.id(saved.storedTask));
+    if (replaced != null) {
+      changes.remove(replaced.sequence);
+    }
+  }
+
+  private void recordDelete(Task removed) {
+    changes.remove(removed.sequence);
+    tombstones.put(sequence.incrementAndGet(), removed.storedTask);
+    if (tombstoneCount.incrementAndGet() > tombstoneWindow) {
+      retainedAfter = tombstones.pollFirstEntry().getKey();
+      tombstoneCount.decrementAndGet();
+    }
+  }
 
   @Timed("mem_storage_save_tasks")
   @Override
@@ -145,10 +305,17 @@ class MemTaskStore implements TaskStore.Mutable {
     Preconditions.checkState(Tasks.ids(newTasks).size() == newTasks.size(),
         "Proposed new tasks would create task ID collision.");
 
-    Iterable<Task> canonicalized = Iterables.transform(newTasks, toTask);
-    tasks.putAll(Maps.uniqueIndex(canonicalized, TO_ID));
-    for (SecondaryIndex<?> index : secondaryIndices) {
-      index.insert(Iterables.transform(canonicalized, TO_SCHEDULED));
+    for (IScheduledTask task : newTasks) {
+      Task canonical = toTask(task);
+      Task replaced = tasks.put(Tasks.id(task), canonical);
+      recordSave(canonical, replaced);
+      for (SecondaryIndex<?> index : secondaryIndices) {
+        if (replaced == null) {
+          index.insert(canonical.storedTask);
+        } else {
+          index.replace(replaced.storedTask, canonical.storedTask);
+        }
+      }
     }
   }
 
@@ -156,6 +323,11 @@ class MemTaskStore implements TaskStore.Mutable {
   @Override
   public void deleteAllTasks() {
     tasks.clear();
+    // Deletions are not retained individually, so all earlier sequence numbers need a snapshot.
+    changes.clear();
+    tombstones.clear();
+    tombstoneCount.set(0);
+    retainedAfter = sequence.incrementAndGet();
     for (SecondaryIndex<?> index : secondaryIndices) {
       index.clear();
     }
@@ -176,6 +348,7 @@ class MemTaskStore implements TaskStore.Mutable {
         configInterner.removeAssociation(
             removed.storedTask.getAssignedTask().getTask().newBuilder(),
             id);
+        recordDelete(removed);
       }
     }
   }
@@ -196,7 +369,9 @@ class MemTaskStore implements TaskStore.Mutable {
         Preconditions.checkState(
             Tasks.id(original.storedTask).equals(Tasks.id(maybeMutated)),
             "A task's ID may not be mutated.");
-        tasks.put(Tasks.id(maybeMutated), toTask.apply(maybeMutated));
+        Task canonical = toTask(maybeMutated);
+        tasks.put(Tasks.id(maybeMutated), canonical);
+        recordSave(canonical, original);
         for (SecondaryIndex<?> index : secondaryIndices) {
           index.replace(original.storedTask, maybeMutated);
         }
@@ -220,16 +395,17 @@ class MemTaskStore implements TaskStore.Mutable {
     } else {
       ScheduledTask updated = stored.storedTask.newBuilder();
       updated.getAssignedTask().setTask(taskConfiguration.newBuilder());
-      tasks.put(taskId, toTask.apply(IScheduledTask.build(updated)));
+      Task canonical = toTask(IScheduledTask.build(updated));
+      tasks.put(taskId, canonical);
+      recordSave(canonical, stored);
       return true;
     }
   }
 
-  private static Predicate<Task> queryFilter(final TaskQuery query) {
-    return new Predicate<Task>() {
+  private static Predicate<IScheduledTask> queryFilter(final TaskQuery query) {
+    return new Predicate<IScheduledTask>() {
       @Override
-      public boolean apply(Task canonicalTask) {
-        IScheduledTask task = canonicalTask.storedTask;
+      public boolean apply(IScheduledTask task) {
         ITaskConfig config = task.getAssignedTask().getTask();
         if (query.getOwner() != null) {
           if (!StringUtils.isBlank(query.getOwner().getRole())
@@ -288,25 +464,111 @@ class MemTaskStore implements TaskStore.Mutable {
       taskQueriesById.incrementAndGet();
       from = Optional.of(fromIdIndex(query.get().getTaskIds()));
     } else {
-      for (SecondaryIndex<?> index : secondaryIndices) {
-        Optional<Iterable<String>> indexMatch = index.getMatches(query);
-        if (indexMatch.isPresent()) {
-          // Note: we could leverage multiple indexes here if the query applies to them, by
-          // choosing to intersect the results.  Given current indexes and query profile, this is
-          // unlikely to offer much improvement, though.
-          from = Optional.of(fromIdIndex(indexMatch.get()));
-          break;
-        }
+      Optional<Iterable<String>> indexMatch = planIndexLookup(query);
+      if (indexMatch.isPresent()) {
+        from = Optional.of(fromIdIndex(indexMatch.get()));
       }
 
-      // No indices match, fall back to a full scan.
+      // No indices match, or they are not selective enough; fall back to a full scan.
       if (!from.isPresent()) {
         taskQueriesAll.incrementAndGet();
         from = Optional.of(tasks.values());
       }
     }
 
-    return FluentIterable.from(from.get()).filter(queryFilter(query.get()));
+    return FluentIterable.from(from.get())
+        .filter(Predicates.compose(queryFilter(query.get()), TO_SCHEDULED));
+  }
+
+  private static final Ordering<Task> BY_ID = Ordering.natural().onResultOf(
+      new Function<Task, String>() {
+        @Override
+        public String apply(Task task) {
+          return Tasks.id(task.storedTask);
+        }
+      });
+
+  /**
+   * Selects the page of matching tasks requested by a paged query, in task ID order.  When the
+   * query is limited, only the tasks up to the end of the page are ordered, rather than all
+   * matching tasks.
+   *
+   * @param query Paged query.
+   * @param matches Tasks matching the query.
+   * @return The requested page of tasks.
+   */
+  private static FluentIterable<Task> page(TaskQuery query, FluentIterable<Task> matches) {
+    if (query.isSetCursor()) {
+      final String cursor = query.getCursor();
+      matches = matches.filter(new Predicate<Task>() {
+        @Override
+        public boolean apply(Task task) {
+          return Tasks.id(task.storedTask).compareTo(cursor) > 0;
+        }
+      });
+    }
+
+    int offset = query.isSetOffset() ? query.getOffset() : 0;
+    List<Task> ordered = query.isSetLimit()
+        ? BY_ID.leastOf(matches, Ints.saturatedCast((long) offset + query.getLimit()))
+        : BY_ID.sortedCopy(matches);
+    return FluentIterable.from(ordered).skip(offset);
+  }
+
+  private static final Ordering<SecondaryIndex<?>.Match> BY_ESTIMATED_SIZE =
+      new Ordering<SecondaryIndex<?>.Match>() {
+        @Override
+        public int compare(SecondaryIndex<?>.Match left, SecondaryIndex<?>.Match right) {
+          return Long.compare(left.estimatedSize, right.estimatedSize);
+        }
+      };
+
+  /**
+   * Chooses the secondary indices to satisfy a query with.  The index with the smallest estimated
+   * result size drives the lookup, and its results are intersected with any other applicable
+   * indices.  If no index applies, or the best index is estimated to yield at least as many
+   * results as a full scan, no index is used.
+   *
+   * @param query Query to plan.
+   * @return IDs of candidate tasks for the query, or absent if a full scan should be performed.
+   */
+  private Optional<Iterable<String>> planIndexLookup(Query.Builder query) {
+    List<SecondaryIndex<?>.Match> candidates = Lists.newArrayList();
+    for (SecondaryIndex<?> index : secondaryIndices) {
+      Optional<? extends SecondaryIndex<?>.Match> match = index.getMatch(query);
+      if (match.isPresent()) {
+        candidates.add(match.get());
+      }
+    }
+
+    if (candidates.isEmpty()) {
+      return Optional.absent();
+    }
+
+    // Sorting is stable, so ties are broken by the declaration order of the indices.
+    Collections.sort(candidates, BY_ESTIMATED_SIZE);
+    SecondaryIndex<?>.Match driver = candidates.get(0);
+    if (driver.estimatedSize >= tasks.size()) {
+      return Optional.absent();
+    }
+
+    Iterable<String> ids = driver.lookup();
+    final List<SecondaryIndex<?>.Match> filters = candidates.subList(1, candidates.size());
+    if (!filters.isEmpty()) {
+      taskQueriesIntersected.incrementAndGet();
+      ids = FluentIterable.from(ids).filter(new Predicate<String>() {
+        @Override
+        public boolean apply(String taskId) {
+          for (SecondaryIndex<?>.Match filter : filters) {
+            if (!filter.contains(taskId)) {
+              return false;
+            }
+          }
+          return true;
+        }
+      }).toList();
+    }
+    return Optional.of(ids);
   }
 
   private static final Function<Task, IScheduledTask> TO_SCHEDULED =
@@ -317,13 +579,11 @@ class MemTaskStore implements TaskStore.Mutable {
         }
       };
 
-  private static final Function<Task, String> TO_ID =
-      Functions.compose(Tasks.SCHEDULED_TO_ID, TO_SCHEDULED);
-
   private static class Task {
     private final IScheduledTask storedTask;
+    private final long sequence;
 
-    Task(IScheduledTask storedTask, Interner<TaskConfig, String> interner) {
+    Task(IScheduledTask storedTask, Interner<TaskConfig, String> interner, long sequence) {
       interner.removeAssociation(
           storedTask.getAssignedTask().getTask().newBuilder(),
           Tasks.id(storedTask));
@@ -333,6 +593,7 @@ class MemTaskStore implements TaskStore.Mutable {
       ScheduledTask builder = storedTask.newBuilder();
       builder.getAssignedTask().setTask(canonical);
       this.storedTask = IScheduledTask.build(builder);
+      this.sequence = sequence;
     }
 
     @Override
@@ -353,12 +614,15 @@ class MemTaskStore implements TaskStore.Mutable {
 
   /**
    * A non-unique secondary index on the task store.  Maps a custom key type to a set of task IDs.
+   * <p>
+   * Reads never block: keys map to concurrent sets of task IDs, so lookups proceed while the
+   * index is being mutated.  Readers may observe a mutation partially applied across keys, which
+   * is consistent with the relaxed guarantees of the task store as a whole.
    *
    * @param <K> Key type.
    */
   private static class SecondaryIndex<K> {
-    private final Multimap<K, String> index =
-        Multimaps.synchronizedSetMultimap(HashMultimap.<K, String>create());
+    private final ConcurrentMap<K, Set<String>> index = Maps.newConcurrentMap();
     private final Function<IScheduledTask, K> indexer;
     private final Function<Query.Builder, Optional<Set<K>>> queryExtractor;
     private final AtomicLong hitCount;
@@ -380,16 +644,30 @@ class MemTaskStore implements TaskStore.Mutable {
       this.hitCount = hitCount;
     }
 
-    void insert(Iterable<IScheduledTask> tasks) {
-      for (IScheduledTask task : tasks) {
-        insert(task);
-      }
-    }
-
     void insert(IScheduledTask task) {
       K key = indexer.apply(task);
       if (key != null) {
-        index.put(key, Tasks.id(task));
+        insert(key, Tasks.id(task));
+      }
+    }
+
+    private void insert(K key, String taskId) {
+      while (true) {
+        Set<String> ids = index.get(key);
+        if (ids == null) {
+          Set<String> created = Sets.newSetFromMap(Maps.<String, Boolean>newConcurrentMap());
+          ids = index.putIfAbsent(key, created);
+          if (ids == null) {
+            ids = created;
+          }
+        }
+        ids.add(taskId);
+
+        // The set may have been pruned while empty, in which case this insert must be retried
+        // against the set that replaced it.
+        if (index.get(key) == ids) {
+          return;
+        }
       }
     }
 
@@ -400,34 +678,78 @@ class MemTaskStore implements TaskStore.Mutable {
     void remove(IScheduledTask task) {
       K key = indexer.apply(task);
       if (key != null) {
-        index.remove(key, task);
+        Set<String> ids = index.get(key);
+        if (ids != null) {
+          ids.remove(Tasks.id(task));
+          if (ids.isEmpty() && index.remove(key, ids)) {
+            // Restore any IDs that raced into the set after it was observed to be empty.
+            for (String raced : ids) {
+              insert(key, raced);
+            }
+          }
+        }
       }
     }
 
     void replace(IScheduledTask old, IScheduledTask replacement) {
-      synchronized (index) {
-        remove(old);
+      K oldKey = indexer.apply(old);
+      K newKey = indexer.apply(replacement);
+      if (!Objects.equals(oldKey, newKey)) {
+        // Insert before removing so that concurrent readers do not transiently miss the task.
         insert(replacement);
+        remove(old);
       }
     }
 
-    private final Function<Set<K>, Iterable<String>> lookup =
-        new Function<Set<K>, Iterable<String>>() {
-          @Override
-          public Iterable<String> apply(Set<K> keys) {
-            hitCount.incrementAndGet();
-            ImmutableSet.Builder<String> builder = ImmutableSet.builder();
-            synchronized (index) {
-              for (K key : keys) {
-                builder.addAll(index.get(key));
-              }
-            }
-            return builder.build();
+    Optional<Match> getMatch(Query.Builder query) {
+      Optional<Set<K>> keys = queryExtractor.apply(query);
+      if (keys.isPresent()) {
+        return Optional.of(new Match(keys.get()));
+      } else {
+        return Optional.absent();
+      }
+    }
+
+    /**
+     * An application of this index to the keys relevant to a query.
+     */
+    class Match {
+      private final Set<K> keys;
+      private final long estimatedSize;
+
+      Match(Set<K> keys) {
+        this.keys = keys;
+        long size = 0;
+        for (K key : keys) {
+          Set<String> ids = index.get(key);
+          if (ids != null) {
+            size += ids.size();
           }
-    };
+        }
+        this.estimatedSize = size;
+      }
 
-    Optional<Iterable<String>> getMatches(Query.Builder query) {
-      return queryExtractor.apply(query).transform(lookup);
+      Iterable<String> lookup() {
+        hitCount.incrementAndGet();
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (K key : keys) {
+          Set<String> ids = index.get(key);
+          if (ids != null) {
+            builder.addAll(ids);
+          }
+        }
+        return builder.build();
+      }
+
+      boolean contains(String taskId) {
+        for (K key : keys) {
+          Set<String> ids = index.get(key);
+          if (ids != null && ids.contains(taskId)) {
+            return true;
+          }
+        }
+        return false;
+      }
     }
   }
 }
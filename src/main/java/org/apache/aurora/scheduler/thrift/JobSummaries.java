@@ -0,0 +1,190 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.thrift;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.collect.EnumMultiset;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.SetMultimap;
+import com.google.common.eventbus.Subscribe;
+import com.twitter.common.args.Arg;
+import com.twitter.common.args.CmdLine;
+
+import org.apache.aurora.gen.JobSummary;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.scheduler.base.Jobs;
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
+
+/**
+ * Per-job task counts and configurations, maintained incrementally from task events.  This allows
+ * role and job summaries to be served in time proportional to the number of roles or jobs, without
+ * fetching the tasks of every job.
+ * <p>
+ * Only the number of tasks in each status and a single task configuration are kept for each job.
+ * The configuration is that of the task with the most recent event, preferring active tasks, so
+ * that it follows a job through an update.  Summaries are updated as task events are delivered,
+ * and may briefly lag behind the task store.
+ */
+class JobSummaries implements EventSubscriber {
+
+  @CmdLine(name = "materialize_job_summaries",
+      help = "Serve role and job summaries from per-job task counts maintained from task events, "
+          + "rather than fetching the tasks of every job for each request.")
+  private static final Arg<Boolean> MATERIALIZE = Arg.create(false);
+
+  private final boolean enabled;
+  private final Map<IJobKey, JobTasks> jobs = Maps.newHashMap();
+  private final SetMultimap<String, IJobKey> jobsByRole = HashMultimap.create();
+
+  @Inject
+  JobSummaries() {
+    this(MATERIALIZE.get());
+  }
+
+  @VisibleForTesting
+  JobSummaries(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Checks whether summaries are maintained, and should be used to serve summary requests.
+   *
+   * @return {@code true} if summaries are maintained.
+   */
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Gets the number of jobs with tasks in each role.
+   *
+   * @return Job counts, by role.
+   */
+  synchronized Multiset<String> getJobCounts() {
+    ImmutableMultiset.Builder<String> counts = ImmutableMultiset.builder();
+    for (Map.Entry<String, Collection<IJobKey>> entry : jobsByRole.asMap().entrySet()) {
+      counts.addCopies(entry.getKey(), entry.getValue().size());
+    }
+    return counts.build();
+  }
+
+  /**
+   * Gets summaries of the jobs with tasks.  Job configurations are synthesized from the task
+   * configuration kept for each job.
+   *
+   * @param role Role to get summaries for, or absent to get summaries of all jobs.
+   * @return Newly-built summaries, by job.
+   */
+  synchronized Map<IJobKey, JobSummary> getSummaries(Optional<String> role) {
+    Iterable<IJobKey> jobKeys = role.isPresent() ? jobsByRole.get(role.get()) : jobs.keySet();
+    Map<IJobKey, JobSummary> summaries = Maps.newHashMap();
+    for (IJobKey jobKey : jobKeys) {
+      summaries.put(jobKey, jobs.get(jobKey).summarize(jobKey));
+    }
+    return summaries;
+  }
+
+  /**
+   * Records that the configuration of an active task was rewritten in place.  Config rewrites
+   * modify tasks without posting task events, so the summary of the task's job must be refreshed
+   * explicitly.
+   *
+   * @param jobKey Job of the rewritten task.
+   * @param rewritten The new configuration of the active task that was rewritten.
+   */
+  synchronized void taskConfigRewritten(IJobKey jobKey, ITaskConfig rewritten) {
+    JobTasks jobTasks = jobs.get(jobKey);
+    if (jobTasks != null) {
+      jobTasks.config = rewritten;
+      jobTasks.configActive = true;
+    }
+  }
+
+  @Subscribe
+  public synchronized void taskChangedState(TaskStateChange change) {
+    if (!enabled) {
+      return;
+    }
+
+    IScheduledTask task = change.getTask();
+    IJobKey jobKey = Tasks.SCHEDULED_TO_JOB_KEY.apply(task);
+    JobTasks jobTasks = jobs.get(jobKey);
+    if (jobTasks == null) {
+      jobTasks = new JobTasks();
+      jobs.put(jobKey, jobTasks);
+      jobsByRole.put(jobKey.getRole(), jobKey);
+    }
+    if (change.isTransition()) {
+      // A task is counted under its status before the transition.  A new task transitions from
+      // INIT, which is never counted.
+      jobTasks.statuses.remove(change.getOldState().get());
+    }
+    jobTasks.add(task);
+  }
+
+  @Subscribe
+  public synchronized void tasksDeleted(TasksDeleted deleted) {
+    if (!enabled) {
+      return;
+    }
+
+    for (IScheduledTask task : deleted.getTasks()) {
+      IJobKey jobKey = Tasks.SCHEDULED_TO_JOB_KEY.apply(task);
+      JobTasks jobTasks = jobs.get(jobKey);
+      if (jobTasks != null) {
+        jobTasks.statuses.remove(Jobs.getStatsStatus(task));
+        if (jobTasks.statuses.isEmpty()) {
+          jobs.remove(jobKey);
+          jobsByRole.remove(jobKey.getRole(), jobKey);
+        }
+      }
+    }
+  }
+
+  private static class JobTasks {
+    private final Multiset<ScheduleStatus> statuses = EnumMultiset.create(ScheduleStatus.class);
+    private ITaskConfig config;
+    private boolean configActive;
+
+    void add(IScheduledTask task) {
+      statuses.add(Jobs.getStatsStatus(task));
+      boolean active = Tasks.isActive(task.getStatus());
+      if (active || !configActive) {
+        config = task.getAssignedTask().getTask();
+        configActive = active;
+      }
+    }
+
+    JobSummary summarize(IJobKey jobKey) {
+      return new JobSummary()
+          .setJob(Jobs.synthesizeJob(jobKey, config, statuses.size()).newBuilder())
+          .setStats(Jobs.getJobStats(statuses).newBuilder());
+    }
+  }
+}
@@ -42,6 +42,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
 
@@ -64,6 +65,7 @@ import org.apache.aurora.gen.GetJobsResult;
 import org.apache.aurora.gen.GetLocksResult;
 import org.apache.aurora.gen.GetPendingReasonResult;
 import org.apache.aurora.gen.GetQuotaResult;
+import org.apache.aurora.gen.GetTasksChangedSinceResult;
 import org.apache.aurora.gen.Hosts;
 import org.apache.aurora.gen.InstanceConfigRewrite;
 import org.apache.aurora.gen.InstanceKey;
@@ -71,6 +73,7 @@ import org.apache.aurora.gen.InstanceTaskConfig;
 import org.apache.aurora.gen.JobConfigRewrite;
 import org.apache.aurora.gen.JobConfiguration;
 import org.apache.aurora.gen.JobKey;
+import org.apache.aurora.gen.JobStats;
 import org.apache.aurora.gen.JobSummary;
 import org.apache.aurora.gen.JobSummaryResult;
 import org.apache.aurora.gen.JobUpdate;
@@ -99,7 +102,6 @@ import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.gen.SessionKey;
 import org.apache.aurora.gen.StartJobUpdateResult;
 import org.apache.aurora.gen.StartMaintenanceResult;
-import org.apache.aurora.gen.TaskConfig;
 import org.apache.aurora.gen.TaskQuery;
 import org.apache.aurora.scheduler.base.JobKeys;
 import org.apache.aurora.scheduler.base.Jobs;
@@ -132,6 +134,7 @@ import org.apache.aurora.scheduler.storage.Storage.MutateWork;
 import org.apache.aurora.scheduler.storage.Storage.NonVolatileStorage;
 import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
 import org.apache.aurora.scheduler.storage.Storage.Work;
+import org.apache.aurora.scheduler.storage.TaskStore;
 import org.apache.aurora.scheduler.storage.backup.Recovery;
 import org.apache.aurora.scheduler.storage.backup.Recovery.RecoveryException;
 import org.apache.aurora.scheduler.storage.backup.StorageBackup;
@@ -206,6 +209,7 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
   private final TaskLimitValidator taskLimitValidator;
   private final UUIDGenerator uuidGenerator;
   private final JobUpdateController jobUpdateController;
+  private final JobSummaries jobSummaries;
 
   @Inject
   SchedulerThriftInterface(
@@ -222,7 +226,8 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
       StateManager stateManager,
       TaskLimitValidator taskLimitValidator,
       UUIDGenerator uuidGenerator,
-      JobUpdateController jobUpdateController) {
+      JobUpdateController jobUpdateController,
+      JobSummaries jobSummaries) {
 
     this(storage,
         lockManager,
@@ -237,7 +242,8 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
         stateManager,
         taskLimitValidator,
         uuidGenerator,
-        jobUpdateController);
+        jobUpdateController,
+        jobSummaries);
   }
 
   @VisibleForTesting
@@ -255,7 +261,8 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
       StateManager stateManager,
       TaskLimitValidator taskLimitValidator,
       UUIDGenerator uuidGenerator,
-      JobUpdateController jobUpdateController) {
+      JobUpdateController jobUpdateController,
+      JobSummaries jobSummaries) {
 
     this.storage = requireNonNull(storage);
     this.lockManager = requireNonNull(lockManager);
@@ -271,6 +278,7 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
     this.taskLimitValidator = requireNonNull(taskLimitValidator);
     this.uuidGenerator = requireNonNull(uuidGenerator);
     this.jobUpdateController = requireNonNull(jobUpdateController);
+    this.jobSummaries = requireNonNull(jobSummaries);
   }
 
   @Override
@@ -494,14 +502,14 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
   // TODO(William Farner): Provide status information about cron jobs here.
   @Override
   public Response getTasksStatus(TaskQuery query) {
-    return okResponse(Result.scheduleStatusResult(
-        new ScheduleStatusResult().setTasks(getTasks(query))));
+    return okResponse(Result.scheduleStatusResult(getTasks(query)));
   }
 
   @Override
   public Response getTasksWithoutConfigs(TaskQuery query) {
+    ScheduleStatusResult result = getTasks(query);
     List<ScheduledTask> tasks = Lists.transform(
-        getTasks(query),
+        result.getTasks(),
         new Function<ScheduledTask, ScheduledTask>() {
           @Override
           public ScheduledTask apply(ScheduledTask task) {
@@ -510,23 +518,52 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
           }
         });
 
-    return okResponse(Result.scheduleStatusResult(new ScheduleStatusResult().setTasks(tasks)));
+    return okResponse(Result.scheduleStatusResult(result.setTasks(tasks)));
   }
 
-  private List<ScheduledTask> getTasks(TaskQuery query) {
+  @Override
+  public Response getTasksChangedSince(TaskQuery mutableQuery, final long sequence) {
+    requireNonNull(mutableQuery);
+
+    final Query.Builder query = Query.arbitrary(mutableQuery);
+    if (Query.isPaged(query)) {
+      return addMessage(
+          Util.emptyResponse(),
+          INVALID_REQUEST,
+          "Paged queries are not supported when fetching task changes.");
+    }
+
+    // Changes are fetched under a consistent read so that no change is skipped by a concurrent
+    // write.  This is cheap, since only the changes since the sequence number are fetched.
+    TaskStore.Changes changes = storage.consistentRead(new Work.Quiet<TaskStore.Changes>() {
+      @Override
+      public TaskStore.Changes apply(StoreProvider storeProvider) {
+        return storeProvider.getTaskStore().fetchTaskChanges(query, sequence);
+      }
+    });
+
+    return okResponse(Result.getTasksChangedSinceResult(new GetTasksChangedSinceResult()
+        .setTasks(IScheduledTask.toBuildersList(changes.getTasks()))
+        .setDeletedTaskIds(changes.getDeletedTaskIds())
+        .setSequence(changes.getSequence())
+        .setSnapshot(changes.isSnapshot())));
+  }
+
+  private ScheduleStatusResult getTasks(TaskQuery query) {
     requireNonNull(query);
 
-    Iterable<IScheduledTask> tasks =
-        Storage.Util.weaklyConsistentFetchTasks(storage, Query.arbitrary(query));
+    // The store applies the offset, limit and cursor of the query, and returns only the page of
+    // tasks requested.
+    List<IScheduledTask> tasks = Storage.Util.weaklyConsistentFetchTasks(
+        storage,
+        Query.arbitrary(query)).asList();
 
-    if (query.isSetOffset()) {
-      tasks = Iterables.skip(tasks, query.getOffset());
-    }
-    if (query.isSetLimit()) {
-      tasks = Iterables.limit(tasks, query.getLimit());
+    ScheduleStatusResult result =
+        new ScheduleStatusResult().setTasks(IScheduledTask.toBuildersList(tasks));
+    if (query.isSetLimit() && !tasks.isEmpty() && tasks.size() == query.getLimit()) {
+      result.setNextCursor(Tasks.id(Iterables.getLast(tasks)));
     }
-
-    return IScheduledTask.toBuildersList(tasks);
+    return result;
   }
 
   private static final Function<Entry<ITaskConfig, Collection<Integer>>, ConfigGroup>
@@ -553,7 +590,7 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
     // Only PENDING tasks should be considered.
     query.setStatuses(ImmutableSet.of(ScheduleStatus.PENDING));
 
-    Set<PendingReason> reasons = FluentIterable.from(getTasks(query))
+    Set<PendingReason> reasons = FluentIterable.from(getTasks(query).getTasks())
         .transform(new Function<ScheduledTask, PendingReason>() {
           @Override
           public PendingReason apply(ScheduledTask scheduledTask) {
@@ -602,19 +639,21 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
 
   @Override
   public Response getRoleSummary() {
-    Multimap<String, IJobKey> jobsByRole = mapByRole(
-        Storage.Util.weaklyConsistentFetchTasks(storage, Query.unscoped()),
-        Tasks.SCHEDULED_TO_JOB_KEY);
+    Multiset<String> jobCountsByRole = jobSummaries.isEnabled()
+        ? jobSummaries.getJobCounts()
+        : mapByRole(
+            Storage.Util.weaklyConsistentFetchTasks(storage, Query.unscoped()),
+            Tasks.SCHEDULED_TO_JOB_KEY).keys();
 
     Multimap<String, IJobKey> cronJobsByRole = mapByRole(
         cronJobManager.getJobs(),
         JobKeys.FROM_CONFIG);
 
     Set<RoleSummary> summaries = Sets.newHashSet();
-    for (String role : Sets.union(jobsByRole.keySet(), cronJobsByRole.keySet())) {
+    for (String role : Sets.union(jobCountsByRole.elementSet(), cronJobsByRole.keySet())) {
       RoleSummary summary = new RoleSummary();
       summary.setRole(role);
-      summary.setJobCount(jobsByRole.get(role).size());
+      summary.setJobCount(jobCountsByRole.count(role));
       summary.setCronJobCount(cronJobsByRole.get(role).size());
       summaries.add(summary);
     }
@@ -626,28 +665,41 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
   public Response getJobSummary(@Nullable String maybeNullRole) {
     Optional<String> ownerRole = Optional.fromNullable(maybeNullRole);
 
-    final Multimap<IJobKey, IScheduledTask> tasks = getTasks(maybeRoleScoped(ownerRole));
-    final Map<IJobKey, IJobConfiguration> jobs = getJobs(ownerRole, tasks);
+    Map<IJobKey, JobSummary> summaries = jobSummaries.isEnabled()
+        ? jobSummaries.getSummaries(ownerRole)
+        : summarizeJobs(getTasks(maybeRoleScoped(ownerRole)));
+
+    // Cron jobs are summarized with their template JobConfiguration, which overwrites any that was
+    // synthesized from their tasks.
+    for (IJobConfiguration cronJob : getCronJobs(ownerRole)) {
+      JobSummary summary = summaries.get(cronJob.getKey());
+      if (summary == null) {
+        summary = new JobSummary().setStats(new JobStats());
+        summaries.put(cronJob.getKey(), summary);
+      }
+      summary.setJob(cronJob.newBuilder());
+    }
 
-    Function<IJobKey, JobSummary> makeJobSummary = new Function<IJobKey, JobSummary>() {
-      @Override
-      public JobSummary apply(IJobKey jobKey) {
-        IJobConfiguration job = jobs.get(jobKey);
-        JobSummary summary = new JobSummary()
-            .setJob(job.newBuilder())
-            .setStats(Jobs.getJobStats(tasks.get(jobKey)).newBuilder());
-
-        return Strings.isNullOrEmpty(job.getCronSchedule())
-            ? summary
-            : summary.setNextCronRunMs(
-                cronPredictor.predictNextRun(CrontabEntry.parse(job.getCronSchedule())).getTime());
+    for (JobSummary summary : summaries.values()) {
+      String cronSchedule = summary.getJob().getCronSchedule();
+      if (!Strings.isNullOrEmpty(cronSchedule)) {
+        summary.setNextCronRunMs(
+            cronPredictor.predictNextRun(CrontabEntry.parse(cronSchedule)).getTime());
       }
-    };
+    }
 
-    ImmutableSet<JobSummary> jobSummaries =
-        FluentIterable.from(jobs.keySet()).transform(makeJobSummary).toSet();
+    return okResponse(Result.jobSummaryResult(
+        new JobSummaryResult().setSummaries(ImmutableSet.copyOf(summaries.values()))));
+  }
 
-    return okResponse(Result.jobSummaryResult(new JobSummaryResult().setSummaries(jobSummaries)));
+  private static Map<IJobKey, JobSummary> summarizeJobs(Multimap<IJobKey, IScheduledTask> tasks) {
+    Map<IJobKey, JobSummary> summaries = Maps.newHashMap();
+    for (Entry<IJobKey, Collection<IScheduledTask>> entry : tasks.asMap().entrySet()) {
+      summaries.put(entry.getKey(), new JobSummary()
+          .setJob(synthesizeJob(entry.getKey(), entry.getValue()).newBuilder())
+          .setStats(Jobs.getJobStats(entry.getValue()).newBuilder()));
+    }
+    return summaries;
   }
 
   private Query.Builder maybeRoleScoped(Optional<String> ownerRole) {
@@ -672,30 +724,32 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
               IJobKey jobKey,
               Collection<IScheduledTask> tasks) {
 
-            // Pick the latest transitioned task for each immediate job since the job can be in the
-            // middle of an update or some shards have been selectively created.
-            TaskConfig mostRecentTaskConfig =
-                Tasks.getLatestActiveTask(tasks).getAssignedTask().getTask().newBuilder();
-
-            return IJobConfiguration.build(new JobConfiguration()
-                .setKey(jobKey.newBuilder())
-                .setOwner(mostRecentTaskConfig.getOwner())
-                .setTaskConfig(mostRecentTaskConfig)
-                .setInstanceCount(tasks.size()));
+            return synthesizeJob(jobKey, tasks);
           }
         }));
 
     // Get cron jobs directly from the manager. Do this after querying the task store so the real
     // template JobConfiguration for a cron job will overwrite the synthesized one that could have
     // been created above.
+    jobs.putAll(Maps.uniqueIndex(getCronJobs(ownerRole), JobKeys.FROM_CONFIG));
+
+    return jobs;
+  }
+
+  private static IJobConfiguration synthesizeJob(IJobKey jobKey, Collection<IScheduledTask> tasks) {
+    // Pick the latest transitioned task for each immediate job since the job can be in the
+    // middle of an update or some shards have been selectively created.
+    return Jobs.synthesizeJob(
+        jobKey,
+        Tasks.getLatestActiveTask(tasks).getAssignedTask().getTask(),
+        tasks.size());
+  }
+
+  private Iterable<IJobConfiguration> getCronJobs(Optional<String> ownerRole) {
     Predicate<IJobConfiguration> configFilter = ownerRole.isPresent()
         ? Predicates.compose(Predicates.equalTo(ownerRole.get()), JobKeys.CONFIG_TO_ROLE)
         : Predicates.<IJobConfiguration>alwaysTrue();
-    jobs.putAll(Maps.uniqueIndex(
-        FluentIterable.from(cronJobManager.getJobs()).filter(configFilter),
-        JobKeys.FROM_CONFIG));
-
-    return jobs;
+    return FluentIterable.from(cronJobManager.getJobs()).filter(configFilter);
   }
 
   private Multimap<IJobKey, IScheduledTask> getTasks(Query.Builder query) {
@@ -1165,7 +1219,12 @@ class SchedulerThriftInterface implements AuroraAdmin.Iface {
             ConfigurationManager.applyDefaultsIfUnset(instanceRewrite.getRewrittenTask()));
         boolean changed = storeProvider.getUnsafeTaskStore().unsafeModifyInPlace(
             task.get().getTaskId(), newConfiguration);
-        if (!changed) {
+        if (changed) {
+          // Rewrites post no task events, so the job's summary is refreshed here.
+          jobSummaries.taskConfigRewritten(
+              IJobKey.build(instanceKey.getJobKey()),
+              newConfiguration);
+        } else {
           error = Optional.of("Did not change " + task.get().getTaskId());
         }
       } else {
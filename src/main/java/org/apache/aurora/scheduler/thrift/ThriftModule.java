@@ -13,9 +13,12 @@
  */
 package org.apache.aurora.scheduler.thrift;
 
+import javax.inject.Singleton;
+
 import com.google.inject.AbstractModule;
 
 import org.apache.aurora.gen.AuroraAdmin;
+import org.apache.aurora.scheduler.events.PubsubEventModule;
 import org.apache.aurora.scheduler.thrift.aop.AopModule;
 
 /**
@@ -26,6 +29,8 @@ public class ThriftModule extends AbstractModule {
   @Override
   protected void configure() {
     bind(AuroraAdmin.Iface.class).to(SchedulerThriftInterface.class);
+    bind(JobSummaries.class).in(Singleton.class);
+    PubsubEventModule.bindSubscriber(binder(), JobSummaries.class);
 
     install(new AopModule());
   }
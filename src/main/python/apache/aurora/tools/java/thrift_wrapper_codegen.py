@@ -100,6 +100,12 @@ class Field(object):
   def isset_method(self):
     return 'isSet%s' % (self.name[0].upper() + self.name[1:])
 
+  def setter_method(self):
+    return 'set%s' % (self.name[0].upper() + self.name[1:])
+
+  def mutator_method(self):
+    return 'with%s' % (self.name[0].upper() + self.name[1:])
+
   def __str__(self):
     return '%s: %s' % (self.name, self.ttype)
 
@@ -138,6 +144,39 @@ STRUCT_COLLECTION_FIELD_ASSIGNMENT = '''this.%(field)s = !wrapped.%(isset)s()
 PACKAGE_NAME = 'org.apache.aurora.scheduler.storage.entities'
 
 
+# Template for a constructor that adopts already-wrapped fields rather than wrapping them anew.
+SHARING_CONSTRUCTOR_TEMPLATE = '''
+  private %(name)s(
+      %(wrapped)s wrapped,
+      %(params)s) {
+
+    this.wrapped = wrapped;
+    %(assignments)s
+  }
+'''
+
+
+# Template for a copy of the wrapped struct that shares all field values with the original.
+SHALLOW_COPY_TEMPLATE = '''  private %(wrapped)s shallowCopy() {
+    %(wrapped)s copy = new %(wrapped)s();
+    %(copies)s
+    return copy;
+  }'''
+
+
+SHALLOW_COPY_FIELD = '''if (wrapped.%(isset)s()) {
+      copy.%(setter)s(wrapped.%(fn_name)s());
+    }'''
+
+
+# Template for a method that replaces a field, copying only the wrapped struct itself.
+MUTATOR_TEMPLATE = '''  public %(name)s %(fn_name)s(%(type)s value) {
+    %(prepare)s%(wrapped)s copy = shallowCopy();
+    copy.%(setter)s(%(value)s);
+    return new %(name)s(%(args)s);
+  }'''
+
+
 
 CLASS_TEMPLATE = '''package %(package)s;
 
@@ -146,6 +185,9 @@ CLASS_TEMPLATE = '''package %(package)s;
 /**
  * An immutable wrapper class.
  * <p>
+ * Fields of a struct may be replaced through its {@code with} methods, which return a new wrapper
+ * that shares all unmodified state with this one rather than copying it.
+ * <p>
  * This code is auto-generated, and should not be directly modified.
  */
 public final class %(name)s {
@@ -155,7 +197,7 @@ public final class %(name)s {
   private %(name)s(%(wrapped)s wrapped) {
     this.wrapped = Objects.requireNonNull(wrapped);%(assignments)s
   }
-
+%(sharing_constructor)s
   static %(name)s buildNoCopy(%(wrapped)s wrapped) {
     return new %(name)s(wrapped);
   }
@@ -180,6 +222,14 @@ public final class %(name)s {
         }
       };
 
+  static final Function<%(name)s, %(wrapped)s> UNWRAP =
+      new Function<%(name)s, %(wrapped)s>() {
+        @Override
+        public %(wrapped)s apply(%(name)s input) {
+          return input.wrapped;
+        }
+      };
+
   public static ImmutableList<%(wrapped)s> toBuildersList(Iterable<%(name)s> w) {
     return FluentIterable.from(w).transform(TO_BUILDER).toList();
   }
@@ -201,7 +251,7 @@ public final class %(name)s {
   }
 
 %(accessors)s
-
+%(mutators)s
   @Override
   public boolean equals(Object o) {
     if (!(o instanceof %(name)s)) {
@@ -238,13 +288,30 @@ class GeneratedCode(object):
     self._accessors = []
     self._fields = []
     self._assignments = []
+    self._wrapped_fields = []
+    self._mutators = []
 
   def add_import(self, import_class):
     self._imports.add(import_class)
 
-  def add_assignment(self, field, assignment):
+  def add_assignment(self, field, assignment, wrapped_field):
     self._fields.append(field)
     self._assignments.append(assignment)
+    self._wrapped_fields.append(wrapped_field)
+
+  def add_mutator(self, mutator):
+    self._mutators.append(mutator)
+
+  def constructor_args(self, replaced_field, replacement='value'):
+    '''Arguments to construct a wrapper sharing all wrapped fields but the one replaced.'''
+    if not self._wrapped_fields:
+      return 'copy'
+    args = ['copy'] + [
+        replacement if name == replaced_field else 'this.%s' % name
+        for (_, name) in self._wrapped_fields]
+    if len(args) > 3:
+      return '\n        ' + ',\n        '.join(args)
+    return ', '.join(args)
 
   def add_accessor(self, accessor_method):
     self._accessors.append(accessor_method)
@@ -268,14 +335,26 @@ class GeneratedCode(object):
     add_import_group(remove_by_prefix('org'))
     add_import_group(twitter_imports)
 
+    sharing_constructor = ''
+    if self._wrapped_fields:
+      sharing_constructor = SHARING_CONSTRUCTOR_TEMPLATE % {
+        'name': self._class_name,
+        'wrapped': self._wrapped_type,
+        'params': ',\n      '.join(['%s %s' % f for f in self._wrapped_fields]),
+        'assignments': '\n    '.join(
+            ['this.%s = %s;' % (name, name) for (_, name) in self._wrapped_fields]),
+      }
+
     print(CLASS_TEMPLATE % {
       'package': PACKAGE_NAME,
       'name': self._class_name,
       'wrapped': self._wrapped_type,
       'imports': '\n\n'.join(import_groups),
       'accessors': '\n\n'.join(self._accessors),
+      'mutators': ('\n' + '\n\n'.join(self._mutators) + '\n') if self._mutators else '',
       'fields': ('  ' + '\n  '.join(self._fields) + '\n') if self._fields else '',
       'assignments': ('\n    ' + '\n    '.join(self._assignments)) if self._assignments else '',
+      'sharing_constructor': sharing_constructor,
     }, file=f)
 
 
@@ -481,7 +560,7 @@ def parse_structs(thrift_defs):
     return Field(ttype, field.group('name'), field.group('doc'))
 
   def parse_fields(field_str):
-    return map(parse_field, re.finditer(FIELD_RE, field_str))
+    return [parse_field(f) for f in re.finditer(FIELD_RE, field_str)]
 
   def parse_values(enum_str):
     return [(m.group('name'), m.group('doc')) for m in re.finditer(ENUM_VALUE_RE, enum_str)]
@@ -588,7 +667,10 @@ def generate_java(struct):
           'isset': field.isset_method(),
           'type': field.ttype.codegen_name,
         }
-        code.add_assignment(STRUCT_DECLARATION % args, STRUCT_ASSIGNMENT % args)
+        code.add_assignment(
+            STRUCT_DECLARATION % args,
+            STRUCT_ASSIGNMENT % args,
+            (field.ttype.codegen_name, field.name))
     elif isinstance(field.ttype, ParameterizedType):
       # Add necessary imports, supporting only List, Map, Set.
       assert field.ttype.name in ['List', 'Map', 'Set'], 'Unrecognized type %s' % field.ttype.name
@@ -610,9 +692,66 @@ def generate_java(struct):
               'fn_name': field.accessor_method(),
               'isset': field.isset_method(),
               'params': field.ttype.param_names()}
-      code.add_assignment(IMMUTABLE_COLLECTION_DECLARATION % args, assignment % args)
+      code.add_assignment(
+          IMMUTABLE_COLLECTION_DECLARATION % args,
+          assignment % args,
+          ('Immutable%s<%s>' % (field.ttype.name, field.ttype.param_names()), field.name))
+
+  if struct.kind != 'union':
+    add_mutators(code, struct)
   return code
 
+
+def add_mutators(code, struct):
+  '''Adds methods that replace a field of a struct, sharing all other fields.'''
+  copies = []
+  for field in struct.fields:
+    args = {
+      'fn_name': field.accessor_method(),
+      'isset': field.isset_method(),
+      'setter': field.setter_method(),
+    }
+    if field.ttype.name == 'byte[]':
+      # Avoid the defensive copy made when reading a binary field.
+      args['fn_name'] = 'bufferFor%s' % (field.name[0].upper() + field.name[1:])
+    copies.append(SHALLOW_COPY_FIELD % args)
+  code.add_accessor(SHALLOW_COPY_TEMPLATE % {'wrapped': struct.name,
+                                             'copies': '\n    '.join(copies)})
+
+  for field in struct.fields:
+    args = {
+      'name': struct.codegen_name,
+      'wrapped': struct.name,
+      'fn_name': field.mutator_method(),
+      'setter': field.setter_method(),
+      'prepare': '',
+      'value': 'value',
+    }
+    if field.ttype.immutable:
+      args['type'] = field.ttype.name
+      args['args'] = code.constructor_args(None)
+    elif isinstance(field.ttype, StructType):
+      args['type'] = field.ttype.codegen_name
+      args['value'] = 'value == null ? null : %s.UNWRAP.apply(value)' % field.ttype.codegen_name
+      args['args'] = code.constructor_args(field.name)
+    else:
+      collection = field.ttype.name
+      params = field.ttype.param_names()
+      if collection == 'Map':
+        args['type'] = 'Map<%s>' % params
+        code.add_import('java.util.Map')
+      else:
+        args['type'] = 'Iterable<%s>' % params
+      args['prepare'] = 'Immutable%s<%s> values = Immutable%s.copyOf(value);\n    ' % (
+          collection, params, collection)
+      if all([p.immutable for p in field.ttype.params]):
+        args['value'] = 'values'
+      else:
+        args['value'] = 'FluentIterable.from(values).transform(%s.UNWRAP).to%s()' % (
+            params, collection)
+      args['args'] = code.constructor_args(field.name, 'values')
+    code.add_mutator(MUTATOR_TEMPLATE % args)
+
 if __name__ == '__main__':
   parser = OptionParser()
   parser.add_option('-v', '--verbose',
@@ -466,6 +466,27 @@ struct ScheduledTask {
 
 struct ScheduleStatusResult {
   1: list<ScheduledTask> tasks
+  /**
+   * Continuation token for the next page of a query that specified a limit.  Unset when there are
+   * no further tasks to fetch.
+   */
+  2: optional string nextCursor
+}
+
+/** Result of the getTasksChangedSince call. */
+struct GetTasksChangedSinceResult {
+  /** Matching tasks that were created or changed since the requested sequence number. */
+  1: list<ScheduledTask> tasks
+  /** IDs of matching tasks that were deleted since the requested sequence number. */
+  2: set<string> deletedTaskIds
+  /** Sequence number of the latest change included, to be passed to the next call. */
+  3: i64 sequence
+  /**
+   * Whether tasks is a snapshot of all matching tasks, in which case any previously fetched tasks
+   * should be discarded.  A snapshot is returned when the requested sequence number is too old
+   * for the scheduler to have retained all deletions since, or was issued by another scheduler.
+   */
+  4: bool snapshot
 }
 
 struct GetJobsResult {
@@ -487,6 +508,11 @@ struct TaskQuery {
   11: set<JobKey> jobKeys
   12: i32 offset
   13: i32 limit
+  /**
+   * Continuation token from a previous ScheduleStatusResult.  When set, only tasks following the
+   * previous page are returned, ordered by task ID.
+   */
+  14: optional string cursor
 }
 
 struct HostStatus {
@@ -817,6 +843,7 @@ union Result {
   22: StartJobUpdateResult startJobUpdateResult
   23: GetJobUpdateSummariesResult getJobUpdateSummariesResult
   24: GetJobUpdateDetailsResult getJobUpdateDetailsResult
+  25: GetTasksChangedSinceResult getTasksChangedSinceResult
 }
 
 struct ResponseDetail {
@@ -856,6 +883,15 @@ service ReadOnlyScheduler {
    */
   Response getTasksWithoutConfigs(1: TaskQuery query)
 
+  /**
+   * Fetches the tasks matching a query that were created, changed or deleted since a sequence
+   * number returned by a previous call.  Pass a sequence number of 0 to fetch all matching tasks.
+   * Tasks that change such that they no longer match the query are not reported as deleted, so
+   * queries should be scoped by job or role rather than by status.  Paged queries are not
+   * supported.
+   */
+  Response getTasksChangedSince(1: TaskQuery query, 2: i64 sequence)
+
   /** Returns user-friendly reasons (if available) for tasks retained in PENDING state. */
   Response getPendingReason(1: TaskQuery query)
 
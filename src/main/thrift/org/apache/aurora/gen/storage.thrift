@@ -50,6 +50,38 @@ struct RewriteTask {
   2: api.TaskConfig task
 }
 
+// A change to a stored task that leaves its configuration and instance ID untouched, logged in
+// place of the full task.  Fields that are not set are unchanged.
+struct SaveTaskDelta {
+  1: string taskId
+  2: optional api.ScheduleStatus status
+  3: optional i32 failureCount
+  4: optional string ancestorId
+  5: optional string slaveId
+  6: optional string slaveHost
+  7: optional map<string, i32> assignedPorts
+  // Events to append to the task's event history.
+  8: optional list<api.TaskEvent> taskEvents
+  // Number of events in the task's event history before taskEvents were appended.  Events past
+  // this count are replaced by taskEvents, so that replaying the delta is idempotent.
+  9: optional i32 priorEventCount
+}
+
+// A task stored apart from its configuration, which is referenced by ID.
+struct StoredTask {
+  // The task, with its configuration unset.
+  1: api.ScheduledTask task
+  2: string configId
+}
+
+// Tasks with their configurations factored out into a dictionary, so that a configuration shared
+// by many tasks is stored once.
+struct DeduplicatedTasks {
+  // Task configurations keyed by the hex-encoded SHA-256 hash of their binary encoding.
+  1: map<string, api.TaskConfig> taskConfigs
+  2: list<StoredTask> tasks
+}
+
 struct RemoveTasks {
   1: set<string> taskIds
 }
@@ -89,6 +121,12 @@ struct SaveJobInstanceUpdateEvent {
   2: string updateId
 }
 
+// Marks the point in the log at which the state for a snapshot was captured.  The snapshot itself
+// is appended later, and ops following the marker are replayed again once it is applied.
+struct SnapshotMarker {
+  1: string id
+}
+
 union Op {
   1: SaveFrameworkId saveFrameworkId
   2: SaveAcceptedJob saveAcceptedJob
@@ -104,6 +142,9 @@ union Op {
   14: SaveJobUpdate saveJobUpdate
   15: SaveJobUpdateEvent saveJobUpdateEvent
   16: SaveJobInstanceUpdateEvent saveJobInstanceUpdateEvent
+  17: SaveTaskDelta saveTaskDelta
+  18: DeduplicatedTasks saveDeduplicatedTasks
+  19: SnapshotMarker snapshotMarker
 }
 
 // The current schema version ID.  This should be incremented each time the
@@ -156,6 +197,11 @@ struct Snapshot {
   8: set<QuotaConfiguration> quotaConfigurations
   9: set<api.Lock> locks
   10: set<StoredJobUpdateDetails> jobUpdateDetails
+  // Tasks stored with a dictionary of their configurations, in addition to any in tasks.
+  11: DeduplicatedTasks deduplicatedTasks
+  // The ID of the marker at which the snapshot state was captured, if not captured at the point
+  // the snapshot was appended.
+  12: string markerId
 }
 
 // A message header that calls out the number of expected FrameChunks to follow to form a complete
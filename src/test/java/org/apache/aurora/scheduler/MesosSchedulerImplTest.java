@@ -39,9 +39,11 @@ import org.apache.aurora.scheduler.base.SchedulerException;
 import org.apache.aurora.scheduler.events.EventSink;
 import org.apache.aurora.scheduler.events.PubsubEvent.DriverDisconnected;
 import org.apache.aurora.scheduler.events.PubsubEvent.DriverRegistered;
+import org.apache.aurora.scheduler.events.PubsubEvent.HostAttributesChanged;
 import org.apache.aurora.scheduler.state.StateManager;
 import org.apache.aurora.scheduler.storage.Storage;
 import org.apache.aurora.scheduler.storage.Storage.StorageException;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.testing.StorageTestUtil;
 import org.apache.mesos.Protos.ExecutorID;
 import org.apache.mesos.Protos.FrameworkID;
@@ -283,7 +285,10 @@ public class MesosSchedulerImplTest extends EasyMockTest {
   }
 
   private void expectOfferAttributesSaved(Offer offer) {
+    expect(storageUtil.attributeStore.getHostAttributes(offer.getHostname()))
+        .andReturn(Optional.<IHostAttributes>absent());
     storageUtil.attributeStore.saveHostAttributes(Conversions.getAttributes(offer));
+    eventSink.post(new HostAttributesChanged(Conversions.getAttributes(offer)));
   }
 
   private abstract class RegisteredFixture {
@@ -260,6 +260,7 @@ public class SchedulerIT extends BaseZooKeeperTest {
         new Function<LogEntry, Entry>() {
           @Override
           public Entry apply(final LogEntry entry) {
+            final IntPosition position = nextPosition();
             return new Entry() {
               @Override
               public byte[] contents() {
@@ -269,6 +270,11 @@ public class SchedulerIT extends BaseZooKeeperTest {
                   throw Throwables.propagate(e);
                 }
               }
+
+              @Override
+              public Position position() {
+                return position;
+              }
             };
           }
         });
@@ -25,12 +25,14 @@ import com.google.common.base.Throwables;
 import com.google.common.testing.TearDown;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
 import com.twitter.common.quantity.Time;
 import com.twitter.common.testing.easymock.EasyMockTest;
 import com.twitter.common.util.concurrent.ExecutorServiceShutdown;
 
 import org.apache.aurora.gen.MaintenanceMode;
 import org.apache.aurora.scheduler.Driver;
+import org.apache.aurora.scheduler.ResourceSlot;
 import org.apache.aurora.scheduler.async.OfferQueue.LaunchException;
 import org.apache.aurora.scheduler.async.OfferQueue.OfferQueueImpl;
 import org.apache.aurora.scheduler.async.OfferQueue.OfferReturnDelay;
@@ -54,12 +56,15 @@ public class OfferQueueImplTest extends EasyMockTest {
   private static final Offer OFFER_B = Offers.makeOffer("OFFER_B", HOST_B);
   private static final String HOST_C = "HOST_C";
   private static final Offer OFFER_C = Offers.makeOffer("OFFER_C", HOST_C);
+  private static final ResourceSlot SMALL_TASK =
+      ResourceSlot.from(1, Amount.of(1L, Data.GB), Amount.of(1L, Data.GB), 0);
 
   private Driver driver;
   private ScheduledExecutorService executor;
   private ExecutorService testExecutor;
   private MaintenanceController maintenanceController;
   private Function<Offer, Optional<TaskInfo>> offerAcceptor;
+  private OfferReturnDelay returnDelay;
   private OfferQueueImpl offerQueue;
 
   @Before
@@ -77,13 +82,13 @@ public class OfferQueueImplTest extends EasyMockTest {
     });
     maintenanceController = createMock(MaintenanceController.class);
     offerAcceptor = createMock(new Clazz<Function<Offer, Optional<TaskInfo>>>() { });
-    OfferReturnDelay returnDelay = new OfferReturnDelay() {
+    returnDelay = new OfferReturnDelay() {
       @Override
       public Amount<Integer, Time> get() {
         return RETURN_DELAY;
       }
     };
-    offerQueue = new OfferQueueImpl(driver, returnDelay, executor, maintenanceController);
+    offerQueue = new OfferQueueImpl(driver, returnDelay, executor, maintenanceController, false);
   }
 
   @Test
@@ -113,7 +118,7 @@ public class OfferQueueImplTest extends EasyMockTest {
       @Override
       public void run() {
         try {
-          offerQueue.launchFirst(offerAcceptor);
+          offerQueue.launchFirst(SMALL_TASK, offerAcceptor);
           launchAttempted.countDown();
         } catch (LaunchException e) {
           throw Throwables.propagate(e);
@@ -139,7 +144,63 @@ public class OfferQueueImplTest extends EasyMockTest {
     offerQueue.addOffer(OFFER_A);
     offerQueue.addOffer(OFFER_B);
     offerQueue.addOffer(OFFER_C);
-    assertFalse(offerQueue.launchFirst(offerAcceptor));
+    assertFalse(offerQueue.launchFirst(SMALL_TASK, offerAcceptor));
+  }
+
+  @Test
+  public void testInsufficientOffersPresentedByDefault() throws Exception {
+    Offer smallerBucket =
+        Offers.makeOffer("OFFER_B", HOST_B, 2, Amount.of(64L, Data.GB), Amount.of(1024L, Data.GB));
+    expect(maintenanceController.getMode(HOST_A)).andReturn(MaintenanceMode.NONE);
+    expect(maintenanceController.getMode(HOST_B)).andReturn(MaintenanceMode.NONE);
+    expect(offerAcceptor.apply(OFFER_A)).andReturn(Optional.<TaskInfo>absent());
+    expect(offerAcceptor.apply(smallerBucket)).andReturn(Optional.<TaskInfo>absent());
+
+    control.replay();
+
+    offerQueue.addOffer(OFFER_A);
+    offerQueue.addOffer(smallerBucket);
+    ResourceSlot largeTask =
+        ResourceSlot.from(4, Amount.of(1L, Data.GB), Amount.of(1L, Data.GB), 0);
+    assertFalse(offerQueue.launchFirst(largeTask, offerAcceptor));
+  }
+
+  @Test
+  public void testOffersSkippedByResources() throws Exception {
+    offerQueue = new OfferQueueImpl(driver, returnDelay, executor, maintenanceController, true);
+    Offer smallerBucket =
+        Offers.makeOffer("OFFER_B", HOST_B, 2, Amount.of(64L, Data.GB), Amount.of(1024L, Data.GB));
+    Offer sameBucket =
+        Offers.makeOffer("OFFER_C", HOST_C, 4, Amount.of(64L, Data.GB), Amount.of(1024L, Data.GB));
+    expect(maintenanceController.getMode(HOST_A)).andReturn(MaintenanceMode.NONE);
+    expect(maintenanceController.getMode(HOST_B)).andReturn(MaintenanceMode.NONE);
+    expect(maintenanceController.getMode(HOST_C)).andReturn(MaintenanceMode.NONE);
+    expect(offerAcceptor.apply(OFFER_A)).andReturn(Optional.<TaskInfo>absent());
+
+    control.replay();
+
+    offerQueue.addOffer(OFFER_A);
+    offerQueue.addOffer(smallerBucket);
+    offerQueue.addOffer(sameBucket);
+    ResourceSlot largeTask =
+        ResourceSlot.from(4, Amount.of(1L, Data.GB), Amount.of(1L, Data.GB), 0);
+    assertFalse(offerQueue.launchFirst(largeTask, offerAcceptor));
+  }
+
+  @Test
+  public void testSkippingAfterBucketEmptied() throws Exception {
+    offerQueue = new OfferQueueImpl(driver, returnDelay, executor, maintenanceController, true);
+    expect(maintenanceController.getMode(HOST_A)).andReturn(MaintenanceMode.NONE).times(2);
+    expect(offerAcceptor.apply(OFFER_A)).andReturn(Optional.<TaskInfo>absent());
+
+    control.replay();
+
+    offerQueue.addOffer(OFFER_A);
+    offerQueue.cancelOffer(OFFER_A.getId());
+    assertFalse(offerQueue.launchFirst(SMALL_TASK, offerAcceptor));
+
+    offerQueue.addOffer(OFFER_A);
+    assertFalse(offerQueue.launchFirst(SMALL_TASK, offerAcceptor));
   }
 
   @Test
@@ -152,6 +213,6 @@ public class OfferQueueImplTest extends EasyMockTest {
     offerQueue.addOffer(OFFER_A);
     offerQueue.addOffer(OFFER_B);
     offerQueue.driverDisconnected(new DriverDisconnected());
-    assertFalse(offerQueue.launchFirst(offerAcceptor));
+    assertFalse(offerQueue.launchFirst(SMALL_TASK, offerAcceptor));
   }
 }
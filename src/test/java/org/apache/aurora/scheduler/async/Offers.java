@@ -13,6 +13,10 @@
  */
 package org.apache.aurora.scheduler.async;
 
+import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
+
+import org.apache.aurora.scheduler.configuration.Resources;
 import org.apache.mesos.Protos.FrameworkID;
 import org.apache.mesos.Protos.Offer;
 import org.apache.mesos.Protos.OfferID;
@@ -33,11 +37,24 @@ final class Offers {
   }
 
   static Offer makeOffer(String offerId, String hostName) {
+    return makeOffer(offerId, hostName, 16, Amount.of(64L, Data.GB), Amount.of(1024L, Data.GB));
+  }
+
+  static Offer makeOffer(
+      String offerId,
+      String hostName,
+      double cpus,
+      Amount<Long, Data> ram,
+      Amount<Long, Data> disk) {
+
     return Offer.newBuilder()
         .setId(OfferID.newBuilder().setValue(offerId))
         .setFrameworkId(FrameworkID.newBuilder().setValue("framework_id"))
         .setSlaveId(SlaveID.newBuilder().setValue("slave_id-" + offerId))
         .setHostname(hostName)
+        .addResources(Resources.makeMesosResource(Resources.CPUS, cpus))
+        .addResources(Resources.makeMesosResource(Resources.RAM_MB, ram.as(Data.MB)))
+        .addResources(Resources.makeMesosResource(Resources.DISK_MB, disk.as(Data.MB)))
         .build();
   }
 }
@@ -0,0 +1,112 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.async;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.Identity;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.apache.aurora.gen.ScheduleStatus.FINISHED;
+import static org.apache.aurora.gen.ScheduleStatus.PENDING;
+import static org.apache.aurora.gen.ScheduleStatus.PREEMPTING;
+import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
+import static org.apache.aurora.gen.ScheduleStatus.THROTTLED;
+import static org.junit.Assert.assertEquals;
+
+public class PreemptionCandidatesTest {
+
+  private PreemptionCandidates candidates;
+
+  @Before
+  public void setUp() {
+    candidates = new PreemptionCandidates();
+  }
+
+  @Test
+  public void testTaskLifecycle() {
+    IScheduledTask pending = task("a", null, PENDING, false);
+    candidates.taskChangedState(TaskStateChange.initialized(pending));
+    candidates.taskChangedState(
+        TaskStateChange.initialized(task("b", "slave1", THROTTLED, false)));
+    assertCandidates(ImmutableListMultimap.<String, IAssignedTask>of());
+
+    IScheduledTask running = task("a", "slave1", RUNNING, false);
+    candidates.taskChangedState(TaskStateChange.transition(running, PENDING));
+    assertCandidates(ImmutableListMultimap.of("slave1", running.getAssignedTask()));
+
+    IScheduledTask preempting = task("a", "slave1", PREEMPTING, false);
+    candidates.taskChangedState(TaskStateChange.transition(preempting, RUNNING));
+    assertCandidates(ImmutableListMultimap.<String, IAssignedTask>of());
+
+    IScheduledTask other = task("c", "slave2", RUNNING, false);
+    candidates.taskChangedState(TaskStateChange.initialized(other));
+    candidates.taskChangedState(
+        TaskStateChange.transition(task("c", "slave2", FINISHED, false), RUNNING));
+    assertCandidates(ImmutableListMultimap.<String, IAssignedTask>of());
+
+    candidates.taskChangedState(TaskStateChange.initialized(other));
+    candidates.tasksDeleted(new TasksDeleted(ImmutableSet.of(other)));
+    assertCandidates(ImmutableListMultimap.<String, IAssignedTask>of());
+  }
+
+  @Test
+  public void testCandidateOrder() {
+    IScheduledTask prodA = task("a", "slave1", RUNNING, true);
+    IScheduledTask devB = task("b", "slave1", RUNNING, false);
+    IScheduledTask devC = task("c", "slave1", RUNNING, false);
+    for (IScheduledTask task : ImmutableSet.of(prodA, devB, devC)) {
+      candidates.taskChangedState(TaskStateChange.initialized(task));
+    }
+
+    // Non-production tasks are considered before production tasks.
+    assertCandidates(ImmutableListMultimap.of(
+        "slave1", devC.getAssignedTask(),
+        "slave1", devB.getAssignedTask(),
+        "slave1", prodA.getAssignedTask()));
+  }
+
+  private void assertCandidates(ImmutableListMultimap<String, IAssignedTask> expected) {
+    assertEquals(expected, candidates.getCandidatesBySlave());
+  }
+
+  private static IScheduledTask task(
+      String id,
+      String slaveId,
+      ScheduleStatus status,
+      boolean production) {
+
+    return IScheduledTask.build(new ScheduledTask()
+        .setStatus(status)
+        .setAssignedTask(new AssignedTask()
+            .setTaskId(id)
+            .setSlaveId(slaveId)
+            .setSlaveHost(slaveId)
+            .setTask(new TaskConfig()
+                .setOwner(new Identity("role", "role"))
+                .setEnvironment("prod")
+                .setJobName("job")
+                .setProduction(production))));
+  }
+}
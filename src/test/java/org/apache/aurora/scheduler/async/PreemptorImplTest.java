@@ -24,6 +24,8 @@ import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.testing.TearDown;
+import com.twitter.common.application.ShutdownRegistry.ShutdownRegistryImpl;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Data;
 import com.twitter.common.quantity.Time;
@@ -43,6 +45,7 @@ import org.apache.aurora.scheduler.ResourceSlot;
 import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.Tasks;
 import org.apache.aurora.scheduler.configuration.Resources;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
 import org.apache.aurora.scheduler.filter.SchedulingFilter;
 import org.apache.aurora.scheduler.filter.SchedulingFilterImpl;
@@ -68,6 +71,7 @@ import static org.apache.aurora.gen.ScheduleStatus.PENDING;
 import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
 import static org.apache.aurora.gen.ScheduleStatus.THROTTLED;
 import static org.apache.aurora.scheduler.async.Preemptor.PreemptorImpl;
+import static org.apache.aurora.scheduler.async.Preemptor.PreemptorImpl.SearchSettings;
 import static org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
 import static org.apache.mesos.Protos.Offer;
 import static org.apache.mesos.Protos.Resource;
@@ -102,6 +106,9 @@ public class PreemptorImplTest extends EasyMockTest {
   private MaintenanceController maintenance;
   private OfferQueue offerQueue;
   private AttributeAggregate emptyJob;
+  private PreemptionCandidates candidates;
+  private SearchSettings searchSettings;
+  private ShutdownRegistryImpl shutdownRegistry;
 
   @Before
   public void setUp() {
@@ -114,18 +121,30 @@ public class PreemptorImplTest extends EasyMockTest {
     emptyJob = new AttributeAggregate(
         Suppliers.ofInstance(ImmutableSet.<IScheduledTask>of()),
         createMock(AttributeStore.class));
+    candidates = new PreemptionCandidates();
+    searchSettings = new SearchSettings(1, Amount.of(1L, Time.MINUTES));
+    shutdownRegistry = new ShutdownRegistryImpl();
+    addTearDown(new TearDown() {
+      @Override
+      public void tearDown() {
+        shutdownRegistry.execute();
+      }
+    });
   }
 
-  private void runPreemptor(ScheduledTask pendingTask) {
+  private Optional<String> runPreemptor(ScheduledTask pendingTask) {
     PreemptorImpl preemptor = new PreemptorImpl(
         storageUtil.storage,
         stateManager,
         offerQueue,
         schedulingFilter,
         PREEMPTION_DELAY,
-        clock);
+        clock,
+        candidates,
+        searchSettings,
+        shutdownRegistry);
 
-    preemptor.findPreemptionSlotFor(pendingTask.getAssignedTask().getTaskId(), emptyJob);
+    return preemptor.findPreemptionSlotFor(pendingTask.getAssignedTask().getTaskId(), emptyJob);
   }
 
   // TODO(zmanji): Put together a SchedulerPreemptorIntegrationTest as well.
@@ -140,9 +159,9 @@ public class PreemptorImplTest extends EasyMockTest {
   }
 
   private void expectGetActiveTasks(ScheduledTask... returnedTasks) {
-    storageUtil.expectTaskFetch(
-        PreemptorImpl.CANDIDATE_QUERY,
-        IScheduledTask.setFromBuilders(Arrays.asList(returnedTasks)));
+    for (ScheduledTask task : returnedTasks) {
+      candidates.taskChangedState(TaskStateChange.initialized(IScheduledTask.build(task)));
+    }
   }
 
   @Test
@@ -499,6 +518,7 @@ public class PreemptorImplTest extends EasyMockTest {
     });
 
     clock.advance(PREEMPTION_DELAY);
+    expectGetActiveTasks(throttled);
 
     control.replay();
 
@@ -508,13 +528,100 @@ public class PreemptorImplTest extends EasyMockTest {
         offerQueue,
         schedulingFilter,
         PREEMPTION_DELAY,
-        clock);
+        clock,
+        candidates,
+        searchSettings,
+        shutdownRegistry);
 
     assertEquals(
         Optional.<String>absent(),
         preemptor.findPreemptionSlotFor(pending.getAssignedTask().getTaskId(), emptyJob));
   }
 
+  @Test
+  public void testParallelSearch() throws Exception {
+    schedulingFilter = createMock(SchedulingFilter.class);
+    searchSettings = new SearchSettings(4, Amount.of(1L, Time.MINUTES));
+
+    ScheduledTask victim = null;
+    for (int i = 0; i < 100; i++) {
+      ScheduledTask task = makeTask(USER_A, JOB_A, TASK_ID_A + "_" + i);
+      runOnHost(task, "host_" + i);
+      expectGetActiveTasks(task);
+      if (i == 73) {
+        victim = task;
+      }
+    }
+
+    ScheduledTask highPriority = makeTask(USER_A, JOB_A, TASK_ID_B, 100);
+    clock.advance(PREEMPTION_DELAY);
+
+    expectNoOffers();
+    expectGetPendingTasks(highPriority);
+    // Host attributes are read on the requesting thread, before the search is forked.
+    expect(storageUtil.attributeStore.getHostAttributes(EasyMock.<String>anyObject()))
+        .andReturn(Optional.<IHostAttributes>absent())
+        .times(100);
+    expect(schedulingFilter.filter(
+        EasyMock.<ResourceSlot>anyObject(),
+        EasyMock.<IHostAttributes>anyObject(),
+        EasyMock.<ITaskConfig>anyObject(),
+        EasyMock.<String>anyObject(),
+        EasyMock.eq(emptyJob))).andAnswer(
+        new IAnswer<Set<Veto>>() {
+          @Override
+          public Set<Veto> answer() {
+            IHostAttributes host = (IHostAttributes) EasyMock.getCurrentArguments()[1];
+            return "host_73".equals(host.getHost())
+                ? ImmutableSet.<Veto>of()
+                : ImmutableSet.of(new Veto("full", 1));
+          }
+        }
+    ).atLeastOnce();
+    expectPreempted(victim);
+
+    control.replay();
+    assertEquals(Optional.of(hostToId("host_73")), runPreemptor(highPriority));
+  }
+
+  @Test
+  public void testSearchBudgetExhausted() throws Exception {
+    schedulingFilter = createMock(SchedulingFilter.class);
+    final Amount<Long, Time> budget = Amount.of(1L, Time.SECONDS);
+    searchSettings = new SearchSettings(1, budget);
+
+    ScheduledTask a1 = makeTask(USER_A, JOB_A, TASK_ID_A + "_a1");
+    runOnHost(a1, HOST_A);
+    ScheduledTask a2 = makeTask(USER_A, JOB_A, TASK_ID_A + "_a2");
+    runOnHost(a2, "host_b");
+
+    ScheduledTask highPriority = makeTask(USER_A, JOB_A, TASK_ID_B, 100);
+    clock.advance(PREEMPTION_DELAY);
+
+    expectNoOffers();
+    expectGetPendingTasks(highPriority);
+    expectGetActiveTasks(a1, a2);
+
+    // Only the first slave is evaluated, since evaluating it consumes the search budget.
+    expect(schedulingFilter.filter(
+        EasyMock.<ResourceSlot>anyObject(),
+        EasyMock.<String>anyObject(),
+        EasyMock.<ITaskConfig>anyObject(),
+        EasyMock.<String>anyObject(),
+        EasyMock.eq(emptyJob))).andAnswer(
+        new IAnswer<Set<Veto>>() {
+          @Override
+          public Set<Veto> answer() {
+            clock.advance(budget);
+            return ImmutableSet.of(new Veto("full", 1));
+          }
+        }
+    );
+
+    control.replay();
+    assertEquals(Optional.<String>absent(), runPreemptor(highPriority));
+  }
+
   // TODO(zmanji) spread tasks across slave ids on the same host and see if preemption fails.
 
   private Offer makeOffer(String offerId,
@@ -30,6 +30,7 @@ import org.apache.aurora.gen.AssignedTask;
 import org.apache.aurora.gen.Identity;
 import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.scheduler.ResourceSlot;
 import org.apache.aurora.scheduler.async.TaskScheduler.TaskSchedulerImpl;
 import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.Tasks;
@@ -47,11 +48,15 @@ import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.mem.MemStorage;
 import org.apache.aurora.scheduler.storage.testing.StorageTestUtil;
 import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.TaskID;
 import org.apache.mesos.Protos.TaskInfo;
 import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.apache.aurora.gen.ScheduleStatus.LOST;
 import static org.apache.aurora.gen.ScheduleStatus.PENDING;
 import static org.apache.aurora.gen.ScheduleStatus.THROTTLED;
 import static org.easymock.EasyMock.capture;
@@ -300,6 +305,60 @@ public class TaskSchedulerImplTest extends EasyMockTest {
     assignment.getValue().apply(OFFER);
   }
 
+  @Test
+  public void testBatchBackpedalsOnlyFailedOffer() throws Exception {
+    storageUtil.expectOperations();
+
+    ScheduledTask builder = TASK_A.newBuilder();
+    builder.getAssignedTask().setTaskId("a2").setInstanceId(1);
+    IScheduledTask taskA2 = IScheduledTask.build(builder);
+    final Offer offerB = Offers.makeOffer("OFFER_B", "HOST_B");
+
+    storageUtil.expectTaskFetch(
+        Query.taskScoped(ImmutableSet.of("a", "a2")).byStatus(PENDING),
+        ImmutableSet.of(TASK_A, taskA2));
+    storageUtil.expectTaskFetch(
+        TaskSchedulerImpl.activeJobStateQuery(Tasks.SCHEDULED_TO_JOB_KEY.apply(TASK_A)),
+        ImmutableSet.<IScheduledTask>of()).anyTimes();
+    expect(assigner.maybeAssign(OFFER, TASK_A, emptyJob))
+        .andReturn(Optional.of(makeTaskInfo(TASK_A)));
+    expect(assigner.maybeAssign(offerB, taskA2, emptyJob))
+        .andReturn(Optional.of(makeTaskInfo(taskA2)));
+
+    // The first offer is launched, and the second offer races with a rescind.
+    final Capture<Function<Offer, Optional<TaskInfo>>> acceptor = createCapture();
+    expect(offerQueue.launchAll(
+        EasyMock.<ResourceSlot>anyObject(),
+        capture(acceptor),
+        EasyMock.eq(2)))
+        .andAnswer(new IAnswer<Integer>() {
+          @Override
+          public Integer answer() throws OfferQueue.LaunchException {
+            assertTrue(acceptor.getValue().apply(OFFER).isPresent());
+            assertTrue(acceptor.getValue().apply(offerB).isPresent());
+            throw new OfferQueue.LaunchException("Offer race.", ImmutableSet.of("a2"));
+          }
+        });
+    expect(stateManager.changeState(
+        "a2",
+        Optional.of(PENDING),
+        LOST,
+        TaskSchedulerImpl.LAUNCH_FAILED_MSG))
+        .andReturn(true);
+
+    control.replay();
+
+    assertEquals(ImmutableSet.of("a", "a2"), scheduler.schedule(ImmutableSet.of("a", "a2")));
+  }
+
+  private static TaskInfo makeTaskInfo(IScheduledTask task) {
+    return TaskInfo.newBuilder()
+        .setName(Tasks.id(task))
+        .setTaskId(TaskID.newBuilder().setValue(Tasks.id(task)))
+        .setSlaveId(OFFER.getSlaveId())
+        .build();
+  }
+
   private static IScheduledTask makeTask(String taskId) {
     return IScheduledTask.build(new ScheduledTask()
         .setAssignedTask(new AssignedTask()
@@ -314,7 +373,8 @@ public class TaskSchedulerImplTest extends EasyMockTest {
   private Capture<Function<Offer, Optional<TaskInfo>>> expectLaunchAttempt(boolean taskLaunched)
       throws OfferQueue.LaunchException {
         Capture<Function<Offer, Optional<TaskInfo>>> assignment = createCapture();
-        expect(offerQueue.launchFirst(capture(assignment))).andReturn(taskLaunched);
+        expect(offerQueue.launchFirst(EasyMock.<ResourceSlot>anyObject(), capture(assignment)))
+            .andReturn(taskLaunched);
         return assignment;
   }
 
@@ -13,6 +13,8 @@
  */
 package org.apache.aurora.scheduler.async;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -22,6 +24,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.RateLimiter;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Time;
@@ -37,15 +40,19 @@ import org.apache.aurora.gen.ScheduleStatus;
 import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.gen.TaskConfig;
 import org.apache.aurora.scheduler.Driver;
+import org.apache.aurora.scheduler.ResourceSlot;
 import org.apache.aurora.scheduler.async.OfferQueue.OfferQueueImpl;
 import org.apache.aurora.scheduler.async.OfferQueue.OfferReturnDelay;
 import org.apache.aurora.scheduler.async.TaskScheduler.TaskSchedulerImpl;
 import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.EventSink;
 import org.apache.aurora.scheduler.events.PubsubEvent.HostMaintenanceStateChange;
 import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
 import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.events.VetoAggregator;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
+import org.apache.aurora.scheduler.filter.AttributeAggregateCache;
 import org.apache.aurora.scheduler.state.MaintenanceController;
 import org.apache.aurora.scheduler.state.StateManager;
 import org.apache.aurora.scheduler.state.TaskAssigner;
@@ -64,6 +71,7 @@ import org.apache.mesos.Protos.TaskID;
 import org.apache.mesos.Protos.TaskInfo;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -105,6 +113,7 @@ public class TaskSchedulerTest extends EasyMockTest {
   private FakeClock clock;
   private RescheduleCalculator rescheduleCalculator;
   private Preemptor preemptor;
+  private VetoAggregator vetoAggregator;
   private AttributeAggregate emptyJob;
   private Amount<Long, Time> reservationDuration = Amount.of(1L, Time.MINUTES);
 
@@ -123,19 +132,26 @@ public class TaskSchedulerTest extends EasyMockTest {
     clock.setNowMillis(0);
     rescheduleCalculator = createMock(RescheduleCalculator.class);
     preemptor = createMock(Preemptor.class);
+    vetoAggregator = new VetoAggregator(createMock(EventSink.class), false);
     emptyJob = new AttributeAggregate(
         Suppliers.ofInstance(ImmutableSet.<IScheduledTask>of()),
         createMock(AttributeStore.class));
   }
 
   private void replayAndCreateScheduler() {
+    replayAndCreateScheduler(1);
+  }
+
+  private void replayAndCreateScheduler(int batchSize) {
     control.replay();
-    offerQueue = new OfferQueueImpl(driver, returnDelay, executor, maintenance);
+    offerQueue = new OfferQueueImpl(driver, returnDelay, executor, maintenance, false);
     TaskScheduler scheduler = new TaskSchedulerImpl(storage,
         stateManager,
         assigner,
         offerQueue,
         preemptor,
+        new AttributeAggregateCache(storage, AttributeAggregateCache.Mode.RECOMPUTE),
+        vetoAggregator,
         reservationDuration,
         clock);
     taskGroups = new TaskGroups(
@@ -143,7 +159,8 @@ public class TaskSchedulerTest extends EasyMockTest {
         retryStrategy,
         RateLimiter.create(100),
         scheduler,
-        rescheduleCalculator);
+        rescheduleCalculator,
+        batchSize);
   }
 
   private Capture<Runnable> expectOffer() {
@@ -412,7 +429,9 @@ public class TaskSchedulerTest extends EasyMockTest {
     replayAndCreateScheduler();
 
     offerQueue.addOffer(OFFER_A);
-    offerQueue.launchFirst(offerAcceptor);
+    offerQueue.launchFirst(
+        ResourceSlot.from(makeTask("a").getAssignedTask().getTask()),
+        offerAcceptor);
     offerExpirationCapture.getValue().run();
   }
 
@@ -557,6 +576,98 @@ public class TaskSchedulerTest extends EasyMockTest {
         ImmutableSet.of(firstScheduled.getValue(), secondScheduled.getValue()));
   }
 
+  private IScheduledTask makeInstance(IScheduledTask task, int instanceId) {
+    ScheduledTask builder = task.newBuilder();
+    builder.getAssignedTask()
+        .setTaskId(Tasks.id(task) + instanceId)
+        .setInstanceId(instanceId);
+    return IScheduledTask.build(builder);
+  }
+
+  @Test
+  public void testBatchPackedOnOffer() {
+    expectAnyMaintenanceCalls();
+    expectOfferDeclineIn(10);
+
+    IScheduledTask task = makeTask("a", PENDING);
+    IScheduledTask instance0 = makeInstance(task, 0);
+    IScheduledTask instance1 = makeInstance(task, 1);
+    IScheduledTask instance2 = makeInstance(task, 2);
+
+    Capture<Runnable> timeoutCapture = expectTaskGroupBackoff(10);
+    expect(assigner.maybeAssign(
+        eq(OFFER_A),
+        EasyMock.<IScheduledTask>anyObject(),
+        eq(emptyJob)))
+        .andAnswer(new IAnswer<Optional<TaskInfo>>() {
+          @Override
+          public Optional<TaskInfo> answer() {
+            return Optional.of(makeTaskInfo((IScheduledTask) EasyMock.getCurrentArguments()[1]));
+          }
+        })
+        .times(3);
+    Capture<Collection<TaskInfo>> launched = createCapture();
+    driver.launchTasks(eq(OFFER_A.getId()), capture(launched));
+
+    replayAndCreateScheduler(5);
+
+    offerQueue.addOffer(OFFER_A);
+    changeState(instance0, INIT, PENDING);
+    changeState(instance1, INIT, PENDING);
+    changeState(instance2, INIT, PENDING);
+    timeoutCapture.getValue().run();
+
+    assertEquals(
+        ImmutableSet.of(makeTaskInfo(instance0), makeTaskInfo(instance1), makeTaskInfo(instance2)),
+        ImmutableSet.copyOf(launched.getValue()));
+    assertEquals(ImmutableList.of(), ImmutableList.copyOf(offerQueue.getOffers()));
+  }
+
+  @Test
+  public void testBatchPartiallyScheduled() {
+    expectAnyMaintenanceCalls();
+    expectOfferDeclineIn(10);
+
+    IScheduledTask task = makeTask("a", PENDING);
+    IScheduledTask instance0 = makeInstance(task, 0);
+    IScheduledTask instance1 = makeInstance(task, 1);
+
+    Capture<Runnable> timeoutCapture = expectTaskGroupBackoff(10);
+    Capture<IScheduledTask> assigned = createCapture();
+    expect(assigner.maybeAssign(eq(OFFER_A), capture(assigned), eq(emptyJob)))
+        .andAnswer(new IAnswer<Optional<TaskInfo>>() {
+          @Override
+          public Optional<TaskInfo> answer() {
+            return Optional.of(makeTaskInfo((IScheduledTask) EasyMock.getCurrentArguments()[1]));
+          }
+        });
+    expect(assigner.maybeAssign(
+        eq(OFFER_A),
+        EasyMock.<IScheduledTask>anyObject(),
+        eq(emptyJob)))
+        .andReturn(Optional.<TaskInfo>absent());
+    driver.launchTasks(eq(OFFER_A.getId()), EasyMock.<Collection<TaskInfo>>anyObject());
+    expect(preemptor.findPreemptionSlotFor(EasyMock.<String>anyObject(), eq(emptyJob)))
+        .andReturn(Optional.<String>absent());
+
+    // The group is re-evaluated promptly since progress was made.
+    expectTaskGroupBackoff(10);
+
+    replayAndCreateScheduler(5);
+
+    offerQueue.addOffer(OFFER_A);
+    changeState(instance0, INIT, PENDING);
+    changeState(instance1, INIT, PENDING);
+    timeoutCapture.getValue().run();
+
+    IScheduledTask remaining = assigned.getValue().equals(instance0) ? instance1 : instance0;
+    assertEquals(ImmutableSet.of(Tasks.id(remaining)), getTaskIds());
+  }
+
+  private Set<String> getTaskIds() {
+    return Iterables.getOnlyElement(taskGroups.getGroups()).getTaskIds();
+  }
+
   @Test
   public void testTaskDeleted() {
     expectAnyMaintenanceCalls();
@@ -111,6 +111,31 @@ public class ResourcesTest {
     assertEquals(NEGATIVE_ONE, Resources.subtract(TWO, THREE));
   }
 
+  @Test
+  public void testSubtractTaskFromOffer() {
+    Protos.Offer offer = createOffer(createPortRange(Pair.of(1, 5))).toBuilder()
+        .addResources(Resources.makeMesosResource(Resources.CPUS, 4))
+        .addResources(Resources.makeMesosResource(Resources.RAM_MB, 4096))
+        .build();
+    Protos.TaskInfo task = Protos.TaskInfo.newBuilder()
+        .setName("task")
+        .setTaskId(Protos.TaskID.newBuilder().setValue("task-id"))
+        .setSlaveId(offer.getSlaveId())
+        .addAllResources(Resources.from(TASK).toResourceList(ImmutableSet.of(2, 4)))
+        .setExecutor(Protos.ExecutorInfo.newBuilder()
+            .setExecutorId(Protos.ExecutorID.newBuilder().setValue("executor-id"))
+            .setCommand(Protos.CommandInfo.newBuilder().setValue("executor"))
+            .addResources(Resources.makeMesosResource(Resources.CPUS, 0.5)))
+        .build();
+
+    Protos.Offer remaining = Resources.subtract(offer, task);
+    assertEquals(offer.getId(), remaining.getId());
+    assertEquals(
+        new Resources(2.5, Amount.of(3072L, Data.MB), Amount.of(0L, Data.MB), 3),
+        Resources.from(remaining));
+    assertEquals(ImmutableSet.of(1, 3, 5), Resources.getPorts(remaining, 3));
+  }
+
   @Test(expected = Resources.InsufficientResourcesException.class)
   public void testPortRangeScarcity() {
     Resource portsResource = createPortRange(Pair.of(1, 2));
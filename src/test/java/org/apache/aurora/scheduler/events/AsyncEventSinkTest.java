@@ -0,0 +1,149 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.events;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.Subscribe;
+
+import org.apache.aurora.scheduler.events.PubsubEvent.DriverRegistered;
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.SchedulerActive;
+import org.apache.aurora.scheduler.events.PubsubEvent.Vetoed;
+import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+import org.apache.aurora.scheduler.storage.PostCommitExecutor;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncEventSinkTest {
+
+  private static final long TIMEOUT_SECS = 10;
+
+  // Defers all actions, as though they were submitted from within a storage write.
+  private static class DeferringExecutor extends PostCommitExecutor {
+    private final List<Runnable> deferred = Lists.newArrayList();
+
+    @Override
+    public void execute(Runnable action) {
+      deferred.add(action);
+    }
+
+    void commit() {
+      for (Runnable action : deferred) {
+        action.run();
+      }
+      deferred.clear();
+    }
+  }
+
+  private static class Subscriber implements EventSubscriber {
+    private final BlockingQueue<PubsubEvent> received = new LinkedBlockingQueue<>();
+
+    @Subscribe
+    public void driverRegistered(DriverRegistered event) {
+      received.add(event);
+    }
+
+    @Subscribe
+    public void vetoed(Vetoed event) {
+      received.add(event);
+    }
+
+    PubsubEvent take() throws InterruptedException {
+      return received.poll(TIMEOUT_SECS, TimeUnit.SECONDS);
+    }
+  }
+
+  private static class InlineSubscriber extends Subscriber
+      implements PubsubEvent.SynchronousSubscriber {
+  }
+
+  private Subscriber subscriber;
+
+  @Before
+  public void setUp() {
+    subscriber = new Subscriber();
+  }
+
+  private AsyncEventSink createSink(PostCommitExecutor executor) {
+    AsyncEventSink sink = new AsyncEventSink(executor, 10);
+    sink.register(subscriber);
+    return sink;
+  }
+
+  @Test
+  public void testDeliversSubscribedEvents() throws Exception {
+    AsyncEventSink sink = createSink(new PostCommitExecutor());
+
+    sink.post(new SchedulerActive());
+    sink.post(new DriverRegistered());
+    assertEquals(new DriverRegistered(), subscriber.take());
+    assertTrue(subscriber.received.isEmpty());
+  }
+
+  @Test
+  public void testDeliversInOrder() throws Exception {
+    AsyncEventSink sink = createSink(new PostCommitExecutor());
+
+    List<PubsubEvent> posted = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      PubsubEvent event = new Vetoed("task-" + i, ImmutableSet.of(new Veto("veto", i)));
+      posted.add(event);
+      sink.post(event);
+    }
+
+    List<PubsubEvent> received = Lists.newArrayList();
+    for (int i = 0; i < posted.size(); i++) {
+      received.add(subscriber.take());
+    }
+    assertEquals(posted, received);
+  }
+
+  @Test
+  public void testDeferredUntilCommit() throws Exception {
+    DeferringExecutor executor = new DeferringExecutor();
+    AsyncEventSink sink = createSink(executor);
+
+    sink.post(new DriverRegistered());
+    assertNull(subscriber.received.poll(100, TimeUnit.MILLISECONDS));
+
+    executor.commit();
+    assertEquals(new DriverRegistered(), subscriber.take());
+  }
+
+  @Test
+  public void testSynchronousSubscriberDeliveredOnPost() throws Exception {
+    DeferringExecutor executor = new DeferringExecutor();
+    AsyncEventSink sink = createSink(executor);
+    InlineSubscriber synchronous = new InlineSubscriber();
+    sink.register(synchronous);
+
+    sink.post(new DriverRegistered());
+    assertEquals(new DriverRegistered(), synchronous.received.poll());
+    assertNull(subscriber.received.poll(100, TimeUnit.MILLISECONDS));
+
+    executor.commit();
+    assertEquals(new DriverRegistered(), subscriber.take());
+    assertTrue(synchronous.received.isEmpty());
+  }
+}
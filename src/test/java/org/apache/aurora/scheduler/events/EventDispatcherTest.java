@@ -0,0 +1,143 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.events;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.Subscribe;
+
+import org.apache.aurora.scheduler.events.PubsubEvent.DriverRegistered;
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.SchedulerActive;
+import org.apache.aurora.scheduler.events.PubsubEvent.Vetoed;
+import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventDispatcherTest {
+
+  private static final Vetoed VETOED = new Vetoed("task", ImmutableSet.of(new Veto("veto", 1)));
+
+  private static class Subscriber implements EventSubscriber {
+    final List<Object> received = Lists.newArrayList();
+
+    @Subscribe
+    public void driverRegistered(DriverRegistered event) {
+      received.add(event);
+    }
+
+    @Subscribe
+    public void vetoed(Vetoed event) {
+      received.add(event);
+    }
+  }
+
+  private static class AllEventsSubscriber extends Subscriber {
+    @Subscribe
+    public void any(PubsubEvent event) {
+      received.add(event);
+    }
+  }
+
+  private EventDispatcher dispatcher;
+  private Subscriber subscriber;
+
+  @Before
+  public void setUp() {
+    dispatcher = new EventDispatcher();
+    subscriber = new Subscriber();
+    dispatcher.register(subscriber);
+  }
+
+  @Test
+  public void testDispatchesByType() {
+    dispatcher.post(new DriverRegistered());
+    dispatcher.post(new SchedulerActive());
+    dispatcher.post(VETOED);
+
+    assertEquals(ImmutableList.of(new DriverRegistered(), VETOED), subscriber.received);
+    assertTrue(dispatcher.isSubscribed(Vetoed.class));
+    assertFalse(dispatcher.isSubscribed(SchedulerActive.class));
+  }
+
+  @Test
+  public void testSupertypeHandlers() {
+    assertFalse(dispatcher.isSubscribed(SchedulerActive.class));
+
+    AllEventsSubscriber all = new AllEventsSubscriber();
+    dispatcher.register(all);
+
+    // Handlers resolved before a subscriber is registered are resolved again.
+    assertTrue(dispatcher.isSubscribed(SchedulerActive.class));
+    dispatcher.post(new SchedulerActive());
+    dispatcher.post(VETOED);
+
+    assertEquals(ImmutableList.of(VETOED), subscriber.received);
+    assertEquals(ImmutableList.of(new SchedulerActive(), VETOED, VETOED), all.received);
+  }
+
+  @Test
+  public void testNotReentrant() {
+    final List<Object> received = Lists.newArrayList();
+    dispatcher.register(new EventSubscriber() {
+      @Subscribe
+      public void driverRegistered(DriverRegistered event) {
+        dispatcher.post(VETOED);
+        received.add(event);
+      }
+
+      @Subscribe
+      public void vetoed(Vetoed event) {
+        received.add(event);
+      }
+    });
+
+    dispatcher.post(new DriverRegistered());
+
+    // The event posted by a handler is dispatched after the handlers of the current event.
+    assertEquals(ImmutableList.of(new DriverRegistered(), VETOED), received);
+    assertEquals(ImmutableList.of(new DriverRegistered(), VETOED), subscriber.received);
+  }
+
+  @Test
+  public void testHandlerFailure() {
+    dispatcher.register(new EventSubscriber() {
+      @Subscribe
+      public void vetoed(Vetoed event) {
+        throw new IllegalStateException("Expected.");
+      }
+    });
+
+    dispatcher.post(VETOED);
+    dispatcher.post(VETOED);
+    assertEquals(ImmutableList.of(VETOED, VETOED), subscriber.received);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidHandler() {
+    dispatcher.register(new EventSubscriber() {
+      @Subscribe
+      public void invalid(Vetoed event, DriverRegistered other) {
+        // No-op.
+      }
+    });
+  }
+}
@@ -56,7 +56,7 @@ public class NotifyingSchedulingFilterTest extends EasyMockTest {
   public void setUp() {
     delegate = createMock(SchedulingFilter.class);
     eventSink = createMock(EventSink.class);
-    filter = new NotifyingSchedulingFilter(delegate, eventSink);
+    filter = new NotifyingSchedulingFilter(delegate, new VetoAggregator(eventSink, false));
     emptyJob = new AttributeAggregate(
         Suppliers.ofInstance(ImmutableSet.<IScheduledTask>of()),
         createMock(AttributeStore.class));
@@ -0,0 +1,130 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.events;
+
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.twitter.common.testing.easymock.EasyMockTest;
+
+import org.apache.aurora.scheduler.events.PubsubEvent.Vetoed;
+import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VetoAggregatorTest extends EasyMockTest {
+
+  private static final String TASK_A = "a";
+  private static final String TASK_B = "b";
+
+  private static final Set<Veto> ALMOST = ImmutableSet.of(new Veto("Almost", 1));
+  private static final Set<Veto> NOPE = ImmutableSet.of(new Veto("Nope", 5));
+  private static final Set<Veto> MISMATCH = ImmutableSet.of(Veto.constraintMismatch("2.6.39"));
+
+  private EventSink eventSink;
+
+  @Before
+  public void setUp() {
+    eventSink = createMock(EventSink.class);
+  }
+
+  @Test
+  public void testCoalescesWithinPass() {
+    eventSink.post(new Vetoed(TASK_A, ALMOST));
+    eventSink.post(new Vetoed(TASK_B, NOPE));
+
+    control.replay();
+
+    VetoAggregator aggregator = new VetoAggregator(eventSink, true);
+    VetoAggregator.Pass pass = aggregator.beginPass(ImmutableSet.of(TASK_A, TASK_B));
+    aggregator.vetoed(TASK_A, MISMATCH);
+    aggregator.vetoed(TASK_B, NOPE);
+    aggregator.vetoed(TASK_A, ALMOST);
+    aggregator.vetoed(TASK_A, NOPE);
+    pass.end();
+  }
+
+  @Test
+  public void testCoalescesAcrossThreads() throws Exception {
+    eventSink.post(new Vetoed(TASK_A, ALMOST));
+
+    control.replay();
+
+    final VetoAggregator aggregator = new VetoAggregator(eventSink, true);
+    VetoAggregator.Pass pass = aggregator.beginPass(ImmutableSet.of(TASK_A));
+    aggregator.vetoed(TASK_A, NOPE);
+    Thread worker = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        aggregator.vetoed(TASK_A, ALMOST);
+      }
+    });
+    worker.start();
+    worker.join();
+    pass.end();
+  }
+
+  @Test
+  public void testOutsidePass() {
+    eventSink.post(new Vetoed(TASK_A, NOPE));
+    eventSink.post(new Vetoed(TASK_A, ALMOST));
+    eventSink.post(new Vetoed(TASK_B, NOPE));
+
+    control.replay();
+
+    VetoAggregator aggregator = new VetoAggregator(eventSink, true);
+    aggregator.vetoed(TASK_A, NOPE);
+    aggregator.vetoed(TASK_A, ALMOST);
+
+    // A pass without vetoes posts nothing, and does not coalesce vetoes for other tasks.
+    VetoAggregator.Pass pass = aggregator.beginPass(ImmutableSet.of(TASK_A));
+    aggregator.vetoed(TASK_B, NOPE);
+    pass.end();
+  }
+
+  @Test
+  public void testCoalescingDisabled() {
+    eventSink.post(new Vetoed(TASK_A, NOPE));
+    eventSink.post(new Vetoed(TASK_A, ALMOST));
+
+    control.replay();
+
+    VetoAggregator aggregator = new VetoAggregator(eventSink, false);
+    VetoAggregator.Pass pass = aggregator.beginPass(ImmutableSet.of(TASK_A));
+    aggregator.vetoed(TASK_A, NOPE);
+    aggregator.vetoed(TASK_A, ALMOST);
+    pass.end();
+  }
+
+  @Test
+  public void testVetoedAfterPass() {
+    eventSink.post(new Vetoed(TASK_A, NOPE));
+
+    control.replay();
+
+    VetoAggregator aggregator = new VetoAggregator(eventSink, true);
+    aggregator.beginPass(ImmutableSet.of(TASK_A)).end();
+    aggregator.vetoed(TASK_A, NOPE);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEndedTwice() {
+    control.replay();
+
+    VetoAggregator.Pass pass =
+        new VetoAggregator(eventSink, true).beginPass(ImmutableSet.of(TASK_A));
+    pass.end();
+    pass.end();
+  }
+}
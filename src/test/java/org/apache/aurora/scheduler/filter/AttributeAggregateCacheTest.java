@@ -0,0 +1,190 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.filter;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.twitter.common.collections.Pair;
+
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.Attribute;
+import org.apache.aurora.gen.HostAttributes;
+import org.apache.aurora.gen.Identity;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.events.PubsubEvent.HostAttributesChanged;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.filter.AttributeAggregateCache.Mode;
+import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.Storage.MutableStoreProvider;
+import org.apache.aurora.scheduler.storage.Storage.MutateWork;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.mem.MemStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AttributeAggregateCacheTest {
+
+  private static final IJobKey JOB = JobKeys.from("role", "env", "job");
+  private static final IJobKey OTHER_JOB = JobKeys.from("role", "env", "other");
+  private static final AttributeAggregate RECOMPUTED =
+      AttributeAggregate.fromCounts(ImmutableMap.<Pair<String, String>, Long>of());
+
+  private Storage storage;
+  private AttributeAggregateCache cache;
+
+  @Before
+  public void setUp() {
+    storage = MemStorage.newEmptyStorage();
+    saveAttributes(hostAttributes("a1", attribute("host", "a1"), attribute("rack", "a")));
+    saveAttributes(hostAttributes("a2", attribute("host", "a2"), attribute("rack", "a")));
+    cache = new AttributeAggregateCache(storage, Mode.INCREMENTAL);
+  }
+
+  @Test
+  public void testRecomputeMode() {
+    cache = new AttributeAggregateCache(storage, Mode.RECOMPUTE);
+    initialize(task("1", JOB, "a1", ScheduleStatus.RUNNING));
+    assertSame(RECOMPUTED, cache.getAggregate(JOB, RECOMPUTED));
+  }
+
+  @Test
+  public void testTaskLifecycle() {
+    initialize(task("1", JOB, null, ScheduleStatus.PENDING));
+    assertCounts(JOB, ImmutableMap.<Pair<String, String>, Long>of());
+
+    IScheduledTask assigned = task("1", JOB, "a1", ScheduleStatus.ASSIGNED);
+    cache.taskChangedState(TaskStateChange.transition(assigned, ScheduleStatus.PENDING));
+    initialize(task("2", JOB, "a2", ScheduleStatus.RUNNING));
+    initialize(task("3", OTHER_JOB, "a2", ScheduleStatus.RUNNING));
+    assertCounts(JOB, ImmutableMap.of(
+        Pair.of("host", "a1"), 1L,
+        Pair.of("host", "a2"), 1L,
+        Pair.of("rack", "a"), 2L));
+
+    // Re-posting an already-counted task must not double count.
+    IScheduledTask running = task("1", JOB, "a1", ScheduleStatus.RUNNING);
+    cache.taskChangedState(TaskStateChange.transition(running, ScheduleStatus.ASSIGNED));
+    assertCounts(JOB, ImmutableMap.of(
+        Pair.of("host", "a1"), 1L,
+        Pair.of("host", "a2"), 1L,
+        Pair.of("rack", "a"), 2L));
+
+    cache.taskChangedState(TaskStateChange.transition(
+        task("1", JOB, "a1", ScheduleStatus.FINISHED),
+        ScheduleStatus.RUNNING));
+    assertCounts(JOB, ImmutableMap.of(Pair.of("host", "a2"), 1L, Pair.of("rack", "a"), 1L));
+
+    cache.tasksDeleted(
+        new TasksDeleted(ImmutableSet.of(task("2", JOB, "a2", ScheduleStatus.RUNNING))));
+    assertCounts(JOB, ImmutableMap.<Pair<String, String>, Long>of());
+    assertCounts(OTHER_JOB, ImmutableMap.of(Pair.of("host", "a2"), 1L, Pair.of("rack", "a"), 1L));
+  }
+
+  @Test
+  public void testHostAttributesChanged() {
+    initialize(task("1", JOB, "a1", ScheduleStatus.RUNNING));
+    initialize(task("2", JOB, "a1", ScheduleStatus.RUNNING));
+
+    IHostAttributes moved = hostAttributes("a1", attribute("host", "a1"), attribute("rack", "b"));
+    saveAttributes(moved);
+    cache.hostAttributesChanged(new HostAttributesChanged(moved));
+    assertCounts(JOB, ImmutableMap.of(Pair.of("host", "a1"), 2L, Pair.of("rack", "b"), 2L));
+  }
+
+  @Test
+  public void testTasksOnHostWithoutAttributes() {
+    initialize(task("1", JOB, "bare", ScheduleStatus.RUNNING));
+    initialize(task("2", JOB, "bare", ScheduleStatus.RUNNING));
+    assertCounts(JOB, ImmutableMap.<Pair<String, String>, Long>of());
+
+    cache.taskChangedState(TaskStateChange.transition(
+        task("1", JOB, "bare", ScheduleStatus.FINISHED),
+        ScheduleStatus.RUNNING));
+    assertCounts(JOB, ImmutableMap.<Pair<String, String>, Long>of());
+
+    IHostAttributes labeled = hostAttributes("bare", attribute("rack", "c"));
+    saveAttributes(labeled);
+    cache.hostAttributesChanged(new HostAttributesChanged(labeled));
+    assertCounts(JOB, ImmutableMap.of(Pair.of("rack", "c"), 1L));
+
+    cache.tasksDeleted(
+        new TasksDeleted(ImmutableSet.of(task("2", JOB, "bare", ScheduleStatus.RUNNING))));
+    assertCounts(JOB, ImmutableMap.<Pair<String, String>, Long>of());
+  }
+
+  @Test
+  public void testVerifyFallsBackOnMismatch() {
+    cache = new AttributeAggregateCache(storage, Mode.VERIFY);
+    initialize(task("1", JOB, "a1", ScheduleStatus.RUNNING));
+
+    AttributeAggregate expected = AttributeAggregate.fromCounts(
+        ImmutableMap.of(Pair.of("host", "a1"), 1L, Pair.of("rack", "a"), 1L));
+    AttributeAggregate served = cache.getAggregate(JOB, expected);
+    assertEquals(expected, served);
+    assertEquals(RECOMPUTED, cache.getAggregate(OTHER_JOB, RECOMPUTED));
+    assertSame(RECOMPUTED, cache.getAggregate(JOB, RECOMPUTED));
+  }
+
+  private void initialize(IScheduledTask task) {
+    cache.taskChangedState(TaskStateChange.initialized(task));
+  }
+
+  private void assertCounts(IJobKey job, Map<Pair<String, String>, Long> expected) {
+    assertEquals(expected, cache.getAggregate(job, RECOMPUTED).getAggregates());
+  }
+
+  private void saveAttributes(final IHostAttributes attributes) {
+    storage.write(new MutateWork.NoResult.Quiet() {
+      @Override
+      protected void execute(MutableStoreProvider storeProvider) {
+        storeProvider.getAttributeStore().saveHostAttributes(attributes);
+      }
+    });
+  }
+
+  private static IHostAttributes hostAttributes(String host, Attribute... attributes) {
+    return IHostAttributes.build(new HostAttributes()
+        .setHost(host)
+        .setAttributes(ImmutableSet.<Attribute>builder().add(attributes).build()));
+  }
+
+  private static Attribute attribute(String name, String... values) {
+    return new Attribute()
+        .setName(name)
+        .setValues(ImmutableSet.<String>builder().add(values).build());
+  }
+
+  private static IScheduledTask task(String id, IJobKey job, String host, ScheduleStatus status) {
+    return IScheduledTask.build(new ScheduledTask()
+        .setStatus(status)
+        .setAssignedTask(new AssignedTask()
+            .setTaskId(id)
+            .setSlaveHost(host)
+            .setTask(new TaskConfig()
+                .setOwner(new Identity(job.getRole(), job.getRole()))
+                .setEnvironment(job.getEnvironment())
+                .setJobName(job.getName()))));
+  }
+}
@@ -114,7 +114,7 @@ public class SchedulingFilterImplTest extends EasyMockTest {
   public void setUp() throws Exception {
     storage = createMock(Storage.class);
     maintenance = createMock(MaintenanceController.class);
-    defaultFilter = new SchedulingFilterImpl(storage, maintenance);
+    defaultFilter = new SchedulingFilterImpl(storage, maintenance, enableFilterPlans());
     storeProvider = createMock(StoreProvider.class);
     attributeStore = createMock(AttributeStore.Mutable.class);
     emptyJob = new AttributeAggregate(
@@ -127,6 +127,15 @@ public class SchedulingFilterImplTest extends EasyMockTest {
     expect(storeProvider.getAttributeStore()).andReturn(attributeStore).anyTimes();
   }
 
+  /**
+   * Determines whether the filter under test evaluates offers with compiled filter plans.
+   *
+   * @return {@code true} to test filter plans, {@code false} to test filter rules.
+   */
+  protected boolean enableFilterPlans() {
+    return false;
+  }
+
   private void expectReads() throws Exception {
     expect(storage.weaklyConsistentRead(EasyMock.<Quiet<Object>>anyObject()))
         .andAnswer(new IAnswer<Object>() {
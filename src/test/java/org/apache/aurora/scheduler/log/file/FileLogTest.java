@@ -0,0 +1,212 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.log.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.testing.TearDown;
+import com.google.common.testing.junit4.TearDownTestCase;
+import com.twitter.common.io.FileUtils;
+import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
+import com.twitter.common.quantity.Time;
+
+import org.apache.aurora.scheduler.log.Log.Entry;
+import org.apache.aurora.scheduler.log.Log.Position;
+import org.apache.aurora.scheduler.log.Log.Stream;
+import org.apache.aurora.scheduler.log.Log.Stream.InvalidPositionException;
+import org.apache.aurora.scheduler.log.file.FileLog.SyncPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileLogTest extends TearDownTestCase {
+
+  // Fits two of the records appended by these tests.
+  private static final Amount<Integer, Data> SEGMENT_SIZE = Amount.of(32, Data.BYTES);
+
+  private File directory;
+
+  @Before
+  public void setUp() {
+    directory = FileUtils.createTempDir();
+    addTearDown(new TearDown() {
+      @Override
+      public void tearDown() throws Exception {
+        org.apache.commons.io.FileUtils.deleteDirectory(directory);
+      }
+    });
+  }
+
+  private Stream open() throws IOException {
+    return new FileLog(new FileLog.Settings(
+        directory,
+        SEGMENT_SIZE,
+        SyncPolicy.EVERY_APPEND,
+        Amount.of(1L, Time.SECONDS))).open();
+  }
+
+  @Test
+  public void testAppendAndRead() throws Exception {
+    Stream stream = open();
+    assertContents(stream);
+
+    Position first = stream.append(bytes("entry-0"));
+    Position second = stream.append(bytes("entry-1"));
+    assertTrue(first.compareTo(second) < 0);
+    assertContents(stream, "entry-0", "entry-1");
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    Stream stream = open();
+    Position first = stream.append(bytes("entry-0"));
+    stream.append(bytes("entry-1"));
+    stream.append(bytes("entry-2"));
+
+    Stream reopened = open();
+    assertContents(reopened, "entry-0", "entry-1", "entry-2");
+    Position next = reopened.append(bytes("entry-3"));
+    assertTrue(first.compareTo(next) < 0);
+    assertContents(open(), "entry-0", "entry-1", "entry-2", "entry-3");
+  }
+
+  @Test
+  public void testSegmentRollover() throws Exception {
+    Stream stream = open();
+    List<String> expected = Lists.newArrayList();
+    for (int i = 0; i < 6; i++) {
+      expected.add("entry-" + i);
+      stream.append(bytes("entry-" + i));
+    }
+    assertEquals(3, segmentCount());
+
+    // An entry larger than a segment is given a segment of its own.
+    String large = Strings.repeat("x", 100);
+    expected.add(large);
+    stream.append(bytes(large));
+    expected.add("entry-6");
+    stream.append(bytes("entry-6"));
+    assertEquals(5, segmentCount());
+
+    assertContents(stream, expected.toArray(new String[expected.size()]));
+    assertContents(open(), expected.toArray(new String[expected.size()]));
+  }
+
+  @Test
+  public void testTruncate() throws Exception {
+    Stream stream = open();
+    List<Position> positions = Lists.newArrayList();
+    for (int i = 0; i < 6; i++) {
+      positions.add(stream.append(bytes("entry-" + i)));
+    }
+    assertEquals(3, segmentCount());
+
+    stream.truncateBefore(positions.get(3));
+    assertEquals(2, segmentCount());
+    assertContents(stream, "entry-3", "entry-4", "entry-5");
+
+    // Truncating to an earlier position has no effect.
+    stream.truncateBefore(positions.get(1));
+    assertContents(stream, "entry-3", "entry-4", "entry-5");
+    assertContents(open(), "entry-3", "entry-4", "entry-5");
+  }
+
+  @Test(expected = InvalidPositionException.class)
+  public void testTruncateForeignPosition() throws Exception {
+    open().truncateBefore(new Position() {
+      @Override
+      public int compareTo(Position o) {
+        return 0;
+      }
+    });
+  }
+
+  @Test
+  public void testReadAfter() throws Exception {
+    Stream stream = open();
+    assertEntries(stream.readAfter(null));
+
+    List<Position> positions = Lists.newArrayList();
+    for (int i = 0; i < 4; i++) {
+      positions.add(stream.append(bytes("entry-" + i)));
+    }
+    assertEntries(stream.readAfter(null), "entry-0", "entry-1", "entry-2", "entry-3");
+    assertEntries(stream.readAfter(positions.get(1)), "entry-2", "entry-3");
+    assertEntries(stream.readAfter(positions.get(3)));
+
+    Iterator<Entry> entries = stream.readAfter(positions.get(2));
+    assertEquals(positions.get(3), entries.next().position());
+
+    // Reading after a truncated position reads from the start of the log.
+    stream.truncateBefore(positions.get(2));
+    assertEntries(stream.readAfter(positions.get(0)), "entry-2", "entry-3");
+  }
+
+  @Test
+  public void testTornTail() throws Exception {
+    Stream stream = open();
+    stream.append(bytes("a"));
+    stream.append(bytes("b"));
+
+    // Corrupt the checksum of the second record, which follows the 9 byte record of the first.
+    File segment = directory.listFiles()[0];
+    try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+      file.seek(9 + 4);
+      file.writeInt(0);
+    }
+
+    Stream reopened = open();
+    assertContents(reopened, "a");
+    reopened.append(bytes("c"));
+    assertContents(reopened, "a", "c");
+    assertContents(open(), "a", "c");
+  }
+
+  private int segmentCount() {
+    int count = 0;
+    for (String name : directory.list()) {
+      if (name.endsWith(".segment")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(Charsets.UTF_8);
+  }
+
+  private static void assertContents(Stream stream, String... expected) {
+    assertEntries(stream.readAll(), expected);
+  }
+
+  private static void assertEntries(Iterator<Entry> entries, String... expected) {
+    List<String> actual = Lists.newArrayList();
+    while (entries.hasNext()) {
+      actual.add(new String(entries.next().contents(), Charsets.UTF_8));
+    }
+    assertEquals(ImmutableList.copyOf(expected), actual);
+  }
+}
@@ -16,6 +16,7 @@ package org.apache.aurora.scheduler.log.mesos;
 import java.lang.reflect.Constructor;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeoutException;
 
 import com.google.common.base.Charsets;
@@ -36,8 +37,10 @@ import com.twitter.common.testing.easymock.EasyMockTest;
 import org.apache.aurora.scheduler.log.Log.Stream.StreamAccessException;
 import org.apache.aurora.scheduler.log.mesos.LogInterface.ReaderInterface;
 import org.apache.aurora.scheduler.log.mesos.LogInterface.WriterInterface;
+import org.apache.aurora.scheduler.log.mesos.MesosLog.LogStream.BatchReader;
 import org.apache.mesos.Log;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.easymock.IExpectationSetters;
 import org.junit.Before;
 import org.junit.Test;
@@ -46,6 +49,8 @@ import static org.apache.aurora.scheduler.log.mesos.MesosLog.LogStream.LogPositi
 import static org.apache.mesos.Log.Position;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class MesosLogTest extends EasyMockTest {
@@ -66,7 +71,10 @@ public class MesosLogTest extends EasyMockTest {
     backingLog = createMock(LogInterface.class);
     logReader = createMock(ReaderInterface.class);
     logWriter = createMock(WriterInterface.class);
+    logStream = openStream(1);
+  }
 
+  private org.apache.aurora.scheduler.log.Log.Stream openStream(final int readBatchSize) {
     Injector injector = Guice.createInjector(new AbstractModule() {
       @Override
       protected void configure() {
@@ -74,6 +82,9 @@ public class MesosLogTest extends EasyMockTest {
         bind(ReaderInterface.class).toInstance(logReader);
         bind(new TypeLiteral<Amount<Long, Time>>() { }).annotatedWith(MesosLog.ReadTimeout.class)
             .toInstance(READ_TIMEOUT);
+        bind(Integer.class).annotatedWith(MesosLog.ReadBatchSize.class)
+            .toInstance(readBatchSize);
+        bind(Integer.class).annotatedWith(MesosLog.ReadPrefetchBatches.class).toInstance(1);
         bind(WriterInterface.class).toInstance(logWriter);
         bind(new TypeLiteral<Amount<Long, Time>>() { }).annotatedWith(MesosLog.WriteTimeout.class)
             .toInstance(WRITE_TIMEOUT);
@@ -83,8 +94,7 @@ public class MesosLogTest extends EasyMockTest {
       }
     });
 
-    MesosLog log = injector.getInstance(MesosLog.class);
-    logStream = log.open();
+    return injector.getInstance(MesosLog.class).open();
   }
 
   @Test
@@ -285,6 +295,93 @@ public class MesosLogTest extends EasyMockTest {
     logStream.readAll().next();
   }
 
+  @Test
+  public void testBatchedLogRead() throws Exception {
+    logStream = openStream(2);
+
+    Position beginning = makePosition(1);
+    Position second = makePosition(2);
+    Position third = makePosition(3);
+    Position fourth = makePosition(4);
+    Position end = expectWrite(DUMMY_CONTENT, 5);
+    expectDiscoverEntryRange(beginning, end);
+    expectRead(beginning, second)
+        .andReturn(ImmutableList.of(makeEntry(beginning, "a"), makeEntry(second, "b")));
+    // Positions that do not hold appended entries are omitted from batches.
+    expectRead(third, fourth).andReturn(ImmutableList.of(makeEntry(fourth, "d")));
+    expectRead(end, end).andReturn(ImmutableList.of(makeEntry(end, DUMMY_CONTENT)));
+
+    control.replay();
+
+    assertEquals(ImmutableList.of("a", "b", "d", DUMMY_CONTENT), readAll());
+  }
+
+  @Test(expected = StreamAccessException.class)
+  public void testBatchedReadTimeout() throws Exception {
+    logStream = openStream(2);
+
+    Position beginning = makePosition(1);
+    Position second = makePosition(2);
+    Position end = expectWrite(DUMMY_CONTENT, 3);
+    expectDiscoverEntryRange(beginning, end);
+    expectRead(beginning, second)
+        .andReturn(ImmutableList.of(makeEntry(beginning, "a"), makeEntry(second, "b")));
+    expectRead(end, end).andThrow(new TimeoutException("injected"));
+
+    control.replay();
+
+    readAll();
+  }
+
+  @Test
+  public void testAbandonedBatchedRead() throws Exception {
+    logStream = openStream(2);
+
+    Position beginning = makePosition(1);
+    Position second = makePosition(2);
+    final Position third = makePosition(3);
+    final Position end = expectWrite(DUMMY_CONTENT, 4);
+    expectDiscoverEntryRange(beginning, end);
+    expectRead(beginning, second)
+        .andReturn(ImmutableList.of(makeEntry(beginning, "a"), makeEntry(second, "b")));
+    final CountDownLatch prefetched = new CountDownLatch(1);
+    expectRead(third, end).andAnswer(new IAnswer<List<Log.Entry>>() {
+      @Override
+      public List<Log.Entry> answer() throws Exception {
+        prefetched.countDown();
+        return ImmutableList.of(makeEntry(third, "c"), makeEntry(end, DUMMY_CONTENT));
+      }
+    });
+
+    control.replay();
+
+    BatchReader reader = (BatchReader) logStream.readAll();
+    assertTrue(reader.hasNext());
+    assertEquals("a", new String(reader.next().contents(), Charsets.UTF_8));
+
+    // The prefetch thread is now blocked handing over batches that will never be consumed.
+    prefetched.await();
+    reader.close();
+    assertFalse(reader.hasNext());
+    long deadline = System.currentTimeMillis() + Amount.of(10L, Time.SECONDS).as(Time.MILLISECONDS);
+    while (reader.isPrefetching()) {
+      assertTrue("Prefetch thread did not stop.", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  private IExpectationSetters<List<Log.Entry>> expectRead(Position from, Position to)
+      throws Exception {
+
+    expectSetPosition(from);
+    expectSetPosition(to);
+    return expect(logReader.read(
+        from,
+        to,
+        READ_TIMEOUT.getValue(),
+        READ_TIMEOUT.getUnit().getTimeUnit()));
+  }
+
   @Test
   public void testSortOrder() throws Exception {
     control.replay();
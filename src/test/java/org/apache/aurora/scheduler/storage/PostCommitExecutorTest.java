@@ -0,0 +1,91 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PostCommitExecutorTest {
+
+  private PostCommitExecutor executor;
+  private AtomicInteger runs;
+  private Runnable action;
+
+  @Before
+  public void setUp() {
+    executor = new PostCommitExecutor();
+    runs = new AtomicInteger();
+    action = new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+      }
+    };
+  }
+
+  @Test
+  public void testOutsideWrite() {
+    executor.execute(action);
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  public void testNestedWrites() {
+    executor.begin();
+    executor.execute(action);
+    executor.begin();
+    executor.execute(action);
+    executor.end(true);
+    assertEquals(0, runs.get());
+
+    executor.end(true);
+    assertEquals(2, runs.get());
+
+    // Actions already run are not run again by a later write.
+    executor.begin();
+    executor.end(true);
+    assertEquals(2, runs.get());
+  }
+
+  @Test
+  public void testFailedWrite() {
+    executor.begin();
+    executor.execute(action);
+    executor.end(false);
+    assertEquals(0, runs.get());
+
+    executor.execute(action);
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  public void testInnerWriteFailure() {
+    // The outermost write decides whether deferred actions run.
+    executor.begin();
+    executor.begin();
+    executor.execute(action);
+    executor.end(false);
+    executor.end(true);
+    assertEquals(1, runs.get());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUnbalancedEnd() {
+    executor.end(true);
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.db;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.twitter.common.testing.easymock.EasyMockTest;
+
+import org.apache.aurora.gen.Attribute;
+import org.apache.aurora.gen.HostAttributes;
+import org.apache.aurora.gen.MaintenanceMode;
+import org.apache.aurora.scheduler.storage.AttributeStore;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CachedAttributeStoreTest extends EasyMockTest {
+
+  private static final String HOST_A = "hostA";
+  private static final String HOST_B = "hostB";
+  private static final IHostAttributes ATTRIBUTES_A = IHostAttributes.build(new HostAttributes()
+      .setHost(HOST_A)
+      .setMode(MaintenanceMode.NONE)
+      .setAttributes(ImmutableSet.of(new Attribute("rack", ImmutableSet.of("a")))));
+  private static final IHostAttributes DRAINING_A =
+      IHostAttributes.build(ATTRIBUTES_A.newBuilder().setMode(MaintenanceMode.DRAINING));
+
+  private AttributeStore.Mutable delegate;
+  private AttributeStore.Mutable store;
+
+  @Before
+  public void setUp() {
+    delegate = createMock(AttributeStore.Mutable.class);
+    store = new CachedAttributeStore(delegate);
+  }
+
+  @Test
+  public void testReadThrough() {
+    expect(delegate.getHostAttributes(HOST_A)).andReturn(Optional.of(ATTRIBUTES_A));
+    expect(delegate.getHostAttributes(HOST_B)).andReturn(Optional.<IHostAttributes>absent());
+
+    control.replay();
+
+    assertEquals(Optional.of(ATTRIBUTES_A), store.getHostAttributes(HOST_A));
+    assertEquals(Optional.of(ATTRIBUTES_A), store.getHostAttributes(HOST_A));
+    assertEquals(Optional.<IHostAttributes>absent(), store.getHostAttributes(HOST_B));
+    assertEquals(Optional.<IHostAttributes>absent(), store.getHostAttributes(HOST_B));
+  }
+
+  @Test
+  public void testWritesReplaceCachedValue() {
+    expect(delegate.getHostAttributes(HOST_A)).andReturn(Optional.<IHostAttributes>absent());
+    delegate.saveHostAttributes(ATTRIBUTES_A);
+    expect(delegate.getHostAttributes(HOST_A)).andReturn(Optional.of(ATTRIBUTES_A));
+    expect(delegate.setMaintenanceMode(HOST_A, MaintenanceMode.DRAINING)).andReturn(true);
+    expect(delegate.getHostAttributes(HOST_A)).andReturn(Optional.of(DRAINING_A));
+    expect(delegate.setMaintenanceMode(HOST_B, MaintenanceMode.DRAINING)).andReturn(false);
+    expect(delegate.getHostAttributes(HOST_B)).andReturn(Optional.<IHostAttributes>absent());
+
+    control.replay();
+
+    assertEquals(Optional.<IHostAttributes>absent(), store.getHostAttributes(HOST_A));
+    store.saveHostAttributes(ATTRIBUTES_A);
+    assertEquals(Optional.of(ATTRIBUTES_A), store.getHostAttributes(HOST_A));
+    assertTrue(store.setMaintenanceMode(HOST_A, MaintenanceMode.DRAINING));
+    assertEquals(Optional.of(DRAINING_A), store.getHostAttributes(HOST_A));
+    assertFalse(store.setMaintenanceMode(HOST_B, MaintenanceMode.DRAINING));
+    assertEquals(Optional.<IHostAttributes>absent(), store.getHostAttributes(HOST_B));
+  }
+
+  @Test
+  public void testDeleteClearsCache() {
+    expect(delegate.getHostAttributes(HOST_A)).andReturn(Optional.of(ATTRIBUTES_A));
+    delegate.deleteHostAttributes();
+    expect(delegate.getHostAttributes(HOST_A)).andReturn(Optional.<IHostAttributes>absent());
+
+    control.replay();
+
+    assertEquals(Optional.of(ATTRIBUTES_A), store.getHostAttributes(HOST_A));
+    store.deleteHostAttributes();
+    assertEquals(Optional.<IHostAttributes>absent(), store.getHostAttributes(HOST_A));
+  }
+}
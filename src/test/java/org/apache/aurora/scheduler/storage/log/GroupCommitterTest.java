@@ -0,0 +1,212 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.ImmutableList;
+import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
+import com.twitter.common.quantity.Time;
+import com.twitter.common.testing.easymock.EasyMockTest;
+
+import org.apache.aurora.codec.ThriftBinaryCodec;
+import org.apache.aurora.gen.storage.LogEntry;
+import org.apache.aurora.gen.storage.Op;
+import org.apache.aurora.gen.storage.RemoveJob;
+import org.apache.aurora.gen.storage.Transaction;
+import org.apache.aurora.gen.storage.storageConstants;
+import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.log.Log.Position;
+import org.apache.aurora.scheduler.log.Log.Stream;
+import org.apache.aurora.scheduler.log.Log.Stream.StreamAccessException;
+import org.apache.aurora.scheduler.storage.Storage.StorageException;
+import org.apache.aurora.scheduler.storage.log.LogManager.StreamManager;
+import org.apache.aurora.scheduler.storage.log.LogManager.StreamManager.StreamTransaction;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.aryEq;
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class GroupCommitterTest extends EasyMockTest {
+
+  private static final Op OP_A = removeJob("a");
+  private static final Op OP_B = removeJob("b");
+
+  private Stream stream;
+  private StreamManager streamManager;
+
+  @Before
+  public void setUp() {
+    stream = createMock(Stream.class);
+    streamManager = new StreamManager(stream, false, Amount.of(1, Data.GB), 0);
+  }
+
+  private GroupCommitter createCommitter(Amount<Long, Time> window, int maxOps) {
+    return new GroupCommitter(streamManager, new GroupCommitter.Settings(window, maxOps));
+  }
+
+  @Test
+  public void testCommit() throws Exception {
+    expectAppend(OP_A);
+
+    control.replay();
+
+    GroupCommitter committer = createCommitter(Amount.of(0L, Time.MILLISECONDS), 10);
+    committer.enqueue(transaction(OP_A)).get().await();
+  }
+
+  @Test
+  public void testEmptyTransaction() throws Exception {
+    control.replay();
+
+    GroupCommitter committer = createCommitter(Amount.of(0L, Time.MILLISECONDS), 10);
+    assertFalse(committer.enqueue(transaction()).isPresent());
+  }
+
+  @Test
+  public void testConcurrentCommitsShareAppend() throws Exception {
+    expectAppend(OP_A, OP_B);
+
+    control.replay();
+
+    // The window is long enough that the batch may only close on reaching its op limit.
+    GroupCommitter committer = createCommitter(Amount.of(1L, Time.HOURS), 2);
+    final GroupCommitter.Batch first = committer.enqueue(transaction(OP_A)).get();
+    GroupCommitter.Batch second = committer.enqueue(transaction(OP_B)).get();
+    assertSame(first, second);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Void> firstCommit = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          first.await();
+          return null;
+        }
+      });
+      second.await();
+      firstCommit.get();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testSeparateBatches() throws Exception {
+    expectAppend(OP_A);
+    expectAppend(OP_B);
+
+    control.replay();
+
+    GroupCommitter committer = createCommitter(Amount.of(0L, Time.MILLISECONDS), 10);
+    committer.enqueue(transaction(OP_A)).get().await();
+    committer.enqueue(transaction(OP_B)).get().await();
+  }
+
+  @Test
+  public void testFlushClosesOpenBatch() throws Exception {
+    expectAppend(OP_A);
+
+    control.replay();
+
+    // The batch would otherwise be held open for the full window.
+    GroupCommitter committer = createCommitter(Amount.of(1L, Time.HOURS), 10);
+    GroupCommitter.Batch batch = committer.enqueue(transaction(OP_A)).get();
+    committer.flush();
+    batch.await();
+
+    // With nothing enqueued, flushing appends nothing.
+    committer.flush();
+  }
+
+  @Test(expected = StreamAccessException.class)
+  public void testAppendFailure() throws Exception {
+    expect(stream.append(aryEq(encode(OP_A))))
+        .andThrow(new StreamAccessException("Injected", new RuntimeException()));
+
+    control.replay();
+
+    GroupCommitter committer = createCommitter(Amount.of(0L, Time.MILLISECONDS), 10);
+    committer.enqueue(transaction(OP_A)).get().await();
+  }
+
+  @Test
+  public void testAppendFailureIsFatal() throws Exception {
+    final GroupCommitter committer = createCommitter(Amount.of(0L, Time.MILLISECONDS), 10);
+    final AtomicReference<GroupCommitter.Batch> enqueuedDuringAppend = new AtomicReference<>();
+    expect(stream.append(aryEq(encode(OP_A)))).andAnswer(new IAnswer<Position>() {
+      @Override
+      public Position answer() {
+        enqueuedDuringAppend.set(committer.enqueue(transaction(OP_B)).get());
+        throw new StreamAccessException("Injected", new RuntimeException());
+      }
+    });
+
+    control.replay();
+
+    try {
+      committer.enqueue(transaction(OP_A)).get().await();
+      fail();
+    } catch (StreamAccessException e) {
+      // Expected.
+    }
+
+    // The batch gathered during the failed append depends on it, and is failed without appending.
+    try {
+      enqueuedDuringAppend.get().await();
+      fail();
+    } catch (StreamAccessException e) {
+      // Expected.
+    }
+
+    try {
+      committer.enqueue(transaction(OP_A));
+      fail();
+    } catch (StorageException e) {
+      // Expected.
+    }
+  }
+
+  private void expectAppend(Op... ops) throws Exception {
+    Position position = createMock(Position.class);
+    expect(stream.append(aryEq(encode(ops)))).andReturn(position);
+  }
+
+  private StreamTransaction transaction(Op... ops) {
+    StreamTransaction transaction = streamManager.startTransaction();
+    for (Op op : ops) {
+      transaction.add(op.deepCopy());
+    }
+    return transaction;
+  }
+
+  private static byte[] encode(Op... ops) throws Exception {
+    return ThriftBinaryCodec.encodeNonNull(LogEntry.transaction(
+        new Transaction(ImmutableList.copyOf(ops), storageConstants.CURRENT_SCHEMA_VERSION)));
+  }
+
+  private static Op removeJob(String role) {
+    return Op.removeJob(new RemoveJob(JobKeys.from(role, "env", "job").newBuilder()));
+  }
+}
@@ -15,6 +15,7 @@ package org.apache.aurora.scheduler.storage.log;
 
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
@@ -103,7 +104,7 @@ public class LogManagerTest extends EasyMockTest {
   }
 
   private StreamManager createStreamManager(Amount<Integer, Data> maxEntrySize) {
-    return new StreamManager(stream, false, maxEntrySize);
+    return new StreamManager(stream, false, maxEntrySize, 0);
   }
 
   @Test
@@ -266,6 +267,31 @@ public class LogManagerTest extends EasyMockTest {
     createNoMessagesStreamManager().snapshot(snapshot);
   }
 
+  @Test
+  public void testFramedSnapshot() throws Exception {
+    Snapshot snapshot = createSnapshot();
+    Message message = frame(LogEntry.snapshot(snapshot));
+    expectFrames(position1, message);
+    stream.truncateBefore(position1);
+
+    control.replay();
+
+    createStreamManager(message.chunkSize).snapshot(snapshot);
+  }
+
+  @Test
+  public void testFramedSnapshotAtCapturePosition() throws Exception {
+    Snapshot snapshot = createSnapshot();
+    Message message = frame(LogEntry.snapshot(snapshot));
+    expectFrames(position2, message);
+    // The entries following the capture position are kept.
+    stream.truncateBefore(position1);
+
+    control.replay();
+
+    createStreamManager(message.chunkSize).snapshot(snapshot, position1);
+  }
+
   @Test
   public void testTransactionOps() throws CodingException {
     Op saveFrameworkId = Op.saveFrameworkId(new SaveFrameworkId("jake"));
@@ -384,6 +410,13 @@ public class LogManagerTest extends EasyMockTest {
         throw new UnsupportedOperationException();
       }
 
+      @Override
+      public Iterator<Entry> readAfter(Position position)
+          throws InvalidPositionException, StreamAccessException {
+
+        throw new UnsupportedOperationException();
+      }
+
       @Override
       public void truncateBefore(Position position)
           throws InvalidPositionException, StreamAccessException {
@@ -391,7 +424,8 @@ public class LogManagerTest extends EasyMockTest {
       }
     };
 
-    final StreamManager streamManager = new StreamManager(mockStream, false, message1.chunkSize);
+    final StreamManager streamManager =
+        new StreamManager(mockStream, false, message1.chunkSize, 0);
     StreamTransaction tr1 = streamManager.startTransaction();
     tr1.add(op1);
 
@@ -475,6 +509,47 @@ public class LogManagerTest extends EasyMockTest {
     createStreamManager(message.chunkSize).readFromBeginning(reader);
   }
 
+  @Test
+  public void testReadAfterIncompleteFrame() throws Exception {
+    LogEntry transaction1 = createLogEntry(
+        Op.removeJob(new RemoveJob(JobKeys.from("r1", "env", "name").newBuilder())));
+    LogEntry transaction2 = createLogEntry(
+        Op.removeJob(new RemoveJob(JobKeys.from("r2", "env", "name").newBuilder())));
+
+    Message message = frame(transaction2);
+
+    Position standardPosition = createMock(Position.class);
+    Entry standardEntry = expectContents(transaction1);
+    expect(standardEntry.position()).andReturn(standardPosition);
+
+    // The first read ends before the last chunk of the frame.
+    List<Entry> partial = Lists.newArrayList(standardEntry);
+    List<Entry> frame = Lists.newArrayList();
+    Position lastPosition = null;
+    for (LogEntry frameEntry : Iterables.concat(ImmutableList.of(message.header), message.chunks)) {
+      Entry entry = createMock(Entry.class);
+      lastPosition = createMock(Position.class);
+      expect(entry.position()).andReturn(lastPosition).anyTimes();
+      expect(entry.contents()).andReturn(encode(frameEntry)).anyTimes();
+      frame.add(entry);
+    }
+    partial.addAll(frame.subList(0, frame.size() - 1));
+    expect(stream.readAfter(null)).andReturn(partial.iterator());
+
+    // The next read starts again from the header.
+    expect(stream.readAfter(standardPosition)).andReturn(frame.iterator());
+
+    Closure<LogEntry> reader = createMock(new Clazz<Closure<LogEntry>>() { });
+    reader.execute(transaction1);
+    reader.execute(transaction2);
+
+    control.replay();
+
+    StreamManager streamManager = createStreamManager(message.chunkSize);
+    assertSame(standardPosition, streamManager.readAfter(null, reader));
+    assertSame(lastPosition, streamManager.readAfter(standardPosition, reader));
+  }
+
   @Test
   public void testWriteAndReadDeflatedEntry() throws Exception {
     Snapshot snapshot = createSnapshot();
@@ -494,11 +569,64 @@ public class LogManagerTest extends EasyMockTest {
 
     control.replay();
 
-    StreamManager streamManager = new StreamManager(stream, true, NO_FRAMES_EVER_SIZE);
+    StreamManager streamManager = new StreamManager(stream, true, NO_FRAMES_EVER_SIZE, 0);
     streamManager.snapshot(snapshot);
     streamManager.readFromBeginning(reader);
   }
 
+  @Test
+  public void testPipelinedRead() throws Exception {
+    Snapshot snapshot = createSnapshot();
+    Message message = frame(Entries.deflate(LogEntry.snapshot(snapshot)));
+
+    List<Entry> entries = Lists.newArrayList();
+    List<LogEntry> expected = Lists.newArrayList();
+    entries.add(expectContents(message.header));
+    for (LogEntry chunk : message.chunks) {
+      entries.add(expectContents(chunk));
+    }
+    expected.add(LogEntry.snapshot(snapshot));
+    // Enough entries to fill the queue of decoded entries several times over.
+    for (int i = 0; i < 100; i++) {
+      LogEntry transaction = createLogEntry(Op.saveFrameworkId(new SaveFrameworkId("id" + i)));
+      entries.add(expectContents(transaction));
+      expected.add(transaction);
+    }
+    expect(stream.readAll()).andReturn(entries.iterator());
+
+    control.replay();
+
+    final List<LogEntry> read = Lists.newArrayList();
+    StreamManager streamManager = new StreamManager(stream, false, message.chunkSize, 2);
+    streamManager.readFromBeginning(new Closure<LogEntry>() {
+      @Override
+      public void execute(LogEntry logEntry) {
+        read.add(logEntry);
+      }
+    });
+    assertEquals(expected, read);
+  }
+
+  @Test(expected = CodingException.class)
+  public void testPipelinedReadDecodeFailure() throws Exception {
+    byte[] contents = encode(createLogEntry(Op.saveFrameworkId(new SaveFrameworkId("id"))));
+    Entry truncated = createMock(Entry.class);
+    expect(truncated.contents()).andReturn(Arrays.copyOf(contents, contents.length / 2));
+    expect(stream.readAll()).andReturn(Iterators.singletonIterator(truncated));
+
+    Closure<LogEntry> reader = createMock(new Clazz<Closure<LogEntry>>() { });
+
+    control.replay();
+
+    new StreamManager(stream, false, NO_FRAMES_EVER_SIZE, 2).readFromBeginning(reader);
+  }
+
+  private Entry expectContents(LogEntry logEntry) throws CodingException {
+    Entry entry = createMock(Entry.class);
+    expect(entry.contents()).andReturn(encode(logEntry));
+    return entry;
+  }
+
   private Snapshot createSnapshot() {
     return new Snapshot()
         .setTimestamp(1L)
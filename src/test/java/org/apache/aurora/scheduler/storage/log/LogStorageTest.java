@@ -14,6 +14,8 @@
 package org.apache.aurora.scheduler.storage.log;
 
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.google.common.base.Function;
@@ -23,6 +25,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.testing.TearDown;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.twitter.common.quantity.Amount;
 import com.twitter.common.quantity.Data;
 import com.twitter.common.quantity.Time;
@@ -68,6 +75,7 @@ import org.apache.aurora.gen.storage.SaveLock;
 import org.apache.aurora.gen.storage.SaveQuota;
 import org.apache.aurora.gen.storage.SaveTasks;
 import org.apache.aurora.gen.storage.Snapshot;
+import org.apache.aurora.gen.storage.SnapshotMarker;
 import org.apache.aurora.gen.storage.Transaction;
 import org.apache.aurora.gen.storage.storageConstants;
 import org.apache.aurora.scheduler.base.JobKeys;
@@ -119,6 +127,7 @@ public class LogStorageTest extends EasyMockTest {
   private static final long NOW = 42L;
 
   private LogStorage logStorage;
+  private LogManager logManager;
   private Log log;
   private Stream stream;
   private Position position;
@@ -131,25 +140,13 @@ public class LogStorageTest extends EasyMockTest {
   public void setUp() {
     log = createMock(Log.class);
 
-    LogManager logManager = new LogManager(log, Amount.of(1, Data.GB), false);
+    logManager = new LogManager(log, Amount.of(1, Data.GB), false, 0);
 
     schedulingService = createMock(SchedulingService.class);
     snapshotStore = createMock(new Clazz<SnapshotStore<Snapshot>>() { });
     storageUtil = new StorageTestUtil(this);
 
-    logStorage =
-        new LogStorage(logManager,
-            schedulingService,
-            snapshotStore,
-            SNAPSHOT_INTERVAL,
-            storageUtil.storage,
-            storageUtil.schedulerStore,
-            storageUtil.jobStore,
-            storageUtil.taskStore,
-            storageUtil.lockStore,
-            storageUtil.quotaStore,
-            storageUtil.attributeStore,
-            storageUtil.jobUpdateStore);
+    logStorage = createLogStorage(Optional.<GroupCommitter.Settings>absent());
 
     stream = createMock(Stream.class);
     streamMatcher = LogOpMatcher.matcherFor(stream);
@@ -158,6 +155,27 @@ public class LogStorageTest extends EasyMockTest {
     storageUtil.storage.prepare();
   }
 
+  private LogStorage createLogStorage(Optional<GroupCommitter.Settings> groupCommitSettings) {
+    return new LogStorage(logManager,
+        schedulingService,
+        snapshotStore,
+        SNAPSHOT_INTERVAL,
+        storageUtil.storage,
+        storageUtil.schedulerStore,
+        storageUtil.jobStore,
+        storageUtil.taskStore,
+        storageUtil.lockStore,
+        storageUtil.quotaStore,
+        storageUtil.attributeStore,
+        storageUtil.jobUpdateStore,
+        groupCommitSettings,
+        false,
+        false,
+        false,
+        Optional.<SnapshotPolicy.Settings>absent(),
+        Optional.<Amount<Long, Time>>absent());
+  }
+
   @Test
   public void testStart() throws Exception {
     // We should open the log and arrange for its clean shutdown.
@@ -255,7 +273,7 @@ public class LogStorageTest extends EasyMockTest {
             snapshotWork.getValue().apply(storageUtil.mutableStoreProvider);
             return null;
           }
-        }).times(4);
+        });
 
     control.replay();
 
@@ -267,6 +285,155 @@ public class LogStorageTest extends EasyMockTest {
     snapshotAction.getValue().run();
   }
 
+  @Test
+  public void testReplaySnapshotCapturedAtMarker() {
+    storageUtil.expectOperations();
+    Snapshot snapshot = new Snapshot().setTimestamp(NOW).setMarkerId("marker");
+    storageUtil.schedulerStore.saveFrameworkId("before");
+    snapshotStore.applySnapshot(snapshot);
+    // Ops following the marker are only replayed once the snapshot is applied.
+    storageUtil.schedulerStore.saveFrameworkId("after");
+
+    control.replay();
+
+    logStorage.replay(createTransaction(
+        Op.saveFrameworkId(new SaveFrameworkId("before")),
+        Op.snapshotMarker(new SnapshotMarker("marker")),
+        Op.saveFrameworkId(new SaveFrameworkId("after"))));
+    logStorage.replay(LogEntry.snapshot(snapshot));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReplaySnapshotMissingMarker() {
+    storageUtil.expectOperations();
+    Snapshot snapshot = new Snapshot().setTimestamp(NOW).setMarkerId("marker");
+    snapshotStore.applySnapshot(snapshot);
+
+    control.replay();
+
+    logStorage.replay(createTransaction(Op.snapshotMarker(new SnapshotMarker("other"))));
+    logStorage.replay(LogEntry.snapshot(snapshot));
+  }
+
+  @Test
+  public void testReplayUpdateEventFollowingMarker() {
+    storageUtil.expectOperations();
+    Snapshot snapshot = new Snapshot().setTimestamp(NOW).setMarkerId("marker");
+    final AtomicBoolean snapshotApplied = new AtomicBoolean(false);
+    snapshotStore.applySnapshot(snapshot);
+    expectLastCall().andAnswer(new IAnswer<Void>() {
+      @Override
+      public Void answer() {
+        snapshotApplied.set(true);
+        return null;
+      }
+    });
+    IJobUpdateEvent event = IJobUpdateEvent.build(new JobUpdateEvent()
+        .setStatus(JobUpdateStatus.ROLLING_FORWARD)
+        .setTimestampMs(12345L));
+    // The update the event belongs to was saved before the marker, and is only known to storage
+    // once the snapshot is applied.
+    storageUtil.jobUpdateStore.saveJobUpdateEvent(event, UPDATE_ID);
+    expectLastCall().andAnswer(new IAnswer<Void>() {
+      @Override
+      public Void answer() {
+        assertTrue(snapshotApplied.get());
+        return null;
+      }
+    });
+
+    control.replay();
+
+    logStorage.replay(createTransaction(Op.snapshotMarker(new SnapshotMarker("marker"))));
+    logStorage.replay(createTransaction(
+        Op.saveJobUpdateEvent(new SaveJobUpdateEvent(event.newBuilder(), UPDATE_ID))));
+    logStorage.replay(LogEntry.snapshot(snapshot));
+  }
+
+  @Test
+  public void testReplaySupersededMarker() {
+    storageUtil.expectOperations();
+    Snapshot snapshot = new Snapshot().setTimestamp(NOW).setMarkerId("second");
+    // The first marker has no snapshot, so the ops following it are replayed at the next marker.
+    storageUtil.schedulerStore.saveFrameworkId("first");
+    snapshotStore.applySnapshot(snapshot);
+    storageUtil.schedulerStore.saveFrameworkId("second");
+
+    control.replay();
+
+    logStorage.replay(createTransaction(
+        Op.snapshotMarker(new SnapshotMarker("first")),
+        Op.saveFrameworkId(new SaveFrameworkId("first")),
+        Op.snapshotMarker(new SnapshotMarker("second")),
+        Op.saveFrameworkId(new SaveFrameworkId("second"))));
+    logStorage.replay(LogEntry.snapshot(snapshot));
+  }
+
+  @Test
+  public void testSnapshotWithPendingGroupCommit() throws Exception {
+    // The batch may only be closed by the snapshot.
+    logStorage = createLogStorage(
+        Optional.of(new GroupCommitter.Settings(Amount.of(1L, Time.HOURS), 100)));
+    final String frameworkId = "bob";
+    final AtomicBoolean appended = new AtomicBoolean(false);
+    final CountDownLatch applied = new CountDownLatch(1);
+    new StorageTestFixture() {
+      @Override
+      protected void setupExpectations() throws Exception {
+        storageUtil.expectWriteOperation().times(2);
+        storageUtil.schedulerStore.saveFrameworkId(frameworkId);
+        streamMatcher.expectTransaction(Op.saveFrameworkId(new SaveFrameworkId(frameworkId)))
+            .andAnswer(new IAnswer<Position>() {
+              @Override
+              public Position answer() {
+                appended.set(true);
+                return position;
+              }
+            });
+
+        final Snapshot snapshot = new Snapshot().setTimestamp(NOW);
+        expect(snapshotStore.createSnapshot()).andAnswer(new IAnswer<Snapshot>() {
+          @Override
+          public Snapshot answer() {
+            // Entries preceding the snapshot are truncated, so the pending write must be
+            // appended before the snapshot is created.
+            assertTrue(appended.get());
+            return snapshot;
+          }
+        });
+        streamMatcher.expectSnapshot(snapshot).andReturn(position);
+        stream.truncateBefore(position);
+      }
+
+      @Override
+      protected void runTest() {
+        ListeningExecutorService executor =
+            MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+        try {
+          ListenableFuture<?> write = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+              logStorage.write(new MutateWork.NoResult.Quiet() {
+                @Override
+                protected void execute(MutableStoreProvider storeProvider) {
+                  storeProvider.getSchedulerStore().saveFrameworkId(frameworkId);
+                  applied.countDown();
+                }
+              });
+            }
+          });
+
+          // The snapshot waits on the storage lock until the write has been enqueued.
+          Uninterruptibles.awaitUninterruptibly(applied);
+          logStorage.snapshot();
+          Futures.getUnchecked(write);
+        } finally {
+          executor.shutdownNow();
+        }
+      }
+    }.run();
+  }
+
   abstract class StorageTestFixture {
     private final AtomicBoolean runCalled = new AtomicBoolean(false);
 
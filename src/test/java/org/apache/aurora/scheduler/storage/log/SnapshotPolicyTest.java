@@ -0,0 +1,80 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import com.twitter.common.quantity.Amount;
+import com.twitter.common.quantity.Data;
+import com.twitter.common.quantity.Time;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotPolicyTest {
+
+  private static final long MIN_INTERVAL = Amount.of(1L, Time.MINUTES).as(Time.NANOSECONDS);
+  private static final long MAX_INTERVAL = Amount.of(1L, Time.HOURS).as(Time.NANOSECONDS);
+  private static final long MAX_BYTES = Amount.of(1L, Data.MB).as(Data.BYTES);
+  private static final int MAX_TRANSACTIONS = 1000;
+
+  private SnapshotPolicy policy;
+
+  @Before
+  public void setUp() {
+    policy = new SnapshotPolicy(
+        new SnapshotPolicy.Settings(
+            Amount.of(1L, Time.SECONDS),
+            Amount.of(1L, Time.MINUTES),
+            Amount.of(1L, Data.MB),
+            MAX_TRANSACTIONS,
+            Amount.of(10L, Time.SECONDS)),
+        Amount.of(1L, Time.HOURS));
+  }
+
+  @Test
+  public void testQuiet() {
+    assertFalse(policy.shouldSnapshot(MAX_INTERVAL * 2, 0, 0));
+  }
+
+  @Test
+  public void testMaxInterval() {
+    assertFalse(policy.shouldSnapshot(MAX_INTERVAL - 1, 1, 1));
+    assertTrue(policy.shouldSnapshot(MAX_INTERVAL, 1, 1));
+  }
+
+  @Test
+  public void testThresholds() {
+    assertFalse(policy.shouldSnapshot(MIN_INTERVAL, MAX_TRANSACTIONS - 1, MAX_BYTES - 1));
+    assertTrue(policy.shouldSnapshot(MIN_INTERVAL, MAX_TRANSACTIONS, 1));
+    assertTrue(policy.shouldSnapshot(MIN_INTERVAL, 1, MAX_BYTES));
+  }
+
+  @Test
+  public void testMinInterval() {
+    assertFalse(policy.shouldSnapshot(MIN_INTERVAL - 1, MAX_TRANSACTIONS, MAX_BYTES));
+  }
+
+  @Test
+  public void testReplayTime() {
+    // Without a recovery to estimate from, replay time does not trigger a snapshot.
+    assertFalse(policy.shouldSnapshot(MIN_INTERVAL, 1, 1000));
+
+    // Replaying 1000 bytes took 1 second, so 10000 bytes would take 10 seconds.
+    policy.recordRecovery(1000, Amount.of(1L, Time.SECONDS).as(Time.NANOSECONDS));
+    assertFalse(policy.shouldSnapshot(MIN_INTERVAL, 1, 9999));
+    assertTrue(policy.shouldSnapshot(MIN_INTERVAL, 1, 10000));
+  }
+}
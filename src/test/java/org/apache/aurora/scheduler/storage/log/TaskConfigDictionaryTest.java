@@ -0,0 +1,102 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.aurora.codec.ThriftBinaryCodec;
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.Identity;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.gen.storage.DeduplicatedTasks;
+import org.apache.aurora.gen.storage.StoredTask;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TaskConfigDictionaryTest {
+
+  private static final IScheduledTask A0 = task("a0", "a", 0);
+  private static final IScheduledTask A1 = task("a1", "a", 1);
+  private static final IScheduledTask B0 = task("b0", "b", 0);
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    ImmutableSet<IScheduledTask> tasks = ImmutableSet.of(A0, A1, B0);
+    DeduplicatedTasks deduplicated =
+        TaskConfigDictionary.deduplicate(IScheduledTask.toBuildersList(tasks));
+
+    assertEquals(2, deduplicated.getTaskConfigsSize());
+    assertEquals(3, deduplicated.getTasksSize());
+    for (StoredTask stored : deduplicated.getTasks()) {
+      assertFalse(stored.getTask().getAssignedTask().isSetTask());
+    }
+    assertEquals(tasks, TaskConfigDictionary.resolve(deduplicated));
+
+    // The dictionary survives encoding, and resolving leaves it intact.
+    DeduplicatedTasks decoded = ThriftBinaryCodec.decodeNonNull(
+        DeduplicatedTasks.class,
+        ThriftBinaryCodec.encodeNonNull(deduplicated));
+    assertEquals(tasks, TaskConfigDictionary.resolve(decoded));
+    assertEquals(tasks, TaskConfigDictionary.resolve(decoded));
+  }
+
+  @Test
+  public void testStableIds() {
+    DeduplicatedTasks first =
+        TaskConfigDictionary.deduplicate(IScheduledTask.toBuildersList(ImmutableList.of(A0)));
+    DeduplicatedTasks second =
+        TaskConfigDictionary.deduplicate(IScheduledTask.toBuildersList(ImmutableList.of(A1)));
+
+    assertEquals(first.getTaskConfigs().keySet(), second.getTaskConfigs().keySet());
+  }
+
+  @Test
+  public void testEmpty() {
+    DeduplicatedTasks deduplicated =
+        TaskConfigDictionary.deduplicate(ImmutableList.<ScheduledTask>of());
+
+    assertEquals(ImmutableSet.<IScheduledTask>of(), TaskConfigDictionary.resolve(deduplicated));
+    assertEquals(
+        ImmutableSet.<IScheduledTask>of(),
+        TaskConfigDictionary.resolve(new DeduplicatedTasks()));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUnknownConfig() {
+    DeduplicatedTasks deduplicated =
+        TaskConfigDictionary.deduplicate(IScheduledTask.toBuildersList(ImmutableList.of(A0)));
+    deduplicated.getTaskConfigs().clear();
+
+    TaskConfigDictionary.resolve(deduplicated);
+  }
+
+  private static IScheduledTask task(String id, String jobName, int instanceId) {
+    return IScheduledTask.build(new ScheduledTask()
+        .setStatus(ScheduleStatus.RUNNING)
+        .setAssignedTask(new AssignedTask()
+            .setTaskId(id)
+            .setInstanceId(instanceId)
+            .setTask(new TaskConfig()
+                .setOwner(new Identity("role", "user"))
+                .setEnvironment("prod")
+                .setJobName(jobName)
+                .setRequestedPorts(ImmutableSet.of("http")))));
+  }
+}
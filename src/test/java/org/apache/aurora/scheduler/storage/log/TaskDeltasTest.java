@@ -0,0 +1,139 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.aurora.codec.ThriftBinaryCodec;
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.ExecutorConfig;
+import org.apache.aurora.gen.Identity;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.gen.TaskEvent;
+import org.apache.aurora.gen.storage.Op;
+import org.apache.aurora.gen.storage.SaveTaskDelta;
+import org.apache.aurora.gen.storage.SaveTasks;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.junit.Test;
+
+import static org.apache.aurora.gen.ScheduleStatus.ASSIGNED;
+import static org.apache.aurora.gen.ScheduleStatus.PENDING;
+import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskDeltasTest {
+
+  private static final IScheduledTask PENDING_TASK = IScheduledTask.build(new ScheduledTask()
+      .setStatus(PENDING)
+      .setTaskEvents(ImmutableList.of(new TaskEvent(100L, PENDING)))
+      .setAssignedTask(new AssignedTask()
+          .setTaskId("task")
+          .setInstanceId(0)
+          .setTask(new TaskConfig()
+              .setOwner(new Identity("role", "user"))
+              .setEnvironment("prod")
+              .setJobName("job")
+              .setExecutorConfig(new ExecutorConfig("thermos", Strings.repeat("x", 2000))))));
+
+  @Test
+  public void testAssignment() {
+    ScheduledTask builder = PENDING_TASK.newBuilder()
+        .setStatus(ASSIGNED)
+        .addToTaskEvents(new TaskEvent(200L, ASSIGNED).setScheduler("scheduler"));
+    builder.getAssignedTask()
+        .setSlaveId("slave")
+        .setSlaveHost("host")
+        .setAssignedPorts(ImmutableMap.of("http", 1000));
+    IScheduledTask assigned = IScheduledTask.build(builder);
+
+    SaveTaskDelta delta = assertDelta(PENDING_TASK, assigned);
+    assertEquals(ASSIGNED, delta.getStatus());
+    assertEquals(1, delta.getTaskEventsSize());
+    assertFalse(delta.isSetFailureCount());
+  }
+
+  @Test
+  public void testTransitionIsCompact() throws Exception {
+    IScheduledTask running = IScheduledTask.build(PENDING_TASK.newBuilder()
+        .setStatus(RUNNING)
+        .addToTaskEvents(new TaskEvent(200L, RUNNING)));
+
+    SaveTaskDelta delta = assertDelta(PENDING_TASK, running);
+    int deltaBytes = ThriftBinaryCodec.encodeNonNull(Op.saveTaskDelta(delta)).length;
+    int fullBytes = ThriftBinaryCodec.encodeNonNull(
+        Op.saveTasks(new SaveTasks(ImmutableSet.of(running.newBuilder())))).length;
+    assertTrue(deltaBytes * 10 < fullBytes);
+  }
+
+  @Test
+  public void testReplayIsIdempotent() {
+    IScheduledTask running = IScheduledTask.build(PENDING_TASK.newBuilder()
+        .setStatus(RUNNING)
+        .addToTaskEvents(new TaskEvent(200L, RUNNING)));
+
+    SaveTaskDelta delta = assertDelta(PENDING_TASK, running);
+    assertEquals(1, delta.getPriorEventCount());
+    assertEquals(running, TaskDeltas.apply(TaskDeltas.apply(PENDING_TASK, delta), delta));
+  }
+
+  @Test
+  public void testFailureCount() {
+    IScheduledTask failed = IScheduledTask.build(PENDING_TASK.newBuilder().setFailureCount(3));
+
+    SaveTaskDelta delta = assertDelta(PENDING_TASK, failed);
+    assertEquals(3, delta.getFailureCount());
+    assertFalse(delta.isSetStatus());
+    assertFalse(delta.isSetTaskEvents());
+  }
+
+  @Test
+  public void testConfigChange() {
+    ScheduledTask builder = PENDING_TASK.newBuilder();
+    builder.getAssignedTask().getTask().setJobName("other");
+
+    assertFalse(TaskDeltas.diff(PENDING_TASK, IScheduledTask.build(builder)).isPresent());
+  }
+
+  @Test
+  public void testEventsReplaced() {
+    IScheduledTask replaced = IScheduledTask.build(PENDING_TASK.newBuilder()
+        .setTaskEvents(ImmutableList.of(new TaskEvent(200L, RUNNING))));
+
+    assertFalse(TaskDeltas.diff(PENDING_TASK, replaced).isPresent());
+  }
+
+  @Test
+  public void testFieldCleared() {
+    IScheduledTask withAncestor =
+        IScheduledTask.build(PENDING_TASK.newBuilder().setAncestorId("ancestor"));
+
+    assertTrue(TaskDeltas.diff(PENDING_TASK, withAncestor).isPresent());
+    assertFalse(TaskDeltas.diff(withAncestor, PENDING_TASK).isPresent());
+  }
+
+  private static SaveTaskDelta assertDelta(IScheduledTask before, IScheduledTask after) {
+    Optional<SaveTaskDelta> delta = TaskDeltas.diff(before, after);
+    assertTrue(delta.isPresent());
+    assertEquals("task", delta.get().getTaskId());
+    assertEquals(after, TaskDeltas.apply(before, delta.get()));
+    return delta.get();
+  }
+}
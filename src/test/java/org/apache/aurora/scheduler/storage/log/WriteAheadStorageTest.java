@@ -0,0 +1,130 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.twitter.common.inject.Bindings;
+
+import org.apache.aurora.gen.Attribute;
+import org.apache.aurora.gen.HostAttributes;
+import org.apache.aurora.gen.MaintenanceMode;
+import org.apache.aurora.gen.storage.Op;
+import org.apache.aurora.scheduler.storage.AttributeStore;
+import org.apache.aurora.scheduler.storage.JobStore;
+import org.apache.aurora.scheduler.storage.JobUpdateStore;
+import org.apache.aurora.scheduler.storage.LockStore;
+import org.apache.aurora.scheduler.storage.QuotaStore;
+import org.apache.aurora.scheduler.storage.SchedulerStore;
+import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.Storage.MutableStoreProvider;
+import org.apache.aurora.scheduler.storage.Storage.MutateWork;
+import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
+import org.apache.aurora.scheduler.storage.Storage.Work;
+import org.apache.aurora.scheduler.storage.TaskStore;
+import org.apache.aurora.scheduler.storage.db.DbModule;
+import org.apache.aurora.scheduler.storage.db.MigrationModule;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+import org.apache.aurora.scheduler.storage.log.LogStorage.TransactionManager;
+import org.apache.aurora.scheduler.storage.log.LogStorage.WriteBehind;
+import org.apache.aurora.scheduler.storage.mem.MemStorage.Delegated;
+import org.apache.aurora.scheduler.storage.mem.MemStorageModule;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WriteAheadStorageTest {
+
+  private static final String HOST = "hostA";
+
+  private Injector injector;
+  private Storage storage;
+  private WriteAheadStorage writeAheadStorage;
+
+  @Before
+  public void setUp() {
+    // Mirrors the storage wiring of the scheduler, where the write-ahead storage writes to the
+    // same attribute store that the volatile storage reads from.
+    injector = Guice.createInjector(
+        DbModule.testModule(Bindings.annotatedKeyFactory(Delegated.class)),
+        new MemStorageModule(Bindings.annotatedKeyFactory(WriteBehind.class)),
+        new MigrationModule(
+            Bindings.annotatedKeyFactory(WriteBehind.class),
+            Bindings.annotatedKeyFactory(Delegated.class)));
+    storage = writeBehind(Storage.class);
+    storage.prepare();
+
+    TransactionManager transactionManager = new TransactionManager() {
+      @Override
+      public boolean hasActiveTransaction() {
+        return true;
+      }
+
+      @Override
+      public void log(Op op) {
+        // Logging is not under test.
+      }
+    };
+    writeAheadStorage = new WriteAheadStorage(
+        transactionManager,
+        writeBehind(SchedulerStore.Mutable.class),
+        writeBehind(JobStore.Mutable.class),
+        writeBehind(TaskStore.Mutable.class),
+        writeBehind(LockStore.Mutable.class),
+        writeBehind(QuotaStore.Mutable.class),
+        writeBehind(AttributeStore.Mutable.class),
+        writeBehind(JobUpdateStore.Mutable.class),
+        false,
+        false);
+  }
+
+  private <T> T writeBehind(Class<T> clazz) {
+    return injector.getInstance(Key.get(clazz, WriteBehind.class));
+  }
+
+  @Test
+  public void testMaintenanceChangeVisibleToReaders() {
+    storage.write(new MutateWork.NoResult.Quiet() {
+      @Override
+      protected void execute(MutableStoreProvider storeProvider) {
+        writeAheadStorage.saveHostAttributes(IHostAttributes.build(new HostAttributes()
+            .setHost(HOST)
+            .setMode(MaintenanceMode.NONE)
+            .setAttributes(ImmutableSet.of(new Attribute("rack", ImmutableSet.of("a"))))));
+      }
+    });
+    // Reading the host caches its attributes.
+    assertEquals(MaintenanceMode.NONE, readMode());
+
+    storage.write(new MutateWork.NoResult.Quiet() {
+      @Override
+      protected void execute(MutableStoreProvider storeProvider) {
+        writeAheadStorage.setMaintenanceMode(HOST, MaintenanceMode.DRAINING);
+      }
+    });
+    assertEquals(MaintenanceMode.DRAINING, readMode());
+  }
+
+  private MaintenanceMode readMode() {
+    return storage.consistentRead(new Work.Quiet<MaintenanceMode>() {
+      @Override
+      public MaintenanceMode apply(StoreProvider storeProvider) {
+        return storeProvider.getAttributeStore().getHostAttributes(HOST).get().getMode();
+      }
+    });
+  }
+}
@@ -22,6 +22,7 @@ import java.util.concurrent.Executors;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -41,6 +42,7 @@ import org.apache.aurora.gen.TaskQuery;
 import org.apache.aurora.scheduler.base.JobKeys;
 import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.storage.TaskStore.Changes;
 import org.apache.aurora.scheduler.storage.TaskStore.Mutable.TaskMutation;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
@@ -436,6 +438,177 @@ public class MemTaskStoreTest {
     }
   }
 
+  @Test
+  public void testIntersectedIndices() {
+    final IScheduledTask a = makeTask("a", "jim", "test", "job");
+    final IScheduledTask b = makeTask("b", "jim", "prod", "job");
+    final IScheduledTask c = makeTask("c", "joe", "test", "job");
+    final IScheduledTask d = makeTask("d", "jim", "test", "job2");
+    store.saveTasks(ImmutableSet.of(a, b, c, d));
+
+    store.mutateTasks(Query.taskScoped("a", "b"), new TaskMutation() {
+      @Override
+      public IScheduledTask apply(IScheduledTask task) {
+        return IScheduledTask.build(task.newBuilder().setStatus(RUNNING));
+      }
+    });
+    IScheduledTask aRunning = IScheduledTask.build(a.newBuilder().setStatus(RUNNING));
+    IScheduledTask bRunning = IScheduledTask.build(b.newBuilder().setStatus(RUNNING));
+
+    assertQueryResults(Query.roleScoped("jim"), aRunning, bRunning, d);
+    assertQueryResults(Query.roleScoped("jim").byStatus(RUNNING), aRunning, bRunning);
+    assertQueryResults(Query.envScoped("jim", "test").byStatus(RUNNING), aRunning);
+    assertQueryResults(Query.envScoped("jim", "test").active(), aRunning, d);
+    assertQueryResults(Query.roleScoped("joe").byStatus(RUNNING));
+    assertQueryResults(Query.statusScoped(ScheduleStatus.PENDING), c, d);
+    assertQueryResults(
+        Query.jobScoped(JobKeys.from("jim", "test", "job")).byStatus(RUNNING),
+        aRunning);
+
+    store.deleteTasks(ImmutableSet.of("a"));
+    assertQueryResults(Query.envScoped("jim", "test").byStatus(RUNNING));
+    assertQueryResults(Query.statusScoped(RUNNING), bRunning);
+  }
+
+  @Test
+  public void testStatusIndexAfterOverwrite() {
+    store.saveTasks(ImmutableSet.of(TASK_A, TASK_B));
+    IScheduledTask aRunning = IScheduledTask.build(TASK_A.newBuilder().setStatus(RUNNING));
+    store.saveTasks(ImmutableSet.of(aRunning));
+
+    assertQueryResults(Query.statusScoped(ScheduleStatus.PENDING), TASK_B);
+    assertQueryResults(Query.statusScoped(RUNNING), aRunning);
+    assertQueryResults(Query.roleScoped("role-a").byStatus(ScheduleStatus.PENDING));
+  }
+
+  @Test
+  public void testPagedQuery() {
+    store.saveTasks(ImmutableSet.of(TASK_D, TASK_B, TASK_A, TASK_C));
+
+    assertPage(Query.unscoped().limit(2), TASK_A, TASK_B);
+    assertPage(Query.unscoped().after("b").limit(2), TASK_C, TASK_D);
+    assertPage(Query.unscoped().after("d").limit(2));
+    assertPage(Query.unscoped().after("a"), TASK_B, TASK_C, TASK_D);
+    assertPage(Query.arbitrary(new TaskQuery().setOffset(1).setLimit(2)), TASK_B, TASK_C);
+    assertPage(Query.arbitrary(new TaskQuery().setOffset(3)), TASK_D);
+    assertPage(Query.roleScoped("role-c").after("a").limit(2), TASK_C);
+  }
+
+  @Test
+  public void testTaskChanges() {
+    Changes initial = store.fetchTaskChanges(Query.unscoped(), 0);
+    assertChanges(initial, true, ImmutableSet.<IScheduledTask>of(), ImmutableSet.<String>of());
+
+    store.saveTasks(ImmutableSet.of(TASK_A, TASK_B));
+    Changes saved = store.fetchTaskChanges(Query.unscoped(), initial.getSequence());
+    assertChanges(saved, false, ImmutableSet.of(TASK_A, TASK_B), ImmutableSet.<String>of());
+    assertChanges(
+        store.fetchTaskChanges(Query.unscoped(), saved.getSequence()),
+        false,
+        ImmutableSet.<IScheduledTask>of(),
+        ImmutableSet.<String>of());
+
+    final IScheduledTask aRunning = IScheduledTask.build(TASK_A.newBuilder().setStatus(RUNNING));
+    store.mutateTasks(Query.taskScoped("a"), new TaskMutation() {
+      @Override
+      public IScheduledTask apply(IScheduledTask task) {
+        return aRunning;
+      }
+    });
+    Changes mutated = store.fetchTaskChanges(Query.unscoped(), saved.getSequence());
+    assertChanges(mutated, false, ImmutableSet.of(aRunning), ImmutableSet.<String>of());
+    assertChanges(
+        store.fetchTaskChanges(Query.roleScoped("role-b"), saved.getSequence()),
+        false,
+        ImmutableSet.<IScheduledTask>of(),
+        ImmutableSet.<String>of());
+
+    store.deleteTasks(ImmutableSet.of("b"));
+    assertChanges(
+        store.fetchTaskChanges(Query.unscoped(), mutated.getSequence()),
+        false,
+        ImmutableSet.<IScheduledTask>of(),
+        ImmutableSet.of("b"));
+    assertChanges(
+        store.fetchTaskChanges(Query.roleScoped("role-a"), mutated.getSequence()),
+        false,
+        ImmutableSet.<IScheduledTask>of(),
+        ImmutableSet.<String>of());
+
+    // A task saved again after it was deleted is reported as changed.
+    store.saveTasks(ImmutableSet.of(TASK_B));
+    assertChanges(
+        store.fetchTaskChanges(Query.unscoped(), mutated.getSequence()),
+        false,
+        ImmutableSet.of(TASK_B),
+        ImmutableSet.<String>of());
+  }
+
+  @Test
+  public void testTaskChangesBeyondTombstoneWindow() {
+    store = new MemTaskStore(1);
+    store.saveTasks(ImmutableSet.of(TASK_A, TASK_B, TASK_C));
+    Changes initial = store.fetchTaskChanges(Query.unscoped(), 0);
+    assertChanges(
+        initial,
+        true,
+        ImmutableSet.of(TASK_A, TASK_B, TASK_C),
+        ImmutableSet.<String>of());
+
+    store.deleteTasks(ImmutableSet.of("a"));
+    Changes deletedA = store.fetchTaskChanges(Query.unscoped(), initial.getSequence());
+    assertChanges(deletedA, false, ImmutableSet.<IScheduledTask>of(), ImmutableSet.of("a"));
+
+    // Deleting b discards the deletion of a, so only clients that observed it receive changes.
+    store.deleteTasks(ImmutableSet.of("b"));
+    assertChanges(
+        store.fetchTaskChanges(Query.unscoped(), initial.getSequence()),
+        true,
+        ImmutableSet.of(TASK_C),
+        ImmutableSet.<String>of());
+    assertChanges(
+        store.fetchTaskChanges(Query.unscoped(), deletedA.getSequence()),
+        false,
+        ImmutableSet.<IScheduledTask>of(),
+        ImmutableSet.of("b"));
+  }
+
+  @Test
+  public void testTaskChangesAfterDeleteAll() {
+    store.saveTasks(ImmutableSet.of(TASK_A));
+    Changes initial = store.fetchTaskChanges(Query.unscoped(), 0);
+
+    store.deleteAllTasks();
+    store.saveTasks(ImmutableSet.of(TASK_B));
+    assertChanges(
+        store.fetchTaskChanges(Query.unscoped(), initial.getSequence()),
+        true,
+        ImmutableSet.of(TASK_B),
+        ImmutableSet.<String>of());
+
+    // Sequence numbers that were not issued by the store yield a snapshot.
+    assertChanges(
+        store.fetchTaskChanges(Query.unscoped(), Long.MAX_VALUE),
+        true,
+        ImmutableSet.of(TASK_B),
+        ImmutableSet.<String>of());
+  }
+
+  private static void assertChanges(
+      Changes changes,
+      boolean snapshot,
+      Set<IScheduledTask> tasks,
+      Set<String> deletedTaskIds) {
+
+    assertEquals(snapshot, changes.isSnapshot());
+    assertEquals(tasks, changes.getTasks());
+    assertEquals(deletedTaskIds, changes.getDeletedTaskIds());
+  }
+
+  private void assertPage(Query.Builder query, IScheduledTask... tasks) {
+    assertEquals(ImmutableList.copyOf(tasks), store.fetchTasks(query).asList());
+  }
+
   private void assertStoreContents(IScheduledTask... tasks) {
     assertQueryResults(Query.unscoped(), tasks);
   }
@@ -0,0 +1,165 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.thrift;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.Identity;
+import org.apache.aurora.gen.JobSummary;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.gen.TaskEvent;
+import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.base.Jobs;
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.apache.aurora.gen.ScheduleStatus.FINISHED;
+import static org.apache.aurora.gen.ScheduleStatus.KILLED;
+import static org.apache.aurora.gen.ScheduleStatus.PENDING;
+import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
+import static org.junit.Assert.assertEquals;
+
+public class JobSummariesTest {
+
+  private static final IJobKey JOB_A = JobKeys.from("role", "test", "a");
+  private static final IJobKey JOB_B = JobKeys.from("role", "test", "b");
+  private static final IJobKey JOB_C = JobKeys.from("other", "test", "c");
+
+  private JobSummaries summaries;
+
+  @Before
+  public void setUp() {
+    summaries = new JobSummaries(true);
+  }
+
+  @Test
+  public void testSummaries() {
+    IScheduledTask a0 = makeTask("a0", JOB_A, RUNNING, 100, 1);
+    IScheduledTask a1 = makeTask("a1", JOB_A, PENDING, 200, 2);
+    IScheduledTask b0 = makeTask("b0", JOB_B, FINISHED, 100, 1);
+    IScheduledTask c0 = makeTask("c0", JOB_C, RUNNING, 100, 1);
+    summaries.taskChangedState(TaskStateChange.initialized(a0));
+    summaries.taskChangedState(TaskStateChange.initialized(a1));
+    summaries.taskChangedState(TaskStateChange.initialized(b0));
+    summaries.taskChangedState(TaskStateChange.initialized(c0));
+
+    assertEquals(ImmutableMultiset.of("role", "role", "other"), summaries.getJobCounts());
+    assertEquals(
+        ImmutableMap.of(JOB_A, summarize(JOB_A, a0, a1), JOB_B, summarize(JOB_B, b0)),
+        summaries.getSummaries(Optional.of("role")));
+    assertEquals(
+        ImmutableMap.of(
+            JOB_A, summarize(JOB_A, a0, a1),
+            JOB_B, summarize(JOB_B, b0),
+            JOB_C, summarize(JOB_C, c0)),
+        summaries.getSummaries(Optional.<String>absent()));
+
+    // The configuration of a job follows its latest active task.
+    IScheduledTask a1Running = makeTask("a1", JOB_A, RUNNING, 300, 2);
+    summaries.taskChangedState(TaskStateChange.transition(a1Running, PENDING));
+    assertEquals(
+        summarize(JOB_A, a0, a1Running),
+        summaries.getSummaries(Optional.of("role")).get(JOB_A));
+    assertEquals(
+        a1Running.getAssignedTask().getTask().newBuilder(),
+        summaries.getSummaries(Optional.of("role")).get(JOB_A).getJob().getTaskConfig());
+
+    summaries.tasksDeleted(new TasksDeleted(ImmutableSet.of(b0, c0)));
+    assertEquals(ImmutableMultiset.of("role"), summaries.getJobCounts());
+    assertEquals(
+        ImmutableMap.of(JOB_A, summarize(JOB_A, a0, a1Running)),
+        summaries.getSummaries(Optional.<String>absent()));
+  }
+
+  @Test
+  public void testTransitionsAndRewrites() {
+    IScheduledTask a0 = makeTask("a0", JOB_A, PENDING, 100, 1);
+    summaries.taskChangedState(TaskStateChange.transition(a0, ScheduleStatus.INIT));
+    assertEquals(summarize(JOB_A, a0), summaries.getSummaries(Optional.of("role")).get(JOB_A));
+
+    // As in an update, a task with a new configuration replaces a task that is then killed.
+    IScheduledTask a1 = makeTask("a1", JOB_A, PENDING, 200, 2);
+    summaries.taskChangedState(TaskStateChange.transition(a1, ScheduleStatus.INIT));
+    IScheduledTask a0Killed = makeTask("a0", JOB_A, KILLED, 300, 1);
+    summaries.taskChangedState(TaskStateChange.transition(a0Killed, PENDING));
+    assertEquals(
+        summarize(JOB_A, a0Killed, a1),
+        summaries.getSummaries(Optional.of("role")).get(JOB_A));
+
+    // Config rewrites post no task events, and are applied explicitly.
+    TaskConfig rewritten = a1.getAssignedTask().getTask().newBuilder().setNumCpus(4);
+    summaries.taskConfigRewritten(JOB_A, ITaskConfig.build(rewritten));
+    assertEquals(
+        rewritten,
+        summaries.getSummaries(Optional.of("role")).get(JOB_A).getJob().getTaskConfig());
+
+    summaries.tasksDeleted(new TasksDeleted(ImmutableSet.of(a0Killed, a1)));
+    assertEquals(ImmutableMultiset.<String>of(), summaries.getJobCounts());
+  }
+
+  @Test
+  public void testDisabled() {
+    summaries = new JobSummaries(false);
+    summaries.taskChangedState(
+        TaskStateChange.initialized(makeTask("a0", JOB_A, RUNNING, 100, 1)));
+
+    assertEquals(ImmutableMultiset.<String>of(), summaries.getJobCounts());
+    assertEquals(
+        ImmutableMap.<IJobKey, JobSummary>of(),
+        summaries.getSummaries(Optional.<String>absent()));
+  }
+
+  private static JobSummary summarize(IJobKey jobKey, IScheduledTask... tasks) {
+    // Summaries are expected to match those computed from the tasks of the job.
+    ImmutableList<IScheduledTask> jobTasks = ImmutableList.copyOf(tasks);
+    return new JobSummary()
+        .setJob(Jobs.synthesizeJob(
+            jobKey,
+            Tasks.getLatestActiveTask(jobTasks).getAssignedTask().getTask(),
+            jobTasks.size()).newBuilder())
+        .setStats(Jobs.getJobStats(jobTasks).newBuilder());
+  }
+
+  private static IScheduledTask makeTask(
+      String id,
+      IJobKey jobKey,
+      ScheduleStatus status,
+      long timestamp,
+      double numCpus) {
+
+    return IScheduledTask.build(new ScheduledTask()
+        .setStatus(status)
+        .setTaskEvents(ImmutableList.of(new TaskEvent().setTimestamp(timestamp).setStatus(status)))
+        .setAssignedTask(new AssignedTask()
+            .setTaskId(id)
+            .setTask(new TaskConfig()
+                .setOwner(new Identity(jobKey.getRole(), "user"))
+                .setEnvironment(jobKey.getEnvironment())
+                .setJobName(jobKey.getName())
+                .setNumCpus(numCpus))));
+  }
+}
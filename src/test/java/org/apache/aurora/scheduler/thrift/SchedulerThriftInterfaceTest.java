@@ -53,6 +53,7 @@ import org.apache.aurora.gen.ConfigSummary;
 import org.apache.aurora.gen.ConfigSummaryResult;
 import org.apache.aurora.gen.Constraint;
 import org.apache.aurora.gen.ExecutorConfig;
+import org.apache.aurora.gen.GetTasksChangedSinceResult;
 import org.apache.aurora.gen.HostStatus;
 import org.apache.aurora.gen.Hosts;
 import org.apache.aurora.gen.Identity;
@@ -86,6 +87,7 @@ import org.apache.aurora.gen.RewriteConfigsRequest;
 import org.apache.aurora.gen.RoleSummary;
 import org.apache.aurora.gen.RoleSummaryResult;
 import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduleStatusResult;
 import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.gen.ServerInfo;
 import org.apache.aurora.gen.SessionKey;
@@ -115,6 +117,7 @@ import org.apache.aurora.scheduler.state.TaskLimitValidator;
 import org.apache.aurora.scheduler.state.UUIDGenerator;
 import org.apache.aurora.scheduler.storage.Storage;
 import org.apache.aurora.scheduler.storage.Storage.NonVolatileStorage;
+import org.apache.aurora.scheduler.storage.TaskStore;
 import org.apache.aurora.scheduler.storage.backup.Recovery;
 import org.apache.aurora.scheduler.storage.backup.StorageBackup;
 import org.apache.aurora.scheduler.storage.entities.IInstanceKey;
@@ -163,6 +166,7 @@ import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -1472,7 +1476,9 @@ public class SchedulerThriftInterfaceTest extends EasyMockTest {
   private TaskQuery setupPaginatedQuery(Iterable<IScheduledTask> tasks, int offset, int limit) {
     TaskQuery query = new TaskQuery().setOffset(offset).setLimit(limit);
     Builder builder = Query.arbitrary(query);
-    storageUtil.expectTaskFetch(builder, ImmutableSet.copyOf(tasks));
+    storageUtil.expectTaskFetch(
+        builder,
+        ImmutableSet.copyOf(Iterables.limit(Iterables.skip(tasks, offset), limit)));
     return query;
   }
 
@@ -1509,6 +1515,68 @@ public class SchedulerThriftInterfaceTest extends EasyMockTest {
     assertEquals(Lists.newArrayList(0, 1, 2, 3), page1Ids);
     assertEquals(Lists.newArrayList(4, 5, 6, 7), page2Ids);
     assertEquals(Lists.newArrayList(8, 9), page3Ids);
+    assertFalse(page3Response.getResult().getScheduleStatusResult().isSetNextCursor());
+  }
+
+  @Test
+  public void testGetTasksStatusCursor() throws Exception {
+    IScheduledTask taskA = IScheduledTask.build(
+        new ScheduledTask().setAssignedTask(new AssignedTask().setTaskId("a")));
+    IScheduledTask taskB = IScheduledTask.build(
+        new ScheduledTask().setAssignedTask(new AssignedTask().setTaskId("b")));
+    IScheduledTask taskC = IScheduledTask.build(
+        new ScheduledTask().setAssignedTask(new AssignedTask().setTaskId("c")));
+
+    storageUtil.expectTaskFetch(Query.unscoped().limit(2), taskA, taskB);
+    storageUtil.expectTaskFetch(Query.unscoped().after("b").limit(2), taskC);
+
+    control.replay();
+
+    ScheduleStatusResult page1 = assertOkResponse(
+        thrift.getTasksStatus(new TaskQuery().setLimit(2)))
+        .getResult().getScheduleStatusResult();
+    assertEquals(IScheduledTask.toBuildersList(ImmutableList.of(taskA, taskB)), page1.getTasks());
+    assertEquals("b", page1.getNextCursor());
+
+    ScheduleStatusResult page2 = assertOkResponse(
+        thrift.getTasksStatus(new TaskQuery().setLimit(2).setCursor(page1.getNextCursor())))
+        .getResult().getScheduleStatusResult();
+    assertEquals(IScheduledTask.toBuildersList(ImmutableList.of(taskC)), page2.getTasks());
+    assertFalse(page2.isSetNextCursor());
+  }
+
+  @Test
+  public void testGetTasksChangedSince() throws Exception {
+    IScheduledTask task = IScheduledTask.build(
+        new ScheduledTask().setAssignedTask(new AssignedTask().setTaskId("a")));
+    expect(storageUtil.taskStore.fetchTaskChanges(Query.roleScoped(ROLE), 5L))
+        .andReturn(new TaskStore.Changes(
+            7L,
+            false,
+            ImmutableSet.of(task),
+            ImmutableSet.of("b")));
+
+    control.replay();
+
+    GetTasksChangedSinceResult result = assertOkResponse(
+        thrift.getTasksChangedSince(Query.roleScoped(ROLE).get(), 5L))
+        .getResult().getGetTasksChangedSinceResult();
+    assertEquals(
+        new GetTasksChangedSinceResult()
+            .setTasks(ImmutableList.of(task.newBuilder()))
+            .setDeletedTaskIds(ImmutableSet.of("b"))
+            .setSequence(7L)
+            .setSnapshot(false),
+        result);
+  }
+
+  @Test
+  public void testGetTasksChangedSincePaged() throws Exception {
+    control.replay();
+
+    assertResponse(
+        INVALID_REQUEST,
+        thrift.getTasksChangedSince(new TaskQuery().setLimit(10), 0L));
   }
 
   @Test
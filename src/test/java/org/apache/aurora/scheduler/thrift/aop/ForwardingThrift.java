@@ -178,6 +178,11 @@ abstract class ForwardingThrift implements AuroraAdmin.Iface {
     return delegate.getTasksStatus(query);
   }
 
+  @Override
+  public Response getTasksChangedSince(TaskQuery query, long sequence) throws TException {
+    return delegate.getTasksChangedSince(query, sequence);
+  }
+
   @Override
   public Response getJobs(String ownerRole) throws TException {
     return delegate.getJobs(ownerRole);
@@ -140,6 +140,11 @@ class TestSchedulerProxyInjection(unittest.TestCase):
     self.mox.ReplayAll()
     self.make_scheduler_proxy().getTasksStatus(TaskQuery())
 
+  def test_getTasksChangedSince(self):
+    self.mock_thrift_client.getTasksChangedSince(IsA(TaskQuery), 0)
+    self.mox.ReplayAll()
+    self.make_scheduler_proxy().getTasksChangedSince(TaskQuery(), 0)
+
   def test_getJobs(self):
     self.mock_thrift_client.getJobs(IgnoreArg())
     self.mox.ReplayAll()